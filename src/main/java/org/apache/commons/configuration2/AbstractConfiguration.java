@@ -40,9 +40,13 @@ import org.apache.commons.configuration2.event.ConfigurationEvent;
 import org.apache.commons.configuration2.event.EventListener;
 import org.apache.commons.configuration2.ex.ConversionException;
 import org.apache.commons.configuration2.interpol.ConfigurationInterpolator;
+import org.apache.commons.configuration2.interpol.InterpolationDependencyTracker;
 import org.apache.commons.configuration2.interpol.InterpolatorSpecification;
 import org.apache.commons.configuration2.interpol.Lookup;
 import org.apache.commons.configuration2.io.ConfigurationLogger;
+import org.apache.commons.configuration2.metrics.ConfigurationMetrics;
+import org.apache.commons.configuration2.metrics.ConfigurationOperation;
+import org.apache.commons.configuration2.metrics.NoOpConfigurationMetrics;
 import org.apache.commons.configuration2.sync.LockMode;
 import org.apache.commons.configuration2.sync.NoOpSynchronizer;
 import org.apache.commons.configuration2.sync.Synchronizer;
@@ -119,6 +123,9 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     /** The object responsible for synchronization. */
     private volatile Synchronizer synchronizer;
 
+    /** The object for reporting metrics (<b>null</b> if disabled). */
+    private volatile MetricsTracker metricsTracker;
+
     /** The object used for dealing with encoded property values. */
     private ConfigurationDecoder configurationDecoder;
 
@@ -260,6 +267,11 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     @Override
     public final void setInterpolator(ConfigurationInterpolator ci)
     {
+        MetricsTracker tracker = metricsTracker;
+        if (ci != null && tracker != null)
+        {
+            ci.setMetrics(tracker.getMetrics());
+        }
         interpolator.set(ci);
     }
 
@@ -568,6 +580,50 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
         this.synchronizer = synchronizer;
     }
 
+    /**
+     * Returns the {@code ConfigurationMetrics} object used by this
+     * configuration. This implementation never returns <b>null</b>. If no
+     * metrics object has been set, a {@link NoOpConfigurationMetrics} is
+     * returned.
+     *
+     * @return the {@code ConfigurationMetrics} used by this instance
+     * @since 2.1
+     */
+    public final ConfigurationMetrics getMetrics()
+    {
+        MetricsTracker tracker = metricsTracker;
+        return (tracker != null) ? tracker.getMetrics()
+                : NoOpConfigurationMetrics.INSTANCE;
+    }
+
+    /**
+     * Sets the object which collects metrics about the usage of this
+     * configuration. The metrics object is notified about the basic
+     * operations performed by this configuration (including the operations
+     * invoked internally by other operations), about failed data type
+     * conversions, and about the locks obtained from the {@code Synchronizer}.
+     * It is also passed to the current {@code ConfigurationInterpolator} (and
+     * to interpolators set later) which reports variable lookups. Per default,
+     * no metrics are collected; then there is no overhead apart from a check
+     * of a volatile field.
+     *
+     * @param metrics the {@code ConfigurationMetrics}; can be <b>null</b>,
+     *        then metrics are disabled
+     * @since 2.1
+     */
+    public final void setMetrics(ConfigurationMetrics metrics)
+    {
+        ConfigurationMetrics m =
+                (metrics == NoOpConfigurationMetrics.INSTANCE) ? null
+                        : metrics;
+        metricsTracker = (m != null) ? new MetricsTracker(m) : null;
+        ConfigurationInterpolator ci = getInterpolator();
+        if (ci != null)
+        {
+            ci.setMetrics(m);
+        }
+    }
+
     /**
      * {@inheritDoc} This implementation delegates to {@code beginRead()} or
      * {@code beginWrite()}, depending on the {@code LockMode} argument.
@@ -638,7 +694,15 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
      */
     protected void beginRead(boolean optimize)
     {
-        getSynchronizer().beginRead();
+        MetricsTracker tracker = metricsTracker;
+        if (tracker != null)
+        {
+            tracker.beginLock(getSynchronizer(), LockMode.READ);
+        }
+        else
+        {
+            getSynchronizer().beginRead();
+        }
     }
 
     /**
@@ -653,7 +717,15 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
      */
     protected void endRead()
     {
-        getSynchronizer().endRead();
+        MetricsTracker tracker = metricsTracker;
+        if (tracker != null)
+        {
+            tracker.endLock(getSynchronizer(), LockMode.READ);
+        }
+        else
+        {
+            getSynchronizer().endRead();
+        }
     }
 
     /**
@@ -671,7 +743,15 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
      */
     protected void beginWrite(boolean optimize)
     {
-        getSynchronizer().beginWrite();
+        MetricsTracker tracker = metricsTracker;
+        if (tracker != null)
+        {
+            tracker.beginLock(getSynchronizer(), LockMode.WRITE);
+        }
+        else
+        {
+            getSynchronizer().beginWrite();
+        }
     }
 
     /**
@@ -686,12 +766,22 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
      */
     protected void endWrite()
     {
-        getSynchronizer().endWrite();
+        MetricsTracker tracker = metricsTracker;
+        if (tracker != null)
+        {
+            tracker.endLock(getSynchronizer(), LockMode.WRITE);
+        }
+        else
+        {
+            getSynchronizer().endWrite();
+        }
     }
 
     @Override
     public final void addProperty(String key, Object value)
     {
+        MetricsTracker tracker = metricsTracker;
+        long startTime = (tracker != null) ? System.nanoTime() : 0L;
         beginWrite(false);
         try
         {
@@ -702,6 +792,11 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
         finally
         {
             endWrite();
+            if (tracker != null)
+            {
+                tracker.operationPerformed(ConfigurationOperation.ADD_PROPERTY, key,
+                        startTime);
+            }
         }
     }
 
@@ -760,6 +855,45 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
         return (ci != null) ? ci.interpolate(value) : value;
     }
 
+    /**
+     * Notifies the {@code InterpolationDependencyTracker} of this
+     * configuration's {@code ConfigurationInterpolator} (if any) that the
+     * value of the given key is going to be interpolated. This method is
+     * called by the methods reading and converting property values, so that
+     * the variables referenced by a property are recorded as dependencies of
+     * its key. The tracker returned must be passed to
+     * {@link #endInterpolation(InterpolationDependencyTracker)}.
+     *
+     * @param key the key whose value is going to be interpolated
+     * @return the current dependency tracker (may be <b>null</b>)
+     */
+    private InterpolationDependencyTracker beginInterpolation(String key)
+    {
+        ConfigurationInterpolator ci = getInterpolator();
+        InterpolationDependencyTracker tracker =
+                (ci != null) ? ci.getDependencyTracker() : null;
+        if (tracker != null && key != null)
+        {
+            tracker.beginInterpolation(key);
+            return tracker;
+        }
+        return null;
+    }
+
+    /**
+     * Notifies the given dependency tracker that the interpolation started
+     * by {@link #beginInterpolation(String)} is complete.
+     *
+     * @param tracker the tracker (may be <b>null</b>)
+     */
+    private static void endInterpolation(InterpolationDependencyTracker tracker)
+    {
+        if (tracker != null)
+        {
+            tracker.endInterpolation();
+        }
+    }
+
     @Override
     public Configuration subset(String prefix)
     {
@@ -775,6 +909,8 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     @Override
     public final void setProperty(String key, Object value)
     {
+        MetricsTracker tracker = metricsTracker;
+        long startTime = (tracker != null) ? System.nanoTime() : 0L;
         beginWrite(false);
         try
         {
@@ -785,6 +921,11 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
         finally
         {
             endWrite();
+            if (tracker != null)
+            {
+                tracker.operationPerformed(ConfigurationOperation.SET_PROPERTY, key,
+                        startTime);
+            }
         }
     }
 
@@ -823,6 +964,8 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     @Override
     public final void clearProperty(String key)
     {
+        MetricsTracker tracker = metricsTracker;
+        long startTime = (tracker != null) ? System.nanoTime() : 0L;
         beginWrite(false);
         try
         {
@@ -833,6 +976,11 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
         finally
         {
             endWrite();
+            if (tracker != null)
+            {
+                tracker.operationPerformed(ConfigurationOperation.CLEAR_PROPERTY, key,
+                        startTime);
+            }
         }
     }
 
@@ -848,6 +996,8 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     @Override
     public final void clear()
     {
+        MetricsTracker tracker = metricsTracker;
+        long startTime = (tracker != null) ? System.nanoTime() : 0L;
         beginWrite(false);
         try
         {
@@ -858,6 +1008,11 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
         finally
         {
             endWrite();
+            if (tracker != null)
+            {
+                tracker.operationPerformed(ConfigurationOperation.CLEAR, null,
+                        startTime);
+            }
         }
     }
 
@@ -986,6 +1141,8 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     @Override
     public final Object getProperty(String key)
     {
+        MetricsTracker tracker = metricsTracker;
+        long startTime = (tracker != null) ? System.nanoTime() : 0L;
         beginRead(false);
         try
         {
@@ -994,6 +1151,11 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
         finally
         {
             endRead();
+            if (tracker != null)
+            {
+                tracker.operationPerformed(ConfigurationOperation.GET_PROPERTY, key,
+                        startTime);
+            }
         }
     }
 
@@ -1429,6 +1591,29 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     public List<Object> getList(String key, List<?> defaultValue)
     {
         Object value = getProperty(key);
+        InterpolationDependencyTracker tracker = beginInterpolation(key);
+        try
+        {
+            return toList(key, value, defaultValue);
+        }
+        finally
+        {
+            endInterpolation(tracker);
+        }
+    }
+
+    /**
+     * Transforms the given property value into a list. All elements are
+     * interpolated. This is a helper method for {@code getList()}.
+     *
+     * @param key the key of the property
+     * @param value the property value
+     * @param defaultValue the default value for a <b>null</b> property
+     * @return the resulting list
+     * @throws ConversionException if the value cannot be transformed
+     */
+    private List<Object> toList(String key, Object value, List<?> defaultValue)
+    {
         List<Object> list;
 
         if (value instanceof String)
@@ -1464,6 +1649,7 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
         }
         else
         {
+            getMetrics().conversionFailed(key, List.class);
             throw new ConversionException('\'' + key + "' doesn't map to a List object: " + value + ", a "
                     + value.getClass().getName());
         }
@@ -1554,8 +1740,16 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
 
         Collection<T> targetCol =
                 (target != null) ? target : new ArrayList<T>();
-        getConversionHandler().toCollection(src, cls, getInterpolator(),
-                targetCol);
+        InterpolationDependencyTracker tracker = beginInterpolation(key);
+        try
+        {
+            getConversionHandler().toCollection(src, cls, getInterpolator(),
+                    targetCol);
+        }
+        finally
+        {
+            endInterpolation(tracker);
+        }
         return targetCol;
     }
 
@@ -1747,6 +1941,7 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     private <T> T getAndConvertProperty(Class<T> cls, String key, T defaultValue)
     {
         Object value = getProperty(key);
+        InterpolationDependencyTracker tracker = beginInterpolation(key);
         try
         {
             return ObjectUtils.defaultIfNull(
@@ -1755,12 +1950,17 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
         }
         catch (ConversionException cex)
         {
+            getMetrics().conversionFailed(key, cls);
             // improve error message
             throw new ConversionException(
                     String.format(
                             "Key '%s' cannot be converted to class %s. Value is: '%s'.",
                             key, cls.getName(), String.valueOf(value)));
         }
+        finally
+        {
+            endInterpolation(tracker);
+        }
     }
 
     /**
@@ -1813,8 +2013,22 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     private Object convertToArray(Class<?> cls, String key, Object defaultValue)
     {
         checkDefaultValueArray(cls, defaultValue);
-        return ObjectUtils.defaultIfNull(getConversionHandler().toArray(
-                getProperty(key), cls, getInterpolator()), defaultValue);
+        Object value = getProperty(key);
+        InterpolationDependencyTracker tracker = beginInterpolation(key);
+        try
+        {
+            return ObjectUtils.defaultIfNull(getConversionHandler().toArray(
+                    value, cls, getInterpolator()), defaultValue);
+        }
+        catch (ConversionException cex)
+        {
+            getMetrics().conversionFailed(key, cls);
+            throw cex;
+        }
+        finally
+        {
+            endInterpolation(tracker);
+        }
     }
 
     /**
@@ -21,13 +21,13 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.Stack;
 
 import org.apache.commons.configuration2.event.ConfigurationEvent;
 import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
@@ -624,43 +624,20 @@ public abstract class AbstractHierarchicalConfiguration<T> extends AbstractConfi
         getModel().clearProperty(key, this);
     }
 
-    /**
-     * {@inheritDoc} This implementation is slightly more efficient than the
-     * default implementation. It does not iterate over the key set, but
-     * directly queries its size after it has been constructed. Note that
-     * constructing the key set is still an O(n) operation.
-     */
-    @Override
-    protected int sizeInternal()
-    {
-        return visitDefinedKeys().getKeyList().size();
-    }
-
     /**
      * Returns an iterator with all keys defined in this configuration.
      * Note that the keys returned by this method will not contain any
-     * indices. This means that some structure will be lost.
+     * indices. This means that some structure will be lost. The keys are
+     * determined lazily while the iterator is consumed; it operates on the
+     * node structure which was current when this method was called.
      *
      * @return an iterator with the defined keys in this configuration
      */
     @Override
     protected Iterator<String> getKeysInternal()
     {
-        return visitDefinedKeys().getKeyList().iterator();
-    }
-
-    /**
-     * Creates a {@code DefinedKeysVisitor} and visits all defined keys with it.
-     *
-     * @return the visitor after all keys have been visited
-     */
-    private DefinedKeysVisitor visitDefinedKeys()
-    {
-        DefinedKeysVisitor visitor = new DefinedKeysVisitor();
         NodeHandler<T> nodeHandler = getModel().getNodeHandler();
-        NodeTreeWalker.INSTANCE.walkDFS(nodeHandler.getRootNode(), visitor,
-                nodeHandler);
-        return visitor;
+        return new DefinedKeysIterator(nodeHandler, nodeHandler.getRootNode());
     }
 
     /**
@@ -668,8 +645,9 @@ public abstract class AbstractHierarchicalConfiguration<T> extends AbstractConfi
      * start with the given prefix. The returned keys will not contain any
      * indices. This implementation tries to locate a node whose key is the same
      * as the passed in prefix. Then the subtree of this node is traversed, and
-     * the keys of all nodes encountered (including attributes) are added to the
-     * result set.
+     * the keys of all nodes encountered (including attributes) are returned
+     * by the iterator. As for {@link #getKeysInternal()}, the keys are
+     * determined lazily.
      *
      * @param prefix the prefix of the keys to start with
      * @return an iterator with the found keys
@@ -677,29 +655,16 @@ public abstract class AbstractHierarchicalConfiguration<T> extends AbstractConfi
     @Override
     protected Iterator<String> getKeysInternal(String prefix)
     {
-        DefinedKeysVisitor visitor = new DefinedKeysVisitor(prefix);
-        if (containsKey(prefix))
-        {
-            // explicitly add the prefix
-            visitor.getKeyList().add(prefix);
-        }
-
-        List<QueryResult<T>> results = fetchNodeList(prefix);
-        NodeHandler<T> handler = getModel().getNodeHandler();
-
-        for (QueryResult<T> result : results)
+        List<T> nodes = new ArrayList<T>();
+        for (QueryResult<T> result : fetchNodeList(prefix))
         {
             if (!result.isAttributeResult())
             {
-                for (T c : handler.getChildren(result.getNode()))
-                {
-                    NodeTreeWalker.INSTANCE.walkDFS(c, visitor, handler);
-                }
-                visitor.handleAttributeKeys(prefix, result.getNode(), handler);
+                nodes.add(result.getNode());
             }
         }
-
-        return visitor.getKeyList().iterator();
+        return new DefinedKeysIterator(getModel().getNodeHandler(), prefix,
+                containsKey(prefix), nodes);
     }
 
     /**
@@ -886,90 +851,299 @@ public abstract class AbstractHierarchicalConfiguration<T> extends AbstractConfi
     }
 
     /**
-     * A specialized visitor that fills a list with keys that are defined in a
-     * node hierarchy.
+     * <p>
+     * An iterator which determines the keys defined in a node hierarchy
+     * lazily. The hierarchy is traversed in depth-first order; only the nodes
+     * on the path to the current node are kept on a stack. Keys are returned
+     * in the order in which they are encountered.
+     * </p>
+     * <p>
+     * Because keys do not contain indices, nodes with the same name below the
+     * same parent produce the same keys. Duplicates can therefore only occur
+     * in the subtrees of such siblings. To suppress them, the keys generated
+     * for a group of siblings with the same name are recorded. Keys of nodes
+     * with a unique name are never recorded, so the memory needed by this
+     * iterator is independent of the number of keys for typical hierarchies.
+     * </p>
      */
-    private class DefinedKeysVisitor extends
-            ConfigurationNodeVisitorAdapter<T>
+    private class DefinedKeysIterator implements Iterator<String>
     {
-        /** Stores the list to be filled. */
-        private final Set<String> keyList;
+        /** The node handler. */
+        private final NodeHandler<T> handler;
 
-        /** A stack with the keys of the already processed nodes. */
-        private final Stack<String> parentKeys;
+        /** The expression engine for generating keys. */
+        private final ExpressionEngine engine;
+
+        /** A stack with the nodes whose children are currently processed. */
+        private final LinkedList<KeyFrame> frames;
+
+        /** Stores keys which have already been found, but not returned. */
+        private final LinkedList<String> pendingKeys;
 
         /**
-         * Default constructor.
+         * Creates a new instance of {@code DefinedKeysIterator} which returns
+         * all keys of the hierarchy below the given root node.
+         *
+         * @param nodeHandler the {@code NodeHandler}
+         * @param root the root node
          */
-        public DefinedKeysVisitor()
+        public DefinedKeysIterator(NodeHandler<T> nodeHandler, T root)
         {
-            keyList = new LinkedHashSet<String>();
-            parentKeys = new Stack<String>();
+            this(nodeHandler);
+            visit(root, null, null);
         }
 
         /**
-         * Creates a new {@code DefinedKeysVisitor} instance and sets the
-         * prefix for the keys to fetch.
+         * Creates a new instance of {@code DefinedKeysIterator} which returns
+         * the keys below the given nodes. All nodes have the given key.
          *
-         * @param prefix the prefix
+         * @param nodeHandler the {@code NodeHandler}
+         * @param prefix the key of the start nodes
+         * @param includePrefix a flag whether the prefix is a key on its own
+         * @param nodes the start nodes
          */
-        public DefinedKeysVisitor(String prefix)
+        public DefinedKeysIterator(NodeHandler<T> nodeHandler, String prefix,
+                boolean includePrefix, List<T> nodes)
         {
-            this();
-            parentKeys.push(prefix);
+            this(nodeHandler);
+            if (includePrefix)
+            {
+                pendingKeys.add(prefix);
+            }
+            Set<String> scope = (nodes.size() > 1) ? new HashSet<String>() : null;
+            for (int i = nodes.size() - 1; i >= 0; i--)
+            {
+                frames.addLast(new KeyFrame(nodes.get(i), prefix, scope, true));
+            }
         }
 
         /**
-         * Returns the list with all defined keys.
+         * Creates a new instance and initializes the basic fields.
          *
-         * @return the list with the defined keys
+         * @param nodeHandler the {@code NodeHandler}
          */
-        public Set<String> getKeyList()
+        private DefinedKeysIterator(NodeHandler<T> nodeHandler)
+        {
+            handler = nodeHandler;
+            engine = getExpressionEngine();
+            frames = new LinkedList<KeyFrame>();
+            pendingKeys = new LinkedList<String>();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return fetchPendingKeys();
+        }
+
+        @Override
+        public String next()
         {
-            return keyList;
+            if (!fetchPendingKeys())
+            {
+                throw new NoSuchElementException();
+            }
+            return pendingKeys.removeFirst();
         }
 
         /**
-         * {@inheritDoc} This implementation removes this
-         * node's key from the stack.
+         * {@inheritDoc} Keys cannot be removed; so this implementation throws
+         * an exception.
          */
         @Override
-        public void visitAfterChildren(T node, NodeHandler<T> handler)
+        public void remove()
         {
-            parentKeys.pop();
+            throw new UnsupportedOperationException(
+                    "Keys cannot be removed by this iterator!");
         }
 
         /**
-         * {@inheritDoc} If this node has a value, its key is added
-         * to the internal list.
+         * Continues the traversal of the node hierarchy until keys are found
+         * or all nodes have been processed.
+         *
+         * @return a flag whether there are pending keys
          */
-        @Override
-        public void visitBeforeChildren(T node, NodeHandler<T> handler)
+        private boolean fetchPendingKeys()
         {
-            String parentKey = parentKeys.isEmpty() ? null
-                    : parentKeys.peek();
-            String key = getExpressionEngine().nodeKey(node, parentKey, handler);
-            parentKeys.push(key);
+            while (pendingKeys.isEmpty() && !frames.isEmpty())
+            {
+                KeyFrame frame = frames.getLast();
+                if (frame.hasNextChild())
+                {
+                    T child = frame.nextChild();
+                    visit(child, frame.key,
+                            frame.scopeForChild(handler.nodeName(child)));
+                }
+                else
+                {
+                    frames.removeLast();
+                    if (frame.attributesAfterChildren)
+                    {
+                        addAttributeKeys(frame.key, frame.node, frame.scope);
+                    }
+                }
+            }
+            return !pendingKeys.isEmpty();
+        }
+
+        /**
+         * Processes a node. The keys of the node and its attributes are
+         * determined; the children of the node are scheduled for processing.
+         *
+         * @param node the node
+         * @param parentKey the key of the parent node
+         * @param scope the set for suppressing duplicates (may be <b>null</b>)
+         */
+        private void visit(T node, String parentKey, Set<String> scope)
+        {
+            String key = engine.nodeKey(node, parentKey, handler);
             if (handler.getValue(node) != null)
             {
-                keyList.add(key);
+                addKey(key, scope);
+            }
+            addAttributeKeys(key, node, scope);
+            if (handler.getChildrenCount(node, null) > 0)
+            {
+                frames.addLast(new KeyFrame(node, key, scope, false));
             }
-            handleAttributeKeys(key, node, handler);
         }
 
         /**
-         * Appends all attribute keys of the current node.
+         * Adds the keys of all attributes of the given node.
          *
-         * @param parentKey the parent key
-         * @param node the current node
-         * @param handler the {@code NodeHandler}
+         * @param key the key of the node
+         * @param node the node
+         * @param scope the set for suppressing duplicates (may be <b>null</b>)
          */
-        public void handleAttributeKeys(String parentKey, T node,
-                NodeHandler<T> handler)
+        private void addAttributeKeys(String key, T node, Set<String> scope)
         {
             for (String attr : handler.getAttributes(node))
             {
-                keyList.add(getExpressionEngine().attributeKey(parentKey, attr));
+                addKey(engine.attributeKey(key, attr), scope);
+            }
+        }
+
+        /**
+         * Adds a key to the list of pending keys if it has not yet been
+         * encountered in the given scope.
+         *
+         * @param key the key
+         * @param scope the set for suppressing duplicates (may be <b>null</b>)
+         */
+        private void addKey(String key, Set<String> scope)
+        {
+            if (scope == null || scope.add(key))
+            {
+                pendingKeys.add(key);
+            }
+        }
+
+        /**
+         * Stores information about a node whose children are processed.
+         */
+        private class KeyFrame
+        {
+            /** The node. */
+            final T node;
+
+            /** The key of the node. */
+            final String key;
+
+            /** The set for suppressing duplicates in the node's subtree. */
+            final Set<String> scope;
+
+            /** A flag whether attribute keys are generated at the end. */
+            final boolean attributesAfterChildren;
+
+            /** The children of the node. */
+            private final List<T> children;
+
+            /** The index of the next child to be processed. */
+            private int childIndex;
+
+            /** The scopes for groups of children with the same name. */
+            private Map<String, Set<String>> childScopes;
+
+            /**
+             * Creates a new instance of {@code KeyFrame}.
+             *
+             * @param node the node
+             * @param key the key of the node
+             * @param scope the scope for suppressing duplicates
+             * @param attrsAfterChildren the attributes flag
+             */
+            public KeyFrame(T node, String key, Set<String> scope,
+                    boolean attrsAfterChildren)
+            {
+                this.node = node;
+                this.key = key;
+                this.scope = scope;
+                attributesAfterChildren = attrsAfterChildren;
+                children = handler.getChildren(node);
+            }
+
+            /**
+             * Returns a flag whether there are more children to process.
+             *
+             * @return a flag whether there are more children
+             */
+            public boolean hasNextChild()
+            {
+                return childIndex < children.size();
+            }
+
+            /**
+             * Returns the next child to be processed.
+             *
+             * @return the next child
+             */
+            public T nextChild()
+            {
+                return children.get(childIndex++);
+            }
+
+            /**
+             * Returns the scope for suppressing duplicate keys in the subtree
+             * of a child with the given name. If this node is already part of
+             * such a scope, it is inherited. Otherwise, a scope is needed only
+             * if there are multiple children with this name.
+             *
+             * @param childName the name of the child
+             * @return the scope for this child (may be <b>null</b>)
+             */
+            public Set<String> scopeForChild(String childName)
+            {
+                if (scope != null || children.size() < 2)
+                {
+                    return scope;
+                }
+                if (childScopes == null)
+                {
+                    childScopes = createChildScopes();
+                }
+                return childScopes.get(childName);
+            }
+
+            /**
+             * Creates the scopes for all groups of children with the same
+             * name.
+             *
+             * @return the map with scopes
+             */
+            private Map<String, Set<String>> createChildScopes()
+            {
+                Map<String, Set<String>> scopes =
+                        new HashMap<String, Set<String>>();
+                Set<String> names = new HashSet<String>();
+                for (T child : children)
+                {
+                    String name = handler.nodeName(child);
+                    if (!names.add(name) && !scopes.containsKey(name))
+                    {
+                        scopes.put(name, new HashSet<String>());
+                    }
+                }
+                return scopes;
             }
         }
     }
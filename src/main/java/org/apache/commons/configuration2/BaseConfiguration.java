@@ -54,6 +54,9 @@ public class BaseConfiguration extends AbstractConfiguration implements Cloneabl
     /** stores the configuration key-value pairs */
     private Map<String, Object> store = new LinkedHashMap<String, Object>();
 
+    /** An index for querying keys with a prefix, created on demand. */
+    private volatile PrefixKeyIndex keyIndex;
+
     /**
      * Adds a key/value pair to the map.  This routine does no magic morphing.
      * It ensures the keylist is maintained
@@ -69,6 +72,11 @@ public class BaseConfiguration extends AbstractConfiguration implements Cloneabl
         if (previousValue == null)
         {
             store.put(key, value);
+            PrefixKeyIndex index = keyIndex;
+            if (index != null)
+            {
+                index.add(key);
+            }
         }
         else if (previousValue instanceof List)
         {
@@ -136,13 +144,14 @@ public class BaseConfiguration extends AbstractConfiguration implements Cloneabl
     @Override
     protected void clearPropertyDirect(String key)
     {
-        store.remove(key);
+        removeKey(key);
     }
 
     @Override
     protected void clearInternal()
     {
         store.clear();
+        keyIndex = null;
     }
 
     /**
@@ -164,7 +173,26 @@ public class BaseConfiguration extends AbstractConfiguration implements Cloneabl
     @Override
     protected Iterator<String> getKeysInternal()
     {
-        return store.keySet().iterator();
+        return new KeysIterator(store.keySet().iterator());
+    }
+
+    /**
+     * {@inheritDoc} This implementation does not have to iterate over all
+     * keys. It uses an index which organizes the keys in a trie; so only the
+     * keys actually matching the prefix are processed. The index is created
+     * when this method is called for the first time and then kept up-to-date
+     * when properties are added or removed. The keys are returned in the same
+     * order as by {@link #getKeysInternal()}.
+     */
+    @Override
+    protected Iterator<String> getKeysInternal(String prefix)
+    {
+        if (prefix == null)
+        {
+            return super.getKeysInternal(prefix);
+        }
+        return new KeysIterator(fetchKeyIndex().keysWithPrefix(prefix)
+                .iterator());
     }
 
     /**
@@ -181,6 +209,7 @@ public class BaseConfiguration extends AbstractConfiguration implements Cloneabl
         try
         {
             BaseConfiguration copy = (BaseConfiguration) super.clone();
+            copy.keyIndex = null;
             cloneStore(copy);
             copy.cloneInterpolator(this);
 
@@ -219,4 +248,88 @@ public class BaseConfiguration extends AbstractConfiguration implements Cloneabl
             }
         }
     }
+
+    /**
+     * Removes the given key from the data store and the key index.
+     *
+     * @param key the key to be removed
+     */
+    private void removeKey(String key)
+    {
+        store.remove(key);
+        PrefixKeyIndex index = keyIndex;
+        if (index != null)
+        {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Returns the index for querying keys with a prefix. It is created if
+     * necessary. Because this may happen during a read operation, the
+     * creation is synchronized.
+     *
+     * @return the {@code PrefixKeyIndex}
+     */
+    private PrefixKeyIndex fetchKeyIndex()
+    {
+        PrefixKeyIndex index = keyIndex;
+        if (index == null)
+        {
+            synchronized (this)
+            {
+                index = keyIndex;
+                if (index == null)
+                {
+                    index = new PrefixKeyIndex(store.keySet());
+                    keyIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * An iterator over the keys of this configuration. It wraps another
+     * iterator over keys. Its {@code remove()} method ensures that the key is
+     * removed from the data store and the index.
+     */
+    private class KeysIterator implements Iterator<String>
+    {
+        /** The wrapped iterator. */
+        private final Iterator<String> iterator;
+
+        /** The key returned by the last call of next(). */
+        private String currentKey;
+
+        /**
+         * Creates a new instance of {@code KeysIterator}.
+         *
+         * @param it the wrapped iterator
+         */
+        public KeysIterator(Iterator<String> it)
+        {
+            iterator = it;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public String next()
+        {
+            currentKey = iterator.next();
+            return currentKey;
+        }
+
+        @Override
+        public void remove()
+        {
+            iterator.remove();
+            removeKey(currentKey);
+        }
+    }
 }
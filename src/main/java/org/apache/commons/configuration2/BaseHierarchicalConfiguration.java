@@ -18,18 +18,28 @@
 package org.apache.commons.configuration2;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import org.apache.commons.configuration2.event.ConfigurationEvent;
 import org.apache.commons.configuration2.event.EventListener;
 import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
 import org.apache.commons.configuration2.interpol.ConfigurationInterpolator;
+import org.apache.commons.configuration2.interpol.InterpolationDependencyTracker;
+import org.apache.commons.configuration2.tree.ExpressionEngine;
 import org.apache.commons.configuration2.tree.ConfigurationNodeVisitorAdapter;
 import org.apache.commons.configuration2.tree.ImmutableNode;
 import org.apache.commons.configuration2.tree.InMemoryNodeModel;
@@ -54,6 +64,16 @@ import org.apache.commons.lang3.ObjectUtils;
 public class BaseHierarchicalConfiguration extends AbstractHierarchicalConfiguration<ImmutableNode>
     implements Cloneable, InMemoryNodeModelSupport
 {
+    /**
+     * The number of subtrees which are interpolated concurrently by
+     * {@link #interpolatedConfiguration(Executor)}. The node structure is
+     * split until at least this number of subtrees is reached.
+     */
+    private static final int PARALLEL_SUBTREES = 32;
+
+    /** Constant for the start sequence of a variable. */
+    private static final String VAR_START = "${";
+
     /** A listener for reacting on changes caused by sub configurations. */
     private final EventListener<ConfigurationEvent> changeListener;
 
@@ -656,6 +676,134 @@ public class BaseHierarchicalConfiguration extends AbstractHierarchicalConfigura
         return c;
     }
 
+    /**
+     * Returns a configuration with the same content as this configuration, but
+     * with all variables replaced by their actual values, using the given
+     * {@code Executor} to process independent parts of the node structure
+     * concurrently. The node structure is split into subtrees (descending from
+     * the root node until a sufficient number of subtrees is found); each
+     * subtree is interpolated by a separate task. The result is the same as
+     * for {@link #interpolatedConfiguration()}. This method blocks until all
+     * tasks are complete. Note that the lookups invoked during interpolation
+     * may be called concurrently; this is no problem for the default lookups.
+     *
+     * @param executor the {@code Executor} for running the tasks (must not be
+     *        <b>null</b>)
+     * @return a configuration with all variables interpolated
+     * @throws IllegalArgumentException if the {@code Executor} is <b>null</b>
+     * @throws ConfigurationRuntimeException if a task is interrupted or fails
+     *         with a checked exception
+     * @since 2.1
+     */
+    public Configuration interpolatedConfiguration(Executor executor)
+    {
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("Executor must not be null!");
+        }
+
+        final NodeHandler<ImmutableNode> handler = getModel().getNodeHandler();
+        ImmutableNode root = handler.getRootNode();
+        Map<ImmutableNode, FutureTask<ImmutableNode>> tasks =
+                new IdentityHashMap<ImmutableNode, FutureTask<ImmutableNode>>();
+        for (final ImmutableNode subtree : selectParallelSubtrees(root, handler))
+        {
+            tasks.put(subtree, new FutureTask<ImmutableNode>(
+                    new Callable<ImmutableNode>()
+                    {
+                        @Override
+                        public ImmutableNode call()
+                        {
+                            return interpolateSubtree(subtree, handler);
+                        }
+                    }));
+        }
+
+        ImmutableNode interpolatedRoot;
+        boolean success = false;
+        try
+        {
+            for (FutureTask<ImmutableNode> task : tasks.values())
+            {
+                executor.execute(task);
+            }
+            interpolatedRoot =
+                    assembleInterpolatedNode(root, handler, tasks,
+                            new InterpolatedVisitor());
+            success = true;
+        }
+        finally
+        {
+            if (!success)
+            {
+                for (FutureTask<ImmutableNode> task : tasks.values())
+                {
+                    task.cancel(true);
+                }
+            }
+        }
+
+        BaseHierarchicalConfiguration c =
+                (BaseHierarchicalConfiguration) clone();
+        c.getNodeModel().setRootNode(interpolatedRoot);
+        return c;
+    }
+
+    /**
+     * Returns a configuration with all variables replaced by their actual
+     * values, reusing the result of a former interpolation. This method is
+     * intended for configurations which are updated frequently, e.g. by
+     * reloading. It expects a configuration returned by one of the
+     * {@code interpolatedConfiguration()} methods and the keys which have
+     * been changed since then. Only the nodes below the changed keys and the
+     * values referencing variables which may be affected by the changes are
+     * interpolated again; all other values and untouched subtrees are taken
+     * over from the former result. If this configuration's
+     * {@code ConfigurationInterpolator} has an
+     * {@link InterpolationDependencyTracker}, it is used to determine the
+     * affected values precisely; otherwise, all values containing variables
+     * are interpolated again. The keys passed to this method must cover all
+     * changes; a change of a node affects the whole subtree below this node.
+     * The keys are evaluated on the current node structure, so they can
+     * contain indices to select single elements of a list.
+     *
+     * @param previous the result of a former interpolation (must not be
+     *        <b>null</b>)
+     * @param changedKeys the keys which have been changed since then (must not
+     *        be <b>null</b>)
+     * @return a configuration with all variables interpolated
+     * @throws IllegalArgumentException if a required parameter is missing
+     * @since 2.1
+     */
+    public Configuration interpolatedConfiguration(
+            BaseHierarchicalConfiguration previous,
+            Collection<String> changedKeys)
+    {
+        if (previous == null)
+        {
+            throw new IllegalArgumentException(
+                    "Previous configuration must not be null!");
+        }
+        if (changedKeys == null)
+        {
+            throw new IllegalArgumentException(
+                    "Changed keys must not be null!");
+        }
+
+        NodeHandler<ImmutableNode> handler = getModel().getNodeHandler();
+        IncrementalInterpolator interpolator =
+                new IncrementalInterpolator(handler, changedKeys);
+        ImmutableNode interpolatedRoot =
+                interpolator.interpolate(handler.getRootNode(), previous
+                        .getNodeModel().getNodeHandler().getRootNode(), null,
+                        0, ChangeRelation.ABOVE);
+
+        BaseHierarchicalConfiguration c =
+                (BaseHierarchicalConfiguration) clone();
+        c.getNodeModel().setRootNode(interpolatedRoot);
+        return c;
+    }
+
     /**
      * {@inheritDoc} This implementation creates a new instance of
      * {@link InMemoryNodeModel}, initialized with this configuration's root
@@ -854,6 +1002,497 @@ public class BaseHierarchicalConfiguration extends AbstractHierarchicalConfigura
         }
     }
 
+    /**
+     * Interpolates the subtree below the given node.
+     *
+     * @param node the root node of the subtree
+     * @param handler the {@code NodeHandler}
+     * @return the interpolated subtree
+     */
+    private ImmutableNode interpolateSubtree(ImmutableNode node,
+            NodeHandler<ImmutableNode> handler)
+    {
+        InterpolatedVisitor visitor = new InterpolatedVisitor();
+        NodeTreeWalker.INSTANCE.walkDFS(node, visitor, handler);
+        return visitor.getInterpolatedRoot();
+    }
+
+    /**
+     * Determines the subtrees to be interpolated in parallel. Starting with
+     * the root node, the structure is split into the subtrees of the child
+     * nodes level by level until the desired number of subtrees is reached.
+     * Leaf nodes are not split off.
+     *
+     * @param root the root node
+     * @param handler the {@code NodeHandler}
+     * @return a list with the root nodes of the selected subtrees
+     */
+    private static List<ImmutableNode> selectParallelSubtrees(
+            ImmutableNode root, NodeHandler<ImmutableNode> handler)
+    {
+        List<ImmutableNode> subtrees = Collections.singletonList(root);
+        while (subtrees.size() < PARALLEL_SUBTREES)
+        {
+            List<ImmutableNode> next = new ArrayList<ImmutableNode>();
+            for (ImmutableNode node : subtrees)
+            {
+                for (ImmutableNode child : handler.getChildren(node))
+                {
+                    if (!handler.getChildren(child).isEmpty())
+                    {
+                        next.add(child);
+                    }
+                }
+            }
+            if (next.isEmpty())
+            {
+                break;
+            }
+            subtrees = next;
+        }
+        return subtrees;
+    }
+
+    /**
+     * Constructs the interpolated node for the given node from the results of
+     * the tasks processing subtrees. Nodes not processed by a task are
+     * interpolated directly.
+     *
+     * @param node the node
+     * @param handler the {@code NodeHandler}
+     * @param tasks the tasks for the subtrees
+     * @param visitor a visitor for interpolating nodes directly
+     * @return the interpolated node
+     * @throws ConfigurationRuntimeException if a task fails
+     */
+    private ImmutableNode assembleInterpolatedNode(ImmutableNode node,
+            NodeHandler<ImmutableNode> handler,
+            Map<ImmutableNode, FutureTask<ImmutableNode>> tasks,
+            InterpolatedVisitor visitor)
+    {
+        FutureTask<ImmutableNode> task = tasks.get(node);
+        if (task != null)
+        {
+            return fetchTaskResult(task);
+        }
+        List<ImmutableNode> children = handler.getChildren(node);
+        if (children.isEmpty())
+        {
+            return interpolateSubtree(node, handler);
+        }
+
+        ImmutableNode.Builder builder =
+                new ImmutableNode.Builder(children.size())
+                        .name(handler.nodeName(node))
+                        .value(interpolate(handler.getValue(node)))
+                        .addAttributes(
+                                visitor.interpolateAttributes(node, handler));
+        for (ImmutableNode child : children)
+        {
+            builder.addChild(assembleInterpolatedNode(child, handler, tasks,
+                    visitor));
+        }
+        return builder.create();
+    }
+
+    /**
+     * Waits for the completion of the given task and returns its result.
+     * Exceptions are rethrown.
+     *
+     * @param task the task
+     * @return the result of the task
+     * @throws ConfigurationRuntimeException if the task fails with a checked
+     *         exception or waiting is interrupted
+     */
+    private static ImmutableNode fetchTaskResult(FutureTask<ImmutableNode> task)
+    {
+        try
+        {
+            return task.get();
+        }
+        catch (InterruptedException iex)
+        {
+            Thread.currentThread().interrupt();
+            throw new ConfigurationRuntimeException(
+                    "Interrupted while waiting for interpolation", iex);
+        }
+        catch (ExecutionException eex)
+        {
+            Throwable cause = eex.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new ConfigurationRuntimeException(cause);
+        }
+    }
+
+    /**
+     * An enumeration describing the relation of a node to the keys changed
+     * since a former interpolation.
+     */
+    private static enum ChangeRelation
+    {
+        /** The node is not related to a changed key. */
+        NONE,
+
+        /** The node is a changed node or located below a changed node. */
+        BELOW,
+
+        /** A changed node is located below this node. */
+        ABOVE
+    }
+
+    /**
+     * A helper class for interpolating a node structure incrementally based on
+     * the result of a former interpolation. The structures are traversed in
+     * parallel; nodes are only interpolated again if they are affected by the
+     * changes.
+     */
+    private class IncrementalInterpolator
+    {
+        /** The node handler for the current node structure. */
+        private final NodeHandler<ImmutableNode> handler;
+
+        /** The expression engine for generating keys. */
+        private final ExpressionEngine engine;
+
+        /** The nodes selected by the changed keys. */
+        private final Set<ImmutableNode> changedNodes;
+
+        /** The nodes having a changed node in their subtree. */
+        private final Set<ImmutableNode> ancestorNodes;
+
+        /** The dependency tracker (may be <b>null</b>). */
+        private final InterpolationDependencyTracker tracker;
+
+        /** The keys affected by the changes (if a tracker is available). */
+        private final Set<String> affectedKeys;
+
+        /**
+         * Creates a new instance of {@code IncrementalInterpolator}.
+         *
+         * @param handler the node handler
+         * @param changedKeys the changed keys
+         */
+        public IncrementalInterpolator(NodeHandler<ImmutableNode> handler,
+                Collection<String> changedKeys)
+        {
+            this.handler = handler;
+            engine = getExpressionEngine();
+            changedNodes = createIdentitySet();
+            ancestorNodes = createIdentitySet();
+            Set<String> keys = new HashSet<String>(changedKeys);
+            for (String key : changedKeys)
+            {
+                for (QueryResult<ImmutableNode> result : engine.query(
+                        handler.getRootNode(), key, handler))
+                {
+                    registerChange(result, keys);
+                }
+            }
+
+            ConfigurationInterpolator ci = getInterpolator();
+            tracker = (ci != null) ? ci.getDependencyTracker() : null;
+            affectedKeys =
+                    (tracker != null) ? tracker.getAffectedKeys(keys) : null;
+        }
+
+        /**
+         * Interpolates the given node based on the corresponding node of the
+         * former result.
+         *
+         * @param node the current node
+         * @param previous the corresponding former result (may be
+         *        <b>null</b>)
+         * @param parentKey the key of the parent node (<b>null</b> for the
+         *        root node)
+         * @param index the index of the node among its siblings with the
+         *        same name
+         * @param parentRelation the change relation of the parent node
+         * @return the interpolated node
+         */
+        public ImmutableNode interpolate(ImmutableNode node,
+                ImmutableNode previous, String parentKey, int index,
+                ChangeRelation parentRelation)
+        {
+            String key = keyOf(node, parentKey, index);
+            ChangeRelation relation =
+                    (parentRelation == ChangeRelation.ABOVE) ? relationOf(node)
+                            : parentRelation;
+            ImmutableNode base =
+                    (relation == ChangeRelation.BELOW || previous == null || !ObjectUtils
+                            .equals(node.getNodeName(), previous.getNodeName())) ? null
+                            : previous;
+
+            Object value =
+                    interpolateValue(key, node.getValue(),
+                            (base != null) ? base.getValue() : null, base != null);
+            Map<String, Object> attributes =
+                    interpolateAttributes(node, key, base);
+            List<ImmutableNode> children =
+                    interpolateChildren(node, key, base, relation);
+
+            if (base != null && isSameNode(base, value, attributes, children))
+            {
+                return base;
+            }
+            if (isSameNode(node, value, attributes, children))
+            {
+                return node;
+            }
+            return new ImmutableNode.Builder(children.size())
+                    .name(node.getNodeName()).value(value)
+                    .addAttributes(attributes).addChildren(children).create();
+        }
+
+        /**
+         * Interpolates the child nodes of the given node. A child node is
+         * matched with the former child node having the same name and the
+         * same index among its siblings of this name.
+         *
+         * @param node the current node
+         * @param key the key of the current node
+         * @param base the corresponding former result (may be <b>null</b>)
+         * @param relation the change relation of the current node
+         * @return a list with the interpolated child nodes
+         */
+        private List<ImmutableNode> interpolateChildren(ImmutableNode node,
+                String key, ImmutableNode base, ChangeRelation relation)
+        {
+            List<ImmutableNode> children = node.getChildren();
+            Map<String, List<ImmutableNode>> prevChildren =
+                    new HashMap<String, List<ImmutableNode>>();
+            if (base != null)
+            {
+                for (ImmutableNode prev : base.getChildren())
+                {
+                    List<ImmutableNode> named =
+                            prevChildren.get(prev.getNodeName());
+                    if (named == null)
+                    {
+                        named = new ArrayList<ImmutableNode>();
+                        prevChildren.put(prev.getNodeName(), named);
+                    }
+                    named.add(prev);
+                }
+            }
+
+            Map<String, Integer> indices = new HashMap<String, Integer>();
+            List<ImmutableNode> result =
+                    new ArrayList<ImmutableNode>(children.size());
+            for (ImmutableNode child : children)
+            {
+                Integer index = indices.get(child.getNodeName());
+                int idx = (index != null) ? index.intValue() : 0;
+                indices.put(child.getNodeName(), Integer.valueOf(idx + 1));
+                List<ImmutableNode> named =
+                        prevChildren.get(child.getNodeName());
+                result.add(interpolate(child,
+                        (named != null && idx < named.size()) ? named.get(idx)
+                                : null, key, idx, relation));
+            }
+            return result;
+        }
+
+        /**
+         * Interpolates the attributes of the given node.
+         *
+         * @param node the current node
+         * @param key the key of the current node
+         * @param base the corresponding former result (may be <b>null</b>)
+         * @return a map with the interpolated attributes
+         */
+        private Map<String, Object> interpolateAttributes(ImmutableNode node,
+                String key, ImmutableNode base)
+        {
+            Map<String, Object> attributes = new HashMap<String, Object>();
+            for (Map.Entry<String, Object> e : node.getAttributes().entrySet())
+            {
+                boolean hasPrevious =
+                        base != null
+                                && base.getAttributes().containsKey(e.getKey());
+                attributes.put(e.getKey(), interpolateValue(
+                        engine.attributeKey(key, e.getKey()), e.getValue(),
+                        hasPrevious ? base.getAttributes().get(e.getKey())
+                                : null, hasPrevious));
+            }
+            return attributes;
+        }
+
+        /**
+         * Interpolates a single value. Values without variables are returned
+         * directly. If the value is not affected by the changes and a former
+         * result is available, this result is returned.
+         *
+         * @param key the key of the value
+         * @param value the value
+         * @param previous the former interpolated value
+         * @param hasPrevious a flag whether a former value is available
+         * @return the interpolated value
+         */
+        private Object interpolateValue(String key, Object value,
+                Object previous, boolean hasPrevious)
+        {
+            if (!(value instanceof String)
+                    || !((String) value).contains(VAR_START))
+            {
+                return value;
+            }
+            if (hasPrevious && !isAffected(key))
+            {
+                return previous;
+            }
+            return (tracker != null) ? getInterpolator().interpolate(key,
+                    value) : BaseHierarchicalConfiguration.this
+                    .interpolate(value);
+        }
+
+        /**
+         * Checks whether the value of the given key may be affected by the
+         * changes. Without a dependency tracker, this is always the case.
+         * Otherwise, the key must depend on a changed key, or its dependencies
+         * must be unknown.
+         *
+         * @param key the key
+         * @return a flag whether the value has to be interpolated again
+         */
+        private boolean isAffected(String key)
+        {
+            return tracker == null || affectedKeys.contains(key)
+                    || tracker.getDependencies(key).isEmpty();
+        }
+
+        /**
+         * Determines the change relation of the given node.
+         *
+         * @param node the node
+         * @return the change relation
+         */
+        private ChangeRelation relationOf(ImmutableNode node)
+        {
+            if (changedNodes.contains(node))
+            {
+                return ChangeRelation.BELOW;
+            }
+            return ancestorNodes.contains(node) ? ChangeRelation.ABOVE
+                    : ChangeRelation.NONE;
+        }
+
+        /**
+         * Records a node selected by a changed key. The node and its
+         * ancestors are stored, and the keys of the node are added to the
+         * given set. Besides the key used for tracking, the canonical key
+         * (with all indices) and the key without indices are added because
+         * variables may reference the node in any of these forms. If an
+         * attribute has been selected, its owning node is treated as changed.
+         *
+         * @param result the query result for a changed key
+         * @param keys the set with the changed keys
+         */
+        private void registerChange(QueryResult<ImmutableNode> result,
+                Set<String> keys)
+        {
+            ImmutableNode node = result.getNode();
+            changedNodes.add(node);
+            LinkedList<ImmutableNode> path = new LinkedList<ImmutableNode>();
+            for (ImmutableNode n = node; n != null; n = handler.getParent(n))
+            {
+                path.addFirst(n);
+                if (n != node)
+                {
+                    ancestorNodes.add(n);
+                }
+            }
+
+            String key = null;
+            String canonicalKey = null;
+            String nodeKey = null;
+            for (ImmutableNode n : path)
+            {
+                ImmutableNode parent = handler.getParent(n);
+                int index =
+                        (parent != null) ? handler.getChildren(parent,
+                                handler.nodeName(n)).indexOf(n) : 0;
+                String parentNodeKey = nodeKey;
+                key = keyOf(n, key, index);
+                nodeKey = engine.nodeKey(n, parentNodeKey, handler);
+                canonicalKey =
+                        (parentNodeKey == null) ? nodeKey : engine
+                                .canonicalKey(n, canonicalKey, handler);
+            }
+            for (String k : Arrays.asList(key, canonicalKey, nodeKey))
+            {
+                keys.add(result.isAttributeResult() ? engine.attributeKey(k,
+                        result.getAttributeName()) : k);
+            }
+        }
+
+        /**
+         * Determines the key of a node as it is used for tracking
+         * dependencies. This is the key a client would typically use to
+         * access the node: an index is only added for nodes which are not the
+         * first ones with their name.
+         *
+         * @param node the node
+         * @param parentKey the key of the parent node (<b>null</b> for the
+         *        root node)
+         * @param index the index of the node among its siblings with the
+         *        same name
+         * @return the key of the node
+         */
+        private String keyOf(ImmutableNode node, String parentKey, int index)
+        {
+            return (parentKey == null || index == 0) ? engine.nodeKey(node,
+                    parentKey, handler) : engine.canonicalKey(node, parentKey,
+                    handler);
+        }
+
+        /**
+         * Checks whether the given node has the specified content.
+         *
+         * @param node the node
+         * @param value the value
+         * @param attributes the attributes
+         * @param children the child nodes
+         * @return a flag whether the node has exactly this content
+         */
+        private boolean isSameNode(ImmutableNode node, Object value,
+                Map<String, Object> attributes, List<ImmutableNode> children)
+        {
+            if (!ObjectUtils.equals(node.getValue(), value)
+                    || !node.getAttributes().equals(attributes)
+                    || node.getChildren().size() != children.size())
+            {
+                return false;
+            }
+            Iterator<ImmutableNode> it = node.getChildren().iterator();
+            for (ImmutableNode child : children)
+            {
+                if (it.next() != child)
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Creates a set which compares its elements by identity.
+     *
+     * @return the new set
+     */
+    private static Set<ImmutableNode> createIdentitySet()
+    {
+        return Collections
+                .newSetFromMap(new IdentityHashMap<ImmutableNode, Boolean>());
+    }
+
     /**
      * A specialized visitor implementation which constructs the root node of a
      * configuration with all variables replaced by their interpolated values.
@@ -32,6 +32,8 @@ import org.apache.commons.configuration2.event.EventListener;
 import org.apache.commons.configuration2.event.EventSource;
 import org.apache.commons.configuration2.event.EventType;
 import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
+import org.apache.commons.configuration2.io.LoadPhase;
+import org.apache.commons.configuration2.io.LoadStatistics;
 import org.apache.commons.configuration2.sync.LockMode;
 import org.apache.commons.configuration2.tree.DefaultConfigurationKey;
 import org.apache.commons.configuration2.tree.DefaultExpressionEngine;
@@ -899,6 +901,7 @@ public class CombinedConfiguration extends BaseHierarchicalConfiguration impleme
 
         else
         {
+            long startTime = System.nanoTime();
             Iterator<ConfigData> it = configurations.iterator();
             ImmutableNode node = it.next().getTransformedRoot();
             while (it.hasNext())
@@ -906,6 +909,12 @@ public class CombinedConfiguration extends BaseHierarchicalConfiguration impleme
                 node = nodeCombiner.combine(node,
                         it.next().getTransformedRoot());
             }
+            LoadStatistics stats = LoadStatistics.current();
+            if (stats != null)
+            {
+                stats.addPhaseNanos(LoadPhase.COMBINE, System.nanoTime()
+                        - startTime);
+            }
             if (getLogger().isDebugEnabled())
             {
                 ByteArrayOutputStream os = new ByteArrayOutputStream();
@@ -0,0 +1,439 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
+
+/**
+ * <p>
+ * A basic in-memory configuration which can be accessed concurrently without
+ * a {@link org.apache.commons.configuration2.sync.Synchronizer}.
+ * </p>
+ * <p>
+ * This class offers the same functionality as {@link BaseConfiguration}.
+ * However, the properties are stored in a concurrent hash map. All updates of
+ * a single property are atomic: adding a value to a property which already
+ * has values replaces the current value list by an extended copy using a
+ * compare-and-set operation; setting a property replaces all of its values at
+ * once. So multiple threads can read and write properties in parallel, even
+ * if the default {@code NoOpSynchronizer} is used. Reading threads never see
+ * a partially updated property.
+ * </p>
+ * <p>
+ * The keys of this configuration are returned in a defined order: the order
+ * in which they have been added. For this purpose each key is assigned a
+ * sequence number when it is added for the first time. In contrast to
+ * {@code BaseConfiguration}, setting a new value for an existing property
+ * does not change the position of its key. The iterators returned by
+ * {@code getKeys()} are weakly consistent; they never throw a
+ * {@code ConcurrentModificationException} and reflect some, but not
+ * necessarily all modifications made after their creation.
+ * </p>
+ * <p>
+ * Note that operations affecting multiple properties, e.g. {@code clear()}
+ * or {@code copy()}, are not atomic. If such operations have to be isolated
+ * from other accesses, a suitable {@code Synchronizer} has to be set. The
+ * lists returned by {@code getProperty()} for properties with multiple values
+ * cannot be modified.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public class ConcurrentBaseConfiguration extends AbstractConfiguration
+        implements Cloneable
+{
+    /** The map storing the properties. */
+    private ConcurrentMap<String, PropertyData> store;
+
+    /** An index storing the keys ordered by their sequence numbers. */
+    private ConcurrentSkipListMap<Long, String> keyOrder;
+
+    /** The counter for generating sequence numbers. */
+    private AtomicLong sequence;
+
+    /**
+     * Creates a new, empty instance of {@code ConcurrentBaseConfiguration}.
+     */
+    public ConcurrentBaseConfiguration()
+    {
+        initStore();
+    }
+
+    /**
+     * {@inheritDoc} The value is added atomically. If there are already values
+     * for this key, a new list is created containing the existing values and
+     * the new one.
+     */
+    @Override
+    protected void addPropertyDirect(String key, Object value)
+    {
+        while (true)
+        {
+            PropertyData data = store.get(key);
+            if (data == null)
+            {
+                if (putNewProperty(key, value))
+                {
+                    return;
+                }
+            }
+            else if (store.replace(key, data, data.addValue(value)))
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc} This implementation replaces all values of the property
+     * in a single atomic operation. The position of the key is not changed.
+     */
+    @Override
+    protected void setPropertyInternal(String key, Object value)
+    {
+        List<Object> values = new ArrayList<Object>();
+        for (Object obj : getListDelimiterHandler().parse(value))
+        {
+            values.add(obj);
+        }
+        if (values.isEmpty())
+        {
+            clearPropertyDirect(key);
+            return;
+        }
+
+        Object newValue =
+                (values.size() == 1) ? values.get(0) : Collections
+                        .unmodifiableList(values);
+        while (true)
+        {
+            PropertyData data = store.get(key);
+            if (data == null)
+            {
+                if (putNewProperty(key, newValue))
+                {
+                    return;
+                }
+            }
+            else if (store.replace(key, data, data.setValue(newValue)))
+            {
+                return;
+            }
+        }
+    }
+
+    @Override
+    protected Object getPropertyInternal(String key)
+    {
+        PropertyData data = store.get(key);
+        return (data != null) ? data.getValue() : null;
+    }
+
+    @Override
+    protected boolean isEmptyInternal()
+    {
+        return store.isEmpty();
+    }
+
+    @Override
+    protected boolean containsKeyInternal(String key)
+    {
+        return store.containsKey(key);
+    }
+
+    @Override
+    protected void clearPropertyDirect(String key)
+    {
+        PropertyData data = store.remove(key);
+        if (data != null)
+        {
+            keyOrder.remove(data.getSequence());
+        }
+    }
+
+    /**
+     * {@inheritDoc} This implementation removes the keys one by one. Keys
+     * added concurrently may or may not be removed.
+     */
+    @Override
+    protected void clearInternal()
+    {
+        for (String key : keyOrder.values())
+        {
+            clearPropertyDirect(key);
+        }
+    }
+
+    /**
+     * {@inheritDoc} This implementation obtains the size directly from the
+     * underlying map.
+     */
+    @Override
+    protected int sizeInternal()
+    {
+        return store.size();
+    }
+
+    /**
+     * {@inheritDoc} The keys are returned in the order in which they have been
+     * added to this configuration.
+     */
+    @Override
+    protected Iterator<String> getKeysInternal()
+    {
+        return new KeysIterator(keyOrder.entrySet().iterator());
+    }
+
+    /**
+     * Creates a copy of this object. The copy contains the same properties,
+     * but is otherwise independent of this configuration.
+     *
+     * @return the copy
+     */
+    @Override
+    public Object clone()
+    {
+        try
+        {
+            ConcurrentBaseConfiguration copy =
+                    (ConcurrentBaseConfiguration) super.clone();
+            copy.initStore();
+            for (Map.Entry<Long, String> e : keyOrder.entrySet())
+            {
+                PropertyData data = store.get(e.getValue());
+                if (data != null && data.getSequence() == e.getKey())
+                {
+                    copy.putNewProperty(e.getValue(), data.getValue());
+                }
+            }
+            copy.cloneInterpolator(this);
+            return copy;
+        }
+        catch (CloneNotSupportedException cex)
+        {
+            // should not happen
+            throw new ConfigurationRuntimeException(cex);
+        }
+    }
+
+    /**
+     * Initializes the data structures for storing properties.
+     */
+    private void initStore()
+    {
+        store = new ConcurrentHashMap<String, PropertyData>();
+        keyOrder = new ConcurrentSkipListMap<Long, String>();
+        sequence = new AtomicLong();
+    }
+
+    /**
+     * Tries to add a property which does not exist yet. If another thread has
+     * added the property in the meantime, result is <b>false</b>.
+     *
+     * @param key the key
+     * @param value the value
+     * @return a flag whether the property could be added
+     */
+    private boolean putNewProperty(String key, Object value)
+    {
+        PropertyData data =
+                new PropertyData(sequence.getAndIncrement(), value);
+        if (store.putIfAbsent(key, data) == null)
+        {
+            Long seq = Long.valueOf(data.getSequence());
+            keyOrder.put(seq, key);
+            if (!isValidKey(seq, key))
+            {
+                // removed concurrently; a concurrent update of the value
+                // keeps the sequence number and is not relevant here
+                keyOrder.remove(seq, key);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether an entry of the key order index is still valid. This is
+     * the case if the key is contained in the store with this sequence
+     * number.
+     *
+     * @param seq the sequence number
+     * @param key the key
+     * @return a flag whether this entry is valid
+     */
+    private boolean isValidKey(Long seq, String key)
+    {
+        PropertyData data = store.get(key);
+        return data != null && data.getSequence() == seq.longValue();
+    }
+
+    /**
+     * An immutable class storing the data of a property: its sequence number
+     * and its value. Updates of a property replace the whole object.
+     */
+    private static class PropertyData
+    {
+        /** The sequence number of the key. */
+        private final long sequence;
+
+        /** The value of the property. */
+        private final Object value;
+
+        /**
+         * Creates a new instance of {@code PropertyData}.
+         *
+         * @param seq the sequence number
+         * @param v the value
+         */
+        public PropertyData(long seq, Object v)
+        {
+            sequence = seq;
+            value = v;
+        }
+
+        /**
+         * Returns the sequence number of the key.
+         *
+         * @return the sequence number
+         */
+        public long getSequence()
+        {
+            return sequence;
+        }
+
+        /**
+         * Returns the value of the property. This is either a single object or
+         * an unmodifiable list.
+         *
+         * @return the value
+         */
+        public Object getValue()
+        {
+            return value;
+        }
+
+        /**
+         * Returns a new instance with the given value added to the values of
+         * this property.
+         *
+         * @param v the value to be added
+         * @return the updated instance
+         */
+        public PropertyData addValue(Object v)
+        {
+            List<Object> values = new ArrayList<Object>();
+            if (value instanceof List)
+            {
+                values.addAll((List<?>) value);
+            }
+            else
+            {
+                values.add(value);
+            }
+            values.add(v);
+            return setValue(Collections.unmodifiableList(values));
+        }
+
+        /**
+         * Returns a new instance with the given value and the same sequence
+         * number.
+         *
+         * @param v the new value
+         * @return the updated instance
+         */
+        public PropertyData setValue(Object v)
+        {
+            return new PropertyData(sequence, v);
+        }
+    }
+
+    /**
+     * The iterator returned by {@code getKeysInternal()}. It iterates over the
+     * key order index and skips entries which are no longer valid.
+     */
+    private class KeysIterator implements Iterator<String>
+    {
+        /** The iterator over the key order index. */
+        private final Iterator<Map.Entry<Long, String>> iterator;
+
+        /** The next key to be returned. */
+        private String nextKey;
+
+        /** The key returned by the last call of next(). */
+        private String currentKey;
+
+        /**
+         * Creates a new instance of {@code KeysIterator}.
+         *
+         * @param it the iterator over the key order index
+         */
+        public KeysIterator(Iterator<Map.Entry<Long, String>> it)
+        {
+            iterator = it;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            while (nextKey == null && iterator.hasNext())
+            {
+                Map.Entry<Long, String> e = iterator.next();
+                if (isValidKey(e.getKey(), e.getValue()))
+                {
+                    nextKey = e.getValue();
+                }
+            }
+            return nextKey != null;
+        }
+
+        @Override
+        public String next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            currentKey = nextKey;
+            nextKey = null;
+            return currentKey;
+        }
+
+        @Override
+        public void remove()
+        {
+            if (currentKey == null)
+            {
+                throw new IllegalStateException("next() has not been called!");
+            }
+            clearPropertyDirect(currentKey);
+            currentKey = null;
+        }
+    }
+}
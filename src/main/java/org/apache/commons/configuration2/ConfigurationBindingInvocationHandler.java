@@ -0,0 +1,556 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.commons.configuration2.convert.ConversionHandler;
+import org.apache.commons.configuration2.convert.DefaultConversionHandler;
+import org.apache.commons.configuration2.event.ConfigurationEvent;
+import org.apache.commons.configuration2.event.EventListener;
+import org.apache.commons.configuration2.event.EventSource;
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * <p>
+ * A specialized {@code InvocationHandler} implementation which binds an
+ * interface to a configuration.
+ * </p>
+ * <p>
+ * This class is the counterpart of {@link ImmutableConfigurationInvocationHandler}
+ * for arbitrary interfaces defining typed settings. Each method of the
+ * interface has to be a getter without parameters; it is mapped to a
+ * configuration key, either derived from the method name or specified by a
+ * {@link ConfigurationKey} annotation. The key, the target type, and the
+ * converted default value of each method are determined once when the handler
+ * is created.
+ * </p>
+ * <p>
+ * The values returned by the methods are obtained from the configuration on
+ * first access, converted to the return types of the methods, and cached. So
+ * further method invocations just read the cached values. The cache is
+ * discarded whenever the configuration sends a {@code ConfigurationEvent}
+ * about a change; the registered event listener references the handler only
+ * weakly, so it does not prevent the proxy from being garbage collected.
+ * Cached lists are unmodifiable; arrays are copied each time they are
+ * returned.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+class ConfigurationBindingInvocationHandler implements InvocationHandler
+{
+    /** Constant for the placeholder of a cached null value. */
+    private static final Object NULL_VALUE = new Object();
+
+    /** Constant for the prefix of getter methods. */
+    private static final String PREFIX_GET = "get";
+
+    /** Constant for the prefix of boolean getter methods. */
+    private static final String PREFIX_IS = "is";
+
+    /** Constant for the separator between prefix and key. */
+    private static final String KEY_SEPARATOR = ".";
+
+    /** The bound interface. */
+    private final Class<?> interfaceClass;
+
+    /** The underlying configuration. */
+    private final ImmutableConfiguration configuration;
+
+    /** A map with the indices of the accessors for the interface methods. */
+    private final Map<Method, Integer> accessorIndices;
+
+    /** The accessors for the interface methods. */
+    private final PropertyAccessor[] accessors;
+
+    /** The cached values of the properties. */
+    private volatile AtomicReferenceArray<Object> values;
+
+    /**
+     * Creates a new instance of {@code ConfigurationBindingInvocationHandler}
+     * and resolves the properties for all methods of the given interface.
+     *
+     * @param ifcClass the interface to be bound (must not be <b>null</b>)
+     * @param conf the underlying configuration (must not be <b>null</b>)
+     * @param prefix an optional prefix for the keys of all properties
+     * @throws NullPointerException if the configuration is <b>null</b>
+     * @throws IllegalArgumentException if the interface cannot be bound
+     */
+    public ConfigurationBindingInvocationHandler(Class<?> ifcClass,
+            ImmutableConfiguration conf, String prefix)
+    {
+        if (conf == null)
+        {
+            throw new NullPointerException(
+                    "Bound configuration must not be null!");
+        }
+        if (ifcClass == null || !ifcClass.isInterface())
+        {
+            throw new IllegalArgumentException(
+                    "An interface class must be provided: " + ifcClass);
+        }
+
+        interfaceClass = ifcClass;
+        configuration = conf;
+        ConversionHandler convHandler =
+                (conf instanceof AbstractConfiguration) ? ((AbstractConfiguration) conf)
+                        .getConversionHandler()
+                        : DefaultConversionHandler.INSTANCE;
+
+        List<PropertyAccessor> accessorList = new ArrayList<PropertyAccessor>();
+        accessorIndices = new HashMap<Method, Integer>();
+        for (Method m : ifcClass.getMethods())
+        {
+            if (!isObjectMethod(m))
+            {
+                accessorIndices.put(m, accessorList.size());
+                accessorList.add(createAccessor(m, prefix, convHandler));
+            }
+        }
+        accessors = accessorList.toArray(new PropertyAccessor[accessorList.size()]);
+        invalidate();
+    }
+
+    /**
+     * Returns the interface bound by this handler.
+     *
+     * @return the bound interface
+     */
+    public Class<?> getInterfaceClass()
+    {
+        return interfaceClass;
+    }
+
+    /**
+     * Discards all cached property values. They are obtained again from the
+     * configuration on next access.
+     */
+    public void invalidate()
+    {
+        values = new AtomicReferenceArray<Object>(accessors.length);
+    }
+
+    /**
+     * Registers an event listener at the given {@code EventSource} which
+     * invalidates the cached values when the configuration changes.
+     *
+     * @param source the {@code EventSource}
+     */
+    public void registerRefreshListener(EventSource source)
+    {
+        source.addEventListener(ConfigurationEvent.ANY, new RefreshListener(
+                this, source));
+    }
+
+    /**
+     * {@inheritDoc} This implementation returns the cached value of the
+     * property associated with the method. If it is not yet cached, it is
+     * obtained from the configuration.
+     */
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+            throws Throwable
+    {
+        Integer index = accessorIndices.get(method);
+        if (index == null)
+        {
+            return invokeObjectMethod(proxy, method, args);
+        }
+
+        int idx = index.intValue();
+        AtomicReferenceArray<Object> cache = values;
+        Object value = cache.get(idx);
+        if (value == null)
+        {
+            value = accessors[idx].fetchValue(configuration);
+            cache.set(idx, (value != null) ? value : NULL_VALUE);
+        }
+        return accessors[idx].publish((value != NULL_VALUE) ? value : null);
+    }
+
+    /**
+     * Handles the methods defined by {@code Object}. Proxies are only equal
+     * to themselves.
+     *
+     * @param proxy the proxy
+     * @param method the method invoked
+     * @param args the arguments
+     * @return the result of the method
+     */
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args)
+    {
+        if ("equals".equals(method.getName()))
+        {
+            return proxy == args[0];
+        }
+        if ("hashCode".equals(method.getName()))
+        {
+            return System.identityHashCode(proxy);
+        }
+        if ("toString".equals(method.getName()))
+        {
+            return interfaceClass.getName() + " bound to " + configuration;
+        }
+        throw new UnsupportedOperationException("Unsupported method: "
+                + method);
+    }
+
+    /**
+     * Tests whether the given method is one of the methods defined by
+     * {@code Object}. Such methods can be redeclared by interfaces; they are
+     * not mapped to properties.
+     *
+     * @param m the method
+     * @return a flag whether this is a method of {@code Object}
+     */
+    private static boolean isObjectMethod(Method m)
+    {
+        try
+        {
+            Object.class.getMethod(m.getName(), m.getParameterTypes());
+            return true;
+        }
+        catch (NoSuchMethodException nsmex)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Creates the accessor for the given interface method.
+     *
+     * @param m the method
+     * @param prefix the prefix for keys
+     * @param convHandler the conversion handler for default values
+     * @return the accessor for this method
+     * @throws IllegalArgumentException if the method cannot be bound
+     */
+    private static PropertyAccessor createAccessor(Method m, String prefix,
+            ConversionHandler convHandler)
+    {
+        if (m.getParameterTypes().length > 0
+                || Void.TYPE.equals(m.getReturnType()))
+        {
+            throw new IllegalArgumentException(
+                    "Only methods without parameters returning a value can be bound: "
+                            + m);
+        }
+
+        ConfigurationKey annotation = m.getAnnotation(ConfigurationKey.class);
+        String key =
+                (annotation != null && annotation.value().length() > 0) ? annotation
+                        .value() : keyForMethod(m);
+        if (StringUtils.isNotEmpty(prefix))
+        {
+            key = prefix + KEY_SEPARATOR + key;
+        }
+        String[] defaults =
+                (annotation != null) ? annotation.defaultValue()
+                        : new String[0];
+
+        Class<?> type = m.getReturnType();
+        if (type.isArray())
+        {
+            Class<?> elemType = type.getComponentType();
+            return new PropertyAccessor(key, AccessorKind.ARRAY, elemType,
+                    false, (defaults.length > 0) ? convHandler.toArray(
+                            Arrays.asList(defaults), elemType, null) : null);
+        }
+
+        if (List.class.equals(type) || Collection.class.equals(type))
+        {
+            Class<?> elemType = elementType(m.getGenericReturnType());
+            return new PropertyAccessor(key, AccessorKind.LIST, elemType,
+                    false, (defaults.length > 0) ? convertDefaultList(
+                            defaults, elemType, convHandler) : null);
+        }
+
+        if (defaults.length > 1)
+        {
+            throw new IllegalArgumentException(
+                    "Only a single default value is allowed for " + m);
+        }
+        Class<?> targetType = ClassUtils.primitiveToWrapper(type);
+        return new PropertyAccessor(key, AccessorKind.SINGLE, targetType,
+                type.isPrimitive(), (defaults.length > 0) ? convHandler.to(
+                        defaults[0], targetType, null) : null);
+    }
+
+    /**
+     * Derives a configuration key from the name of a method. Prefixes of
+     * getter methods are removed.
+     *
+     * @param m the method
+     * @return the key for this method
+     */
+    private static String keyForMethod(Method m)
+    {
+        String name = m.getName();
+        if (name.startsWith(PREFIX_GET) && name.length() > PREFIX_GET.length())
+        {
+            return StringUtils.uncapitalize(name.substring(PREFIX_GET.length()));
+        }
+        if (name.startsWith(PREFIX_IS) && name.length() > PREFIX_IS.length()
+                && Boolean.TYPE.equals(m.getReturnType()))
+        {
+            return StringUtils.uncapitalize(name.substring(PREFIX_IS.length()));
+        }
+        return name;
+    }
+
+    /**
+     * Determines the element type of a list from the generic return type of a
+     * method. If it cannot be determined, {@code Object} is used; then no
+     * conversion is performed.
+     *
+     * @param type the generic return type
+     * @return the element type
+     */
+    private static Class<?> elementType(Type type)
+    {
+        if (type instanceof ParameterizedType)
+        {
+            Type[] args = ((ParameterizedType) type).getActualTypeArguments();
+            if (args.length == 1 && args[0] instanceof Class)
+            {
+                return (Class<?>) args[0];
+            }
+        }
+        return Object.class;
+    }
+
+    /**
+     * Converts the default values of a list property.
+     *
+     * @param defaults the default values as strings
+     * @param elemType the element type
+     * @param convHandler the conversion handler
+     * @return the unmodifiable list with the converted default values
+     */
+    private static List<Object> convertDefaultList(String[] defaults,
+            Class<?> elemType, ConversionHandler convHandler)
+    {
+        List<Object> result = new ArrayList<Object>(defaults.length);
+        for (String def : defaults)
+        {
+            result.add(convHandler.to(def, elemType, null));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * An enumeration for the different kinds of properties supported by the
+     * binding.
+     */
+    private static enum AccessorKind
+    {
+        /** A single value. */
+        SINGLE,
+
+        /** An array of values. */
+        ARRAY,
+
+        /** A list of values. */
+        LIST
+    }
+
+    /**
+     * A class storing the resolved information about a property bound to an
+     * interface method. It is able to fetch the value of the property from
+     * the configuration.
+     */
+    private static class PropertyAccessor
+    {
+        /** The key of the property. */
+        private final String key;
+
+        /** The kind of the property. */
+        private final AccessorKind kind;
+
+        /** The target type (the element type for arrays and lists). */
+        private final Class<?> targetType;
+
+        /** A flag whether the method returns a primitive type. */
+        private final boolean primitive;
+
+        /** The converted default value. */
+        private final Object defaultValue;
+
+        /**
+         * Creates a new instance of {@code PropertyAccessor}.
+         *
+         * @param k the key
+         * @param kd the kind of the property
+         * @param type the target type
+         * @param prim the primitive flag
+         * @param def the default value
+         */
+        public PropertyAccessor(String k, AccessorKind kd, Class<?> type,
+                boolean prim, Object def)
+        {
+            key = k;
+            kind = kd;
+            targetType = type;
+            primitive = prim;
+            defaultValue = def;
+        }
+
+        /**
+         * Obtains the value of the property from the given configuration.
+         *
+         * @param config the configuration
+         * @return the converted value
+         * @throws NoSuchElementException if a primitive value is not defined
+         */
+        public Object fetchValue(ImmutableConfiguration config)
+        {
+            switch (kind)
+            {
+            case ARRAY:
+                return config.getArray(targetType, key, defaultValue);
+            case LIST:
+                List<?> list = fetchList(config, targetType);
+                return (list != null) ? Collections.unmodifiableList(list)
+                        : null;
+            default:
+                Object value = fetchSingleValue(config, targetType);
+                if (value == null && primitive)
+                {
+                    throw new NoSuchElementException("Key '" + key
+                            + "' does not map to an existing object!");
+                }
+                return value;
+            }
+        }
+
+        /**
+         * Prepares a cached value to be returned to the caller. Arrays are
+         * copied because they could be modified.
+         *
+         * @param value the cached value
+         * @return the value to be returned
+         */
+        public Object publish(Object value)
+        {
+            if (kind != AccessorKind.ARRAY || value == null)
+            {
+                return value;
+            }
+            int length = Array.getLength(value);
+            Object copy =
+                    Array.newInstance(value.getClass().getComponentType(),
+                            length);
+            System.arraycopy(value, 0, copy, 0, length);
+            return copy;
+        }
+
+        /**
+         * Obtains a single value from the configuration.
+         *
+         * @param config the configuration
+         * @param cls the target class
+         * @return the value
+         */
+        private <T> T fetchSingleValue(ImmutableConfiguration config,
+                Class<T> cls)
+        {
+            return config.get(cls, key, cls.cast(defaultValue));
+        }
+
+        /**
+         * Obtains a list value from the configuration.
+         *
+         * @param config the configuration
+         * @param cls the element class
+         * @return the list
+         */
+        private <T> List<T> fetchList(ImmutableConfiguration config,
+                Class<T> cls)
+        {
+            // the default list has been created with the correct element type
+            @SuppressWarnings("unchecked")
+            List<T> def = (List<T>) defaultValue;
+            return config.getList(cls, key, def);
+        }
+    }
+
+    /**
+     * The event listener which invalidates the cached values of a handler if
+     * the configuration is changed. The handler is referenced weakly; if it
+     * has been garbage collected, the listener removes itself.
+     */
+    private static class RefreshListener implements
+            EventListener<ConfigurationEvent>
+    {
+        /** The reference to the handler. */
+        private final WeakReference<ConfigurationBindingInvocationHandler> handlerRef;
+
+        /** The event source this listener is registered at. */
+        private final EventSource eventSource;
+
+        /**
+         * Creates a new instance of {@code RefreshListener}.
+         *
+         * @param handler the handler
+         * @param source the event source
+         */
+        public RefreshListener(ConfigurationBindingInvocationHandler handler,
+                EventSource source)
+        {
+            handlerRef =
+                    new WeakReference<ConfigurationBindingInvocationHandler>(
+                            handler);
+            eventSource = source;
+        }
+
+        @Override
+        public void onEvent(ConfigurationEvent event)
+        {
+            if (!event.isBeforeUpdate())
+            {
+                ConfigurationBindingInvocationHandler handler =
+                        handlerRef.get();
+                if (handler != null)
+                {
+                    handler.invalidate();
+                }
+                else
+                {
+                    eventSource.removeEventListener(ConfigurationEvent.ANY,
+                            this);
+                }
+            }
+        }
+    }
+}
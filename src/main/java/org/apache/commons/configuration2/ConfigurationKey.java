@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * An annotation for the methods of an interface which is bound to a
+ * configuration using
+ * {@link ConfigurationUtils#bind(Class, ImmutableConfiguration, String)}.
+ * </p>
+ * <p>
+ * With this annotation the key of the property returned by a method can be
+ * specified explicitly. If it is missing, the key is derived from the name of
+ * the method. In addition, a default value can be defined which is returned
+ * if the configuration does not contain the key. The default value is
+ * specified as string and converted to the return type of the method. For
+ * methods returning arrays or lists, multiple default values can be provided.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * public interface ServerSettings
+ * {
+ *     &#064;ConfigurationKey(value = &quot;server.port&quot;, defaultValue = &quot;8080&quot;)
+ *     int port();
+ *
+ *     &#064;ConfigurationKey(defaultValue = { &quot;localhost&quot;, &quot;127.0.0.1&quot; })
+ *     List&lt;String&gt; hosts();
+ * }
+ * </pre>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ConfigurationKey
+{
+    /**
+     * Returns the key of the property. If undefined, the key is derived from
+     * the method name.
+     *
+     * @return the key of the property
+     */
+    String value() default "";
+
+    /**
+     * Returns the default values of the property. An empty array means that
+     * there is no default value. Methods with a single return value accept
+     * only a single default value.
+     *
+     * @return the default values of the property
+     */
+    String[] defaultValue() default {};
+}
@@ -554,6 +554,70 @@ public final class ConfigurationUtils
                 IMMUTABLE_HIERARCHICAL_CONFIG_IFCS, c);
     }
 
+    /**
+     * Creates an implementation of the given interface which is backed by the
+     * specified configuration. This is a short cut for
+     * {@code bind(ifcClass, config, null)}.
+     *
+     * @param <T> the type of the interface
+     * @param ifcClass the interface to be implemented (must not be
+     *        <b>null</b>)
+     * @param config the configuration (must not be <b>null</b>)
+     * @return an implementation of the interface bound to the configuration
+     * @throws IllegalArgumentException if the interface cannot be bound
+     * @throws NullPointerException if the configuration is <b>null</b>
+     * @since 2.1
+     */
+    public static <T> T bind(Class<T> ifcClass, ImmutableConfiguration config)
+    {
+        return bind(ifcClass, config, null);
+    }
+
+    /**
+     * Creates an implementation of the given interface which is backed by the
+     * specified configuration. This allows accessing configuration settings in
+     * a type-safe way. All methods of the interface must be getters without
+     * parameters. Each method is mapped to a configuration key. Per default,
+     * the key is derived from the method name: an optional {@code get} prefix
+     * (or {@code is} for boolean methods) is removed, and the first character
+     * is converted to lower case. Alternatively, the key can be specified
+     * explicitly using the {@link ConfigurationKey} annotation. If a prefix is
+     * provided, it is prepended to all keys (separated by a dot). The value of
+     * a key is converted to the return type of the method; arrays and lists
+     * are supported, too. If a key is not found, the default value defined by
+     * the annotation is returned; if there is none, result is <b>null</b> (or
+     * an exception is thrown for primitive types).
+     * <p>
+     * Keys, target types, and default values are resolved when the
+     * implementation is created. Values are obtained from the configuration
+     * when a method is called for the first time and are then cached. If the
+     * configuration supports the {@code EventSource} interface, the cached
+     * values are discarded when it sends a change event; so changes on the
+     * configuration become visible.
+     *
+     * @param <T> the type of the interface
+     * @param ifcClass the interface to be implemented (must not be
+     *        <b>null</b>)
+     * @param config the configuration (must not be <b>null</b>)
+     * @param prefix an optional prefix for all keys
+     * @return an implementation of the interface bound to the configuration
+     * @throws IllegalArgumentException if the interface cannot be bound
+     * @throws NullPointerException if the configuration is <b>null</b>
+     * @since 2.1
+     */
+    public static <T> T bind(Class<T> ifcClass, ImmutableConfiguration config,
+            String prefix)
+    {
+        ConfigurationBindingInvocationHandler handler =
+                new ConfigurationBindingInvocationHandler(ifcClass, config,
+                        prefix);
+        handler.registerRefreshListener(asEventSource(config, true));
+        return ifcClass.cast(Proxy.newProxyInstance(ifcClass.getClassLoader(),
+                new Class<?>[] {
+                    ifcClass
+                }, handler));
+    }
+
     /**
      * Helper method for creating a proxy for an unmodifiable configuration. The
      * interfaces the proxy should implement are passed as argument.
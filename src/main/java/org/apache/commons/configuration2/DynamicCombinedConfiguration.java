@@ -27,11 +27,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.configuration2.cache.BoundedCache;
+import org.apache.commons.configuration2.cache.CacheEvictionListener;
+import org.apache.commons.configuration2.cache.CacheWeigher;
+import org.apache.commons.configuration2.cache.EvictionPolicy;
+import org.apache.commons.configuration2.event.ConfigurationEvent;
 import org.apache.commons.configuration2.event.Event;
 import org.apache.commons.configuration2.event.EventListener;
+import org.apache.commons.configuration2.event.EventSource;
 import org.apache.commons.configuration2.event.EventType;
 import org.apache.commons.configuration2.interpol.ConfigurationInterpolator;
 import org.apache.commons.configuration2.interpol.Lookup;
@@ -58,6 +65,30 @@ import org.apache.commons.configuration2.tree.NodeCombiner;
  * consistency and to avoid exceptions. The {@code Synchronizer} assigned to an
  * instance is also passed to child configuration objects when they are created.
  * </p>
+ * <p>
+ * Per default, the key pattern is interpolated on each access to a property.
+ * If the variables used in the key pattern change only at well-defined
+ * points, e.g. when a request for a different tenant is processed by a
+ * thread, caching of resolved keys can be enabled using the
+ * {@link #setCacheResolvedKeys(boolean)} method. The resolved key is then
+ * stored per thread and reused until it is invalidated explicitly. The
+ * application is responsible for calling {@link #invalidateResolvedKey()}
+ * whenever a value used by the key pattern changes for the current thread;
+ * {@link #invalidateResolvedKeys()} invalidates the keys of all threads.
+ * </p>
+ * <p>
+ * The child configurations created for the different keys are cached. Per
+ * default, this cache is unbounded. If the number of keys is large and keys
+ * are used only for a limited time (e.g. one key per session or per
+ * short-lived tenant), the cache can be bounded by the number of child
+ * configurations, their idle time, and their total number of nodes. Child
+ * configurations exceeding these bounds are evicted according to the
+ * configured {@link EvictionPolicy}. An evicted child configuration is
+ * detached from the contained configurations and from the event listeners
+ * registered at this object, and an event of type
+ * {@link #CONFIGURATION_EVICTED} is fired. If the key is accessed again later,
+ * a new child configuration is created.
+ * </p>
  *
  * @since 1.6
  * @version $Id$
@@ -71,9 +102,40 @@ public class DynamicCombinedConfiguration extends CombinedConfiguration
     private static final ThreadLocal<CurrentConfigHolder> CURRENT_CONFIG =
             new ThreadLocal<CurrentConfigHolder>();
 
+    /**
+     * The name under which accesses to the cache of child configurations are
+     * reported to the {@code ConfigurationMetrics} of this configuration.
+     *
+     * @since 2.1
+     */
+    public static final String CONFIGURATION_CACHE = "DynamicCombinedConfiguration.configurations";
+
+    /**
+     * The name under which accesses to the cache of resolved keys are reported
+     * to the {@code ConfigurationMetrics} of this configuration.
+     *
+     * @since 2.1
+     */
+    public static final String RESOLVED_KEY_CACHE = "DynamicCombinedConfiguration.resolvedKeys";
+
+    /**
+     * Constant for the event type fired when a child configuration is evicted
+     * from the cache. The event's property name is the key of the child
+     * configuration; its property value is the evicted child configuration.
+     *
+     * @since 2.1
+     */
+    public static final EventType<ConfigurationEvent> CONFIGURATION_EVICTED =
+            new EventType<ConfigurationEvent>(ConfigurationEvent.ANY,
+                    "CONFIGURATION_EVICTED");
+
+    /** The weigher which determines the number of nodes of a child. */
+    private static final CacheWeigher<CombinedConfiguration> NODE_COUNT_WEIGHER =
+            new NodeCountWeigher();
+
     /** The CombinedConfigurations */
-    private final ConcurrentMap<String, CombinedConfiguration> configs =
-            new ConcurrentHashMap<String, CombinedConfiguration>();
+    private final BoundedCache<String, CombinedConfiguration> configs =
+            createConfigurationCache();
 
     /** Stores a list with the contained configurations. */
     private final List<ConfigData> configurations = new ArrayList<ConfigData>();
@@ -94,6 +156,19 @@ public class DynamicCombinedConfiguration extends CombinedConfiguration
     /** The object for handling variable substitution in key patterns. */
     private final ConfigurationInterpolator localSubst;
 
+    /** Stores the resolved key pattern for each thread if caching is enabled. */
+    private final ThreadLocal<ResolvedKey> resolvedKeys =
+            new ThreadLocal<ResolvedKey>();
+
+    /**
+     * The current generation of resolved keys. Keys resolved for an older
+     * generation are invalid.
+     */
+    private final AtomicLong keyGeneration = new AtomicLong();
+
+    /** A flag whether resolved keys are cached. */
+    private volatile boolean cacheResolvedKeys;
+
     /**
      * Creates a new instance of {@code DynamicCombinedConfiguration} and
      * initializes the combiner to be used.
@@ -125,6 +200,7 @@ public class DynamicCombinedConfiguration extends CombinedConfiguration
     public void setKeyPattern(String pattern)
     {
         this.keyPattern = pattern;
+        invalidateResolvedKeys();
     }
 
     public String getKeyPattern()
@@ -132,6 +208,190 @@ public class DynamicCombinedConfiguration extends CombinedConfiguration
         return this.keyPattern;
     }
 
+    /**
+     * Returns a flag whether resolved keys are cached.
+     *
+     * @return a flag whether resolved keys are cached
+     * @since 2.1
+     */
+    public boolean isCacheResolvedKeys()
+    {
+        return cacheResolvedKeys;
+    }
+
+    /**
+     * Sets a flag whether resolved keys are cached. If enabled, the key
+     * pattern is interpolated only once per thread; afterwards, the resolved
+     * key is reused until it is invalidated by one of the
+     * {@code invalidateResolvedKey()} methods. This reduces the overhead of a
+     * property access to a single lookup of the child configuration, but
+     * requires that the application invalidates the key when a value referred
+     * to by the key pattern changes.
+     *
+     * @param cacheResolvedKeys the flag whether resolved keys are cached
+     * @since 2.1
+     */
+    public void setCacheResolvedKeys(boolean cacheResolvedKeys)
+    {
+        this.cacheResolvedKeys = cacheResolvedKeys;
+        invalidateResolvedKeys();
+    }
+
+    /**
+     * Invalidates the resolved key of the current thread. This method has to
+     * be called if caching of resolved keys is enabled and a value used by the
+     * key pattern changes for the current thread, e.g. when the thread starts
+     * processing a request for another tenant. The key pattern is then
+     * interpolated again on the next access.
+     *
+     * @since 2.1
+     */
+    public void invalidateResolvedKey()
+    {
+        resolvedKeys.remove();
+    }
+
+    /**
+     * Invalidates the resolved keys of all threads. This method has to be
+     * called if caching of resolved keys is enabled and a value used by the
+     * key pattern changes globally.
+     *
+     * @since 2.1
+     */
+    public void invalidateResolvedKeys()
+    {
+        keyGeneration.incrementAndGet();
+    }
+
+    /**
+     * Returns the maximum number of child configurations which are cached. A
+     * value of 0 means that the number is not restricted.
+     *
+     * @return the maximum number of cached child configurations
+     * @since 2.1
+     */
+    public int getMaxConfigurations()
+    {
+        return configs.getMaxSize();
+    }
+
+    /**
+     * Sets the maximum number of child configurations which are cached. If
+     * more child configurations are created, the ones selected by the
+     * eviction policy are evicted. A value of 0 (which is the default) means
+     * that the number is not restricted.
+     *
+     * @param maxConfigurations the maximum number of cached child
+     *        configurations
+     * @throws IllegalArgumentException if the value is negative
+     * @since 2.1
+     */
+    public void setMaxConfigurations(int maxConfigurations)
+    {
+        configs.setMaxSize(maxConfigurations);
+    }
+
+    /**
+     * Returns the time after which child configurations which have not been
+     * accessed are evicted in the given unit. A value of 0 means that child
+     * configurations do not expire.
+     *
+     * @param unit the time unit
+     * @return the maximum idle time of child configurations
+     * @since 2.1
+     */
+    public long getMaxIdleTime(TimeUnit unit)
+    {
+        return configs.getMaxIdleTime(unit);
+    }
+
+    /**
+     * Sets the time after which child configurations which have not been
+     * accessed are evicted. Expired child configurations are detected when
+     * their key is accessed, when a new child configuration is created, and
+     * when {@link #cleanUpConfigurations()} is called. A value of 0 (which is
+     * the default) means that child configurations do not expire.
+     *
+     * @param time the maximum idle time
+     * @param unit the time unit
+     * @throws IllegalArgumentException if the time is negative or the unit is
+     *         <b>null</b>
+     * @since 2.1
+     */
+    public void setMaxIdleTime(long time, TimeUnit unit)
+    {
+        configs.setMaxIdleTime(time, unit);
+    }
+
+    /**
+     * Returns the maximum total number of nodes of all cached child
+     * configurations. A value of 0 means that the number is not restricted.
+     *
+     * @return the maximum number of nodes of cached child configurations
+     * @since 2.1
+     */
+    public long getMaxConfigurationNodes()
+    {
+        return configs.getMaxWeight();
+    }
+
+    /**
+     * Sets the maximum total number of nodes of all cached child
+     * configurations. This allows bounding the memory used by the cache more
+     * precisely than by the number of child configurations if their sizes
+     * differ. The number of nodes of a child configuration is determined from
+     * its combined node structure when the bounds of the cache are checked,
+     * i.e. when a new child configuration is created. A value of 0 (which is
+     * the default) means that the number of nodes is not restricted.
+     *
+     * @param maxNodes the maximum number of nodes of cached child
+     *        configurations
+     * @throws IllegalArgumentException if the value is negative
+     * @since 2.1
+     */
+    public void setMaxConfigurationNodes(long maxNodes)
+    {
+        configs.setMaxWeight(maxNodes);
+    }
+
+    /**
+     * Returns the {@code EvictionPolicy} for the cache of child
+     * configurations.
+     *
+     * @return the {@code EvictionPolicy}
+     * @since 2.1
+     */
+    public EvictionPolicy getEvictionPolicy()
+    {
+        return configs.getEvictionPolicy();
+    }
+
+    /**
+     * Sets the {@code EvictionPolicy} for the cache of child configurations.
+     * It determines which child configurations are evicted first if the cache
+     * exceeds its bounds. Passing in <b>null</b> sets the default policy, which
+     * evicts the least recently used child configurations.
+     *
+     * @param policy the {@code EvictionPolicy}
+     * @since 2.1
+     */
+    public void setEvictionPolicy(EvictionPolicy policy)
+    {
+        configs.setEvictionPolicy(policy);
+    }
+
+    /**
+     * Checks the bounds of the cache of child configurations and evicts child
+     * configurations if necessary. This method can be called periodically to
+     * evict expired child configurations if no new ones are created.
+     *
+     * @since 2.1
+     */
+    public void cleanUpConfigurations()
+    {
+        configs.cleanUp();
+    }
+
     /**
      * Set the name of the Logger to use on each CombinedConfiguration.
      * @param name The Logger name.
@@ -817,7 +1077,9 @@ public class DynamicCombinedConfiguration extends CombinedConfiguration
     /**
      * {@inheritDoc} This implementation ensures that the current configuration
      * is initialized. If necessary, a new child configuration instance is
-     * created.
+     * created. It is added to the cache of child configurations after its
+     * combined node structure has been constructed, so that its weight is
+     * known when the bounds of the cache are checked.
      */
     @Override
     protected void beginWrite(boolean optimize)
@@ -828,9 +1090,13 @@ public class DynamicCombinedConfiguration extends CombinedConfiguration
         super.beginWrite(optimize);
         if (!optimize && cch.getCurrentConfiguration() == null)
         {
-            cch.setCurrentConfiguration(createChildConfiguration());
-            configs.put(cch.getKey(), cch.getCurrentConfiguration());
-            initChildConfiguration(cch.getCurrentConfiguration());
+            CombinedConfiguration child = createChildConfiguration();
+            cch.setCurrentConfiguration(child);
+            initChildConfiguration(child);
+            // constructs the combined node structure
+            child.beginWrite(false);
+            child.endWrite();
+            configs.put(cch.getKey(), child);
         }
     }
 
@@ -935,6 +1201,59 @@ public class DynamicCombinedConfiguration extends CombinedConfiguration
         config.setSynchronizer(getSynchronizer());
     }
 
+    /**
+     * Creates the cache for child configurations and registers a listener
+     * which handles evicted child configurations.
+     *
+     * @return the cache for child configurations
+     */
+    private BoundedCache<String, CombinedConfiguration> createConfigurationCache()
+    {
+        BoundedCache<String, CombinedConfiguration> cache =
+                new BoundedCache<String, CombinedConfiguration>();
+        cache.setWeigher(NODE_COUNT_WEIGHER);
+        cache.addEvictionListener(new CacheEvictionListener<String, CombinedConfiguration>()
+        {
+            @Override
+            public void entryEvicted(String key, CombinedConfiguration config)
+            {
+                childConfigurationEvicted(key, config);
+            }
+        });
+        return cache;
+    }
+
+    /**
+     * Handles a child configuration which has been evicted from the cache.
+     * The child configuration is removed as event listener from the contained
+     * configurations, and the event listeners copied from this object are
+     * removed from it. So it no longer receives events and can be garbage
+     * collected. Its content is not changed because it may still be in use by
+     * another thread. Finally, an eviction event is fired.
+     *
+     * @param key the key of the child configuration
+     * @param config the evicted child configuration
+     */
+    private void childConfigurationEvicted(String key,
+            CombinedConfiguration config)
+    {
+        for (Configuration child : config.getConfigurations())
+        {
+            if (child instanceof EventSource)
+            {
+                ((EventSource) child).removeEventListener(
+                        ConfigurationEvent.ANY, config);
+            }
+        }
+        config.clearEventListeners();
+        getMetrics().cacheEntryEvicted(CONFIGURATION_CACHE);
+        if (getLogger().isDebugEnabled())
+        {
+            getLogger().debug("Evicted config for " + key);
+        }
+        fireEvent(CONFIGURATION_EVICTED, key, config, false);
+    }
+
     /**
      * Creates a {@code ConfigurationInterpolator} instance for performing local
      * variable substitutions. This implementation returns an object which
@@ -971,14 +1290,45 @@ public class DynamicCombinedConfiguration extends CombinedConfiguration
         CurrentConfigHolder cch = CURRENT_CONFIG.get();
         if (cch == null)
         {
-            String key = String.valueOf(localSubst.interpolate(keyPattern));
+            String key = resolveKey();
             cch = new CurrentConfigHolder(key);
-            cch.setCurrentConfiguration(configs.get(key));
+            CombinedConfiguration config = configs.get(key);
+            getMetrics().cacheAccessed(CONFIGURATION_CACHE, config != null);
+            cch.setCurrentConfiguration(config);
             CURRENT_CONFIG.set(cch);
         }
         return cch;
     }
 
+    /**
+     * Resolves the key pattern for the current thread. If caching is enabled
+     * and a valid resolved key is available, it is returned directly.
+     * Otherwise, the key pattern is interpolated.
+     *
+     * @return the resolved key
+     */
+    private String resolveKey()
+    {
+        if (!cacheResolvedKeys)
+        {
+            return String.valueOf(localSubst.interpolate(keyPattern));
+        }
+
+        long generation = keyGeneration.get();
+        ResolvedKey resolvedKey = resolvedKeys.get();
+        boolean valid =
+                resolvedKey != null && resolvedKey.getGeneration() == generation;
+        getMetrics().cacheAccessed(RESOLVED_KEY_CACHE, valid);
+        if (!valid)
+        {
+            resolvedKey =
+                    new ResolvedKey(String.valueOf(localSubst
+                            .interpolate(keyPattern)), generation);
+            resolvedKeys.set(resolvedKey);
+        }
+        return resolvedKey.getKey();
+    }
+
     /**
      * Internal class that identifies each Configuration.
      */
@@ -1040,6 +1390,101 @@ public class DynamicCombinedConfiguration extends CombinedConfiguration
 
     }
 
+    /**
+     * A weigher for child configurations which returns the number of nodes of
+     * the combined node structure. As the node structures are immutable, the
+     * node count is cached for each root node. Child configurations are
+     * combined before they are added to the cache. The weigher does not
+     * trigger a combine operation (which would require a lock); so for a
+     * child configuration which has been invalidated, the size of its last
+     * combined structure is used.
+     */
+    private static class NodeCountWeigher implements
+            CacheWeigher<CombinedConfiguration>
+    {
+        /** A cache for the node counts of root nodes. */
+        private final Map<ImmutableNode, Long> nodeCounts = Collections
+                .synchronizedMap(new WeakHashMap<ImmutableNode, Long>());
+
+        @Override
+        public long weigh(CombinedConfiguration config)
+        {
+            ImmutableNode root = config.getModel().getNodeHandler().getRootNode();
+            Long count = nodeCounts.get(root);
+            if (count == null)
+            {
+                count = Long.valueOf(countNodes(root));
+                nodeCounts.put(root, count);
+            }
+            return count.longValue();
+        }
+
+        /**
+         * Counts the nodes in the structure below the given node.
+         *
+         * @param root the root node
+         * @return the number of nodes
+         */
+        private static long countNodes(ImmutableNode root)
+        {
+            long count = 0;
+            List<ImmutableNode> pending = new ArrayList<ImmutableNode>();
+            pending.add(root);
+            while (!pending.isEmpty())
+            {
+                ImmutableNode node = pending.remove(pending.size() - 1);
+                count++;
+                pending.addAll(node.getChildren());
+            }
+            return count;
+        }
+    }
+
+    /**
+     * A simple data class storing a resolved key together with the generation
+     * it was resolved for.
+     */
+    private static class ResolvedKey
+    {
+        /** The resolved key. */
+        private final String key;
+
+        /** The generation. */
+        private final long generation;
+
+        /**
+         * Creates a new instance of {@code ResolvedKey}.
+         *
+         * @param k the resolved key
+         * @param gen the generation
+         */
+        public ResolvedKey(String k, long gen)
+        {
+            key = k;
+            generation = gen;
+        }
+
+        /**
+         * Returns the resolved key.
+         *
+         * @return the key
+         */
+        public String getKey()
+        {
+            return key;
+        }
+
+        /**
+         * Returns the generation this key was resolved for.
+         *
+         * @return the generation
+         */
+        public long getGeneration()
+        {
+            return generation;
+        }
+    }
+
     /**
      * A simple data class holding information about the current configuration
      * while an operation for a thread is processed.
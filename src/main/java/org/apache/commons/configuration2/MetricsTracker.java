@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.configuration2.metrics.ConfigurationMetrics;
+import org.apache.commons.configuration2.metrics.ConfigurationOperation;
+import org.apache.commons.configuration2.sync.InstrumentedSynchronizer;
+import org.apache.commons.configuration2.sync.LockMode;
+import org.apache.commons.configuration2.sync.Synchronizer;
+
+/**
+ * <p>
+ * An internally used helper class which reports the operations of a
+ * configuration to a {@link ConfigurationMetrics} object.
+ * </p>
+ * <p>
+ * An instance exists only if metrics are enabled for a configuration. Besides
+ * forwarding events, it measures how long threads wait for the locks of the
+ * configuration's {@code Synchronizer} and how long they hold them. This is
+ * done by an {@link InstrumentedSynchronizer} wrapped around the
+ * {@code Synchronizer}, which passes the measured times to the metrics object.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+final class MetricsTracker
+{
+    /** The metrics object to report to. */
+    private final ConfigurationMetrics metrics;
+
+    /** The instrumented wrapper of the current {@code Synchronizer}. */
+    private final AtomicReference<InstrumentedSynchronizer> instrumentedSync;
+
+    /**
+     * Creates a new instance of {@code MetricsTracker}.
+     *
+     * @param metrics the metrics object to report to
+     */
+    public MetricsTracker(ConfigurationMetrics metrics)
+    {
+        this.metrics = metrics;
+        instrumentedSync = new AtomicReference<InstrumentedSynchronizer>();
+    }
+
+    /**
+     * Returns the metrics object this tracker reports to.
+     *
+     * @return the {@code ConfigurationMetrics}
+     */
+    public ConfigurationMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Reports an operation which has been started at the given time.
+     *
+     * @param operation the operation
+     * @param key the key affected by the operation
+     * @param startTime the start time as obtained from
+     *        {@code System.nanoTime()}
+     */
+    public void operationPerformed(ConfigurationOperation operation,
+            String key, long startTime)
+    {
+        metrics.operationPerformed(operation, key, System.nanoTime()
+                - startTime);
+    }
+
+    /**
+     * Obtains a lock from the given {@code Synchronizer} and reports the time
+     * spent waiting for it.
+     *
+     * @param sync the {@code Synchronizer}
+     * @param mode the lock mode
+     */
+    public void beginLock(Synchronizer sync, LockMode mode)
+    {
+        InstrumentedSynchronizer instrSync = fetchInstrumentedSynchronizer(sync);
+        if (mode == LockMode.READ)
+        {
+            instrSync.beginRead();
+        }
+        else
+        {
+            instrSync.beginWrite();
+        }
+    }
+
+    /**
+     * Releases a lock of the given {@code Synchronizer} and reports the time
+     * it has been held. If the lock was obtained before this tracker was
+     * installed, the hold time is unknown, and the release is not reported.
+     *
+     * @param sync the {@code Synchronizer}
+     * @param mode the lock mode
+     */
+    public void endLock(Synchronizer sync, LockMode mode)
+    {
+        InstrumentedSynchronizer instrSync = fetchInstrumentedSynchronizer(sync);
+        if (mode == LockMode.READ)
+        {
+            instrSync.endRead();
+        }
+        else
+        {
+            instrSync.endWrite();
+        }
+    }
+
+    /**
+     * Returns the {@code InstrumentedSynchronizer} wrapping the given
+     * {@code Synchronizer}. The wrapper is created on demand; it is replaced
+     * when the {@code Synchronizer} of the configuration is changed.
+     *
+     * @param sync the {@code Synchronizer}
+     * @return the instrumented wrapper for this {@code Synchronizer}
+     */
+    private InstrumentedSynchronizer fetchInstrumentedSynchronizer(
+            Synchronizer sync)
+    {
+        InstrumentedSynchronizer current = instrumentedSync.get();
+        while (current == null || current.getSynchronizer() != sync)
+        {
+            InstrumentedSynchronizer wrapper = new MetricsSynchronizer(sync);
+            if (instrumentedSync.compareAndSet(current, wrapper))
+            {
+                return wrapper;
+            }
+            current = instrumentedSync.get();
+        }
+        return current;
+    }
+
+    /**
+     * A specialized {@code InstrumentedSynchronizer} which reports the
+     * measured lock times to the metrics object of the owning tracker.
+     */
+    private class MetricsSynchronizer extends InstrumentedSynchronizer
+    {
+        /**
+         * Creates a new instance of {@code MetricsSynchronizer}.
+         *
+         * @param sync the {@code Synchronizer} to be decorated
+         */
+        public MetricsSynchronizer(Synchronizer sync)
+        {
+            super(sync);
+        }
+
+        /**
+         * {@inheritDoc} This implementation passes the wait time to the
+         * metrics object.
+         */
+        @Override
+        protected void lockAcquired(LockMode mode, long waitNanos)
+        {
+            metrics.lockAcquired(mode, waitNanos);
+        }
+
+        /**
+         * {@inheritDoc} This implementation passes the hold time to the
+         * metrics object.
+         */
+        @Override
+        protected void lockReleased(LockMode mode, long holdNanos)
+        {
+            metrics.lockReleased(mode, holdNanos);
+        }
+    }
+}
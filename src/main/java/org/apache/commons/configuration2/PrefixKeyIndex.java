@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * An internally used helper class which organizes the keys of a flat
+ * configuration in a trie to support efficient queries for keys with a
+ * specific prefix.
+ * </p>
+ * <p>
+ * The keys are split at the dot character which is also used by
+ * {@link AbstractConfiguration#getKeys(String)} to separate a prefix from the
+ * remaining parts of a key. Each component of a key corresponds to a node in
+ * the trie. So all keys starting with a given prefix can be found by
+ * navigating to the node for the prefix and visiting its subtree; the effort
+ * of this operation depends on the number of matching keys only, not on the
+ * total number of keys.
+ * </p>
+ * <p>
+ * Each key is assigned a sequence number when it is added. The keys
+ * returned by a query are ordered by this number; so they appear in the order
+ * in which they have been added, as if they had been obtained from an
+ * insertion-ordered map.
+ * </p>
+ * <p>
+ * Implementation note: This class is not thread-safe.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+class PrefixKeyIndex
+{
+    /** The separator for the components of a key. */
+    private static final char SEPARATOR = '.';
+
+    /** A comparator which orders nodes by the sequence numbers of their keys. */
+    private static final Comparator<TrieNode> SEQUENCE_COMPARATOR =
+            new Comparator<TrieNode>()
+            {
+                @Override
+                public int compare(TrieNode n1, TrieNode n2)
+                {
+                    return (n1.sequence < n2.sequence) ? -1
+                            : ((n1.sequence == n2.sequence) ? 0 : 1);
+                }
+            };
+
+    /** The root node of the trie. */
+    private final TrieNode root;
+
+    /** The sequence number for the next key to be added. */
+    private long nextSequence;
+
+    /**
+     * Creates a new, empty instance of {@code PrefixKeyIndex}.
+     */
+    public PrefixKeyIndex()
+    {
+        root = new TrieNode();
+    }
+
+    /**
+     * Creates a new instance of {@code PrefixKeyIndex} and adds the given keys
+     * in the order they are returned by the collection.
+     *
+     * @param keys the keys to be added
+     */
+    public PrefixKeyIndex(Iterable<String> keys)
+    {
+        this();
+        for (String key : keys)
+        {
+            add(key);
+        }
+    }
+
+    /**
+     * Adds a key to this index. If the key is already contained, this method
+     * has no effect; the key keeps its position.
+     *
+     * @param key the key to be added
+     */
+    public void add(String key)
+    {
+        TrieNode node = root;
+        int start = 0;
+        int pos;
+        while ((pos = key.indexOf(SEPARATOR, start)) >= 0)
+        {
+            node = node.getOrCreateChild(key.substring(start, pos));
+            start = pos + 1;
+        }
+        node = node.getOrCreateChild(key.substring(start));
+
+        if (node.key == null)
+        {
+            node.key = key;
+            node.sequence = nextSequence++;
+        }
+    }
+
+    /**
+     * Removes a key from this index. Nodes of the trie which are no longer
+     * needed are removed, too.
+     *
+     * @param key the key to be removed
+     */
+    public void remove(String key)
+    {
+        List<TrieNode> path = new ArrayList<TrieNode>();
+        List<String> names = new ArrayList<String>();
+        TrieNode node = root;
+        int start = 0;
+        int pos;
+        do
+        {
+            pos = key.indexOf(SEPARATOR, start);
+            String name = key.substring(start, (pos < 0) ? key.length() : pos);
+            path.add(node);
+            names.add(name);
+            node = node.getChild(name);
+            if (node == null)
+            {
+                return;
+            }
+            start = pos + 1;
+        } while (pos >= 0);
+
+        node.key = null;
+        for (int i = path.size() - 1; i >= 0 && node.isEmpty(); i--)
+        {
+            path.get(i).removeChild(names.get(i));
+            node = path.get(i);
+        }
+    }
+
+    /**
+     * Returns a list with all keys which are equal to the given prefix or
+     * start with the prefix followed by a dot. The keys are returned in the
+     * order in which they have been added.
+     *
+     * @param prefix the prefix
+     * @return a list with the matching keys
+     */
+    public List<String> keysWithPrefix(String prefix)
+    {
+        TrieNode node = root;
+        int start = 0;
+        int pos;
+        while ((pos = prefix.indexOf(SEPARATOR, start)) >= 0 && node != null)
+        {
+            node = node.getChild(prefix.substring(start, pos));
+            start = pos + 1;
+        }
+        if (node != null)
+        {
+            node = node.getChild(prefix.substring(start));
+        }
+        if (node == null)
+        {
+            return Collections.emptyList();
+        }
+
+        List<TrieNode> keyNodes = new ArrayList<TrieNode>();
+        collectKeyNodes(node, keyNodes);
+        Collections.sort(keyNodes, SEQUENCE_COMPARATOR);
+        List<String> keys = new ArrayList<String>(keyNodes.size());
+        for (TrieNode keyNode : keyNodes)
+        {
+            keys.add(keyNode.key);
+        }
+        return keys;
+    }
+
+    /**
+     * Collects all nodes representing keys in the subtree of the given node.
+     * The subtree is traversed iteratively to avoid deep recursion.
+     *
+     * @param start the start node
+     * @param keyNodes the list in which to store the found nodes
+     */
+    private static void collectKeyNodes(TrieNode start, List<TrieNode> keyNodes)
+    {
+        LinkedList<TrieNode> pending = new LinkedList<TrieNode>();
+        pending.add(start);
+        while (!pending.isEmpty())
+        {
+            TrieNode node = pending.removeLast();
+            if (node.key != null)
+            {
+                keyNodes.add(node);
+            }
+            if (node.children != null)
+            {
+                pending.addAll(node.children.values());
+            }
+        }
+    }
+
+    /**
+     * A class representing a node of the trie. A node corresponds to a
+     * component of a key. If a key ends at this node, it is stored here.
+     */
+    private static class TrieNode
+    {
+        /** The child nodes (created on demand). */
+        Map<String, TrieNode> children;
+
+        /** The key ending at this node (<b>null</b> if there is none). */
+        String key;
+
+        /** The sequence number of the key. */
+        long sequence;
+
+        /**
+         * Returns the child node with the given name or <b>null</b> if it
+         * does not exist.
+         *
+         * @param name the name of the child
+         * @return the child node or <b>null</b>
+         */
+        public TrieNode getChild(String name)
+        {
+            return (children != null) ? children.get(name) : null;
+        }
+
+        /**
+         * Returns the child node with the given name. If it does not exist, it
+         * is created.
+         *
+         * @param name the name of the child
+         * @return the child node
+         */
+        public TrieNode getOrCreateChild(String name)
+        {
+            if (children == null)
+            {
+                children = new HashMap<String, TrieNode>(4);
+            }
+            TrieNode child = children.get(name);
+            if (child == null)
+            {
+                child = new TrieNode();
+                children.put(name, child);
+            }
+            return child;
+        }
+
+        /**
+         * Removes the child node with the given name.
+         *
+         * @param name the name of the child
+         */
+        public void removeChild(String name)
+        {
+            if (children != null)
+            {
+                children.remove(name);
+                if (children.isEmpty())
+                {
+                    children = null;
+                }
+            }
+        }
+
+        /**
+         * Returns a flag whether this node neither stores a key nor has
+         * children. Such nodes can be removed.
+         *
+         * @return a flag whether this node is empty
+         */
+        public boolean isEmpty()
+        {
+            return key == null && children == null;
+        }
+    }
+}
@@ -261,6 +261,12 @@ public class PropertiesConfiguration extends BaseConfiguration
     /** Allow file inclusion or not */
     private boolean includesAllowed = true;
 
+    /** Stores the URLs of the files included during load operations. */
+    private List<URL> includedURLs = new ArrayList<URL>();
+
+    /** A counter for determining nested load operations of include files. */
+    private int includeDepth;
+
     /**
      * Creates an empty PropertyConfiguration object which can be
      * used to synthesize a new Properties file by adding values and
@@ -314,6 +320,30 @@ public class PropertiesConfiguration extends BaseConfiguration
         return this.includesAllowed;
     }
 
+    /**
+     * Returns a list with the URLs of all files which have been included by
+     * the last load operation of this configuration. This includes files
+     * referenced by nested {@code include} statements. The list is reset when
+     * this configuration is cleared or a new file is loaded. Components
+     * caching the content of this configuration can use this information to
+     * check whether one of the included files has changed.
+     *
+     * @return a list with the URLs of the included files
+     * @since 2.1
+     */
+    public List<URL> getIncludedURLs()
+    {
+        beginRead(false);
+        try
+        {
+            return new ArrayList<URL>(includedURLs);
+        }
+        finally
+        {
+            endRead();
+        }
+    }
+
     /**
      * Return the comment header.
      *
@@ -515,6 +545,10 @@ public class PropertiesConfiguration extends BaseConfiguration
     @Override
     public void read(Reader in) throws ConfigurationException, IOException
     {
+        if (includeDepth == 0)
+        {
+            includedURLs.clear();
+        }
         getLayout().load(this, in);
     }
 
@@ -544,9 +578,21 @@ public class PropertiesConfiguration extends BaseConfiguration
         {
             copy.setLayout(new PropertiesConfigurationLayout(layout));
         }
+        copy.includedURLs = new ArrayList<URL>(includedURLs);
         return copy;
     }
 
+    /**
+     * {@inheritDoc} This implementation also resets the list of included
+     * files.
+     */
+    @Override
+    protected void clearInternal()
+    {
+        super.clearInternal();
+        includedURLs.clear();
+    }
+
     /**
      * This method is invoked by the associated
      * {@link PropertiesConfigurationLayout} object for each
@@ -1424,9 +1470,18 @@ public class PropertiesConfiguration extends BaseConfiguration
                     + fileName);
         }
 
+        includedURLs.add(url);
         FileHandler fh = new FileHandler(this);
         fh.setFileLocator(locator);
-        fh.load(url);
+        includeDepth++;
+        try
+        {
+            fh.load(url);
+        }
+        finally
+        {
+            includeDepth--;
+        }
     }
 
     /**
@@ -0,0 +1,325 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
+import org.apache.commons.configuration2.tree.NodeHandler;
+import org.apache.commons.configuration2.tree.NodeModel;
+import org.apache.commons.configuration2.tree.NodeSnapshot;
+import org.apache.commons.configuration2.tree.SnapshotNode;
+import org.apache.commons.configuration2.tree.SnapshotNodeModel;
+
+/**
+ * <p>
+ * A read-only hierarchical configuration whose data is served directly from
+ * a {@link NodeSnapshot}.
+ * </p>
+ * <p>
+ * This class can be used to speed up the startup of applications which have
+ * to load large hierarchical configurations, e.g. XML or INI files. The
+ * node structure of such a configuration can be written into a snapshot file
+ * once:
+ * </p>
+ *
+ * <pre>
+ * XMLConfiguration config = ...; // loaded in the usual way
+ * NodeSnapshot.write(config.getNodeModel().getInMemoryRepresentation(), file);
+ * </pre>
+ *
+ * <p>
+ * On later starts the snapshot can be opened without parsing the original
+ * file. The file is mapped into memory, and nodes are only read when they are
+ * accessed:
+ * </p>
+ *
+ * <pre>
+ * SnapshotConfiguration config =
+ *         new SnapshotConfiguration(NodeSnapshot.open(file));
+ * String value = config.getString(&quot;some.key&quot;);
+ * </pre>
+ *
+ * <p>
+ * Queries are processed in the same way as for other hierarchical
+ * configurations; so the same keys can be used, and interpolation works as
+ * usual. However, the content of this configuration cannot be changed; all
+ * methods for manipulating properties throw an
+ * {@code UnsupportedOperationException}. Sub configurations are read-only,
+ * too; they are based on the same snapshot.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public class SnapshotConfiguration extends
+        AbstractHierarchicalConfiguration<SnapshotNode>
+{
+    /**
+     * Creates a new instance of {@code SnapshotConfiguration} for the given
+     * snapshot.
+     *
+     * @param snapshot the {@code NodeSnapshot} (must not be <b>null</b>)
+     * @throws IllegalArgumentException if the snapshot is <b>null</b>
+     */
+    public SnapshotConfiguration(NodeSnapshot snapshot)
+    {
+        this(new SnapshotNodeModel(snapshot));
+    }
+
+    /**
+     * Creates a new instance of {@code SnapshotConfiguration} with the given
+     * node model.
+     *
+     * @param model the {@code SnapshotNodeModel}
+     */
+    protected SnapshotConfiguration(SnapshotNodeModel model)
+    {
+        super(model);
+    }
+
+    /**
+     * Returns the snapshot this configuration is based on.
+     *
+     * @return the {@code NodeSnapshot}
+     */
+    public NodeSnapshot getSnapshot()
+    {
+        return ((SnapshotNodeModel) getModel()).getSnapshot();
+    }
+
+    /**
+     * {@inheritDoc} This implementation returns a configuration for the node
+     * selected by the key. As this configuration cannot be changed, the
+     * {@code supportUpdates} flag is ignored.
+     *
+     * @throws ConfigurationRuntimeException if the key does not select a single
+     *         node
+     */
+    @Override
+    public HierarchicalConfiguration<SnapshotNode> configurationAt(String key,
+            boolean supportUpdates)
+    {
+        return configurationAt(key);
+    }
+
+    /**
+     * {@inheritDoc} This implementation returns a configuration for the node
+     * selected by the key. It is based on the same snapshot as this
+     * configuration.
+     *
+     * @throws ConfigurationRuntimeException if the key does not select a single
+     *         node
+     */
+    @Override
+    public HierarchicalConfiguration<SnapshotNode> configurationAt(String key)
+    {
+        List<SnapshotNode> nodes = fetchFilteredNodeResults(key);
+        if (nodes.size() != 1)
+        {
+            throw new ConfigurationRuntimeException(
+                    "Passed in key must select exactly one node: " + key);
+        }
+        return createSubConfiguration(nodes.get(0));
+    }
+
+    /**
+     * {@inheritDoc} The {@code supportUpdates} flag is ignored.
+     */
+    @Override
+    public List<HierarchicalConfiguration<SnapshotNode>> configurationsAt(
+            String key, boolean supportUpdates)
+    {
+        return configurationsAt(key);
+    }
+
+    /**
+     * {@inheritDoc} This implementation creates sub configurations for all
+     * nodes selected by the key.
+     */
+    @Override
+    public List<HierarchicalConfiguration<SnapshotNode>> configurationsAt(
+            String key)
+    {
+        return createSubConfigurations(fetchFilteredNodeResults(key));
+    }
+
+    /**
+     * {@inheritDoc} The {@code supportUpdates} flag is ignored.
+     */
+    @Override
+    public List<HierarchicalConfiguration<SnapshotNode>> childConfigurationsAt(
+            String key, boolean supportUpdates)
+    {
+        return childConfigurationsAt(key);
+    }
+
+    /**
+     * {@inheritDoc} This implementation resolves the node(s) selected by the
+     * given key. If not a single node is selected, an empty list is returned.
+     * Otherwise, sub configurations for each child of the node are created.
+     */
+    @Override
+    public List<HierarchicalConfiguration<SnapshotNode>> childConfigurationsAt(
+            String key)
+    {
+        List<SnapshotNode> nodes = fetchFilteredNodeResults(key);
+        if (nodes.size() != 1)
+        {
+            return Collections.emptyList();
+        }
+        return createSubConfigurations(getModel().getNodeHandler()
+                .getChildren(nodes.get(0)));
+    }
+
+    /**
+     * {@inheritDoc} The sub configuration is created by
+     * {@link #configurationAt(String, boolean)} and wrapped into an
+     * unmodifiable configuration.
+     */
+    @Override
+    public ImmutableHierarchicalConfiguration immutableConfigurationAt(
+            String key, boolean supportUpdates)
+    {
+        return ConfigurationUtils.unmodifiableConfiguration(configurationAt(
+                key, supportUpdates));
+    }
+
+    /**
+     * {@inheritDoc} The sub configuration is created by
+     * {@link #configurationAt(String)} and wrapped into an unmodifiable
+     * configuration.
+     */
+    @Override
+    public ImmutableHierarchicalConfiguration immutableConfigurationAt(
+            String key)
+    {
+        return ConfigurationUtils.unmodifiableConfiguration(configurationAt(
+                key));
+    }
+
+    /**
+     * {@inheritDoc} This implementation wraps the sub configurations returned
+     * by {@link #configurationsAt(String)}.
+     */
+    @Override
+    public List<ImmutableHierarchicalConfiguration> immutableConfigurationsAt(
+            String key)
+    {
+        return toImmutable(configurationsAt(key));
+    }
+
+    /**
+     * {@inheritDoc} This implementation wraps the sub configurations returned
+     * by {@link #childConfigurationsAt(String)}.
+     */
+    @Override
+    public List<ImmutableHierarchicalConfiguration> immutableChildConfigurationsAt(
+            String key)
+    {
+        return toImmutable(childConfigurationsAt(key));
+    }
+
+    /**
+     * {@inheritDoc} The node model of this configuration is immutable; so it
+     * can be shared with the clone.
+     */
+    @Override
+    protected NodeModel<SnapshotNode> cloneNodeModel()
+    {
+        return getModel();
+    }
+
+    /**
+     * Executes a query on the specified key and filters it for node results.
+     *
+     * @param key the key
+     * @return the filtered list with result nodes
+     */
+    private List<SnapshotNode> fetchFilteredNodeResults(String key)
+    {
+        beginRead(false);
+        try
+        {
+            NodeHandler<SnapshotNode> handler = getModel().getNodeHandler();
+            return resolveNodeKey(handler.getRootNode(), key, handler);
+        }
+        finally
+        {
+            endRead();
+        }
+    }
+
+    /**
+     * Creates sub configurations for all nodes in the given list.
+     *
+     * @param nodes the list with nodes
+     * @return the list with sub configurations
+     */
+    private List<HierarchicalConfiguration<SnapshotNode>> createSubConfigurations(
+            List<SnapshotNode> nodes)
+    {
+        List<HierarchicalConfiguration<SnapshotNode>> subs =
+                new ArrayList<HierarchicalConfiguration<SnapshotNode>>(
+                        nodes.size());
+        for (SnapshotNode node : nodes)
+        {
+            subs.add(createSubConfiguration(node));
+        }
+        return subs;
+    }
+
+    /**
+     * Creates a sub configuration for the given node and initializes it with
+     * the settings of this configuration.
+     *
+     * @param node the root node of the sub configuration
+     * @return the sub configuration
+     */
+    private SnapshotConfiguration createSubConfiguration(SnapshotNode node)
+    {
+        SnapshotConfiguration sub =
+                new SnapshotConfiguration(new SnapshotNodeModel(getSnapshot(),
+                        node));
+        sub.setSynchronizer(getSynchronizer());
+        sub.setExpressionEngine(getExpressionEngine());
+        sub.setListDelimiterHandler(getListDelimiterHandler());
+        sub.setThrowExceptionOnMissing(isThrowExceptionOnMissing());
+        sub.getInterpolator().setParentInterpolator(getInterpolator());
+        return sub;
+    }
+
+    /**
+     * Creates a list with immutable configurations from the given input list.
+     *
+     * @param subs a list with mutable configurations
+     * @return a list with corresponding immutable configurations
+     */
+    private static List<ImmutableHierarchicalConfiguration> toImmutable(
+            List<? extends HierarchicalConfiguration<?>> subs)
+    {
+        List<ImmutableHierarchicalConfiguration> res =
+                new ArrayList<ImmutableHierarchicalConfiguration>(subs.size());
+        for (HierarchicalConfiguration<?> sub : subs)
+        {
+            res.add(ConfigurationUtils.unmodifiableConfiguration(sub));
+        }
+        return res;
+    }
+}
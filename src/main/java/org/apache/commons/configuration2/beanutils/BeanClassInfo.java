@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.beanutils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.beanutils.PropertyUtilsBean;
+
+/**
+ * <p>
+ * An internally used helper class which caches reflection meta data about
+ * bean classes.
+ * </p>
+ * <p>
+ * When beans are created from bean declarations the same classes are
+ * typically processed again and again: {@link DefaultBeanFactory} scans the
+ * constructors of a bean class, and {@link BeanHelper} checks for each
+ * property to be set whether it can be written directly. An instance of this
+ * class stores this information for a single class, so that it has to be
+ * determined only once. Property descriptors are not stored; they are
+ * already cached by Commons BeanUtils.
+ * </p>
+ * <p>
+ * Instances are obtained through the {@link #forClass(Class)} method. As an
+ * instance references the class it describes, it must not be reachable from
+ * a static field if the class loader of the class can be discarded, e.g.
+ * when an application is redeployed. Therefore, there are two caches:
+ * Classes loaded by the class loader of this library or one of its parents
+ * cannot be unloaded before this class; their instances are stored in a
+ * plain map. For all other classes, a map with weak keys and weakly
+ * referenced instances is used. Such instances are dropped on garbage
+ * collection and then created anew when they are needed again.
+ * </p>
+ * <p>
+ * Implementation note: This class is thread-safe.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+final class BeanClassInfo
+{
+    /** The cache for classes which cannot be unloaded before this class. */
+    private static final ConcurrentMap<Class<?>, BeanClassInfo> CACHE =
+            new ConcurrentHashMap<Class<?>, BeanClassInfo>();
+
+    /** The cache for classes from other class loaders. */
+    private static final Map<Class<?>, Reference<BeanClassInfo>> WEAK_CACHE =
+            new WeakHashMap<Class<?>, Reference<BeanClassInfo>>();
+
+    /** The class described by this object. */
+    private final Class<?> beanClass;
+
+    /** The public constructors of the bean class. */
+    private final Constructor<?>[] constructors;
+
+    /** The parameter types of the constructors. */
+    private final Class<?>[][] constructorParameterTypes;
+
+    /** A map with the accessible write methods (created on demand). */
+    private volatile Map<String, Method> writeMethods;
+
+    /**
+     * Creates a new instance of {@code BeanClassInfo} for the given class.
+     *
+     * @param cls the bean class
+     */
+    private BeanClassInfo(Class<?> cls)
+    {
+        beanClass = cls;
+        constructors = cls.getConstructors();
+        constructorParameterTypes = new Class<?>[constructors.length][];
+        for (int i = 0; i < constructors.length; i++)
+        {
+            constructorParameterTypes[i] = constructors[i].getParameterTypes();
+        }
+    }
+
+    /**
+     * Returns the {@code BeanClassInfo} object for the given class. It is
+     * created on first access and then cached.
+     *
+     * @param cls the bean class
+     * @return the {@code BeanClassInfo} for this class
+     */
+    public static BeanClassInfo forClass(Class<?> cls)
+    {
+        if (!isCacheSafe(cls))
+        {
+            return fetchWeaklyCached(cls);
+        }
+
+        BeanClassInfo info = CACHE.get(cls);
+        if (info == null)
+        {
+            info = new BeanClassInfo(cls);
+            BeanClassInfo other = CACHE.putIfAbsent(cls, info);
+            if (other != null)
+            {
+                info = other;
+            }
+        }
+        return info;
+    }
+
+    /**
+     * Returns the number of public constructors of the bean class.
+     *
+     * @return the number of constructors
+     */
+    public int getConstructorCount()
+    {
+        return constructors.length;
+    }
+
+    /**
+     * Returns the public constructor with the given index.
+     *
+     * @param idx the index
+     * @return the constructor with this index
+     */
+    public Constructor<?> getConstructor(int idx)
+    {
+        return constructors[idx];
+    }
+
+    /**
+     * Returns the parameter types of the constructor with the given index. The
+     * array is shared and must not be modified.
+     *
+     * @param idx the index
+     * @return the parameter types of this constructor
+     */
+    public Class<?>[] getConstructorParameterTypes(int idx)
+    {
+        return constructorParameterTypes[idx];
+    }
+
+    /**
+     * Returns the write method of the property with the given name if it can
+     * be invoked directly. This is the case for properties represented by a
+     * plain {@code PropertyDescriptor} whose write method is public and
+     * declared by a public class. Otherwise, result is <b>null</b>; then the
+     * property has to be written through {@code PropertyUtilsBean}. The
+     * write methods are determined on first access using the property
+     * descriptors obtained from the passed in {@code PropertyUtilsBean}.
+     *
+     * @param name the name of the property
+     * @param propUtils the {@code PropertyUtilsBean} for introspection
+     * @return the accessible write method for this property or <b>null</b>
+     */
+    public Method getWriteMethod(String name, PropertyUtilsBean propUtils)
+    {
+        Map<String, Method> methods = writeMethods;
+        if (methods == null)
+        {
+            methods =
+                    createWriteMethods(propUtils
+                            .getPropertyDescriptors(beanClass));
+            writeMethods = methods;
+        }
+        return methods.get(name);
+    }
+
+    /**
+     * Checks whether {@code BeanClassInfo} objects for the given class can be
+     * stored in a static map. This is the case if the class has been loaded
+     * by the class loader of this class or one of its parents.
+     *
+     * @param cls the class to be checked
+     * @return a flag whether the class can be cached safely
+     */
+    static boolean isCacheSafe(Class<?> cls)
+    {
+        ClassLoader target = cls.getClassLoader();
+        if (target == null)
+        {
+            return true;
+        }
+
+        ClassLoader loader = BeanClassInfo.class.getClassLoader();
+        while (loader != null)
+        {
+            if (loader == target)
+            {
+                return true;
+            }
+            loader = loader.getParent();
+        }
+        return false;
+    }
+
+    /**
+     * Returns the {@code BeanClassInfo} object for a class from a class loader
+     * which may be discarded. The object is obtained from the weak cache if
+     * possible; otherwise, it is created and added to this cache.
+     *
+     * @param cls the bean class
+     * @return the {@code BeanClassInfo} for this class
+     */
+    private static BeanClassInfo fetchWeaklyCached(Class<?> cls)
+    {
+        synchronized (WEAK_CACHE)
+        {
+            Reference<BeanClassInfo> ref = WEAK_CACHE.get(cls);
+            BeanClassInfo info = (ref != null) ? ref.get() : null;
+            if (info == null)
+            {
+                info = new BeanClassInfo(cls);
+                WEAK_CACHE.put(cls, new WeakReference<BeanClassInfo>(info));
+            }
+            return info;
+        }
+    }
+
+    /**
+     * Creates the map with the write methods which can be invoked directly.
+     *
+     * @param descriptors the property descriptors of the bean class
+     * @return the map with accessible write methods
+     */
+    private static Map<String, Method> createWriteMethods(
+            PropertyDescriptor[] descriptors)
+    {
+        Map<String, Method> methods = new HashMap<String, Method>();
+        for (PropertyDescriptor desc : descriptors)
+        {
+            Method m = desc.getWriteMethod();
+            if (desc.getClass() == PropertyDescriptor.class && m != null
+                    && Modifier.isPublic(m.getModifiers())
+                    && Modifier.isPublic(m.getDeclaringClass().getModifiers()))
+            {
+                methods.put(desc.getName(), m);
+            }
+        }
+        return Collections.unmodifiableMap(methods);
+    }
+}
@@ -18,6 +18,7 @@ package org.apache.commons.configuration2.beanutils;
 
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -36,6 +37,7 @@ import org.apache.commons.beanutils.WrapDynaBean;
 import org.apache.commons.beanutils.WrapDynaClass;
 import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
 import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.StringUtils;
 
 /**
  * <p>
@@ -66,6 +68,12 @@ import org.apache.commons.lang3.ClassUtils;
  * instance can be passed around in an application and shared between multiple
  * components.
  * </p>
+ * <p>
+ * The write methods of the simple properties of bean classes are cached.
+ * Such properties of standard beans are set directly through these methods
+ * if the values have already the correct type; otherwise, Commons BeanUtils
+ * is used which also performs necessary type conversions.
+ * </p>
  *
  * @since 1.3
  * @version $Id$
@@ -88,6 +96,12 @@ public final class BeanHelper
      */
     private static final BeanUtilsBean BEAN_UTILS_BEAN = initBeanUtilsBean();
 
+    /**
+     * Constant for the characters which indicate a nested, indexed, or mapped
+     * property name.
+     */
+    private static final String COMPLEX_PROPERTY_CHARS = ".[]()";
+
     /** Stores a map with the registered bean factories. */
     private final Map<String, BeanFactory> beanFactories = Collections
             .synchronizedMap(new HashMap<String, BeanFactory>());
@@ -354,7 +368,10 @@ public final class BeanHelper
      */
     private static void initProperty(Object bean, String propName, Object value)
     {
-        if (!isPropertyWriteable(bean, propName))
+        Method writeMethod = fetchWriteMethod(bean, propName);
+        if (writeMethod == null
+                && !BEAN_UTILS_BEAN.getPropertyUtils().isWriteable(bean,
+                        propName))
         {
             throw new ConfigurationRuntimeException("Property " + propName
                     + " cannot be set on " + bean.getClass().getName());
@@ -362,7 +379,19 @@ public final class BeanHelper
 
         try
         {
-            BEAN_UTILS_BEAN.setProperty(bean, propName, value);
+            if (writeMethod != null
+                    && value != null
+                    && ClassUtils.primitiveToWrapper(
+                            writeMethod.getParameterTypes()[0]).isInstance(
+                            value))
+            {
+                // no conversion needed
+                writeMethod.invoke(bean, value);
+            }
+            else
+            {
+                BEAN_UTILS_BEAN.setProperty(bean, propName, value);
+            }
         }
         catch (IllegalAccessException iaex)
         {
@@ -518,7 +547,44 @@ public final class BeanHelper
      */
     private static boolean isPropertyWriteable(Object bean, String propName)
     {
-        return BEAN_UTILS_BEAN.getPropertyUtils().isWriteable(bean, propName);
+        return fetchWriteMethod(bean, propName) != null
+                || BEAN_UTILS_BEAN.getPropertyUtils().isWriteable(bean,
+                        propName);
+    }
+
+    /**
+     * Returns the cached write method for the specified property of the given
+     * bean if it can be invoked directly. Result is <b>null</b> if the
+     * property has to be accessed through Commons BeanUtils.
+     *
+     * @param bean the bean instance
+     * @param propName the name of the property
+     * @return the write method or <b>null</b>
+     */
+    private static Method fetchWriteMethod(Object bean, String propName)
+    {
+        if (!isSimpleProperty(bean, propName))
+        {
+            return null;
+        }
+        return BeanClassInfo.forClass(bean.getClass()).getWriteMethod(
+                propName, BEAN_UTILS_BEAN.getPropertyUtils());
+    }
+
+    /**
+     * Checks whether the specified property can be handled using the cached
+     * meta data of the bean class. This is the case for simple property names
+     * (not nested, indexed, or mapped) of beans which are not
+     * {@code DynaBean} objects.
+     *
+     * @param bean the bean instance
+     * @param propName the name of the property
+     * @return a flag whether the cached meta data can be used
+     */
+    private static boolean isSimpleProperty(Object bean, String propName)
+    {
+        return !(bean instanceof DynaBean) && propName != null
+                && StringUtils.containsNone(propName, COMPLEX_PROPERTY_CHARS);
     }
 
     /**
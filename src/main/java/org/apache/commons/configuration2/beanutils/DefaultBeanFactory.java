@@ -47,6 +47,11 @@ import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
  * the {@link BeanHelper} class. This means that if not bean factory is
  * specified in a {@link BeanDeclaration}, this default instance will be used.
  * </p>
+ * <p>
+ * The public constructors of bean classes and their parameter types are
+ * obtained from a cache, so that the constructors of a class are not
+ * determined again each time a bean of this class is created.
+ * </p>
  *
  * @since 1.3
  * @version $Id$
@@ -247,14 +252,15 @@ public class DefaultBeanFactory implements BeanFactory
     {
         List<Constructor<T>> result = new LinkedList<Constructor<T>>();
         Collection<ConstructorArg> args = getConstructorArgs(data);
-        for (Constructor<?> ctor : beanClass.getConstructors())
+        BeanClassInfo info = BeanClassInfo.forClass(beanClass);
+        for (int i = 0; i < info.getConstructorCount(); i++)
         {
-            if (matchesConstructor(ctor, args))
+            if (matchesConstructor(info.getConstructorParameterTypes(i), args))
             {
                 // cast should be okay according to the JavaDocs of
                 // getConstructors()
                 @SuppressWarnings("unchecked")
-                Constructor<T> match = (Constructor<T>) ctor;
+                Constructor<T> match = (Constructor<T>) info.getConstructor(i);
                 result.add(match);
             }
         }
@@ -262,18 +268,17 @@ public class DefaultBeanFactory implements BeanFactory
     }
 
     /**
-     * Checks whether the given constructor is compatible with the given list of
-     * arguments.
+     * Checks whether a constructor with the given parameter types is
+     * compatible with the given list of arguments.
      *
-     * @param ctor the constructor to be checked
+     * @param types the parameter types of the constructor to be checked
      * @param args the collection of constructor arguments
      * @return a flag whether this constructor is compatible with the given
      *         arguments
      */
-    private static boolean matchesConstructor(Constructor<?> ctor,
+    private static boolean matchesConstructor(Class<?>[] types,
             Collection<ConstructorArg> args)
     {
-        Class<?>[] types = ctor.getParameterTypes();
         if (types.length != args.size())
         {
             return false;
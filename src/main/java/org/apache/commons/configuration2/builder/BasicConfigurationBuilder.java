@@ -36,7 +36,13 @@ import org.apache.commons.configuration2.event.EventSource;
 import org.apache.commons.configuration2.event.EventType;
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
+import org.apache.commons.configuration2.io.LoadStatistics;
 import org.apache.commons.configuration2.reloading.ReloadingController;
+import org.apache.commons.configuration2.tree.ConfigurationNodeVisitorAdapter;
+import org.apache.commons.configuration2.tree.NodeHandler;
+import org.apache.commons.configuration2.tree.NodeModel;
+import org.apache.commons.configuration2.tree.NodeModelSupport;
+import org.apache.commons.configuration2.tree.NodeTreeWalker;
 
 /**
  * <p>
@@ -274,7 +280,7 @@ public class BasicConfigurationBuilder<T extends ImmutableConfiguration> impleme
                 ConfigurationBuilderEvent.CONFIGURATION_REQUEST));
 
         T resObj = result;
-        boolean created = false;
+        LoadStatistics stats = null;
         if (resObj == null)
         {
             synchronized (this)
@@ -282,17 +288,30 @@ public class BasicConfigurationBuilder<T extends ImmutableConfiguration> impleme
                 resObj = result;
                 if (resObj == null)
                 {
-                    result = resObj = createResult();
-                    created = true;
+                    stats = LoadStatistics.start();
+                    try
+                    {
+                        resObj = createResult();
+                    }
+                    finally
+                    {
+                        stats.finish();
+                    }
+                    result = resObj;
                 }
             }
         }
 
-        if (created)
+        if (stats != null)
         {
+            if (hasResultCreatedListeners())
+            {
+                // counting may be expensive, e.g. for combined configurations
+                stats.setNodeCount(countNodes(resObj));
+            }
             fireBuilderEvent(new ConfigurationBuilderResultCreatedEvent(this,
                     ConfigurationBuilderResultCreatedEvent.RESULT_CREATED,
-                    resObj));
+                    resObj, stats));
         }
         return resObj;
     }
@@ -768,6 +787,62 @@ public class BasicConfigurationBuilder<T extends ImmutableConfiguration> impleme
         }
     }
 
+    /**
+     * Checks whether event listeners for the creation of a result object are
+     * registered. Only in this case the number of nodes of a newly created
+     * result object has to be determined.
+     *
+     * @return a flag whether there are listeners for result created events
+     */
+    private boolean hasResultCreatedListeners()
+    {
+        return eventListeners
+                .getEventListeners(
+                        ConfigurationBuilderResultCreatedEvent.RESULT_CREATED)
+                .iterator().hasNext();
+    }
+
+    /**
+     * Determines the number of nodes of the given result object. This is
+     * possible only for configurations based on a {@code NodeModel}; for
+     * other objects, result is 0.
+     *
+     * @param obj the result object
+     * @return the number of nodes of this object
+     */
+    private static long countNodes(Object obj)
+    {
+        if (obj instanceof NodeModelSupport)
+        {
+            return countNodes(((NodeModelSupport<?>) obj).getNodeModel());
+        }
+        return 0;
+    }
+
+    /**
+     * Determines the number of nodes stored in the given {@code NodeModel}.
+     *
+     * @param model the model
+     * @param <N> the type of the nodes
+     * @return the number of nodes in this model
+     */
+    private static <N> long countNodes(NodeModel<N> model)
+    {
+        final long[] count = new long[1];
+        NodeHandler<N> handler = model.getNodeHandler();
+        NodeTreeWalker.INSTANCE.walkBFS(handler.getRootNode(),
+                new ConfigurationNodeVisitorAdapter<N>()
+                {
+                    @Override
+                    public void visitBeforeChildren(N node,
+                            NodeHandler<N> h)
+                    {
+                        count[0]++;
+                    }
+                }, handler);
+        return count[0];
+    }
+
     /**
      * Registers an event listener at an event source object.
      *
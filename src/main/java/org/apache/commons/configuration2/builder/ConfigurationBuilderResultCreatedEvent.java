@@ -18,6 +18,7 @@ package org.apache.commons.configuration2.builder;
 
 import org.apache.commons.configuration2.ImmutableConfiguration;
 import org.apache.commons.configuration2.event.EventType;
+import org.apache.commons.configuration2.io.LoadStatistics;
 
 /**
  * <p>
@@ -35,6 +36,13 @@ import org.apache.commons.configuration2.event.EventType;
  * created configuration objects. It is also an indication that a builder is now
  * fully initialized; i.e. the managed configuration is available.
  * </p>
+ * <p>
+ * Events fired by builders derived from {@link BasicConfigurationBuilder}
+ * also provide a {@link LoadStatistics} object with a breakdown of the time
+ * needed to create the result configuration. As a reloading builder creates a
+ * new result after each reload, monitoring code can use this information to
+ * track the cost of reloads per configuration source.
+ * </p>
  *
  * @version $Id$
  * @since 2.0
@@ -54,6 +62,9 @@ public class ConfigurationBuilderResultCreatedEvent extends
     /** The newly created configuration object. */
     private final ImmutableConfiguration configuration;
 
+    /** The statistics about the creation of the configuration. */
+    private final LoadStatistics loadStatistics;
+
     /**
      * Creates a new instance of {@code ConfigurationBuilderResultCreatedEvent}
      * and initializes its properties.
@@ -69,6 +80,29 @@ public class ConfigurationBuilderResultCreatedEvent extends
             ConfigurationBuilder<?> source,
             EventType<? extends ConfigurationBuilderResultCreatedEvent> evType,
             ImmutableConfiguration createdConfiguration)
+    {
+        this(source, evType, createdConfiguration, null);
+    }
+
+    /**
+     * Creates a new instance of {@code ConfigurationBuilderResultCreatedEvent}
+     * and initializes its properties including statistics about the creation
+     * of the configuration.
+     *
+     * @param source the {@code ConfigurationBuilder} object which triggered
+     *        this event (must not be <b>null</b>)
+     * @param evType the type of this event (must not be <b>null</b>)
+     * @param createdConfiguration the newly created {@code ImmutableConfiguration}
+     *        object (must not be <b>null</b>)
+     * @param stats the statistics about the creation of the configuration
+     *        (may be <b>null</b>)
+     * @throws IllegalArgumentException if a required parameter is null
+     * @since 2.1
+     */
+    public ConfigurationBuilderResultCreatedEvent(
+            ConfigurationBuilder<?> source,
+            EventType<? extends ConfigurationBuilderResultCreatedEvent> evType,
+            ImmutableConfiguration createdConfiguration, LoadStatistics stats)
     {
         super(source, evType);
         if (createdConfiguration == null)
@@ -77,6 +111,24 @@ public class ConfigurationBuilderResultCreatedEvent extends
                     "Configuration must not be null!");
         }
         configuration = createdConfiguration;
+        loadStatistics = stats;
+    }
+
+    /**
+     * Returns the statistics about the creation of the configuration. They
+     * contain the total time needed by the builder, the time spent in the
+     * single phases of loading, the number of bytes read, and the number of
+     * nodes of the new configuration. The nodes are counted after the
+     * configuration has been created, outside of the builder's lock, and only
+     * if listeners for this event type are registered. Result may be
+     * <b>null</b> if the builder does not collect this information.
+     *
+     * @return the {@code LoadStatistics} (can be <b>null</b>)
+     * @since 2.1
+     */
+    public LoadStatistics getLoadStatistics()
+    {
+        return loadStatistics;
     }
 
     /**
@@ -16,6 +16,7 @@
  */
 package org.apache.commons.configuration2.builder.combined;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -78,6 +79,9 @@ public class CombinedBuilderParametersImpl extends BasicBuilderParameters
     /** A flag whether settings should be inherited by child builders. */
     private boolean inheritSettings;
 
+    /** The file for the startup cache. */
+    private File startupCacheFile;
+
     /**
      * Creates a new instance of {@code CombinedBuilderParametersImpl}.
      */
@@ -334,6 +338,28 @@ public class CombinedBuilderParametersImpl extends BasicBuilderParameters
         return this;
     }
 
+    /**
+     * Returns the file to be used as startup cache. Result is <b>null</b> if
+     * no startup cache is used.
+     *
+     * @return the startup cache file
+     * @since 2.1
+     */
+    public File getStartupCacheFile()
+    {
+        return startupCacheFile;
+    }
+
+    /**
+     * {@inheritDoc} This implementation stores the file in an internal field.
+     */
+    @Override
+    public CombinedBuilderParametersImpl setStartupCacheFile(File file)
+    {
+        startupCacheFile = file;
+        return this;
+    }
+
     /**
      * Returns the parameters object for the definition configuration builder if
      * present.
@@ -16,6 +16,8 @@
  */
 package org.apache.commons.configuration2.builder.combined;
 
+import java.io.File;
+
 import org.apache.commons.configuration2.HierarchicalConfiguration;
 import org.apache.commons.configuration2.builder.BuilderParameters;
 import org.apache.commons.configuration2.builder.ConfigurationBuilder;
@@ -95,6 +97,22 @@ public interface CombinedBuilderProperties<T>
      */
     T setBasePath(String path);
 
+    /**
+     * Sets a file to be used as startup cache. If a cache file is set, the
+     * builder stores the node structure of the combined configuration in this
+     * file together with fingerprints of all configuration sources and the
+     * definition configuration. When the combined configuration is created
+     * the next time and all fingerprints are unchanged, the structure is read
+     * from the cache file; so the configuration sources do not have to be
+     * parsed. Per default, no cache is used.
+     *
+     * @param file the startup cache file (<b>null</b> for disabling the
+     *        cache)
+     * @return a reference to this object for method chaining
+     * @since 2.1
+     */
+    T setStartupCacheFile(File file);
+
     /**
      * Sets the parameters object for the definition configuration builder. This
      * property is evaluated only if the definition configuration builder is not
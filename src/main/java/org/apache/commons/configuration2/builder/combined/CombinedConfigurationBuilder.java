@@ -16,16 +16,19 @@
  */
 package org.apache.commons.configuration2.builder.combined;
 
+import java.io.IOException;
 import java.net.URL;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.configuration2.BaseHierarchicalConfiguration;
 import org.apache.commons.configuration2.CombinedConfiguration;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.ConfigurationLookup;
@@ -53,6 +56,7 @@ import org.apache.commons.configuration2.interpol.Lookup;
 import org.apache.commons.configuration2.io.FileSystem;
 import org.apache.commons.configuration2.resolver.CatalogResolver;
 import org.apache.commons.configuration2.tree.DefaultExpressionEngineSymbols;
+import org.apache.commons.configuration2.tree.ImmutableNode;
 import org.apache.commons.configuration2.tree.OverrideCombiner;
 import org.apache.commons.configuration2.tree.UnionCombiner;
 import org.xml.sax.EntityResolver;
@@ -229,6 +233,37 @@ import org.xml.sax.EntityResolver;
  * configuration sources which have been assigned a name; care has to be taken
  * that these names are unique.
  * </p>
+ * <p>
+ * If a large number of configuration sources is combined, creating the
+ * combined configuration can take a while. As the sources often do not change
+ * between two starts of an application, a startup cache can be enabled by
+ * setting a cache file in the parameters of this builder. The node structure
+ * of the combined configuration is then stored in this file together with
+ * fingerprints of the definition configuration and all sources. If the
+ * fingerprints are unchanged on the next start, the structure is read from
+ * the cache file instead of loading all sources. In this case, the resulting
+ * combined configuration contains a single child configuration with the
+ * cached data which is stored under the name defined by the
+ * {@code CACHED_NAME} constant; so the named child configurations are not
+ * available. Sources which are not loaded from files (e.g. system properties)
+ * are always loaded in order to calculate their fingerprints. Because the
+ * builders for all sources have to be created before the sources are loaded,
+ * the declarations of sources cannot reference properties defined by other
+ * sources if a startup cache is used.
+ * </p>
+ * <p>
+ * The startup cache has some limitations. For sources loaded from files,
+ * only the files themselves are checked for changes; the only exception are
+ * files included by properties configurations which are recorded in the
+ * cache file and checked, too. XML documents which contain a document type
+ * declaration or use XInclude can reference arbitrary external resources;
+ * if such a document is combined, the cache is not written. The cached
+ * structure retains the types of strings, booleans, and numbers of type
+ * {@code Integer}, {@code Long}, {@code Float}, and {@code Double}; if a
+ * source produces values of other types, the cache is not written either,
+ * so that the values returned by the combined configuration do not depend
+ * on whether the cache was used.
+ * </p>
  *
  * @since 1.3
  * @author <a
@@ -248,6 +283,18 @@ public class CombinedConfigurationBuilder extends BasicConfigurationBuilder<Comb
             .getName()
             + "/ADDITIONAL_CONFIG";
 
+    /**
+     * Constant for the name of the configuration with cached data. If the
+     * result of this builder could be obtained from the startup cache, the
+     * cached data is added under this name to the resulting combined
+     * configuration.
+     *
+     * @since 2.1
+     */
+    public static final String CACHED_NAME = CombinedConfigurationBuilder.class
+            .getName()
+            + "/CACHED_CONFIG";
+
     /** Constant for the name of the configuration bean factory. */
     static final String CONFIG_BEAN_FACTORY_NAME = CombinedConfigurationBuilder.class
             .getName()
@@ -798,19 +845,97 @@ public class CombinedConfigurationBuilder extends BasicConfigurationBuilder<Comb
         setUpParentInterpolator(currentConfiguration, config);
 
         ConfigurationSourceData data = getSourceData();
-        data.createAndAddConfigurations(result, data.getOverrideSources());
-        if (!data.getUnionSources().isEmpty())
+        if (currentParameters.getStartupCacheFile() != null)
         {
-            CombinedConfiguration addConfig = createAdditionalsConfiguration(result);
-            result.addConfiguration(addConfig, ADDITIONAL_NAME);
-            initNodeCombinerListNodes(addConfig, config, KEY_ADDITIONAL_LIST);
-            data.createAndAddConfigurations(addConfig, data.getUnionSources());
+            initResultFromStartupCache(result, config, data,
+                    new StartupCache(currentParameters.getStartupCacheFile()));
+        }
+        else
+        {
+            data.createAndAddConfigurations(result, data.getOverrideSources());
+            if (!data.getUnionSources().isEmpty())
+            {
+                CombinedConfiguration addConfig =
+                        createAdditionalsConfiguration(result);
+                result.addConfiguration(addConfig, ADDITIONAL_NAME);
+                initNodeCombinerListNodes(addConfig, config,
+                        KEY_ADDITIONAL_LIST);
+                data.createAndAddConfigurations(addConfig,
+                        data.getUnionSources());
+            }
         }
 
         result.isEmpty();  // this sets up the node structure
         currentConfiguration = null;
     }
 
+    /**
+     * Populates the resulting configuration if a startup cache is used. The
+     * builders for all configuration sources are created first. If the
+     * fingerprints of all sources match the data in the cache, the cached
+     * node structure is added to the result. Otherwise, the configurations
+     * are created in the usual way, and the cache is updated.
+     *
+     * @param result the resulting configuration
+     * @param config the definition configuration
+     * @param data the object with the data about configuration sources
+     * @param cache the startup cache
+     * @throws ConfigurationException if an error occurs
+     */
+    private void initResultFromStartupCache(CombinedConfiguration result,
+            HierarchicalConfiguration<?> config, ConfigurationSourceData data,
+            StartupCache cache) throws ConfigurationException
+    {
+        Map<ConfigurationDeclaration, ConfigurationBuilder<? extends Configuration>> overrideBuilders =
+                data.createBuilders(data.getOverrideSources());
+        Map<ConfigurationDeclaration, ConfigurationBuilder<? extends Configuration>> unionBuilders =
+                data.createBuilders(data.getUnionSources());
+        List<String> fingerprints =
+                cache.fingerprints(config, data.getChildBuilders());
+        ImmutableNode cachedRoot =
+                (fingerprints != null) ? cache.load(fingerprints) : null;
+        if (cachedRoot != null)
+        {
+            BaseHierarchicalConfiguration cachedConfig =
+                    new BaseHierarchicalConfiguration();
+            cachedConfig.getNodeModel().setRootNode(cachedRoot);
+            result.addConfiguration(cachedConfig, CACHED_NAME);
+            return;
+        }
+
+        data.addConfigurations(result, overrideBuilders);
+        if (!unionBuilders.isEmpty())
+        {
+            CombinedConfiguration addConfig =
+                    createAdditionalsConfiguration(result);
+            result.addConfiguration(addConfig, ADDITIONAL_NAME);
+            initNodeCombinerListNodes(addConfig, config, KEY_ADDITIONAL_LIST);
+            data.addConfigurations(addConfig, unionBuilders);
+        }
+
+        if (fingerprints != null)
+        {
+            try
+            {
+                if (!cache.store(result.getNodeModel()
+                        .getInMemoryRepresentation(), fingerprints, data
+                        .getChildBuilders()))
+                {
+                    result.getLogger().info(
+                            "Configuration sources cannot be cached; "
+                                    + "not writing startup cache file "
+                                    + cache.getCacheFile());
+                }
+            }
+            catch (IOException ioex)
+            {
+                result.getLogger().warn(
+                        "Could not write startup cache file "
+                                + cache.getCacheFile(), ioex);
+            }
+        }
+    }
+
     /**
      * Creates the {@code CombinedConfiguration} for the configuration
      * sources in the <code>&lt;additional&gt;</code> section. This method is
@@ -1430,6 +1555,56 @@ public class CombinedConfigurationBuilder extends BasicConfigurationBuilder<Comb
             }
         }
 
+        /**
+         * Processes the declaration of configuration builder providers and
+         * creates the corresponding builders. The configurations are not yet
+         * created. Note that in contrast to
+         * {@code createAndAddConfigurations()}, the declarations cannot refer
+         * to properties of the configurations created before.
+         *
+         * @param srcDecl the collection with the declarations of configuration
+         *        sources to process
+         * @return a map with the declarations and the corresponding builders
+         * @throws ConfigurationException if an error occurs
+         */
+        public Map<ConfigurationDeclaration, ConfigurationBuilder<? extends Configuration>> createBuilders(
+                Collection<HierarchicalConfiguration<?>> srcDecl)
+                throws ConfigurationException
+        {
+            createBuilderChangeListener();
+            Map<ConfigurationDeclaration, ConfigurationBuilder<? extends Configuration>> builders =
+                    new LinkedHashMap<ConfigurationDeclaration, ConfigurationBuilder<? extends Configuration>>();
+            for (HierarchicalConfiguration<?> src : srcDecl)
+            {
+                ConfigurationDeclaration decl =
+                        new ConfigurationDeclaration(
+                                CombinedConfigurationBuilder.this, src);
+                builders.put(decl, createConfigurationBuilder(src, decl));
+            }
+            return builders;
+        }
+
+        /**
+         * Obtains the configurations from the given builders and adds them to
+         * the specified result configuration.
+         *
+         * @param ccResult the result configuration
+         * @param builders the map with declarations and builders as returned
+         *        by {@code createBuilders()}
+         * @throws ConfigurationException if an error occurs
+         */
+        public void addConfigurations(
+                CombinedConfiguration ccResult,
+                Map<ConfigurationDeclaration, ConfigurationBuilder<? extends Configuration>> builders)
+                throws ConfigurationException
+        {
+            for (Map.Entry<ConfigurationDeclaration, ConfigurationBuilder<? extends Configuration>> e : builders
+                    .entrySet())
+            {
+                addChildConfiguration(ccResult, e.getKey(), e.getValue());
+            }
+        }
+
         /**
          * Frees resources used by this object and performs clean up. This
          * method is called when the owning builder is reset.
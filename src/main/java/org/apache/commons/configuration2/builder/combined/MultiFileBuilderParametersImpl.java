@@ -21,6 +21,7 @@ import java.util.Map;
 import org.apache.commons.configuration2.ConfigurationUtils;
 import org.apache.commons.configuration2.builder.BasicBuilderParameters;
 import org.apache.commons.configuration2.builder.BuilderParameters;
+import org.apache.commons.configuration2.cache.EvictionPolicy;
 
 /**
  * <p>
@@ -67,6 +68,18 @@ public class MultiFileBuilderParametersImpl extends BasicBuilderParameters
     /** The file pattern. */
     private String filePattern;
 
+    /** The maximum number of managed builders. */
+    private int maxManagedBuilders;
+
+    /** The maximum idle time of managed builders. */
+    private long maxManagedBuilderIdleTime;
+
+    /** The maximum number of nodes of managed configurations. */
+    private long maxManagedConfigurationNodes;
+
+    /** The eviction policy for managed builders. */
+    private EvictionPolicy managedBuilderEvictionPolicy;
+
     /**
      * Obtains an instance of this class from the given map with parameters. If
      * this map does not contain an instance, result is <b>null</b>. This is
@@ -144,6 +157,83 @@ public class MultiFileBuilderParametersImpl extends BasicBuilderParameters
         return this;
     }
 
+    /**
+     * Returns the maximum number of managed builders which are cached.
+     *
+     * @return the maximum number of managed builders (0 for no limit)
+     * @since 2.1
+     */
+    public int getMaxManagedBuilders()
+    {
+        return maxManagedBuilders;
+    }
+
+    @Override
+    public MultiFileBuilderParametersImpl setMaxManagedBuilders(int max)
+    {
+        maxManagedBuilders = max;
+        return this;
+    }
+
+    /**
+     * Returns the time in milliseconds after which managed builders which
+     * have not been accessed are evicted.
+     *
+     * @return the maximum idle time of managed builders (0 for no expiry)
+     * @since 2.1
+     */
+    public long getMaxManagedBuilderIdleTime()
+    {
+        return maxManagedBuilderIdleTime;
+    }
+
+    @Override
+    public MultiFileBuilderParametersImpl setMaxManagedBuilderIdleTime(
+            long millis)
+    {
+        maxManagedBuilderIdleTime = millis;
+        return this;
+    }
+
+    /**
+     * Returns the maximum total number of nodes of the configurations loaded
+     * by cached managed builders.
+     *
+     * @return the maximum number of nodes (0 for no limit)
+     * @since 2.1
+     */
+    public long getMaxManagedConfigurationNodes()
+    {
+        return maxManagedConfigurationNodes;
+    }
+
+    @Override
+    public MultiFileBuilderParametersImpl setMaxManagedConfigurationNodes(
+            long maxNodes)
+    {
+        maxManagedConfigurationNodes = maxNodes;
+        return this;
+    }
+
+    /**
+     * Returns the {@code EvictionPolicy} for managed builders.
+     *
+     * @return the {@code EvictionPolicy} (can be <b>null</b>)
+     * @since 2.1
+     */
+    public EvictionPolicy getManagedBuilderEvictionPolicy()
+    {
+        return managedBuilderEvictionPolicy;
+    }
+
+    @Override
+    public MultiFileBuilderParametersImpl setManagedBuilderEvictionPolicy(
+            EvictionPolicy policy)
+    {
+        managedBuilderEvictionPolicy = policy;
+        return this;
+    }
+
     /**
      * {@inheritDoc} This implementation puts a reference to this object under a
      * reserved key in the resulting parameters map.
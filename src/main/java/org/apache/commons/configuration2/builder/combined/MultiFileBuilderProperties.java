@@ -17,6 +17,7 @@
 package org.apache.commons.configuration2.builder.combined;
 
 import org.apache.commons.configuration2.builder.BuilderParameters;
+import org.apache.commons.configuration2.cache.EvictionPolicy;
 
 /**
  * <p>
@@ -57,4 +58,50 @@ public interface MultiFileBuilderProperties<T>
      * @return a reference to this object for method chaining
      */
     T setManagedBuilderParameters(BuilderParameters p);
+
+    /**
+     * Sets the maximum number of managed builders which are cached. If more
+     * configuration files are accessed, the builders selected by the eviction
+     * policy are evicted together with their loaded configurations. A value
+     * of 0 (which is the default) means that the number is not restricted.
+     *
+     * @param max the maximum number of cached managed builders
+     * @return a reference to this object for method chaining
+     * @since 2.1
+     */
+    T setMaxManagedBuilders(int max);
+
+    /**
+     * Sets the time in milliseconds after which managed builders which have
+     * not been accessed are evicted. A value of 0 (which is the default)
+     * means that managed builders do not expire.
+     *
+     * @param millis the maximum idle time of managed builders
+     * @return a reference to this object for method chaining
+     * @since 2.1
+     */
+    T setMaxManagedBuilderIdleTime(long millis);
+
+    /**
+     * Sets the maximum total number of nodes of the configurations loaded by
+     * the cached managed builders. This allows capping the memory used by the
+     * loaded configurations. A value of 0 (which is the default) means that
+     * the number of nodes is not restricted.
+     *
+     * @param maxNodes the maximum number of nodes of loaded configurations
+     * @return a reference to this object for method chaining
+     * @since 2.1
+     */
+    T setMaxManagedConfigurationNodes(long maxNodes);
+
+    /**
+     * Sets the {@code EvictionPolicy} which determines the order in which
+     * managed builders are evicted if one of the bounds is exceeded. If
+     * undefined, the least recently used builders are evicted first.
+     *
+     * @param policy the {@code EvictionPolicy}
+     * @return a reference to this object for method chaining
+     * @since 2.1
+     */
+    T setManagedBuilderEvictionPolicy(EvictionPolicy policy);
 }
@@ -16,10 +16,16 @@
  */
 package org.apache.commons.configuration2.builder.combined;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.configuration2.ConfigurationUtils;
@@ -30,13 +36,19 @@ import org.apache.commons.configuration2.builder.BuilderParameters;
 import org.apache.commons.configuration2.builder.ConfigurationBuilderEvent;
 import org.apache.commons.configuration2.builder.ConfigurationBuilderResultCreatedEvent;
 import org.apache.commons.configuration2.builder.FileBasedConfigurationBuilder;
+import org.apache.commons.configuration2.cache.BoundedCache;
+import org.apache.commons.configuration2.cache.CacheEvictionListener;
+import org.apache.commons.configuration2.cache.CacheWeigher;
 import org.apache.commons.configuration2.event.Event;
 import org.apache.commons.configuration2.event.EventListener;
 import org.apache.commons.configuration2.event.EventListenerList;
+import org.apache.commons.configuration2.event.EventListenerRegistrationData;
 import org.apache.commons.configuration2.event.EventType;
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.commons.configuration2.interpol.ConfigurationInterpolator;
 import org.apache.commons.configuration2.interpol.InterpolatorSpecification;
+import org.apache.commons.configuration2.interpol.Lookup;
+import org.apache.commons.configuration2.io.LoadStatistics;
 import org.apache.commons.lang3.concurrent.ConcurrentUtils;
 
 /**
@@ -71,6 +83,24 @@ import org.apache.commons.lang3.concurrent.ConcurrentUtils;
  * {@code ConfigurationInterpolator}. Other properties of this parameters object
  * are used to initialize the builders for managed configurations.
  * </p>
+ * <p>
+ * Per default, managed builders are cached for the whole life time of this
+ * builder. If configuration files are selected by dynamic data like tenant
+ * IDs, this may cause the number of builders - and thus the number of loaded
+ * configurations - to grow without limit. Therefore, the parameters object
+ * allows bounding this cache by the number of managed builders, their idle
+ * time, and the total number of nodes of the loaded configurations. Managed
+ * builders exceeding these bounds are evicted according to a configurable
+ * {@link org.apache.commons.configuration2.cache.EvictionPolicy
+ * EvictionPolicy}. An evicted builder is detached from the event listeners of
+ * this builder; if its configuration file is requested again, a new builder
+ * is created which loads the file anew.
+ * </p>
+ * <p>
+ * To avoid latencies on the first access to a configuration file, the
+ * configurations for a set of known tenants can be loaded in advance using
+ * the {@link #preload(Collection, Executor)} method.
+ * </p>
  *
  * @version $Id$
  * @since 2.0
@@ -87,8 +117,24 @@ public class MultiFileConfigurationBuilder<T extends FileBasedConfiguration>
     private static final String KEY_INTERPOLATOR = "interpolator";
 
     /** A cache for already created managed builders. */
-    private final ConcurrentMap<String, FileBasedConfigurationBuilder<T>> managedBuilders =
-            new ConcurrentHashMap<String, FileBasedConfigurationBuilder<T>>();
+    private final BoundedCache<String, FileBasedConfigurationBuilder<T>> managedBuilders =
+            createManagedBuilderCache();
+
+    /**
+     * Stores the number of nodes of the configurations loaded by managed
+     * builders. This is used as weight of the builders. Weak references are
+     * used, so that evicted builders are not kept.
+     */
+    private final Map<FileBasedConfigurationBuilder<?>, Long> managedBuilderWeights =
+            Collections.synchronizedMap(new WeakHashMap<FileBasedConfigurationBuilder<?>, Long>());
+
+    /**
+     * Stores the keys under which managed builders are stored in the cache.
+     * The file name of a managed builder may differ from this key because
+     * the file handler normalizes file names.
+     */
+    private final Map<FileBasedConfigurationBuilder<?>, String> managedBuilderKeys =
+            Collections.synchronizedMap(new WeakHashMap<FileBasedConfigurationBuilder<?>, String>());
 
     /** Stores the {@code ConfigurationInterpolator} object. */
     private final AtomicReference<ConfigurationInterpolator> interpolator =
@@ -207,8 +253,90 @@ public class MultiFileConfigurationBuilder<T extends FileBasedConfiguration>
         {
             throw new ConfigurationException("No file name pattern is set!");
         }
-        String fileName = fetchFileName(multiParams);
+        initManagedBuilderCache(multiParams);
+        return fetchManagedBuilder(fetchFileName(multiParams), params,
+                multiParams);
+    }
+
+    /**
+     * Loads the configurations for the given pattern values concurrently
+     * using the specified {@code Executor}. For each pattern value, all
+     * variables in the file name pattern are replaced by this value; so this
+     * method is intended for patterns containing a single variable, e.g. a
+     * tenant ID. The managed builders for the resulting file names are created
+     * (if necessary), and their configurations are obtained; so later calls of
+     * {@code getConfiguration()} for these files can be served directly. The
+     * returned {@code Future} completes when all configurations have been
+     * processed. Its result is a map which contains an entry for each pattern
+     * value whose configuration could not be loaded; the exception is mapped
+     * to the pattern value. So a failure of a single configuration does not
+     * affect the others. Cancelling the {@code Future} cancels the loading of
+     * all configurations which have not yet been processed.
+     *
+     * @param patternValues a collection with the values to be substituted in
+     *        the file name pattern
+     * @param executor the {@code Executor} for loading the configurations
+     * @return a {@code Future} for the result of the preload operation
+     * @throws IllegalArgumentException if a required parameter is missing
+     * @throws ConfigurationException if no file name pattern is set
+     * @since 2.1
+     */
+    public Future<Map<String, ConfigurationException>> preload(
+            Collection<String> patternValues, Executor executor)
+            throws ConfigurationException
+    {
+        if (patternValues == null)
+        {
+            throw new IllegalArgumentException(
+                    "Pattern values must not be null!");
+        }
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("Executor must not be null!");
+        }
+        final Map<String, Object> params = getParameters();
+        final MultiFileBuilderParametersImpl multiParams =
+                MultiFileBuilderParametersImpl.fromParameters(params, true);
+        if (multiParams.getFilePattern() == null)
+        {
+            throw new ConfigurationException("No file name pattern is set!");
+        }
+        initManagedBuilderCache(multiParams);
 
+        PreloadFuture future = new PreloadFuture(patternValues.size());
+        for (String value : patternValues)
+        {
+            final String fileName =
+                    substitutePatternValue(multiParams.getFilePattern(), value);
+            future.submit(executor, value, new Callable<Void>()
+            {
+                @Override
+                public Void call() throws ConfigurationException
+                {
+                    fetchManagedBuilder(fileName, params, multiParams)
+                            .getConfiguration();
+                    return null;
+                }
+            });
+        }
+        return future;
+    }
+
+    /**
+     * Returns the managed builder for the given file name. If it does not
+     * exist yet, it is created and added to the cache.
+     *
+     * @param fileName the file name
+     * @param params the parameters of this builder
+     * @param multiParams the parameters object for this builder
+     * @return the managed builder for this file name
+     * @throws ConfigurationException if the builder cannot be created
+     */
+    private FileBasedConfigurationBuilder<T> fetchManagedBuilder(
+            String fileName, Map<String, Object> params,
+            MultiFileBuilderParametersImpl multiParams)
+            throws ConfigurationException
+    {
         FileBasedConfigurationBuilder<T> builder =
                 getManagedBuilders().get(fileName);
         if (builder == null)
@@ -221,6 +349,7 @@ public class MultiFileConfigurationBuilder<T extends FileBasedConfiguration>
                             builder);
             if (newBuilder == builder)
             {
+                managedBuilderKeys.put(newBuilder, fileName);
                 initListeners(newBuilder);
             }
             else
@@ -287,6 +416,8 @@ public class MultiFileConfigurationBuilder<T extends FileBasedConfiguration>
                     managedBuilderDelegationListener);
         }
         getManagedBuilders().clear();
+        managedBuilderWeights.clear();
+        managedBuilderKeys.clear();
         interpolator.set(null);
         super.resetParameters();
     }
@@ -405,13 +536,95 @@ public class MultiFileConfigurationBuilder<T extends FileBasedConfiguration>
      * Returns the map with the managed builders created so far by this
      * {@code MultiFileConfigurationBuilder}. This map is exposed to derived
      * classes so they can access managed builders directly. However, derived
-     * classes are not expected to manipulate this map.
+     * classes are not expected to manipulate this map. The map is a view of
+     * the cache for managed builders; so it only contains builders which have
+     * not yet been evicted.
      *
      * @return the map with the managed builders
      */
     protected ConcurrentMap<String, FileBasedConfigurationBuilder<T>> getManagedBuilders()
     {
-        return managedBuilders;
+        return managedBuilders.asMap();
+    }
+
+    /**
+     * Notifies this object that a managed builder has been evicted from the
+     * cache. This implementation removes all event listeners registered by
+     * this builder from the evicted builder, so that it is no longer
+     * referenced and can be garbage collected together with its
+     * configuration and its reloading detector. Derived classes can override
+     * this method to release further resources; they should call the super
+     * implementation.
+     *
+     * @param fileName the file name of the evicted builder
+     * @param builder the evicted builder
+     * @since 2.1
+     */
+    protected void managedBuilderEvicted(String fileName,
+            FileBasedConfigurationBuilder<T> builder)
+    {
+        builder.removeEventListener(ConfigurationBuilderEvent.ANY,
+                managedBuilderDelegationListener);
+        synchronized (this)
+        {
+            for (EventListenerRegistrationData<?> regData : configurationListeners
+                    .getRegistrations())
+            {
+                removeListener(builder, regData);
+            }
+        }
+        managedBuilderWeights.remove(builder);
+        managedBuilderKeys.remove(builder);
+    }
+
+    /**
+     * Creates the cache for managed builders and registers the components
+     * for weighing and evicting builders.
+     *
+     * @return the cache for managed builders
+     */
+    private BoundedCache<String, FileBasedConfigurationBuilder<T>> createManagedBuilderCache()
+    {
+        BoundedCache<String, FileBasedConfigurationBuilder<T>> cache =
+                new BoundedCache<String, FileBasedConfigurationBuilder<T>>();
+        cache.setWeigher(new CacheWeigher<FileBasedConfigurationBuilder<T>>()
+        {
+            @Override
+            public long weigh(FileBasedConfigurationBuilder<T> builder)
+            {
+                Long weight = managedBuilderWeights.get(builder);
+                return (weight != null) ? weight.longValue() : 1;
+            }
+        });
+        cache.addEvictionListener(new CacheEvictionListener<String, FileBasedConfigurationBuilder<T>>()
+        {
+            @Override
+            public void entryEvicted(String fileName,
+                    FileBasedConfigurationBuilder<T> builder)
+            {
+                managedBuilderEvicted(fileName, builder);
+            }
+        });
+        return cache;
+    }
+
+    /**
+     * Applies the bounds defined by the given parameters object to the cache
+     * for managed builders.
+     *
+     * @param multiParams the parameters object
+     */
+    private void initManagedBuilderCache(
+            MultiFileBuilderParametersImpl multiParams)
+    {
+        managedBuilders.setMaxSize(multiParams.getMaxManagedBuilders());
+        managedBuilders.setMaxIdleTime(
+                multiParams.getMaxManagedBuilderIdleTime(),
+                TimeUnit.MILLISECONDS);
+        managedBuilders.setMaxWeight(multiParams
+                .getMaxManagedConfigurationNodes());
+        managedBuilders.setEvictionPolicy(multiParams
+                .getManagedBuilderEvictionPolicy());
     }
 
     /**
@@ -430,6 +643,29 @@ public class MultiFileConfigurationBuilder<T extends FileBasedConfiguration>
                 managedBuilderDelegationListener);
     }
 
+    /**
+     * Replaces all variables in the given file name pattern by the specified
+     * value.
+     *
+     * @param pattern the file name pattern
+     * @param value the value to be substituted
+     * @return the resulting file name
+     */
+    private static String substitutePatternValue(String pattern,
+            final String value)
+    {
+        ConfigurationInterpolator ci = new ConfigurationInterpolator();
+        ci.addDefaultLookup(new Lookup()
+        {
+            @Override
+            public Object lookup(String variable)
+            {
+                return value;
+            }
+        });
+        return String.valueOf(ci.interpolate(pattern));
+    }
+
     /**
      * Generates a file name for a managed builder based on the file name
      * pattern. This method prevents infinite loops which could happen if the
@@ -478,10 +714,59 @@ public class MultiFileConfigurationBuilder<T extends FileBasedConfiguration>
         }
         else
         {
+            if (ConfigurationBuilderResultCreatedEvent.RESULT_CREATED
+                    .equals(event.getEventType()))
+            {
+                recordManagedBuilderWeight(
+                        (FileBasedConfigurationBuilder<?>) event.getSource(),
+                        ((ConfigurationBuilderResultCreatedEvent) event)
+                                .getLoadStatistics());
+            }
             fireBuilderEvent(createEventWithChangedSource(event));
         }
     }
 
+    /**
+     * Records the weight of a managed builder after it has created a new
+     * configuration. The weight is the number of nodes of the configuration
+     * as reported by the load statistics. A managed builder is added to the
+     * cache before its configuration is loaded; so the bounds of the cache
+     * are checked again now that its weight is known. The builder itself is
+     * not evicted.
+     *
+     * @param builder the managed builder
+     * @param stats the load statistics (may be <b>null</b>)
+     */
+    private void recordManagedBuilderWeight(
+            FileBasedConfigurationBuilder<?> builder, LoadStatistics stats)
+    {
+        if (stats != null)
+        {
+            managedBuilderWeights.put(builder,
+                    Long.valueOf(Math.max(1, stats.getNodeCount())));
+            String key = managedBuilderKeys.get(builder);
+            if (key != null)
+            {
+                managedBuilders.weightChanged(key);
+            }
+        }
+    }
+
+    /**
+     * Removes an event listener registration from the given builder.
+     *
+     * @param builder the builder
+     * @param regData the registration data
+     * @param <E> the event type
+     */
+    private static <E extends Event> void removeListener(
+            FileBasedConfigurationBuilder<?> builder,
+            EventListenerRegistrationData<E> regData)
+    {
+        builder.removeEventListener(regData.getEventType(),
+                regData.getListener());
+    }
+
     /**
      * Creates a new {@code ConfigurationBuilderEvent} based on the passed in
      * event, but with the source changed to this builder. This method is called
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.builder.combined;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.configuration2.ex.ConfigurationException;
+
+/**
+ * <p>
+ * An internally used {@code Future} implementation which tracks the tasks
+ * started by {@link MultiFileConfigurationBuilder#preload(java.util.Collection, Executor)}.
+ * </p>
+ * <p>
+ * Each task loads the configuration for one pattern value. Tasks are
+ * independent of each other; a failing task does not affect the others.
+ * This future completes when all tasks are done. Its result is a map with
+ * the exceptions of the failed tasks keyed by their pattern values; so it
+ * never throws an {@code ExecutionException}. Cancelling this future cancels
+ * all tasks which have not yet completed.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+class PreloadFuture implements Future<Map<String, ConfigurationException>>
+{
+    /** The latch for waiting until all tasks are done. */
+    private final CountDownLatch latch;
+
+    /** The exceptions of failed tasks. */
+    private final ConcurrentMap<String, ConfigurationException> failures;
+
+    /** The tasks tracked by this future. */
+    private final List<FutureTask<Void>> tasks;
+
+    /** A flag whether this future has been cancelled. */
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a new instance of {@code PreloadFuture} for the given number of
+     * tasks.
+     *
+     * @param taskCount the number of tasks
+     */
+    public PreloadFuture(int taskCount)
+    {
+        latch = new CountDownLatch(taskCount);
+        failures = new ConcurrentHashMap<String, ConfigurationException>();
+        tasks =
+                Collections.synchronizedList(new ArrayList<FutureTask<Void>>(
+                        taskCount));
+    }
+
+    /**
+     * Submits a task for the given pattern value to the given executor. If
+     * the executor rejects the task, this is recorded as a failure.
+     *
+     * @param executor the executor
+     * @param patternValue the pattern value processed by the task
+     * @param callable the callable doing the actual work
+     */
+    public void submit(Executor executor, final String patternValue,
+            Callable<Void> callable)
+    {
+        FutureTask<Void> task = new FutureTask<Void>(callable)
+        {
+            @Override
+            protected void done()
+            {
+                taskDone(patternValue, this);
+            }
+        };
+        tasks.add(task);
+        try
+        {
+            executor.execute(task);
+        }
+        catch (RejectedExecutionException rex)
+        {
+            failures.put(patternValue, new ConfigurationException(
+                    "Preloading rejected for " + patternValue, rex));
+            task.cancel(false);
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning)
+    {
+        if (isDone())
+        {
+            return false;
+        }
+        cancelled = true;
+        synchronized (tasks)
+        {
+            for (FutureTask<Void> task : tasks)
+            {
+                task.cancel(mayInterruptIfRunning);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone()
+    {
+        return latch.getCount() == 0;
+    }
+
+    @Override
+    public Map<String, ConfigurationException> get()
+            throws InterruptedException
+    {
+        latch.await();
+        return fetchResult();
+    }
+
+    @Override
+    public Map<String, ConfigurationException> get(long timeout, TimeUnit unit)
+            throws InterruptedException, TimeoutException
+    {
+        if (!latch.await(timeout, unit))
+        {
+            throw new TimeoutException("Preloading not complete after "
+                    + timeout + " " + unit);
+        }
+        return fetchResult();
+    }
+
+    /**
+     * Returns the result of this future after all tasks are done.
+     *
+     * @return an unmodifiable map with the failures
+     * @throws CancellationException if this future has been cancelled
+     */
+    private Map<String, ConfigurationException> fetchResult()
+    {
+        if (cancelled)
+        {
+            throw new CancellationException("Preloading was cancelled!");
+        }
+        return Collections
+                .unmodifiableMap(new HashMap<String, ConfigurationException>(
+                        failures));
+    }
+
+    /**
+     * Processes a task which is done. If it failed, its exception is recorded.
+     *
+     * @param patternValue the pattern value of the task
+     * @param task the task
+     */
+    private void taskDone(String patternValue, FutureTask<Void> task)
+    {
+        try
+        {
+            task.get();
+        }
+        catch (ExecutionException eex)
+        {
+            Throwable cause = eex.getCause();
+            failures.put(patternValue,
+                    (cause instanceof ConfigurationException) ? (ConfigurationException) cause
+                            : new ConfigurationException(cause));
+        }
+        catch (CancellationException cex)
+        {
+            // cancelled tasks are not reported as failures
+        }
+        catch (InterruptedException iex)
+        {
+            // cannot happen as the task is already done
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            latch.countDown();
+        }
+    }
+}
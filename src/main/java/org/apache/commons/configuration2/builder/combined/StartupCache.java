@@ -0,0 +1,585 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.builder.combined;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.ImmutableConfiguration;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.apache.commons.configuration2.XMLConfiguration;
+import org.apache.commons.configuration2.builder.ConfigurationBuilder;
+import org.apache.commons.configuration2.builder.FileBasedConfigurationBuilder;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
+import org.apache.commons.configuration2.io.FileHandler;
+import org.apache.commons.configuration2.io.FileLocatorUtils;
+import org.apache.commons.configuration2.tree.ImmutableNode;
+import org.apache.commons.configuration2.tree.NodeSnapshot;
+
+/**
+ * <p>
+ * An internally used helper class which implements the startup cache of a
+ * {@link CombinedConfigurationBuilder}.
+ * </p>
+ * <p>
+ * The cache file stores the node structure of a combined configuration in
+ * the format of a {@link NodeSnapshot} together with fingerprints of all
+ * sources the structure was created from. A fingerprint is a string
+ * identifying the current state of a source:
+ * <ul>
+ * <li>For sources loaded from a file, it consists of the path, the size, and
+ * the last modification date of this file.</li>
+ * <li>For sources loaded from other URLs, it consists of the URL and a hash
+ * of the content.</li>
+ * <li>For other sources and for the definition configuration, it is a hash
+ * of the content of the configuration. These sources have to be loaded in
+ * order to compute the fingerprint.</li>
+ * </ul>
+ * A cached structure can only be used if the fingerprints stored in the cache
+ * file are equal to the current fingerprints.
+ * </p>
+ * <p>
+ * Some sources depend on further resources which are not known before the
+ * source has been loaded. The files included by a properties configuration
+ * are stored in the cache file together with their fingerprints; they are
+ * checked, too, when the cache is loaded. XML documents with a document type
+ * declaration or XInclude elements may reference resources which cannot be
+ * determined; if such a source is detected when the cache is written, no
+ * cache file is created. The same is true for structures containing values
+ * whose type would be lost when they are stored (see
+ * {@link NodeSnapshot#isTypePreserved(Object)}).
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+class StartupCache
+{
+    /** The magic number at the start of a cache file. */
+    private static final int MAGIC = 0x43434348;
+
+    /** The version of the cache file format. */
+    private static final int VERSION = 2;
+
+    /** The algorithm for calculating hashes. */
+    private static final String HASH_ALGORITHM = "SHA-1";
+
+    /** The separator for the components of a fingerprint. */
+    private static final char SEPARATOR = '|';
+
+    /** The charset for encoding the content of configurations. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The size of the buffer for reading data. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The marker for a document type declaration in an XML document. */
+    private static final String XML_DOCTYPE = "<!DOCTYPE";
+
+    /** The namespace of XInclude elements. */
+    private static final String XML_XINCLUDE_NS =
+            "http://www.w3.org/2001/XInclude";
+
+    /**
+     * The charset for searching markers in XML documents. It maps all bytes
+     * to characters, so that ASCII markers are found in all ASCII-compatible
+     * encodings.
+     */
+    private static final Charset MARKER_CHARSET = Charset
+            .forName("ISO-8859-1");
+
+    /** The cache file. */
+    private final File cacheFile;
+
+    /**
+     * Creates a new instance of {@code StartupCache} which uses the given
+     * file.
+     *
+     * @param file the cache file
+     */
+    public StartupCache(File file)
+    {
+        cacheFile = file;
+    }
+
+    /**
+     * Returns the cache file.
+     *
+     * @return the cache file
+     */
+    public File getCacheFile()
+    {
+        return cacheFile;
+    }
+
+    /**
+     * Calculates the fingerprints of the definition configuration and all
+     * child configuration sources. Result is <b>null</b> if a source cannot be
+     * accessed; in this case the cache cannot be used.
+     *
+     * @param definition the definition configuration
+     * @param builders the builders for the child configuration sources
+     * @return a list with the current fingerprints or <b>null</b>
+     */
+    public List<String> fingerprints(ImmutableConfiguration definition,
+            Collection<ConfigurationBuilder<? extends Configuration>> builders)
+    {
+        List<String> fingerprints = new ArrayList<String>(builders.size() + 1);
+        fingerprints.add(contentFingerprint(definition));
+        try
+        {
+            for (ConfigurationBuilder<? extends Configuration> builder : builders)
+            {
+                fingerprints.add(builderFingerprint(builder));
+            }
+        }
+        catch (ConfigurationException cex)
+        {
+            return null;
+        }
+        catch (IOException ioex)
+        {
+            return null;
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Loads the cached node structure if the fingerprints stored in the cache
+     * file match the passed in fingerprints. Otherwise, result is
+     * <b>null</b>. An invalid or corrupt cache file is treated like a missing
+     * one.
+     *
+     * @param fingerprints the current fingerprints
+     * @return the cached root node or <b>null</b>
+     */
+    public ImmutableNode load(List<String> fingerprints)
+    {
+        if (!cacheFile.isFile())
+        {
+            return null;
+        }
+
+        try
+        {
+            DataInputStream in =
+                    new DataInputStream(new BufferedInputStream(
+                            new FileInputStream(cacheFile)));
+            try
+            {
+                if (!readFingerprints(in).equals(fingerprints)
+                        || !checkDependencies(in))
+                {
+                    return null;
+                }
+                NodeSnapshot snapshot =
+                        NodeSnapshot.wrap(ByteBuffer.wrap(readFully(in)));
+                return snapshot.toImmutableNode(snapshot.getRootNode());
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException ioex)
+        {
+            return null;
+        }
+        catch (IllegalArgumentException iex)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the given node structure together with its fingerprints into
+     * the cache file. The builders of the child configuration sources have to
+     * be passed, too; they are used to determine the resources the sources
+     * depend on. If the structure cannot be cached, no cache file is written,
+     * and an existing cache file is removed. The data is written into a
+     * temporary file first which then replaces the cache file.
+     *
+     * @param root the root node of the structure to be stored
+     * @param fingerprints the fingerprints of the sources
+     * @param builders the builders for the child configuration sources
+     * @return a flag whether the cache file was written
+     * @throws ConfigurationException if a configuration cannot be obtained
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean store(ImmutableNode root, List<String> fingerprints,
+            Collection<ConfigurationBuilder<? extends Configuration>> builders)
+            throws ConfigurationException, IOException
+    {
+        List<URL> dependencies = new ArrayList<URL>();
+        if (!isTypePreserved(root)
+                || !collectDependencies(builders, dependencies))
+        {
+            if (cacheFile.exists() && !cacheFile.delete())
+            {
+                throw new IOException("Cannot remove cache file " + cacheFile);
+            }
+            return false;
+        }
+
+        File dir = cacheFile.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs())
+        {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        File tempFile =
+                File.createTempFile(cacheFile.getName(), ".tmp", dir);
+        try
+        {
+            DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(
+                            new FileOutputStream(tempFile)));
+            try
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(fingerprints.size());
+                for (String fp : fingerprints)
+                {
+                    out.writeUTF(fp);
+                }
+                out.writeInt(dependencies.size());
+                for (URL url : dependencies)
+                {
+                    out.writeUTF(url.toExternalForm());
+                    out.writeUTF(urlFingerprint(url));
+                }
+                NodeSnapshot.write(root, out);
+            }
+            finally
+            {
+                out.close();
+            }
+
+            if (!tempFile.renameTo(cacheFile)
+                    && !(cacheFile.delete() && tempFile.renameTo(cacheFile)))
+            {
+                throw new IOException("Cannot replace cache file "
+                        + cacheFile);
+            }
+        }
+        finally
+        {
+            if (tempFile.exists() && !tempFile.delete())
+            {
+                tempFile.deleteOnExit();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the fingerprint for a child configuration source.
+     *
+     * @param builder the builder for this source
+     * @return the fingerprint
+     * @throws ConfigurationException if the configuration cannot be created
+     * @throws IOException if the source cannot be read
+     */
+    private static String builderFingerprint(
+            ConfigurationBuilder<? extends Configuration> builder)
+            throws ConfigurationException, IOException
+    {
+        if (builder instanceof FileBasedConfigurationBuilder)
+        {
+            FileHandler handler =
+                    ((FileBasedConfigurationBuilder<?>) builder)
+                            .getFileHandler();
+            URL url = FileLocatorUtils.locate(handler.getFileLocator());
+            return (url != null) ? urlFingerprint(url) : "missing"
+                    + SEPARATOR + handler.getBasePath() + SEPARATOR
+                    + handler.getFileName();
+        }
+        return contentFingerprint(builder.getConfiguration());
+    }
+
+    /**
+     * Determines the resources the given child configuration sources depend
+     * on. The sources must have been created. Result is <b>false</b> if a
+     * source may depend on resources which cannot be determined.
+     *
+     * @param builders the builders for the sources
+     * @param dependencies the list for storing the resources found
+     * @return a flag whether all dependencies could be determined
+     * @throws ConfigurationException if a configuration cannot be obtained
+     * @throws IOException if a source cannot be read
+     */
+    private static boolean collectDependencies(
+            Collection<ConfigurationBuilder<? extends Configuration>> builders,
+            List<URL> dependencies) throws ConfigurationException,
+            IOException
+    {
+        for (ConfigurationBuilder<? extends Configuration> builder : builders)
+        {
+            if (builder instanceof FileBasedConfigurationBuilder)
+            {
+                Configuration config = builder.getConfiguration();
+                if (config instanceof PropertiesConfiguration)
+                {
+                    dependencies.addAll(((PropertiesConfiguration) config)
+                            .getIncludedURLs());
+                }
+                else if (config instanceof XMLConfiguration)
+                {
+                    FileHandler handler =
+                            ((FileBasedConfigurationBuilder<?>) builder)
+                                    .getFileHandler();
+                    URL url = FileLocatorUtils.locate(handler.getFileLocator());
+                    if (url == null || mayReferenceResources(url))
+                    {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the XML document at the given URL may reference
+     * external resources. This is the case if it contains a document type
+     * declaration or uses the XInclude namespace.
+     *
+     * @param url the URL of the document
+     * @return a flag whether the document may reference external resources
+     * @throws IOException if the document cannot be read
+     */
+    private static boolean mayReferenceResources(URL url) throws IOException
+    {
+        InputStream in = url.openStream();
+        try
+        {
+            String content = new String(readFully(in), MARKER_CHARSET);
+            return content.contains(XML_DOCTYPE)
+                    || content.contains(XML_XINCLUDE_NS);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Checks whether all values in the given node structure retain their
+     * type when they are stored in a snapshot.
+     *
+     * @param node the root node of the structure
+     * @return a flag whether the structure can be stored without losing
+     *         type information
+     */
+    private static boolean isTypePreserved(ImmutableNode node)
+    {
+        if (!NodeSnapshot.isTypePreserved(node.getValue()))
+        {
+            return false;
+        }
+        for (Object value : node.getAttributes().values())
+        {
+            if (!NodeSnapshot.isTypePreserved(value))
+            {
+                return false;
+            }
+        }
+        for (ImmutableNode child : node.getChildren())
+        {
+            if (!isTypePreserved(child))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the fingerprint for a source loaded from the given URL.
+     *
+     * @param url the URL
+     * @return the fingerprint
+     * @throws IOException if the source cannot be read
+     */
+    private static String urlFingerprint(URL url) throws IOException
+    {
+        File file = FileLocatorUtils.fileFromURL(url);
+        if (file != null)
+        {
+            return "file" + SEPARATOR + file.getAbsolutePath() + SEPARATOR
+                    + file.length() + SEPARATOR + file.lastModified();
+        }
+
+        MessageDigest digest = createDigest();
+        InputStream in = url.openStream();
+        try
+        {
+            byte[] buf = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = in.read(buf)) >= 0)
+            {
+                digest.update(buf, 0, count);
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return "url" + SEPARATOR + url + SEPARATOR + toHex(digest.digest());
+    }
+
+    /**
+     * Calculates a fingerprint for the content of the given configuration.
+     *
+     * @param config the configuration
+     * @return the fingerprint
+     */
+    private static String contentFingerprint(ImmutableConfiguration config)
+    {
+        MessageDigest digest = createDigest();
+        for (Iterator<String> it = config.getKeys(); it.hasNext();)
+        {
+            String key = it.next();
+            digest.update(key.getBytes(UTF8));
+            digest.update((byte) '=');
+            digest.update(String.valueOf(config.getProperty(key)).getBytes(
+                    UTF8));
+            digest.update((byte) '\n');
+        }
+        return "content" + SEPARATOR + toHex(digest.digest());
+    }
+
+    /**
+     * Reads the header of a cache file and returns the fingerprints stored
+     * in it.
+     *
+     * @param in the input stream
+     * @return the list with fingerprints
+     * @throws IOException if an I/O error occurs or the data is invalid
+     */
+    private static List<String> readFingerprints(DataInputStream in)
+            throws IOException
+    {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION)
+        {
+            throw new IOException("Invalid cache file!");
+        }
+        int count = in.readInt();
+        List<String> fingerprints = new ArrayList<String>();
+        for (int i = 0; i < count; i++)
+        {
+            fingerprints.add(in.readUTF());
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Reads the dependencies stored in a cache file and checks whether they
+     * are unchanged.
+     *
+     * @param in the input stream
+     * @return a flag whether all dependencies are unchanged
+     * @throws IOException if an I/O error occurs or the data is invalid
+     */
+    private static boolean checkDependencies(DataInputStream in)
+            throws IOException
+    {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++)
+        {
+            URL url = new URL(in.readUTF());
+            if (!in.readUTF().equals(urlFingerprint(url)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the remaining content of the given stream.
+     *
+     * @param in the input stream
+     * @return an array with the data read
+     * @throws IOException if an I/O error occurs
+     */
+    private static byte[] readFully(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[BUFFER_SIZE];
+        int count;
+        while ((count = in.read(buf)) >= 0)
+        {
+            bos.write(buf, 0, count);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Creates the object for calculating hashes.
+     *
+     * @return the {@code MessageDigest}
+     */
+    private static MessageDigest createDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException nsex)
+        {
+            // should not happen, every JVM has to support this algorithm
+            throw new ConfigurationRuntimeException(nsex);
+        }
+    }
+
+    /**
+     * Converts the given bytes to a hex string.
+     *
+     * @param bytes the bytes
+     * @return the hex string
+     */
+    private static String toHex(byte[] bytes)
+    {
+        StringBuilder buf = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes)
+        {
+            buf.append(Character.forDigit((b >> 4) & 0xF, 16));
+            buf.append(Character.forDigit(b & 0xF, 16));
+        }
+        return buf.toString();
+    }
+}
@@ -0,0 +1,1261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.cache;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * A thread-safe cache which can be bounded by the number of its entries, the
+ * idle time of entries, and the total weight of its entries.
+ * </p>
+ * <p>
+ * Per default, an instance is unbounded and behaves like a concurrent map.
+ * Bounds can be set using the following properties:
+ * </p>
+ * <ul>
+ * <li>{@code maxSize} restricts the number of entries.</li>
+ * <li>{@code maxIdleTime} defines a time after which entries that have not
+ * been accessed expire.</li>
+ * <li>{@code maxWeight} restricts the total weight of all entries. The weight
+ * of an entry is determined by the {@link CacheWeigher} set for this cache.
+ * </li>
+ * </ul>
+ * <p>
+ * The bounds are checked when a new entry is added and when the
+ * {@link #cleanUp()} method is called. Expired entries are also detected when
+ * they are accessed. If the cache exceeds its bounds, entries are evicted in
+ * the order defined by the {@link EvictionPolicy}; the default policy is
+ * {@link StandardEvictionPolicy#LRU}. An entry which has just been added is
+ * never evicted by the same operation. Registered
+ * {@link CacheEvictionListener} objects are notified about all evicted
+ * entries.
+ * </p>
+ * <p>
+ * Implementation note: All operations are synchronized on the cache. The
+ * entries are kept in the order of their last access and, in addition,
+ * grouped by their number of accesses. So the entries to be evicted by the
+ * standard LRU and LFU policies are found without a pass over all entries,
+ * and adding an entry takes constant time. For other eviction policies, the
+ * entries are sorted when the cache exceeds its bounds. The weight of an
+ * entry is determined when it is added; if it changes later,
+ * {@link #weightChanged(Object)} has to be called.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class BoundedCache<K, V>
+{
+    /** The map with the entries of this cache in the order of last access. */
+    private final Map<K, CacheEntry<K, V>> entries;
+
+    /** The registered eviction listeners. */
+    private final List<CacheEvictionListener<? super K, ? super V>> evictionListeners;
+
+    /** The map view of this cache. */
+    private final ConcurrentMap<K, V> mapView;
+
+    /** The group of entries with the lowest number of accesses. */
+    private FrequencyNode<K, V> lowestFrequency;
+
+    /** The total weight of all entries. */
+    private long totalWeight;
+
+    /** The maximum number of entries. */
+    private volatile int maxSize;
+
+    /** The maximum idle time of entries in nanoseconds. */
+    private volatile long maxIdleNanos;
+
+    /** The maximum total weight. */
+    private volatile long maxWeight;
+
+    /** The weigher. */
+    private volatile CacheWeigher<? super V> weigher;
+
+    /** The eviction policy. */
+    private volatile EvictionPolicy evictionPolicy;
+
+    /**
+     * Creates a new, unbounded instance of {@code BoundedCache}.
+     */
+    public BoundedCache()
+    {
+        entries = new LinkedHashMap<K, CacheEntry<K, V>>();
+        evictionListeners =
+                new CopyOnWriteArrayList<CacheEvictionListener<? super K, ? super V>>();
+        mapView = new MapView();
+    }
+
+    /**
+     * Returns the maximum number of entries of this cache. A value of 0 means
+     * that the number of entries is not restricted.
+     *
+     * @return the maximum number of entries
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum number of entries of this cache. A value of 0 means
+     * that the number of entries is not restricted. The new bound is checked
+     * the next time an entry is added or {@code cleanUp()} is called.
+     *
+     * @param maxSize the maximum number of entries
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public void setMaxSize(int maxSize)
+    {
+        if (maxSize < 0)
+        {
+            throw new IllegalArgumentException(
+                    "Maximum size must not be negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the time after which entries which have not been accessed expire
+     * in the given unit. A value of 0 means that entries do not expire.
+     *
+     * @param unit the time unit
+     * @return the maximum idle time of entries
+     */
+    public long getMaxIdleTime(TimeUnit unit)
+    {
+        return unit.convert(maxIdleNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the time after which entries which have not been accessed expire.
+     * A value of 0 means that entries do not expire.
+     *
+     * @param time the maximum idle time
+     * @param unit the time unit
+     * @throws IllegalArgumentException if the time is negative or the unit is
+     *         <b>null</b>
+     */
+    public void setMaxIdleTime(long time, TimeUnit unit)
+    {
+        if (time < 0)
+        {
+            throw new IllegalArgumentException(
+                    "Maximum idle time must not be negative: " + time);
+        }
+        if (unit == null)
+        {
+            throw new IllegalArgumentException("Time unit must not be null!");
+        }
+        maxIdleNanos = unit.toNanos(time);
+    }
+
+    /**
+     * Returns the maximum total weight of all entries. A value of 0 means that
+     * the weight is not restricted.
+     *
+     * @return the maximum total weight
+     */
+    public long getMaxWeight()
+    {
+        return maxWeight;
+    }
+
+    /**
+     * Sets the maximum total weight of all entries. A value of 0 means that
+     * the weight is not restricted. This bound is only meaningful if a
+     * {@link CacheWeigher} is set; otherwise, each entry has a weight of 1.
+     *
+     * @param maxWeight the maximum total weight
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public void setMaxWeight(long maxWeight)
+    {
+        if (maxWeight < 0)
+        {
+            throw new IllegalArgumentException(
+                    "Maximum weight must not be negative: " + maxWeight);
+        }
+        synchronized (this)
+        {
+            this.maxWeight = maxWeight;
+            weighEntries();
+        }
+    }
+
+    /**
+     * Returns the {@code CacheWeigher} used by this cache. Result can be
+     * <b>null</b> if no weigher has been set.
+     *
+     * @return the {@code CacheWeigher}
+     */
+    public CacheWeigher<? super V> getWeigher()
+    {
+        return weigher;
+    }
+
+    /**
+     * Sets the {@code CacheWeigher} for determining the weight of entries. If
+     * set to <b>null</b>, each entry has a weight of 1.
+     *
+     * @param weigher the {@code CacheWeigher}
+     */
+    public synchronized void setWeigher(CacheWeigher<? super V> weigher)
+    {
+        this.weigher = weigher;
+        weighEntries();
+    }
+
+    /**
+     * Returns the {@code EvictionPolicy} of this cache. If no policy has been
+     * set, the LRU policy is returned.
+     *
+     * @return the {@code EvictionPolicy}
+     */
+    public EvictionPolicy getEvictionPolicy()
+    {
+        EvictionPolicy policy = evictionPolicy;
+        return (policy != null) ? policy : StandardEvictionPolicy.LRU;
+    }
+
+    /**
+     * Sets the {@code EvictionPolicy} of this cache. It determines the order
+     * in which entries are evicted if the cache exceeds its bounds. Passing
+     * in <b>null</b> sets the default LRU policy.
+     *
+     * @param evictionPolicy the {@code EvictionPolicy}
+     */
+    public void setEvictionPolicy(EvictionPolicy evictionPolicy)
+    {
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    /**
+     * Adds a listener which is notified when entries are evicted.
+     *
+     * @param listener the listener to be added (must not be <b>null</b>)
+     * @throws IllegalArgumentException if the listener is <b>null</b>
+     */
+    public void addEvictionListener(
+            CacheEvictionListener<? super K, ? super V> listener)
+    {
+        if (listener == null)
+        {
+            throw new IllegalArgumentException(
+                    "Eviction listener must not be null!");
+        }
+        evictionListeners.add(listener);
+    }
+
+    /**
+     * Removes the given eviction listener from this cache.
+     *
+     * @param listener the listener to be removed
+     * @return a flag whether the listener was found
+     */
+    public boolean removeEvictionListener(
+            CacheEvictionListener<? super K, ? super V> listener)
+    {
+        return evictionListeners.remove(listener);
+    }
+
+    /**
+     * Returns a flag whether this cache has any bounds. If this is
+     * <b>false</b>, entries are never evicted.
+     *
+     * @return a flag whether this cache is bounded
+     */
+    public boolean isBounded()
+    {
+        return maxSize > 0 || maxIdleNanos > 0 || maxWeight > 0;
+    }
+
+    /**
+     * Returns the value stored for the given key. Result is <b>null</b> if the
+     * key is not contained or the entry has expired. In the latter case, the
+     * entry is evicted. Otherwise, the access statistics of the entry are
+     * updated.
+     *
+     * @param key the key
+     * @return the value stored for this key or <b>null</b>
+     */
+    public V get(K key)
+    {
+        return lookup(key);
+    }
+
+    /**
+     * Adds an entry to this cache. An existing entry for this key is replaced.
+     * If the cache then exceeds its bounds, other entries are evicted.
+     *
+     * @param key the key (must not be <b>null</b>)
+     * @param value the value (must not be <b>null</b>)
+     * @return the value previously stored for this key or <b>null</b>
+     */
+    public V put(K key, V value)
+    {
+        List<CacheEntry<K, V>> evicted = new ArrayList<CacheEntry<K, V>>();
+        CacheEntry<K, V> old;
+        synchronized (this)
+        {
+            old = removeKey(key);
+            addEntry(key, value, evicted);
+        }
+        fireEvicted(evicted);
+        return (old != null) ? old.getValue() : null;
+    }
+
+    /**
+     * Adds an entry to this cache if the key is not yet contained. If there
+     * is already a valid entry for this key, it is accessed and its value is
+     * returned. Otherwise, the new entry is added, which may cause other
+     * entries to be evicted.
+     *
+     * @param key the key (must not be <b>null</b>)
+     * @param value the value (must not be <b>null</b>)
+     * @return the value already stored for this key or <b>null</b> if the new
+     *         value was added
+     */
+    public V putIfAbsent(K key, V value)
+    {
+        List<CacheEntry<K, V>> evicted = new ArrayList<CacheEntry<K, V>>();
+        V oldValue;
+        synchronized (this)
+        {
+            oldValue = access(entries.get(key), evicted);
+            if (oldValue == null)
+            {
+                addEntry(key, value, evicted);
+            }
+        }
+        fireEvicted(evicted);
+        return oldValue;
+    }
+
+    /**
+     * Removes the entry with the given key. Eviction listeners are not
+     * notified.
+     *
+     * @param key the key
+     * @return the removed value or <b>null</b> if the key was not contained
+     */
+    public V remove(K key)
+    {
+        CacheEntry<K, V> entry = removeKey(key);
+        return (entry != null) ? entry.getValue() : null;
+    }
+
+    /**
+     * Removes all entries from this cache. Eviction listeners are not
+     * notified.
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+        lowestFrequency = null;
+        totalWeight = 0;
+    }
+
+    /**
+     * Returns the number of entries contained in this cache. Expired entries
+     * are counted as long as they have not been evicted.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Returns a collection with the values currently stored in this cache.
+     * The collection is a snapshot; it is not affected by later changes of the
+     * cache. Accessing the values this way does not update the access
+     * statistics of the entries.
+     *
+     * @return a collection with the values of this cache
+     */
+    public synchronized Collection<V> values()
+    {
+        List<V> values = new ArrayList<V>(entries.size());
+        for (CacheEntry<K, V> entry : entries.values())
+        {
+            values.add(entry.getValue());
+        }
+        return values;
+    }
+
+    /**
+     * Returns a {@code ConcurrentMap} view of this cache. All operations of
+     * the map are delegated to this cache. Lookups of single keys update the
+     * access statistics of entries, and adding entries may cause other entries
+     * to be evicted. Iterating over the map does not count as an access;
+     * iterators operate on a snapshot of the entries. This is useful for code
+     * which has to expose the cached data as a map.
+     *
+     * @return a map view of this cache
+     */
+    public ConcurrentMap<K, V> asMap()
+    {
+        return mapView;
+    }
+
+    /**
+     * Checks the bounds of this cache and evicts entries if necessary. This
+     * method can be called periodically to remove expired entries from a cache
+     * which is not changed frequently.
+     */
+    public void cleanUp()
+    {
+        List<CacheEntry<K, V>> evicted = new ArrayList<CacheEntry<K, V>>();
+        synchronized (this)
+        {
+            checkBounds(null, evicted);
+        }
+        fireEvicted(evicted);
+    }
+
+    /**
+     * Notifies this cache that the weight of the value stored for the given
+     * key has changed. This is the case for instance if the value is an
+     * object which is initialized lazily. The weight of the entry is
+     * determined again, and the bounds of the cache are checked. The entry
+     * for the given key is not evicted.
+     *
+     * @param key the key of the entry whose weight has changed
+     */
+    public void weightChanged(K key)
+    {
+        List<CacheEntry<K, V>> evicted = new ArrayList<CacheEntry<K, V>>();
+        synchronized (this)
+        {
+            CacheEntry<K, V> entry = entries.get(key);
+            if (entry != null)
+            {
+                long weight = weigh(entry.getValue());
+                totalWeight += weight - entry.getWeight();
+                entry.setWeight(weight);
+            }
+            checkBounds(entry, evicted);
+        }
+        fireEvicted(evicted);
+    }
+
+    /**
+     * Returns the current time in nanoseconds. This is used for determining
+     * the idle time of entries.
+     *
+     * @return the current time
+     */
+    long nanoTime()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * Looks up the value for the given key. This is the implementation of
+     * {@code get()} which also accepts keys of other types; they are just not
+     * found.
+     *
+     * @param key the key
+     * @return the value stored for this key or <b>null</b>
+     */
+    private V lookup(Object key)
+    {
+        List<CacheEntry<K, V>> evicted = new ArrayList<CacheEntry<K, V>>(1);
+        V value;
+        synchronized (this)
+        {
+            value = access(entries.get(key), evicted);
+        }
+        fireEvicted(evicted);
+        return value;
+    }
+
+    /**
+     * Accesses the given entry. If it has expired, it is evicted and added to
+     * the given list, and result is <b>null</b>. Otherwise, its statistics
+     * are updated, and its value is returned. The caller must hold the lock
+     * of this cache.
+     *
+     * @param entry the entry (may be <b>null</b>)
+     * @param evicted a list for storing evicted entries
+     * @return the value of the entry or <b>null</b>
+     */
+    private V access(CacheEntry<K, V> entry, List<CacheEntry<K, V>> evicted)
+    {
+        if (entry == null)
+        {
+            return null;
+        }
+
+        long now = nanoTime();
+        if (isExpired(entry, now, maxIdleNanos))
+        {
+            removeKey(entry.getKey());
+            evicted.add(entry);
+            return null;
+        }
+
+        entry.accessed(now);
+        // move the entry to the end of the access order
+        entries.remove(entry.getKey());
+        entries.put(entry.getKey(), entry);
+        incrementFrequency(entry);
+        return entry.getValue();
+    }
+
+    /**
+     * Adds a new entry to this cache and checks the bounds. The caller must
+     * hold the lock of this cache, and the key must not be contained.
+     *
+     * @param key the key
+     * @param value the value
+     * @param evicted a list for storing evicted entries
+     * @return the newly added entry
+     */
+    private CacheEntry<K, V> addEntry(K key, V value,
+            List<CacheEntry<K, V>> evicted)
+    {
+        CacheEntry<K, V> entry =
+                new CacheEntry<K, V>(key, value, nanoTime(), weigh(value));
+        entries.put(key, entry);
+        totalWeight += entry.getWeight();
+        addToFrequency(entry, null);
+        checkBounds(entry, evicted);
+        return entry;
+    }
+
+    /**
+     * Removes the entry with the given key and updates the internal
+     * bookkeeping.
+     *
+     * @param key the key
+     * @return the removed entry or <b>null</b> if the key was not contained
+     */
+    private synchronized CacheEntry<K, V> removeKey(Object key)
+    {
+        CacheEntry<K, V> entry = entries.remove(key);
+        if (entry != null)
+        {
+            totalWeight -= entry.getWeight();
+            removeFromFrequency(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Checks whether this cache exceeds its bounds and evicts entries if
+     * necessary. The given entry, which has just been added or changed, is
+     * never evicted. The caller must hold the lock of this cache. The evicted
+     * entries are added to the given list; listeners are notified after the
+     * lock has been released.
+     *
+     * @param protectedEntry an entry which must not be evicted (may be
+     *        <b>null</b>)
+     * @param evicted a list for storing evicted entries
+     */
+    private void checkBounds(CacheEntry<K, V> protectedEntry,
+            List<CacheEntry<K, V>> evicted)
+    {
+        if (!isBounded())
+        {
+            return;
+        }
+
+        evictExpiredEntries(protectedEntry, evicted);
+        if (isExceeded(entries.size(), totalWeight))
+        {
+            for (CacheEntry<K, V> entry : selectEntriesToEvict(protectedEntry))
+            {
+                removeKey(entry.getKey());
+                evicted.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Evicts all entries whose idle time has been exceeded. As entries are
+     * stored in the order of their last access, only the expired entries at
+     * the beginning have to be inspected.
+     *
+     * @param protectedEntry an entry which must not be evicted
+     * @param evicted a list for storing evicted entries
+     */
+    private void evictExpiredEntries(CacheEntry<K, V> protectedEntry,
+            List<CacheEntry<K, V>> evicted)
+    {
+        long idleNanos = maxIdleNanos;
+        if (idleNanos <= 0)
+        {
+            return;
+        }
+
+        long now = nanoTime();
+        List<CacheEntry<K, V>> expired = new ArrayList<CacheEntry<K, V>>();
+        for (CacheEntry<K, V> entry : entries.values())
+        {
+            if (entry != protectedEntry)
+            {
+                if (!isExpired(entry, now, idleNanos))
+                {
+                    break;
+                }
+                expired.add(entry);
+            }
+        }
+
+        for (CacheEntry<K, V> entry : expired)
+        {
+            removeKey(entry.getKey());
+            evicted.add(entry);
+        }
+    }
+
+    /**
+     * Determines the entries which have to be evicted so that this cache no
+     * longer exceeds its bounds. The entries are visited in the order defined
+     * by the eviction policy. For the standard policies, this order is
+     * maintained anyway; other policies require sorting.
+     *
+     * @param protectedEntry an entry which must not be evicted
+     * @return a list with the entries to be evicted
+     */
+    private List<CacheEntry<K, V>> selectEntriesToEvict(
+            CacheEntry<K, V> protectedEntry)
+    {
+        Iterator<CacheEntry<K, V>> candidates;
+        EvictionPolicy policy = getEvictionPolicy();
+        if (policy == StandardEvictionPolicy.LRU)
+        {
+            candidates = entries.values().iterator();
+        }
+        else if (policy == StandardEvictionPolicy.LFU)
+        {
+            candidates = new FrequencyIterator<K, V>(lowestFrequency);
+        }
+        else
+        {
+            List<CacheEntry<K, V>> sorted =
+                    new ArrayList<CacheEntry<K, V>>(entries.values());
+            Collections.sort(sorted, policy);
+            candidates = sorted.iterator();
+        }
+
+        List<CacheEntry<K, V>> result = new ArrayList<CacheEntry<K, V>>();
+        int count = entries.size();
+        long weight = totalWeight;
+        while (isExceeded(count, weight) && candidates.hasNext())
+        {
+            CacheEntry<K, V> entry = candidates.next();
+            if (entry != protectedEntry)
+            {
+                result.add(entry);
+                count--;
+                weight -= entry.getWeight();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Records an access to the given entry by moving it to the group of
+     * entries with the next higher number of accesses.
+     *
+     * @param entry the entry
+     */
+    private void incrementFrequency(CacheEntry<K, V> entry)
+    {
+        FrequencyNode<K, V> node = entry.getFrequency();
+        removeFromFrequency(entry);
+        addToFrequency(entry, node.getEntries().isEmpty() ? node.prev : node);
+    }
+
+    /**
+     * Adds the given entry to the group of entries with its number of
+     * accesses. This group is the successor of the given node; if it does not
+     * exist yet, it is created.
+     *
+     * @param entry the entry
+     * @param prev the node with the next lower number of accesses
+     *        (<b>null</b> for the head of the list)
+     */
+    private void addToFrequency(CacheEntry<K, V> entry,
+            FrequencyNode<K, V> prev)
+    {
+        FrequencyNode<K, V> target =
+                (prev != null) ? prev.next : lowestFrequency;
+        if (target == null || target.getCount() != entry.getAccessCount())
+        {
+            FrequencyNode<K, V> next = target;
+            target = new FrequencyNode<K, V>(entry.getAccessCount());
+            target.prev = prev;
+            target.next = next;
+            if (next != null)
+            {
+                next.prev = target;
+            }
+            if (prev != null)
+            {
+                prev.next = target;
+            }
+            else
+            {
+                lowestFrequency = target;
+            }
+        }
+        target.getEntries().add(entry);
+        entry.setFrequency(target);
+    }
+
+    /**
+     * Removes the given entry from the group of entries with its number of
+     * accesses. An empty group is removed from the list.
+     *
+     * @param entry the entry
+     */
+    private void removeFromFrequency(CacheEntry<K, V> entry)
+    {
+        FrequencyNode<K, V> node = entry.getFrequency();
+        node.getEntries().remove(entry);
+        if (node.getEntries().isEmpty())
+        {
+            if (node.prev != null)
+            {
+                node.prev.next = node.next;
+            }
+            else
+            {
+                lowestFrequency = node.next;
+            }
+            if (node.next != null)
+            {
+                node.next.prev = node.prev;
+            }
+        }
+    }
+
+    /**
+     * Determines the weights of all entries again. This is necessary if the
+     * weigher or the maximum weight has been changed. The caller must hold
+     * the lock of this cache.
+     */
+    private void weighEntries()
+    {
+        long total = 0;
+        for (CacheEntry<K, V> entry : entries.values())
+        {
+            entry.setWeight(weigh(entry.getValue()));
+            total += entry.getWeight();
+        }
+        totalWeight = total;
+    }
+
+    /**
+     * Determines the weight of the given value. The weigher is only invoked
+     * if the weight of this cache is restricted.
+     *
+     * @param value the value
+     * @return the weight of this value
+     */
+    private long weigh(V value)
+    {
+        CacheWeigher<? super V> w = weigher;
+        return (w != null && maxWeight > 0) ? w.weigh(value) : 1;
+    }
+
+    /**
+     * Checks whether the given size or weight exceeds the corresponding
+     * limit of this cache.
+     *
+     * @param count the number of entries
+     * @param weight the total weight
+     * @return a flag whether a limit is exceeded
+     */
+    private boolean isExceeded(int count, long weight)
+    {
+        int sizeLimit = maxSize;
+        long weightLimit = maxWeight;
+        return (sizeLimit > 0 && count > sizeLimit)
+                || (weightLimit > 0 && weight > weightLimit);
+    }
+
+    /**
+     * Notifies the registered eviction listeners about the given evicted
+     * entries.
+     *
+     * @param evicted the evicted entries
+     */
+    private void fireEvicted(List<CacheEntry<K, V>> evicted)
+    {
+        for (CacheEntry<K, V> entry : evicted)
+        {
+            for (CacheEvictionListener<? super K, ? super V> l : evictionListeners)
+            {
+                l.entryEvicted(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given entry has expired.
+     *
+     * @param entry the entry
+     * @param now the current time
+     * @param idleNanos the maximum idle time (0 for no expiry)
+     * @return a flag whether the entry has expired
+     */
+    private static boolean isExpired(CacheEntry<?, ?> entry, long now,
+            long idleNanos)
+    {
+        return idleNanos > 0 && now - entry.getLastAccessTime() > idleNanos;
+    }
+
+    /**
+     * Removes the entry for the given key if it has the given value.
+     *
+     * @param key the key
+     * @param value the expected value
+     * @return a flag whether the entry was removed
+     */
+    private synchronized boolean removeValue(Object key, Object value)
+    {
+        CacheEntry<K, V> entry = entries.get(key);
+        if (entry != null && entry.getValue().equals(value))
+        {
+            removeKey(key);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Replaces the value of an existing entry. The new entry is considered
+     * to be accessed now. This may cause other entries to be evicted.
+     *
+     * @param key the key
+     * @param oldValue the expected old value (<b>null</b> for any value)
+     * @param newValue the new value
+     * @return the replaced entry or <b>null</b> if no entry was replaced
+     */
+    private CacheEntry<K, V> replaceValue(K key, V oldValue, V newValue)
+    {
+        List<CacheEntry<K, V>> evicted = new ArrayList<CacheEntry<K, V>>();
+        CacheEntry<K, V> entry;
+        synchronized (this)
+        {
+            entry = entries.get(key);
+            if (entry == null
+                    || (oldValue != null && !entry.getValue().equals(oldValue)))
+            {
+                return null;
+            }
+            removeKey(key);
+            addEntry(key, newValue, evicted);
+        }
+        fireEvicted(evicted);
+        return entry;
+    }
+
+    /**
+     * Removes the given entry if it is still contained in this cache.
+     *
+     * @param entry the entry
+     */
+    private synchronized void removeEntry(CacheEntry<K, V> entry)
+    {
+        if (entries.get(entry.getKey()) == entry)
+        {
+            removeKey(entry.getKey());
+        }
+    }
+
+    /**
+     * Returns a snapshot of the entries of this cache.
+     *
+     * @return a list with the current entries
+     */
+    private synchronized List<CacheEntry<K, V>> entrySnapshot()
+    {
+        return new ArrayList<CacheEntry<K, V>>(entries.values());
+    }
+
+    /**
+     * Checks whether the given key is contained in this cache.
+     *
+     * @param key the key
+     * @return a flag whether this key is contained
+     */
+    private synchronized boolean containsKey(Object key)
+    {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * The implementation of the map view of this cache.
+     */
+    private class MapView extends AbstractMap<K, V> implements
+            ConcurrentMap<K, V>
+    {
+        /** The entry set of this map. */
+        private final Set<Map.Entry<K, V>> entrySet = new EntrySet();
+
+        @Override
+        public V get(Object key)
+        {
+            return lookup(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return BoundedCache.this.containsKey(key);
+        }
+
+        @Override
+        public V put(K key, V value)
+        {
+            return BoundedCache.this.put(key, value);
+        }
+
+        @Override
+        public V putIfAbsent(K key, V value)
+        {
+            return BoundedCache.this.putIfAbsent(key, value);
+        }
+
+        @Override
+        public V remove(Object key)
+        {
+            CacheEntry<K, V> entry = removeKey(key);
+            return (entry != null) ? entry.getValue() : null;
+        }
+
+        @Override
+        public boolean remove(Object key, Object value)
+        {
+            return removeValue(key, value);
+        }
+
+        @Override
+        public boolean replace(K key, V oldValue, V newValue)
+        {
+            if (oldValue == null)
+            {
+                throw new NullPointerException("Old value must not be null!");
+            }
+            return replaceValue(key, oldValue, newValue) != null;
+        }
+
+        @Override
+        public V replace(K key, V value)
+        {
+            CacheEntry<K, V> entry = replaceValue(key, null, value);
+            return (entry != null) ? entry.getValue() : null;
+        }
+
+        @Override
+        public int size()
+        {
+            return BoundedCache.this.size();
+        }
+
+        @Override
+        public void clear()
+        {
+            BoundedCache.this.clear();
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet()
+        {
+            return entrySet;
+        }
+    }
+
+    /**
+     * The entry set of the map view. Its iterators operate on a snapshot of
+     * the cache entries; removing an element removes the corresponding entry
+     * from the cache.
+     */
+    private class EntrySet extends AbstractSet<Map.Entry<K, V>>
+    {
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator()
+        {
+            final Iterator<CacheEntry<K, V>> it = entrySnapshot().iterator();
+            return new Iterator<Map.Entry<K, V>>()
+            {
+                /** The entry returned by the last call of next(). */
+                private CacheEntry<K, V> current;
+
+                @Override
+                public boolean hasNext()
+                {
+                    return it.hasNext();
+                }
+
+                @Override
+                public Map.Entry<K, V> next()
+                {
+                    current = it.next();
+                    return new AbstractMap.SimpleImmutableEntry<K, V>(
+                            current.getKey(), current.getValue());
+                }
+
+                @Override
+                public void remove()
+                {
+                    if (current == null)
+                    {
+                        throw new IllegalStateException(
+                                "next() has not been called!");
+                    }
+                    removeEntry(current);
+                    current = null;
+                }
+            };
+        }
+
+        @Override
+        public int size()
+        {
+            return BoundedCache.this.size();
+        }
+    }
+
+    /**
+     * A class representing an entry of the cache. It stores the value, the
+     * access statistics, and the weight. An entry is also the
+     * {@code CacheEntryInfo} passed to the eviction policy; as the policy is
+     * invoked while the cache is locked, the data cannot change during an
+     * eviction. All fields except for key and value are guarded by the lock of
+     * the owning cache.
+     *
+     * @param <K> the type of the key
+     * @param <V> the type of the value
+     */
+    private static class CacheEntry<K, V> implements CacheEntryInfo
+    {
+        /** The key. */
+        private final K key;
+
+        /** The value. */
+        private final V value;
+
+        /** The number of accesses. */
+        private long accessCount;
+
+        /** The time of the last access. */
+        private long lastAccessTime;
+
+        /** The weight. */
+        private long weight;
+
+        /** The group of entries with the same number of accesses. */
+        private FrequencyNode<K, V> frequency;
+
+        /**
+         * Creates a new instance of {@code CacheEntry}.
+         *
+         * @param k the key
+         * @param v the value
+         * @param time the creation time
+         * @param w the weight
+         */
+        public CacheEntry(K k, V v, long time, long w)
+        {
+            key = k;
+            value = v;
+            accessCount = 1;
+            lastAccessTime = time;
+            weight = w;
+        }
+
+        public K getKey()
+        {
+            return key;
+        }
+
+        public V getValue()
+        {
+            return value;
+        }
+
+        @Override
+        public long getAccessCount()
+        {
+            return accessCount;
+        }
+
+        @Override
+        public long getLastAccessTime()
+        {
+            return lastAccessTime;
+        }
+
+        @Override
+        public long getWeight()
+        {
+            return weight;
+        }
+
+        public void setWeight(long w)
+        {
+            weight = w;
+        }
+
+        public FrequencyNode<K, V> getFrequency()
+        {
+            return frequency;
+        }
+
+        public void setFrequency(FrequencyNode<K, V> node)
+        {
+            frequency = node;
+        }
+
+        /**
+         * Updates the statistics of this entry for an access.
+         *
+         * @param time the time of the access
+         */
+        public void accessed(long time)
+        {
+            lastAccessTime = time;
+            accessCount++;
+        }
+    }
+
+    /**
+     * A node in the list of access frequencies. A node holds all entries with
+     * a specific number of accesses in the order in which they have reached
+     * this number, i.e. in the order of their last access. The nodes are
+     * sorted by their access counts in ascending order, so that the first
+     * entry of the first node is the one to be evicted by the LFU policy.
+     *
+     * @param <K> the type of the key
+     * @param <V> the type of the value
+     */
+    private static class FrequencyNode<K, V>
+    {
+        /** The predecessor in the list. */
+        FrequencyNode<K, V> prev;
+
+        /** The successor in the list. */
+        FrequencyNode<K, V> next;
+
+        /** The number of accesses of the entries in this node. */
+        private final long count;
+
+        /** The entries of this node. */
+        private final Set<CacheEntry<K, V>> nodeEntries;
+
+        /**
+         * Creates a new instance of {@code FrequencyNode}.
+         *
+         * @param cnt the number of accesses
+         */
+        public FrequencyNode(long cnt)
+        {
+            count = cnt;
+            nodeEntries = new LinkedHashSet<CacheEntry<K, V>>();
+        }
+
+        public long getCount()
+        {
+            return count;
+        }
+
+        public Set<CacheEntry<K, V>> getEntries()
+        {
+            return nodeEntries;
+        }
+    }
+
+    /**
+     * An iterator over the entries of the list of access frequencies. It
+     * returns the entries in the order of the LFU policy.
+     *
+     * @param <K> the type of the key
+     * @param <V> the type of the value
+     */
+    private static class FrequencyIterator<K, V> implements
+            Iterator<CacheEntry<K, V>>
+    {
+        /** The next node to be processed. */
+        private FrequencyNode<K, V> node;
+
+        /** The iterator over the entries of the current node. */
+        private Iterator<CacheEntry<K, V>> current;
+
+        /**
+         * Creates a new instance of {@code FrequencyIterator}.
+         *
+         * @param first the first node of the list
+         */
+        public FrequencyIterator(FrequencyNode<K, V> first)
+        {
+            node = first;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            while ((current == null || !current.hasNext()) && node != null)
+            {
+                current = node.getEntries().iterator();
+                node = node.next;
+            }
+            return current != null && current.hasNext();
+        }
+
+        @Override
+        public CacheEntry<K, V> next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.cache;
+
+/**
+ * <p>
+ * Definition of an interface providing information about an entry of a
+ * {@link BoundedCache}.
+ * </p>
+ * <p>
+ * Objects implementing this interface are passed to an
+ * {@link EvictionPolicy} which decides based on this data which entries are
+ * evicted first. The values returned by the methods reflect the state of the
+ * entry at the time the eviction is performed.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public interface CacheEntryInfo
+{
+    /**
+     * Returns the time of the last access to this entry in nanoseconds. The
+     * value is obtained from {@code System.nanoTime()}; so it is only
+     * meaningful when compared with the access times of other entries.
+     *
+     * @return the time of the last access
+     */
+    long getLastAccessTime();
+
+    /**
+     * Returns the number of accesses to this entry, including the access which
+     * caused the entry to be added.
+     *
+     * @return the number of accesses
+     */
+    long getAccessCount();
+
+    /**
+     * Returns the weight of this entry as determined by the cache's
+     * {@link CacheWeigher}. If no weigher is set, each entry has a weight of
+     * 1.
+     *
+     * @return the weight of this entry
+     */
+    long getWeight();
+}
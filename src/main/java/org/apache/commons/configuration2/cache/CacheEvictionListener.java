@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.cache;
+
+/**
+ * <p>
+ * Definition of an interface for objects which are notified when an entry is
+ * evicted from a {@link BoundedCache}.
+ * </p>
+ * <p>
+ * An eviction listener typically releases resources held by the evicted
+ * value, e.g. it removes event listener registrations which would otherwise
+ * keep the value reachable. Listeners are called after the entry has been
+ * removed, and without holding any locks of the cache. They are not invoked
+ * if entries are removed explicitly.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public interface CacheEvictionListener<K, V>
+{
+    /**
+     * Notifies this object that an entry has been evicted from the cache.
+     *
+     * @param key the key of the evicted entry
+     * @param value the evicted value
+     */
+    void entryEvicted(K key, V value);
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.cache;
+
+/**
+ * <p>
+ * Definition of an interface for determining the weight of values stored in
+ * a {@link BoundedCache}.
+ * </p>
+ * <p>
+ * If a weigher is set, a cache can be bounded by the total weight of its
+ * entries rather than by their number. The weight typically reflects the
+ * memory used by a value, e.g. the number of nodes of a configuration. The
+ * cache determines the weights of its entries each time it checks its bounds;
+ * so the weight of a value may change over time. As this can happen
+ * frequently, implementations should be fast. They must be thread-safe.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ * @param <V> the type of the values to be weighed
+ */
+public interface CacheWeigher<V>
+{
+    /**
+     * Returns the weight of the given value. The weight must not be negative.
+     *
+     * @param value the value
+     * @return the weight of this value
+     */
+    long weigh(V value);
+}
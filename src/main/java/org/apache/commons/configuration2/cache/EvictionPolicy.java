@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.cache;
+
+import java.util.Comparator;
+
+/**
+ * <p>
+ * Definition of an interface for the strategy which selects the entries to be
+ * evicted from a {@link BoundedCache} when it exceeds its bounds.
+ * </p>
+ * <p>
+ * An eviction policy is a comparator for {@link CacheEntryInfo} objects. The
+ * cache evicts the entries in the order defined by the comparator: entries
+ * which are less than others are evicted first. Typical strategies are
+ * defined by the {@link StandardEvictionPolicy} enumeration; custom
+ * implementations can take other criteria like the weight of entries into
+ * account. Implementations must be thread-safe.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public interface EvictionPolicy extends Comparator<CacheEntryInfo>
+{
+}
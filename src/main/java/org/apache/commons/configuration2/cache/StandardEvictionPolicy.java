@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.cache;
+
+/**
+ * <p>
+ * An enumeration with the default implementations of the
+ * {@link EvictionPolicy} interface.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public enum StandardEvictionPolicy implements EvictionPolicy
+{
+    /**
+     * The <em>least recently used</em> policy. The entries which have not been
+     * accessed for the longest time are evicted first.
+     */
+    LRU
+    {
+        @Override
+        public int compare(CacheEntryInfo e1, CacheEntryInfo e2)
+        {
+            return compareAccessTimes(e1, e2);
+        }
+    },
+
+    /**
+     * The <em>least frequently used</em> policy. The entries with the lowest
+     * number of accesses are evicted first. Entries with the same number of
+     * accesses are evicted in LRU order.
+     */
+    LFU
+    {
+        @Override
+        public int compare(CacheEntryInfo e1, CacheEntryInfo e2)
+        {
+            if (e1.getAccessCount() != e2.getAccessCount())
+            {
+                return (e1.getAccessCount() < e2.getAccessCount()) ? -1 : 1;
+            }
+            return compareAccessTimes(e1, e2);
+        }
+    };
+
+    /**
+     * Compares the last access times of the given entries. The times are
+     * compared in a way that works even if the nano timer overflows.
+     *
+     * @param e1 the first entry
+     * @param e2 the second entry
+     * @return the result of the comparison
+     */
+    private static int compareAccessTimes(CacheEntryInfo e1, CacheEntryInfo e2)
+    {
+        long diff = e1.getLastAccessTime() - e2.getLastAccessTime();
+        return (diff < 0) ? -1 : ((diff == 0) ? 0 : 1);
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * <p>
+ * A package with a thread-safe cache which can be bounded by the number of
+ * entries, their idle time, or their total weight.
+ * </p>
+ * <p>
+ * The {@link org.apache.commons.configuration2.cache.BoundedCache
+ * BoundedCache} class is used by configuration classes which create objects
+ * on demand for dynamically determined keys, e.g. one child configuration per
+ * tenant. Without bounds, the number of such objects could grow without
+ * limit. The cache evicts entries according to a pluggable
+ * {@link org.apache.commons.configuration2.cache.EvictionPolicy
+ * EvictionPolicy} and notifies listeners about evictions, so that resources
+ * held by evicted objects can be released.
+ * </p>
+ *
+ * @version $Id$
+ */
+package org.apache.commons.configuration2.cache;
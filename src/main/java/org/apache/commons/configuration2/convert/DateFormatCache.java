@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.convert;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * <p>
+ * An internally used helper class which caches {@code DateFormat} objects for
+ * date patterns.
+ * </p>
+ * <p>
+ * Creating a {@code SimpleDateFormat} is expensive compared to parsing a
+ * single date. When converting lists of dates, the same pattern is used many
+ * times; so formats are cached, keyed by their patterns. Because
+ * {@code SimpleDateFormat} is not thread-safe, each thread has its own cache;
+ * so a cached format is never used concurrently. The number of formats cached
+ * per thread is limited; if the limit is reached, the least recently used
+ * format is removed.
+ * </p>
+ * <p>
+ * A new {@code SimpleDateFormat} uses the default locale and time zone. A
+ * cached format is only used if these defaults have not been changed since
+ * it was created; otherwise, it is replaced by a new one.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+final class DateFormatCache
+{
+    /** The maximum number of formats cached per thread. */
+    static final int MAX_FORMATS = 16;
+
+    /** The caches of the single threads. */
+    private static final ThreadLocal<Map<String, CachedFormat>> CACHE =
+            new ThreadLocal<Map<String, CachedFormat>>()
+            {
+                @Override
+                protected Map<String, CachedFormat> initialValue()
+                {
+                    return new LinkedHashMap<String, CachedFormat>(
+                            MAX_FORMATS, 0.75f, true)
+                    {
+                        /**
+                         * The serial version UID.
+                         */
+                        private static final long serialVersionUID =
+                                20141115L;
+
+                        @Override
+                        protected boolean removeEldestEntry(
+                                Map.Entry<String, CachedFormat> eldest)
+                        {
+                            return size() > MAX_FORMATS;
+                        }
+                    };
+                }
+            };
+
+    /**
+     * Private constructor so that no instances can be created.
+     */
+    private DateFormatCache()
+    {
+    }
+
+    /**
+     * Returns a {@code DateFormat} for the given pattern. The format is
+     * obtained from the cache of the current thread if possible. It must only
+     * be used by the calling thread, and it must not be modified.
+     *
+     * @param pattern the date pattern
+     * @return the {@code DateFormat} for this pattern
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public static DateFormat getFormat(String pattern)
+    {
+        Map<String, CachedFormat> formats = CACHE.get();
+        Locale locale = Locale.getDefault();
+        TimeZone zone = TimeZone.getDefault();
+        CachedFormat cached = formats.get(pattern);
+        if (cached == null || !cached.isValid(locale, zone))
+        {
+            cached =
+                    new CachedFormat(new SimpleDateFormat(pattern, locale),
+                            locale);
+            cached.getFormat().setTimeZone(zone);
+            formats.put(pattern, cached);
+        }
+        return cached.getFormat();
+    }
+
+    /**
+     * Removes all formats from the cache of the current thread.
+     */
+    static void clear()
+    {
+        CACHE.remove();
+    }
+
+    /**
+     * A data class storing a cached format together with the defaults in
+     * effect when it was created.
+     */
+    private static class CachedFormat
+    {
+        /** The format. */
+        private final DateFormat format;
+
+        /** The locale of the format. */
+        private final Locale locale;
+
+        /**
+         * Creates a new instance of {@code CachedFormat}.
+         *
+         * @param fmt the format
+         * @param loc the locale
+         */
+        public CachedFormat(DateFormat fmt, Locale loc)
+        {
+            format = fmt;
+            locale = loc;
+        }
+
+        /**
+         * Returns the format.
+         *
+         * @return the format
+         */
+        public DateFormat getFormat()
+        {
+            return format;
+        }
+
+        /**
+         * Checks whether this format can still be used with the given default
+         * locale and time zone.
+         *
+         * @param loc the current default locale
+         * @param zone the current default time zone
+         * @return a flag whether this format is still valid
+         */
+        public boolean isValid(Locale loc, TimeZone zone)
+        {
+            return locale.equals(loc) && format.getTimeZone().equals(zone);
+        }
+    }
+}
@@ -20,6 +20,8 @@ import java.lang.reflect.Array;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.configuration2.ex.ConversionException;
 import org.apache.commons.configuration2.interpol.ConfigurationInterpolator;
@@ -45,6 +47,25 @@ import org.apache.commons.lang3.ClassUtils;
  * child element and then delegates to {@code convertValue()} which does the
  * actual conversion.
  * </p>
+ * <p>
+ * The conversion of single values is driven by a registry of
+ * {@link TypeConverter} objects keyed by their target class. Converters for
+ * the standard data types are available out of the box. Converters for other
+ * types (e.g. domain objects of an application) can be added using the
+ * {@link #registerConverter(Class, TypeConverter)} method; a registered
+ * converter takes precedence over a standard converter for the same class.
+ * The converter to be used for a target class is resolved once and then
+ * cached; so dispatching a conversion is a single map lookup. Only classes
+ * loaded by the class loader of this library or one of its parents are
+ * cached; converters for other classes, e.g. enumeration classes of an
+ * application, are resolved on each conversion, so that the cache does not
+ * keep the class loaders of applications alive. Subclasses of a
+ * class with a registered converter are handled by this converter unless a
+ * more specific converter is registered. Note that converters registered at
+ * the shared {@link #INSTANCE} affect all configurations using this
+ * instance; so it is typically better to register custom converters at a
+ * separate instance.
+ * </p>
  *
  * @version $Id$
  * @since 2.0
@@ -80,6 +101,23 @@ public class DefaultConversionHandler implements ConversionHandler
                 };
             };
 
+    /**
+     * Constant for a marker object which is stored in the cache for target
+     * classes that are not supported.
+     */
+    private static final Object NO_CONVERTER = new Object();
+
+    /** A map with the converters registered at this object. */
+    private final ConcurrentMap<Class<?>, TypeConverter<?>> registeredConverters =
+            new ConcurrentHashMap<Class<?>, TypeConverter<?>>();
+
+    /**
+     * A cache for the converters resolved for specific target classes. The
+     * values are either converters or the {@code NO_CONVERTER} marker.
+     */
+    private volatile ConcurrentMap<Class<?>, Object> resolvedConverters =
+            new ConcurrentHashMap<Class<?>, Object>();
+
     /** The current date format. */
     private volatile String dateFormat;
 
@@ -109,6 +147,59 @@ public class DefaultConversionHandler implements ConversionHandler
         this.dateFormat = dateFormat;
     }
 
+    /**
+     * Registers a converter for the specified target class. This converter is
+     * used for all conversions to this class and to its subclasses for which
+     * no more specific converter is registered. It replaces a converter
+     * registered before for this class and takes precedence over the standard
+     * converter for this class. A converter registered for a wrapper class
+     * like {@code Integer} is also used for the corresponding primitive type.
+     *
+     * @param <T> the type of the target class
+     * @param targetCls the target class (must not be <b>null</b>)
+     * @param converter the converter (must not be <b>null</b>)
+     * @throws IllegalArgumentException if a required parameter is missing
+     * @since 2.1
+     */
+    public <T> void registerConverter(Class<T> targetCls,
+            TypeConverter<? extends T> converter)
+    {
+        if (targetCls == null)
+        {
+            throw new IllegalArgumentException(
+                    "Target class must not be null!");
+        }
+        if (converter == null)
+        {
+            throw new IllegalArgumentException("Converter must not be null!");
+        }
+
+        registeredConverters.put(ClassUtils.primitiveToWrapper(targetCls),
+                converter);
+        resetResolvedConverters();
+    }
+
+    /**
+     * Removes the converter registered for the specified target class.
+     * Afterwards, conversions to this class are handled again by the standard
+     * converters (if any).
+     *
+     * @param targetCls the target class
+     * @return a flag whether a converter was registered for this class
+     * @since 2.1
+     */
+    public boolean unregisterConverter(Class<?> targetCls)
+    {
+        if (targetCls != null
+                && registeredConverters.remove(ClassUtils
+                        .primitiveToWrapper(targetCls)) != null)
+        {
+            resetResolvedConverters();
+            return true;
+        }
+        return false;
+    }
+
     @Override
     public <T> T to(Object src, Class<T> targetCls, ConfigurationInterpolator ci)
     {
@@ -313,6 +404,105 @@ public class DefaultConversionHandler implements ConversionHandler
         return result;
     }
 
+    /**
+     * Returns the converter to be used for the specified target class. The
+     * converter is looked up in a cache. If the class has not been requested
+     * before, the converter is resolved: a converter registered for this class
+     * or one of its superclasses is used; otherwise, the standard converter
+     * for this class is selected. Result is <b>null</b> if the class is not
+     * supported. Classes which can be unloaded before this class are not
+     * cached.
+     *
+     * @param targetCls the target class
+     * @return the converter for this class or <b>null</b>
+     */
+    TypeConverter<?> fetchConverter(Class<?> targetCls)
+    {
+        if (!isCacheSafe(targetCls))
+        {
+            return resolveConverter(targetCls);
+        }
+
+        ConcurrentMap<Class<?>, Object> cache = resolvedConverters;
+        Object converter = cache.get(targetCls);
+        if (converter == null)
+        {
+            TypeConverter<?> resolved = resolveConverter(targetCls);
+            converter = (resolved != null) ? resolved : NO_CONVERTER;
+            Object other = cache.putIfAbsent(targetCls, converter);
+            if (other != null)
+            {
+                converter = other;
+            }
+        }
+        return (converter != NO_CONVERTER) ? (TypeConverter<?>) converter
+                : null;
+    }
+
+    /**
+     * Determines the converter for the specified target class. This method is
+     * called if no converter for this class is found in the cache.
+     *
+     * @param targetCls the target class
+     * @return the converter for this class or <b>null</b>
+     */
+    private TypeConverter<?> resolveConverter(Class<?> targetCls)
+    {
+        Class<?> cls = ClassUtils.primitiveToWrapper(targetCls);
+        if (!registeredConverters.isEmpty())
+        {
+            for (Class<?> c = cls; c != null; c = c.getSuperclass())
+            {
+                TypeConverter<?> converter = registeredConverters.get(c);
+                if (converter != null)
+                {
+                    return converter;
+                }
+            }
+        }
+        return PropertyConverter.defaultConverter(cls);
+    }
+
+    /**
+     * Checks whether the converter for the given class can be stored in the
+     * cache. This is the case if the class has been loaded by the class loader
+     * of this class or one of its parents. Otherwise, a cache entry would
+     * prevent the class loader of the class from being garbage collected.
+     *
+     * @param cls the class to be checked
+     * @return a flag whether the class can be cached safely
+     */
+    private static boolean isCacheSafe(Class<?> cls)
+    {
+        ClassLoader target = cls.getClassLoader();
+        if (target == null)
+        {
+            return true;
+        }
+
+        ClassLoader loader = DefaultConversionHandler.class.getClassLoader();
+        while (loader != null)
+        {
+            if (loader == target)
+            {
+                return true;
+            }
+            loader = loader.getParent();
+        }
+        return false;
+    }
+
+    /**
+     * Discards all cached converters. This method is called when the
+     * registered converters are changed. The cache is replaced as a whole, so
+     * that converters resolved concurrently based on outdated data do not end
+     * up in the new cache.
+     */
+    private void resetResolvedConverters()
+    {
+        resolvedConverters = new ConcurrentHashMap<Class<?>, Object>();
+    }
+
     /**
      * Converts the given source object to an array of objects.
      *
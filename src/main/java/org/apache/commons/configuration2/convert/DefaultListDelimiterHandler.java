@@ -16,8 +16,8 @@
  */
 package org.apache.commons.configuration2.convert;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
@@ -134,70 +134,97 @@ public class DefaultListDelimiterHandler extends AbstractListDelimiterHandler
      * {@code escape()} methods of this class. However, it tries to be tolerant
      * with unexpected escaping sequences: If after the escape character "\" no
      * allowed character follows, both the backslash and the following character
-     * are output.
+     * are output. The string is scanned only once; tokens without escape
+     * characters are extracted as substrings, so that a buffer is only needed
+     * for tokens that have to be unescaped. If the string contains neither a
+     * list delimiter nor an escape character, it is returned as single element
+     * without further processing. A new list is created for each call, so the
+     * result can be modified by the caller.
      */
     @Override
     protected Collection<String> splitString(String s, boolean trim)
     {
-        List<String> list = new LinkedList<String>();
-        StringBuilder token = new StringBuilder();
-        boolean inEscape = false;
+        if (s.indexOf(getDelimiter()) < 0 && s.indexOf(ESCAPE) < 0)
+        {
+            List<String> list = new ArrayList<String>(1);
+            list.add(trim ? s.trim() : s);
+            return list;
+        }
 
-        for (int i = 0; i < s.length(); i++)
+        List<String> list = new ArrayList<String>();
+        StringBuilder token = null;
+        int length = s.length();
+        int start = 0;
+
+        for (int i = 0; i < length; i++)
         {
             char c = s.charAt(i);
-            if (inEscape)
+            if (c == ESCAPE)
             {
-                // last character was the escape marker
-                // can current character be escaped?
-                if (c != getDelimiter() && c != ESCAPE)
+                // copy the pending part of the token and unescape
+                if (token == null)
                 {
-                    // no, also add escape character
-                    token.append(ESCAPE);
+                    token = new StringBuilder(length);
                 }
-                token.append(c);
-                inEscape = false;
-            }
-
-            else
-            {
-                if (c == getDelimiter())
+                token.append(s, start, i);
+                if (++i < length)
                 {
-                    // found a list delimiter -> add token and
-                    // reset buffer
-                    String t = token.toString();
-                    if (trim)
+                    // can next character be escaped?
+                    char next = s.charAt(i);
+                    if (next != getDelimiter() && next != ESCAPE)
                     {
-                        t = t.trim();
+                        // no, also add escape character
+                        token.append(ESCAPE);
                     }
-                    list.add(t);
-                    token = new StringBuilder();
-                }
-                else if (c == ESCAPE)
-                {
-                    // potentially escape next character
-                    inEscape = true;
+                    token.append(next);
+                    start = i + 1;
                 }
                 else
                 {
-                    token.append(c);
+                    // trailing escape character
+                    token.append(ESCAPE);
+                    start = length;
                 }
             }
+            else if (c == getDelimiter())
+            {
+                list.add(extractToken(s, start, i, token, trim));
+                start = i + 1;
+            }
         }
 
-        // Trailing delimiter?
-        if (inEscape)
+        // Add last token
+        list.add(extractToken(s, start, length, token, trim));
+        return list;
+    }
+
+    /**
+     * Extracts a token found while splitting a string. If the token contains
+     * escaped characters, its beginning has already been copied into the
+     * passed in buffer; then the remaining part is appended, and the buffer is
+     * reset. Otherwise, the token is a plain substring of the input.
+     *
+     * @param s the string to be split
+     * @param start the start index of the part not yet copied to the buffer
+     * @param end the end index of the token
+     * @param token the buffer for unescaped tokens (may be <b>null</b>)
+     * @param trim the trim flag
+     * @return the token
+     */
+    private static String extractToken(String s, int start, int end,
+            StringBuilder token, boolean trim)
+    {
+        String t;
+        if (token != null && token.length() > 0)
         {
-            token.append(ESCAPE);
+            token.append(s, start, end);
+            t = token.toString();
+            token.setLength(0);
         }
-        // Add last token
-        String t = token.toString();
-        if (trim)
+        else
         {
-            t = t.trim();
+            t = s.substring(start, end);
         }
-        list.add(t);
-
-        return list;
+        return trim ? t.trim() : t;
     }
 }
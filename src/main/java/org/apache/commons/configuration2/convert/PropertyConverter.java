@@ -27,10 +27,11 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.UnknownHostException;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import org.apache.commons.configuration2.ex.ConversionException;
 import org.apache.commons.lang3.BooleanUtils;
@@ -64,6 +65,10 @@ final class PropertyConverter
     /** The fully qualified name of {@code javax.mail.internet.InternetAddress} */
     private static final String INTERNET_ADDRESS_CLASSNAME = "javax.mail.internet.InternetAddress";
 
+    /** The map with the standard converters for simple target classes. */
+    private static final Map<Class<?>, TypeConverter<?>> DEFAULT_CONVERTERS =
+            createDefaultConverters();
+
     /**
      * Private constructor prevents instances from being created.
      */
@@ -78,7 +83,9 @@ final class PropertyConverter
      * conversion, it is obtained from the passed in
      * {@code DefaultConversionHandler} object. If the class is a primitive type
      * (Integer.TYPE, Boolean.TYPE, etc), the value returned will use the
-     * wrapper type (Integer.class, Boolean.class, etc).
+     * wrapper type (Integer.class, Boolean.class, etc). The converter for the
+     * target class is obtained from the conversion handler; so converters
+     * registered at the handler are taken into account.
      *
      * @param cls the target class of the converted value
      * @param value the value to convert
@@ -95,88 +102,50 @@ final class PropertyConverter
             return value; // no conversion needed
         }
 
-        if (String.class.equals(cls))
-        {
-            return String.valueOf(value);
-        }
-        if (Boolean.class.equals(cls) || Boolean.TYPE.equals(cls))
-        {
-            return toBoolean(value);
-        }
-        else if (Character.class.equals(cls) || Character.TYPE.equals(cls))
-        {
-            return toCharacter(value);
-        }
-        else if (Number.class.isAssignableFrom(cls) || cls.isPrimitive())
-        {
-            if (Integer.class.equals(cls) || Integer.TYPE.equals(cls))
-            {
-                return toInteger(value);
-            }
-            else if (Long.class.equals(cls) || Long.TYPE.equals(cls))
-            {
-                return toLong(value);
-            }
-            else if (Byte.class.equals(cls) || Byte.TYPE.equals(cls))
-            {
-                return toByte(value);
-            }
-            else if (Short.class.equals(cls) || Short.TYPE.equals(cls))
-            {
-                return toShort(value);
-            }
-            else if (Float.class.equals(cls) || Float.TYPE.equals(cls))
-            {
-                return toFloat(value);
-            }
-            else if (Double.class.equals(cls) || Double.TYPE.equals(cls))
-            {
-                return toDouble(value);
-            }
-            else if (BigInteger.class.equals(cls))
-            {
-                return toBigInteger(value);
-            }
-            else if (BigDecimal.class.equals(cls))
-            {
-                return toBigDecimal(value);
-            }
-        }
-        else if (Date.class.equals(cls))
-        {
-            return toDate(value, convHandler.getDateFormat());
-        }
-        else if (Calendar.class.equals(cls))
+        TypeConverter<?> converter = convHandler.fetchConverter(cls);
+        if (converter == null)
         {
-            return toCalendar(value, convHandler.getDateFormat());
+            throw new ConversionException("The value '" + value + "' ("
+                    + value.getClass() + ")" + " can't be converted to a "
+                    + cls.getName() + " object");
         }
-        else if (URL.class.equals(cls))
-        {
-            return toURL(value);
-        }
-        else if (Locale.class.equals(cls))
-        {
-            return toLocale(value);
-        }
-        else if (isEnum(cls))
+        return converter.convert(value, convHandler);
+    }
+
+    /**
+     * Returns the standard converter for the given target class. This method
+     * is called once per target class when a conversion handler resolves the
+     * converter to be used. The standard converters for simple types are
+     * obtained by a single map lookup; in addition, converters for enumeration
+     * classes, subclasses of {@code InetAddress}, and the mail
+     * {@code InternetAddress} class are created. If the class is not
+     * supported, result is <b>null</b>.
+     *
+     * @param cls the target class (primitive types have already been replaced
+     *        by their wrapper types)
+     * @return the standard converter for this class or <b>null</b>
+     */
+    static TypeConverter<?> defaultConverter(Class<?> cls)
+    {
+        TypeConverter<?> converter = DEFAULT_CONVERTERS.get(cls);
+        if (converter != null)
         {
-            return convertToEnum(cls, value);
+            return converter;
         }
-        else if (Color.class.equals(cls))
+
+        if (isEnum(cls))
         {
-            return toColor(value);
+            return new EnumConverter(cls);
         }
-        else if (cls.getName().equals(INTERNET_ADDRESS_CLASSNAME))
+        if (cls.getName().equals(INTERNET_ADDRESS_CLASSNAME))
         {
-            return toInternetAddress(value);
+            return StandardConverter.INTERNET_ADDRESS;
         }
-        else if (InetAddress.class.isAssignableFrom(cls))
+        if (InetAddress.class.isAssignableFrom(cls))
         {
-            return toInetAddress(value);
+            return StandardConverter.INET_ADDRESS;
         }
-
-        throw new ConversionException("The value '" + value + "' (" + value.getClass() + ")"
-                + " can't be converted to a " + cls.getName() + " object");
+        return null;
     }
 
     /**
@@ -748,7 +717,7 @@ final class PropertyConverter
         {
             try
             {
-                return new SimpleDateFormat(format).parse((String) value);
+                return DateFormatCache.getFormat(format).parse((String) value);
             }
             catch (ParseException e)
             {
@@ -786,7 +755,7 @@ final class PropertyConverter
             try
             {
                 Calendar calendar = Calendar.getInstance();
-                calendar.setTime(new SimpleDateFormat(format).parse((String) value));
+                calendar.setTime(DateFormatCache.getFormat(format).parse((String) value));
                 return calendar;
             }
             catch (ParseException e)
@@ -814,4 +783,247 @@ final class PropertyConverter
     {
         return toEnum(value, enumClass.asSubclass(Enum.class));
     }
+
+    /**
+     * Creates the map with the standard converters. The map is keyed by the
+     * target classes of the converters.
+     *
+     * @return the map with the standard converters
+     */
+    private static Map<Class<?>, TypeConverter<?>> createDefaultConverters()
+    {
+        Map<Class<?>, TypeConverter<?>> converters =
+                new HashMap<Class<?>, TypeConverter<?>>();
+        for (StandardConverter converter : StandardConverter.values())
+        {
+            if (converter.getTargetClass() != null)
+            {
+                converters.put(converter.getTargetClass(), converter);
+            }
+        }
+        return converters;
+    }
+
+    /**
+     * An enumeration with the standard converters supported out of the box.
+     * Each constant delegates to the corresponding conversion method of
+     * {@code PropertyConverter}.
+     */
+    private static enum StandardConverter implements TypeConverter<Object>
+    {
+        STRING(String.class)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return String.valueOf(value);
+            }
+        },
+
+        BOOLEAN(Boolean.class)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return toBoolean(value);
+            }
+        },
+
+        CHARACTER(Character.class)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return toCharacter(value);
+            }
+        },
+
+        INTEGER(Integer.class)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return toInteger(value);
+            }
+        },
+
+        LONG(Long.class)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return toLong(value);
+            }
+        },
+
+        BYTE(Byte.class)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return toByte(value);
+            }
+        },
+
+        SHORT(Short.class)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return toShort(value);
+            }
+        },
+
+        FLOAT(Float.class)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return toFloat(value);
+            }
+        },
+
+        DOUBLE(Double.class)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return toDouble(value);
+            }
+        },
+
+        BIG_INTEGER(BigInteger.class)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return toBigInteger(value);
+            }
+        },
+
+        BIG_DECIMAL(BigDecimal.class)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return toBigDecimal(value);
+            }
+        },
+
+        DATE(Date.class)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return toDate(value, handler.getDateFormat());
+            }
+        },
+
+        CALENDAR(Calendar.class)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return toCalendar(value, handler.getDateFormat());
+            }
+        },
+
+        URL_CONVERTER(URL.class)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return toURL(value);
+            }
+        },
+
+        LOCALE(Locale.class)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return toLocale(value);
+            }
+        },
+
+        COLOR(Color.class)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return toColor(value);
+            }
+        },
+
+        INET_ADDRESS(InetAddress.class)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return toInetAddress(value);
+            }
+        },
+
+        /**
+         * The converter for InternetAddress. The target class is not
+         * referenced directly because the mail API is an optional dependency.
+         */
+        INTERNET_ADDRESS(null)
+        {
+            @Override
+            public Object convert(Object value, DefaultConversionHandler handler)
+            {
+                return toInternetAddress(value);
+            }
+        };
+
+        /** The target class of this converter. */
+        private final Class<?> targetClass;
+
+        /**
+         * Creates a new instance of {@code StandardConverter}.
+         *
+         * @param cls the target class
+         */
+        private StandardConverter(Class<?> cls)
+        {
+            targetClass = cls;
+        }
+
+        /**
+         * Returns the target class of this converter. Result is <b>null</b>
+         * for a converter which is not registered by its class.
+         *
+         * @return the target class
+         */
+        public Class<?> getTargetClass()
+        {
+            return targetClass;
+        }
+    }
+
+    /**
+     * A converter implementation for a specific enumeration class.
+     */
+    private static class EnumConverter implements TypeConverter<Object>
+    {
+        /** The enumeration class. */
+        private final Class<?> enumClass;
+
+        /**
+         * Creates a new instance of {@code EnumConverter}.
+         *
+         * @param cls the enumeration class
+         */
+        public EnumConverter(Class<?> cls)
+        {
+            enumClass = cls;
+        }
+
+        @Override
+        public Object convert(Object value, DefaultConversionHandler handler)
+        {
+            return convertToEnum(enumClass, value);
+        }
+    }
 }
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.convert;
+
+import org.apache.commons.configuration2.ex.ConversionException;
+
+/**
+ * <p>
+ * Definition of an interface for objects which convert a single value to a
+ * specific target type.
+ * </p>
+ * <p>
+ * {@link DefaultConversionHandler} maintains a registry of
+ * {@code TypeConverter} objects keyed by their target class. A converter for
+ * a custom data type can be registered using
+ * {@link DefaultConversionHandler#registerConverter(Class, TypeConverter)};
+ * it is then used for all conversions to this type (and to subclasses of this
+ * type for which no more specific converter exists).
+ * </p>
+ * <p>
+ * A converter is only invoked for values which actually require a conversion:
+ * the value passed to {@code convert()} is never <b>null</b>, and it is not
+ * already an instance of the target class. Implementations have to be
+ * thread-safe because a conversion handler can be shared between multiple
+ * configurations.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ * @param <T> the target type of the conversion
+ */
+public interface TypeConverter<T>
+{
+    /**
+     * Converts the given value to the target type of this converter. If
+     * additional information is needed for the conversion (e.g. a date
+     * format), it can be obtained from the passed in conversion handler.
+     *
+     * @param value the value to be converted (never <b>null</b>)
+     * @param handler the conversion handler invoking this converter
+     * @return the converted value
+     * @throws ConversionException if the value cannot be converted
+     */
+    T convert(Object value, DefaultConversionHandler handler)
+            throws ConversionException;
+}
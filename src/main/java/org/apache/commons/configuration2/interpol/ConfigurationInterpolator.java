@@ -26,6 +26,10 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+import org.apache.commons.configuration2.metrics.ConfigurationMetrics;
+import org.apache.commons.configuration2.metrics.ConfigurationOperation;
+import org.apache.commons.configuration2.metrics.NoOpConfigurationMetrics;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.text.StrLookup;
 import org.apache.commons.lang3.text.StrSubstitutor;
 
@@ -76,6 +80,14 @@ import org.apache.commons.lang3.text.StrSubstitutor;
  * values of specific variables without performing interpolation.
  * </p>
  * <p>
+ * Optionally, an {@link InterpolationDependencyTracker} can be set. It is then
+ * notified about all variables resolved during an interpolation, so that it
+ * can record the dependencies between keys and detect cyclic references
+ * early. In this mode, the values of variables are interpolated recursively
+ * by this object rather than by the {@code StrSubstitutor}; the results are
+ * the same.
+ * </p>
+ * <p>
  * Implementation node: This class is thread-safe. Lookup objects can be added
  * or removed at any time concurrent to interpolation operations.
  * </p>
@@ -97,6 +109,9 @@ public class ConfigurationInterpolator
     /** The variable suffix. */
     private static final String VAR_END = "}";
 
+    /** The escaped variable prefix. */
+    private static final String ESCAPED_VAR_START = "$" + VAR_START;
+
     /** A map containing the default prefix lookups. */
     private static final Map<String, Lookup> DEFAULT_PREFIX_LOOKUPS;
 
@@ -112,6 +127,12 @@ public class ConfigurationInterpolator
     /** Stores a parent interpolator objects if the interpolator is nested hierarchically. */
     private volatile ConfigurationInterpolator parentInterpolator;
 
+    /** The object for reporting lookups (<b>null</b> if disabled). */
+    private volatile ConfigurationMetrics metrics;
+
+    /** The object for tracking dependencies (<b>null</b> if disabled). */
+    private volatile InterpolationDependencyTracker dependencyTracker;
+
     /**
      * Creates a new instance of {@code ConfigurationInterpolator}.
      */
@@ -348,6 +369,66 @@ public class ConfigurationInterpolator
         return this.parentInterpolator;
     }
 
+    /**
+     * Returns the {@code ConfigurationMetrics} object to which lookups are
+     * reported. Result is never <b>null</b>; if no metrics object has been
+     * set, a {@link NoOpConfigurationMetrics} is returned.
+     *
+     * @return the {@code ConfigurationMetrics}
+     * @since 2.1
+     */
+    public ConfigurationMetrics getMetrics()
+    {
+        ConfigurationMetrics m = metrics;
+        return (m != null) ? m : NoOpConfigurationMetrics.INSTANCE;
+    }
+
+    /**
+     * Sets the {@code ConfigurationMetrics} object to which lookups are
+     * reported. If set, each call of {@link #resolve(String)} is reported as
+     * a {@code RESOLVE_VARIABLE} operation together with its duration. In
+     * addition, the invocations of the lookup for the prefix of the variable
+     * (if such a lookup is registered) and of the default lookups (if they
+     * have to be consulted) are reported. Lookups performed by a parent
+     * interpolator are reported by the parent.
+     *
+     * @param metrics the {@code ConfigurationMetrics}; can be <b>null</b>,
+     *        then no lookups are reported
+     * @since 2.1
+     */
+    public void setMetrics(ConfigurationMetrics metrics)
+    {
+        this.metrics =
+                (metrics == NoOpConfigurationMetrics.INSTANCE) ? null : metrics;
+    }
+
+    /**
+     * Returns the {@code InterpolationDependencyTracker} which is notified
+     * about resolved variables.
+     *
+     * @return the {@code InterpolationDependencyTracker} (may be <b>null</b>)
+     * @since 2.1
+     */
+    public InterpolationDependencyTracker getDependencyTracker()
+    {
+        return dependencyTracker;
+    }
+
+    /**
+     * Sets the {@code InterpolationDependencyTracker} which is notified about
+     * resolved variables. If set, the dependencies between variables are
+     * recorded, and cyclic references cause an
+     * {@code IllegalStateException} as soon as they are detected.
+     *
+     * @param tracker the {@code InterpolationDependencyTracker}; can be
+     *        <b>null</b>, then no dependencies are tracked
+     * @since 2.1
+     */
+    public void setDependencyTracker(InterpolationDependencyTracker tracker)
+    {
+        dependencyTracker = tracker;
+    }
+
     /**
      * Sets a flag that variable names can contain other variables. If enabled,
      * variable substitution is also done in variable names.
@@ -402,6 +483,37 @@ public class ConfigurationInterpolator
         return value;
     }
 
+    /**
+     * Performs interpolation of the value of the given key. This method works
+     * like {@link #interpolate(Object)}. If an
+     * {@code InterpolationDependencyTracker} is set, the variables referenced
+     * by the value are recorded as dependencies of the key.
+     *
+     * @param key the key whose value is interpolated (may be <b>null</b>)
+     * @param value the value to be interpolated
+     * @return the interpolated value
+     * @throws IllegalStateException if the tracker detects a cyclic reference
+     * @since 2.1
+     */
+    public Object interpolate(String key, Object value)
+    {
+        InterpolationDependencyTracker tracker = dependencyTracker;
+        if (tracker == null || key == null)
+        {
+            return interpolate(value);
+        }
+
+        tracker.enterVariable(key);
+        try
+        {
+            return interpolate(value);
+        }
+        finally
+        {
+            tracker.exitVariable();
+        }
+    }
+
     /**
      * Resolves the specified variable. This implementation tries to extract
      * a variable prefix from the given variable name (the first colon (':') is
@@ -423,12 +535,43 @@ public class ConfigurationInterpolator
             return null;
         }
 
+        ConfigurationMetrics m = metrics;
+        if (m == null)
+        {
+            return resolveVariable(var, null);
+        }
+        long startTime = System.nanoTime();
+        try
+        {
+            return resolveVariable(var, m);
+        }
+        finally
+        {
+            m.operationPerformed(ConfigurationOperation.RESOLVE_VARIABLE, var,
+                    System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Performs the actual resolution of a variable. This method is called by
+     * {@code resolve()}.
+     *
+     * @param var the name of the variable
+     * @param m the metrics object to report lookups to (may be <b>null</b>)
+     * @return the value of this variable or <b>null</b>
+     */
+    private Object resolveVariable(String var, ConfigurationMetrics m)
+    {
         int prefixPos = var.indexOf(PREFIX_SEPARATOR);
         if (prefixPos >= 0)
         {
             String prefix = var.substring(0, prefixPos);
             String name = var.substring(prefixPos + 1);
             Object value = fetchLookupForPrefix(prefix).lookup(name);
+            if (m != null && prefixLookups.containsKey(prefix))
+            {
+                m.lookupPerformed(prefix, value != null);
+            }
             if (value != null)
             {
                 return value;
@@ -440,9 +583,17 @@ public class ConfigurationInterpolator
             Object value = l.lookup(var);
             if (value != null)
             {
+                if (m != null)
+                {
+                    m.lookupPerformed(null, true);
+                }
                 return value;
             }
         }
+        if (m != null && !defaultLookups.isEmpty())
+        {
+            m.lookupPerformed(null, false);
+        }
 
         ConfigurationInterpolator parent = getParentInterpolator();
         if (parent != null)
@@ -481,6 +632,11 @@ public class ConfigurationInterpolator
             @Override
             public String lookup(String key)
             {
+                InterpolationDependencyTracker tracker = dependencyTracker;
+                if (tracker != null)
+                {
+                    return resolveTracked(key, tracker);
+                }
                 Object result = resolve(key);
                 return (result != null) ? result.toString() : null;
             }
@@ -495,7 +651,53 @@ public class ConfigurationInterpolator
      */
     private Object resolveSingleVariable(String strValue)
     {
-        return resolve(extractVariableName(strValue));
+        String var = extractVariableName(strValue);
+        Object value = resolve(var);
+        InterpolationDependencyTracker tracker = dependencyTracker;
+        if (tracker != null && value != null && !(value instanceof String))
+        {
+            // string values are processed by the substitutor which reports
+            // the dependency; this is also the case for false positives
+            tracker.dependencyFound(var);
+        }
+        return value;
+    }
+
+    /**
+     * Resolves a variable and notifies the given dependency tracker. The
+     * value of the variable is interpolated recursively, so that the tracker
+     * can record the variables it references. The variables in the result are
+     * escaped because the {@code StrSubstitutor} processes the result of a
+     * lookup again.
+     *
+     * @param var the name of the variable
+     * @param tracker the dependency tracker
+     * @return the interpolated value of the variable or <b>null</b>
+     */
+    private String resolveTracked(String var,
+            InterpolationDependencyTracker tracker)
+    {
+        tracker.enterVariable(var);
+        try
+        {
+            Object result = resolve(var);
+            if (result == null)
+            {
+                return null;
+            }
+            String strResult = result.toString();
+            if (strResult.contains(VAR_START))
+            {
+                strResult =
+                        StringUtils.replace(substitutor.replace(strResult),
+                                VAR_START, ESCAPED_VAR_START);
+            }
+            return strResult;
+        }
+        finally
+        {
+            tracker.exitVariable();
+        }
     }
 
     /**
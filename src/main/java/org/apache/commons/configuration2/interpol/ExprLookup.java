@@ -17,6 +17,9 @@
 package org.apache.commons.configuration2.interpol;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.commons.configuration2.io.ConfigurationLogger;
 import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
@@ -59,6 +62,18 @@ import org.apache.commons.lang3.text.StrSubstitutor;
  * This lookup uses Apache Commons Jexl and requires that the dependency be added to any
  * projects which use this.
  *
+ * <p>
+ * Compiled expressions are cached, keyed by the expression text after the
+ * substitution of subordinate lookup expressions; so an expression which is
+ * evaluated repeatedly is parsed only once. The size of this cache can be
+ * configured using {@link #setExpressionCacheSize(int)}. The JEXL engine and
+ * the variables are shared by all evaluations, so an instance can be used by
+ * multiple threads concurrently. Variables are resolved when an expression is
+ * evaluated; so changes on the values of {@code Variable} objects are taken
+ * into account. Values assigned to variables by an expression are visible to
+ * this expression only.
+ * </p>
+ *
  * @since 1.7
  * @author <a
  * href="http://commons.apache.org/configuration/team-list.html">Commons Configuration team</a>
@@ -75,6 +90,13 @@ public class ExprLookup implements Lookup
     /** The default suffix for subordinate lookup expressions */
     private static final String DEFAULT_SUFFIX = "]";
 
+    /**
+     * The default size of the cache for compiled expressions.
+     *
+     * @since 2.1
+     */
+    public static final int DEFAULT_EXPRESSION_CACHE_SIZE = 256;
+
     /** The ConfigurationInterpolator used by this object. */
     private ConfigurationInterpolator interpolator;
 
@@ -88,7 +110,14 @@ public class ExprLookup implements Lookup
     private final JexlEngine engine = new JexlEngine();
 
     /** The variables maintained by this object. */
-    private Variables variables;
+    private volatile Variables variables = new Variables();
+
+    /** The cache for compiled expressions. */
+    private final Map<String, Expression> expressionCache =
+            createExpressionCache();
+
+    /** The size of the cache for compiled expressions. */
+    private volatile int expressionCacheSize = DEFAULT_EXPRESSION_CACHE_SIZE;
 
     /** The String to use to start subordinate lookup expressions */
     private String prefixMatcher = DEFAULT_PREFIX;
@@ -164,6 +193,47 @@ public class ExprLookup implements Lookup
         return null;
     }
 
+    /**
+     * Returns the maximum number of compiled expressions cached by this
+     * object.
+     *
+     * @return the size of the expression cache
+     * @since 2.1
+     */
+    public int getExpressionCacheSize()
+    {
+        return expressionCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of compiled expressions cached by this object.
+     * If the cache is full, the least recently used expressions are removed.
+     * A value of 0 disables caching; then each expression is parsed anew on
+     * every evaluation.
+     *
+     * @param size the size of the expression cache
+     * @throws IllegalArgumentException if the size is negative
+     * @since 2.1
+     */
+    public void setExpressionCacheSize(int size)
+    {
+        if (size < 0)
+        {
+            throw new IllegalArgumentException(
+                    "Cache size must not be negative: " + size);
+        }
+        synchronized (expressionCache)
+        {
+            expressionCacheSize = size;
+            Iterator<String> it = expressionCache.keySet().iterator();
+            while (expressionCache.size() > size)
+            {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
     /**
      * Returns the logger used by this object.
      *
@@ -227,7 +297,7 @@ public class ExprLookup implements Lookup
         String result = substitutor.replace(var);
         try
         {
-            Expression exp = engine.createExpression(result);
+            Expression exp = fetchExpression(result);
             result = (String) exp.evaluate(createContext());
         }
         catch (Exception e)
@@ -272,29 +342,155 @@ public class ExprLookup implements Lookup
     }
 
     /**
-     * Creates a new {@code JexlContext} and initializes it with the variables
-     * managed by this Lookup object.
+     * Returns the compiled expression for the given expression text. The
+     * expression is obtained from the cache if possible; otherwise, it is
+     * parsed and added to the cache.
+     *
+     * @param text the expression text
+     * @return the compiled expression
+     */
+    private Expression fetchExpression(String text)
+    {
+        if (expressionCacheSize <= 0)
+        {
+            return engine.createExpression(text);
+        }
+
+        Expression exp;
+        synchronized (expressionCache)
+        {
+            exp = expressionCache.get(text);
+        }
+        if (exp == null)
+        {
+            exp = engine.createExpression(text);
+            synchronized (expressionCache)
+            {
+                expressionCache.put(text, exp);
+            }
+        }
+        return exp;
+    }
+
+    /**
+     * Returns the cache for compiled expressions. This method is used by
+     * tests.
+     *
+     * @return the expression cache
+     */
+    Map<String, Expression> getExpressionCache()
+    {
+        return expressionCache;
+    }
+
+    /**
+     * Creates a new {@code JexlContext} for the evaluation of an expression.
+     * The context reads the variables managed by this Lookup object;
+     * variables set by the expression are stored locally.
      *
      * @return the newly created context
      */
     private JexlContext createContext()
     {
-        JexlContext ctx = new MapContext();
-        initializeContext(ctx);
-        return ctx;
+        return new LookupContext(variables);
     }
 
     /**
-     * Initializes the specified context with the variables managed by this
-     * Lookup object.
+     * Creates the cache for compiled expressions. This is a map in access
+     * order which removes the least recently used expression if it grows
+     * beyond the configured size.
      *
-     * @param ctx the context to be initialized
+     * @return the expression cache
      */
-    private void initializeContext(JexlContext ctx)
+    private Map<String, Expression> createExpressionCache()
     {
-        for (Variable var : variables)
+        return new LinkedHashMap<String, Expression>(16, .75f, true)
+        {
+            /**
+             * The serial version UID.
+             */
+            private static final long serialVersionUID = 20160101L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, Expression> eldest)
+            {
+                return size() > expressionCacheSize;
+            }
+        };
+    }
+
+    /**
+     * A specialized {@code JexlContext} implementation used for the
+     * evaluation of expressions. The variables of the owning lookup are
+     * shared by all instances and never modified; their current values are
+     * queried when they are accessed. Variables assigned by an expression are
+     * stored in a map created on demand.
+     */
+    private static class LookupContext implements JexlContext
+    {
+        /** The shared variables of the lookup. */
+        private final Variables sharedVariables;
+
+        /** The variables set during the evaluation. */
+        private JexlContext localVariables;
+
+        /**
+         * Creates a new instance of {@code LookupContext}.
+         *
+         * @param vars the shared variables
+         */
+        public LookupContext(Variables vars)
+        {
+            sharedVariables = vars;
+        }
+
+        @Override
+        public Object get(String name)
         {
-            ctx.set(var.getName(), var.getValue());
+            if (localVariables != null && localVariables.has(name))
+            {
+                return localVariables.get(name);
+            }
+            Variable var = findVariable(name);
+            return (var != null) ? var.getValue() : null;
+        }
+
+        @Override
+        public void set(String name, Object value)
+        {
+            if (localVariables == null)
+            {
+                localVariables = new MapContext();
+            }
+            localVariables.set(name, value);
+        }
+
+        @Override
+        public boolean has(String name)
+        {
+            return (localVariables != null && localVariables.has(name))
+                    || findVariable(name) != null;
+        }
+
+        /**
+         * Searches for the shared variable with the given name. If there are
+         * multiple variables with this name, the last one wins.
+         *
+         * @param name the name of the variable
+         * @return the variable or <b>null</b> if it cannot be found
+         */
+        private Variable findVariable(String name)
+        {
+            for (int i = sharedVariables.size() - 1; i >= 0; i--)
+            {
+                Variable var = sharedVariables.get(i);
+                if (name.equals(var.getName()))
+                {
+                    return var;
+                }
+            }
+            return null;
         }
     }
 
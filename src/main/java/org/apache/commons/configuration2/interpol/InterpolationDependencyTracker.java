@@ -0,0 +1,531 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.interpol;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.commons.configuration2.event.ConfigurationEvent;
+import org.apache.commons.configuration2.event.EventListener;
+import org.apache.commons.configuration2.event.EventType;
+
+/**
+ * <p>
+ * A class which records the dependencies between properties that are
+ * discovered during interpolation.
+ * </p>
+ * <p>
+ * An instance is associated with a {@link ConfigurationInterpolator} using
+ * its {@link ConfigurationInterpolator#setDependencyTracker(InterpolationDependencyTracker)
+ * setDependencyTracker()} method. Whenever the interpolator resolves a
+ * variable while interpolating the value of a key (or the value of another
+ * variable), an edge from this key to the variable is recorded. So the
+ * tracker knows which keys reference which other keys, and - in the opposite
+ * direction - which keys are affected by a change of a given key.
+ * </p>
+ * <p>
+ * Because the tracker knows the chain of variables currently being resolved
+ * by a thread, it can detect cyclic references as soon as a variable is
+ * encountered a second time. The check only requires a scan over the current
+ * resolution chain, so its effort depends on the nesting depth only. A cycle
+ * causes an {@code IllegalStateException} which lists all variables involved.
+ * </p>
+ * <p>
+ * The tracker is also an event listener for configuration events. If it is
+ * registered at the configuration owning the interpolator, changes on a key
+ * cause the key and all keys depending on it - directly or transitively - to
+ * be invalidated. Components caching interpolated values can register an
+ * {@link InvalidationListener} to be notified about the keys affected by a
+ * change. For events which do not refer to a specific key, e.g. a
+ * {@code clear()} operation, all keys are invalidated. A typical setup looks
+ * as follows:
+ * </p>
+ *
+ * <pre>
+ * InterpolationDependencyTracker tracker = new InterpolationDependencyTracker();
+ * config.getInterpolator().setDependencyTracker(tracker);
+ * config.addEventListener(ConfigurationEvent.ANY, tracker);
+ * tracker.addInvalidationListener(myCache);
+ * </pre>
+ *
+ * <p>
+ * Implementation note: This class is thread-safe.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public class InterpolationDependencyTracker implements
+        EventListener<ConfigurationEvent>
+{
+    /** Constant for the separator of the elements of a resolution chain. */
+    private static final String CHAIN_SEPARATOR = " -> ";
+
+    /** The characters which can follow a key in a longer key. */
+    private static final String KEY_CONTINUATION = ".([";
+
+    /** Stores the variables referenced by keys. */
+    private final ConcurrentMap<String, Set<String>> dependencies;
+
+    /** Stores the keys referencing variables. */
+    private final ConcurrentMap<String, Set<String>> dependents;
+
+    /** Stores the chain of variables currently resolved by a thread. */
+    private final ThreadLocal<List<String>> resolutionChain;
+
+    /** The registered invalidation listeners. */
+    private final List<InvalidationListener> listeners;
+
+    /**
+     * Creates a new instance of {@code InterpolationDependencyTracker}.
+     */
+    public InterpolationDependencyTracker()
+    {
+        dependencies = new ConcurrentHashMap<String, Set<String>>();
+        dependents = new ConcurrentHashMap<String, Set<String>>();
+        resolutionChain = new ThreadLocal<List<String>>()
+        {
+            @Override
+            protected List<String> initialValue()
+            {
+                return new ArrayList<String>();
+            }
+        };
+        listeners = new CopyOnWriteArrayList<InvalidationListener>();
+    }
+
+    /**
+     * Adds a listener which is notified when keys are invalidated.
+     *
+     * @param listener the listener to be added (must not be <b>null</b>)
+     * @throws IllegalArgumentException if the listener is <b>null</b>
+     */
+    public void addInvalidationListener(InvalidationListener listener)
+    {
+        if (listener == null)
+        {
+            throw new IllegalArgumentException("Listener must not be null!");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes the specified invalidation listener.
+     *
+     * @param listener the listener to be removed
+     * @return a flag whether the listener was found
+     */
+    public boolean removeInvalidationListener(InvalidationListener listener)
+    {
+        return listeners.remove(listener);
+    }
+
+    /**
+     * Returns a set with the variables directly referenced by the given key.
+     *
+     * @param key the key
+     * @return a set with the variables referenced by this key
+     */
+    public Set<String> getDependencies(String key)
+    {
+        return snapshot(dependencies.get(key));
+    }
+
+    /**
+     * Returns a set with the keys directly referencing the given key.
+     *
+     * @param key the key
+     * @return a set with the keys referencing this key
+     */
+    public Set<String> getDependents(String key)
+    {
+        return snapshot(dependents.get(key));
+    }
+
+    /**
+     * Returns a set with all keys which depend directly or transitively on
+     * one of the given keys. The passed in keys are not contained in the
+     * result unless they depend on each other.
+     *
+     * @param keys the keys
+     * @return a set with all dependent keys
+     */
+    public Set<String> getTransitiveDependents(Collection<String> keys)
+    {
+        Set<String> result = new HashSet<String>();
+        LinkedList<String> pending = new LinkedList<String>(keys);
+        while (!pending.isEmpty())
+        {
+            Set<String> deps = dependents.get(pending.removeFirst());
+            if (deps != null)
+            {
+                for (String dep : deps)
+                {
+                    if (result.add(dep))
+                    {
+                        pending.add(dep);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a set with all keys affected by a change of the given keys.
+     * This includes the keys themselves, all known keys in their subtrees,
+     * and all keys depending on one of these keys directly or transitively.
+     * In contrast to {@link #invalidate(String)}, this method does not change
+     * the recorded dependencies.
+     *
+     * @param keys the changed keys
+     * @return a set with all affected keys
+     */
+    public Set<String> getAffectedKeys(Collection<String> keys)
+    {
+        Set<String> changed = new HashSet<String>();
+        for (String key : keys)
+        {
+            changed.addAll(findKeysInSubtree(key));
+        }
+        Set<String> affected = getTransitiveDependents(changed);
+        affected.addAll(changed);
+        return affected;
+    }
+
+    /**
+     * Invalidates the given key. The variables referenced by this key are
+     * forgotten because its value has changed; they are recorded again when
+     * the key is interpolated the next time. The registered listeners are
+     * notified about the key and all keys depending on it.
+     *
+     * @param key the key which has changed
+     * @return a set with all invalidated keys
+     */
+    public Set<String> invalidate(String key)
+    {
+        return invalidate(Collections.singleton(key));
+    }
+
+    /**
+     * Invalidates all dependency information. The registered listeners are
+     * notified with a <b>null</b> set of keys.
+     */
+    public void invalidateAll()
+    {
+        dependencies.clear();
+        dependents.clear();
+        for (InvalidationListener l : listeners)
+        {
+            l.keysInvalidated(null);
+        }
+    }
+
+    /**
+     * {@inheritDoc} This implementation invalidates the key affected by the
+     * change. For events on hierarchical structures, all keys in the subtree
+     * of the key are invalidated, too. If the event does not refer to a key,
+     * all keys are invalidated. Events sent before an update are ignored.
+     */
+    @Override
+    public void onEvent(ConfigurationEvent event)
+    {
+        if (event.isBeforeUpdate())
+        {
+            return;
+        }
+
+        String key = event.getPropertyName();
+        if (key == null)
+        {
+            invalidateAll();
+        }
+        else if (isPropertyEvent(event.getEventType()))
+        {
+            invalidate(key);
+        }
+        else
+        {
+            invalidate(findKeysInSubtree(key));
+        }
+    }
+
+    /**
+     * Notifies this object that the value of the given key is going to be
+     * interpolated outside of a {@link ConfigurationInterpolator}, e.g. by a
+     * type conversion performed when the key is read from a configuration.
+     * All variables resolved by the current thread until
+     * {@link #endInterpolation()} is called are recorded as dependencies of
+     * this key. Calls of these methods must be paired; they can be nested.
+     *
+     * @param key the key whose value is interpolated
+     * @throws IllegalStateException if a cyclic reference is detected
+     */
+    public void beginInterpolation(String key)
+    {
+        enterVariable(key);
+    }
+
+    /**
+     * Notifies this object that the interpolation of the value of a key
+     * started by {@link #beginInterpolation(String)} is complete.
+     */
+    public void endInterpolation()
+    {
+        exitVariable();
+    }
+
+    /**
+     * Notifies this object that the given variable is going to be resolved.
+     * The variable is added to the resolution chain of the current thread.
+     * If the chain is not empty, an edge from its last element to the
+     * variable is recorded. This method checks for cyclic references.
+     *
+     * @param variable the variable
+     * @throws IllegalStateException if a cyclic reference is detected
+     */
+    void enterVariable(String variable)
+    {
+        List<String> chain = resolutionChain.get();
+        int index = chain.indexOf(variable);
+        if (index >= 0)
+        {
+            StringBuilder buf = new StringBuilder();
+            for (int i = index; i < chain.size(); i++)
+            {
+                buf.append(chain.get(i)).append(CHAIN_SEPARATOR);
+            }
+            buf.append(variable);
+            chain.clear();
+            throw new IllegalStateException(
+                    "Cyclic reference in interpolation: " + buf);
+        }
+
+        if (!chain.isEmpty())
+        {
+            addDependency(chain.get(chain.size() - 1), variable);
+        }
+        chain.add(variable);
+    }
+
+    /**
+     * Notifies this object that the given variable has been resolved without
+     * further nesting. If the resolution chain of the current thread is not
+     * empty, an edge from its last element to the variable is recorded.
+     *
+     * @param variable the variable
+     */
+    void dependencyFound(String variable)
+    {
+        List<String> chain = resolutionChain.get();
+        if (!chain.isEmpty())
+        {
+            addDependency(chain.get(chain.size() - 1), variable);
+        }
+    }
+
+    /**
+     * Notifies this object that the resolution of the last variable in the
+     * resolution chain of the current thread is complete.
+     */
+    void exitVariable()
+    {
+        List<String> chain = resolutionChain.get();
+        if (!chain.isEmpty())
+        {
+            chain.remove(chain.size() - 1);
+        }
+    }
+
+    /**
+     * Invalidates the given keys and their dependents and notifies the
+     * listeners.
+     *
+     * @param keys the keys which have changed
+     * @return a set with all invalidated keys
+     */
+    private Set<String> invalidate(Collection<String> keys)
+    {
+        Set<String> affected = getTransitiveDependents(keys);
+        affected.addAll(keys);
+        for (String key : keys)
+        {
+            removeDependencies(key);
+        }
+
+        Set<String> result = Collections.unmodifiableSet(affected);
+        for (InvalidationListener l : listeners)
+        {
+            l.keysInvalidated(result);
+        }
+        return result;
+    }
+
+    /**
+     * Records a dependency from the given key to the given variable.
+     *
+     * @param key the key
+     * @param variable the variable referenced by the key
+     */
+    private void addDependency(String key, String variable)
+    {
+        fetchSet(dependencies, key).add(variable);
+        fetchSet(dependents, variable).add(key);
+    }
+
+    /**
+     * Removes all dependencies recorded for the given key.
+     *
+     * @param key the key
+     */
+    private void removeDependencies(String key)
+    {
+        Set<String> vars = dependencies.remove(key);
+        if (vars != null)
+        {
+            for (String var : vars)
+            {
+                Set<String> keys = dependents.get(var);
+                if (keys != null)
+                {
+                    keys.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a collection with the given key and all known keys in its
+     * subtree.
+     *
+     * @param key the key
+     * @return a collection with the keys affected by a change of this subtree
+     */
+    private Collection<String> findKeysInSubtree(String key)
+    {
+        Set<String> keys = new HashSet<String>();
+        keys.add(key);
+        addKeysInSubtree(keys, dependencies.keySet(), key);
+        addKeysInSubtree(keys, dependents.keySet(), key);
+        return keys;
+    }
+
+    /**
+     * Returns a set stored in the given map for a key. If there is none, it is
+     * created.
+     *
+     * @param map the map
+     * @param key the key
+     * @return the set for this key
+     */
+    private static Set<String> fetchSet(ConcurrentMap<String, Set<String>> map,
+            String key)
+    {
+        Set<String> set = map.get(key);
+        if (set == null)
+        {
+            Set<String> newSet =
+                    Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            set = map.putIfAbsent(key, newSet);
+            if (set == null)
+            {
+                set = newSet;
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Adds all keys of the given set which are located in the subtree of the
+     * given key to the target collection.
+     *
+     * @param target the target collection
+     * @param candidates the keys to be checked
+     * @param key the key of the subtree
+     */
+    private static void addKeysInSubtree(Set<String> target,
+            Set<String> candidates, String key)
+    {
+        for (String candidate : candidates)
+        {
+            if (candidate.length() > key.length()
+                    && candidate.startsWith(key)
+                    && KEY_CONTINUATION.indexOf(candidate.charAt(key.length())) >= 0)
+            {
+                target.add(candidate);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given event type refers to a single property.
+     *
+     * @param type the event type
+     * @return a flag whether this is a property event
+     */
+    private static boolean isPropertyEvent(EventType<?> type)
+    {
+        return ConfigurationEvent.ADD_PROPERTY.equals(type)
+                || ConfigurationEvent.SET_PROPERTY.equals(type)
+                || ConfigurationEvent.CLEAR_PROPERTY.equals(type);
+    }
+
+    /**
+     * Returns an unmodifiable copy of the given set.
+     *
+     * @param set the set (may be <b>null</b>)
+     * @return the copy
+     */
+    private static Set<String> snapshot(Set<String> set)
+    {
+        if (set == null)
+        {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(new HashSet<String>(set));
+    }
+
+    /**
+     * <p>
+     * Definition of an interface for objects which need to be notified when
+     * keys are invalidated.
+     * </p>
+     * <p>
+     * Typically, such objects cache interpolated values. When they are
+     * notified, they have to discard the values of the affected keys.
+     * </p>
+     */
+    public interface InvalidationListener
+    {
+        /**
+         * Notifies this object that the given keys have been invalidated. A
+         * value of <b>null</b> means that all keys are affected.
+         *
+         * @param keys an unmodifiable set with the invalidated keys or
+         *        <b>null</b>
+         */
+        void keysInvalidated(Set<String> keys);
+    }
+}
@@ -666,6 +666,7 @@ public class FileHandler
      */
     public boolean locate()
     {
+        long startTime = System.nanoTime();
         boolean result;
         boolean done;
 
@@ -688,6 +689,7 @@ public class FileHandler
             done = fileLocator.compareAndSet(locator, fullLocator);
         } while (!done);
 
+        recordPhase(LoadPhase.LOCATE, startTime);
         return result;
     }
 
@@ -790,7 +792,15 @@ public class FileHandler
     {
         checkContent();
         injectNullFileLocator();
-        loadFromReader(in);
+        long startTime = System.nanoTime();
+        try
+        {
+            loadFromReader(in);
+        }
+        finally
+        {
+            recordPhase(LoadPhase.PARSE, startTime);
+        }
     }
 
     /**
@@ -969,7 +979,9 @@ public class FileHandler
      */
     private void load(FileLocator locator) throws ConfigurationException
     {
+        long startTime = System.nanoTime();
         URL url = FileLocatorUtils.locateOrThrow(locator);
+        recordPhase(LoadPhase.LOCATE, startTime);
         load(url, locator);
     }
 
@@ -986,7 +998,9 @@ public class FileHandler
 
         try
         {
+            long startTime = System.nanoTime();
             in = FileLocatorUtils.obtainFileSystem(locator).getInputStream(url);
+            recordPhase(LoadPhase.READ, startTime);
             loadFromStream(in, locator.getEncoding(), url);
         }
         catch (ConfigurationException e)
@@ -1014,8 +1028,10 @@ public class FileHandler
     private void load(String fileName, FileLocator locator)
             throws ConfigurationException
     {
+        long startTime = System.nanoTime();
         FileLocator locFileName = createLocatorWithFileName(fileName, locator);
         URL url = FileLocatorUtils.locateOrThrow(locFileName);
+        recordPhase(LoadPhase.LOCATE, startTime);
         load(url, locator);
     }
 
@@ -1044,24 +1060,42 @@ public class FileHandler
             throws ConfigurationException
     {
         checkContent();
+        LoadStatistics stats = LoadStatistics.current();
+        MeasuringInputStream measuringStream = null;
+        InputStream stream = in;
+        if (stats != null)
+        {
+            measuringStream = new MeasuringInputStream(in);
+            stream = measuringStream;
+        }
+
         SynchronizerSupport syncSupport = fetchSynchronizerSupport();
         syncSupport.lock(LockMode.WRITE);
+        long startTime = System.nanoTime();
         try
         {
             injectFileLocator(url);
 
             if (getContent() instanceof InputStreamSupport)
             {
-                loadFromStreamDirectly(in);
+                loadFromStreamDirectly(stream);
             }
             else
             {
-                loadFromTransformedStream(in, encoding);
+                loadFromTransformedStream(stream, encoding);
             }
         }
         finally
         {
             syncSupport.unlock(LockMode.WRITE);
+            if (stats != null)
+            {
+                long readTime = measuringStream.getNanos();
+                stats.addPhaseNanos(LoadPhase.READ, readTime);
+                stats.addPhaseNanos(LoadPhase.PARSE, System.nanoTime()
+                        - startTime - readTime);
+                stats.addBytesRead(measuringStream.getBytes());
+            }
         }
     }
 
@@ -1143,6 +1177,22 @@ public class FileHandler
         }
     }
 
+    /**
+     * Records the duration of a load phase if statistics are collected for
+     * the current thread.
+     *
+     * @param phase the phase
+     * @param startTime the start time of the phase
+     */
+    private static void recordPhase(LoadPhase phase, long startTime)
+    {
+        LoadStatistics stats = LoadStatistics.current();
+        if (stats != null)
+        {
+            stats.addPhaseNanos(phase, System.nanoTime() - startTime);
+        }
+    }
+
     /**
      * Internal helper method for saving data to the internal location stored
      * for this object.
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.io;
+
+/**
+ * <p>
+ * An enumeration class for the phases of loading a configuration whose
+ * durations are recorded by {@link LoadStatistics}.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public enum LoadPhase
+{
+    /** The location of a configuration file is resolved. */
+    LOCATE,
+
+    /**
+     * Data is read from a source. This covers opening the source and the time
+     * spent in read operations on the input stream.
+     */
+    READ,
+
+    /**
+     * The data read is parsed and stored in the configuration. This is the
+     * time spent in the configuration's {@code read()} method minus the time
+     * for reading the input stream.
+     */
+    PARSE,
+
+    /**
+     * The node structure of a combined configuration is constructed from its
+     * child configurations.
+     */
+    COMBINE
+}
@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.io;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * A class collecting statistics about the creation of a configuration, e.g.
+ * by a configuration builder.
+ * </p>
+ * <p>
+ * Loading a configuration consists of multiple phases like locating the
+ * source file, reading, and parsing it. The components involved in these
+ * phases record their durations in the {@code LoadStatistics} object which is
+ * currently active for the current thread. Such an object is activated by
+ * {@link #start()} and deactivated by {@link #finish()}; so these methods
+ * define the scope of an operation to be measured. Scopes can be nested, for
+ * instance if a combined configuration builder creates its child
+ * configurations. In this case, the durations and the number of bytes read in
+ * a nested scope are added to the enclosing scope when the nested scope is
+ * finished. The number of nodes is not propagated; it refers to the
+ * configuration created in a scope.
+ * </p>
+ * <p>
+ * If no {@code LoadStatistics} object is active, {@link #current()} returns
+ * <b>null</b>, and components do not record anything. Instances of this class
+ * are not thread-safe; they are filled by a single thread. After
+ * {@code finish()} has been called, an instance is no longer changed and can
+ * be passed to other threads, e.g. as part of an event.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public class LoadStatistics
+{
+    /** Stores the active instance for the current thread. */
+    private static final ThreadLocal<LoadStatistics> CURRENT =
+            new ThreadLocal<LoadStatistics>();
+
+    /** The enclosing instance. */
+    private final LoadStatistics parent;
+
+    /** The durations of the single phases. */
+    private final long[] phaseNanos;
+
+    /** The start time. */
+    private final long startTime;
+
+    /** The total duration. */
+    private long totalNanos;
+
+    /** The number of bytes read. */
+    private long bytesRead;
+
+    /** The number of nodes of the created configuration. */
+    private long nodeCount;
+
+    /**
+     * Creates a new instance of {@code LoadStatistics}.
+     *
+     * @param parent the enclosing instance (may be <b>null</b>)
+     */
+    private LoadStatistics(LoadStatistics parent)
+    {
+        this.parent = parent;
+        phaseNanos = new long[LoadPhase.values().length];
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Creates a new {@code LoadStatistics} object and makes it the active
+     * instance for the current thread. A call of this method must be followed
+     * by a call of {@link #finish()} on the returned object, typically in a
+     * {@code finally} block.
+     *
+     * @return the new active instance
+     */
+    public static LoadStatistics start()
+    {
+        LoadStatistics stats = new LoadStatistics(CURRENT.get());
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * Returns the {@code LoadStatistics} object active for the current thread
+     * or <b>null</b> if there is none.
+     *
+     * @return the active instance or <b>null</b>
+     */
+    public static LoadStatistics current()
+    {
+        return CURRENT.get();
+    }
+
+    /**
+     * Finishes the collection of data in this object. The total duration is
+     * determined, the enclosing instance becomes active again, and the data
+     * of this object is added to it.
+     *
+     * @return this object
+     */
+    public LoadStatistics finish()
+    {
+        totalNanos = System.nanoTime() - startTime;
+        if (parent != null)
+        {
+            CURRENT.set(parent);
+            for (int i = 0; i < phaseNanos.length; i++)
+            {
+                parent.phaseNanos[i] += phaseNanos[i];
+            }
+            parent.bytesRead += bytesRead;
+        }
+        else
+        {
+            CURRENT.remove();
+        }
+        return this;
+    }
+
+    /**
+     * Adds the given duration to a phase.
+     *
+     * @param phase the phase
+     * @param nanos the duration in nanoseconds
+     */
+    public void addPhaseNanos(LoadPhase phase, long nanos)
+    {
+        phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * Adds the given number of bytes to the number of bytes read.
+     *
+     * @param bytes the number of bytes
+     */
+    public void addBytesRead(long bytes)
+    {
+        bytesRead += bytes;
+    }
+
+    /**
+     * Sets the number of nodes of the created configuration.
+     *
+     * @param count the number of nodes
+     */
+    public void setNodeCount(long count)
+    {
+        nodeCount = count;
+    }
+
+    /**
+     * Returns the duration of the given phase in nanoseconds.
+     *
+     * @param phase the phase
+     * @return the duration of this phase
+     */
+    public long getPhaseNanos(LoadPhase phase)
+    {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Returns a map with the durations of all phases in nanoseconds.
+     *
+     * @return a map with the durations of the phases
+     */
+    public Map<LoadPhase, Long> getPhaseTimes()
+    {
+        Map<LoadPhase, Long> times =
+                new EnumMap<LoadPhase, Long>(LoadPhase.class);
+        for (LoadPhase phase : LoadPhase.values())
+        {
+            times.put(phase, getPhaseNanos(phase));
+        }
+        return times;
+    }
+
+    /**
+     * Returns the total duration in nanoseconds between the calls of
+     * {@code start()} and {@code finish()}. This includes the times of all
+     * phases and the time of operations not assigned to a phase.
+     *
+     * @return the total duration
+     */
+    public long getTotalNanos()
+    {
+        return totalNanos;
+    }
+
+    /**
+     * Returns the number of bytes read.
+     *
+     * @return the number of bytes read
+     */
+    public long getBytesRead()
+    {
+        return bytesRead;
+    }
+
+    /**
+     * Returns the number of nodes of the created configuration. This is 0 for
+     * configurations which are not hierarchical.
+     *
+     * @return the number of nodes
+     */
+    public long getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    /**
+     * Returns a string representation of this object.
+     *
+     * @return a string for this object
+     */
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + " [totalNanos=" + totalNanos
+                + ", phases=" + getPhaseTimes() + ", bytesRead=" + bytesRead
+                + ", nodeCount=" + nodeCount + "]";
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <p>
+ * An internally used input stream which counts the bytes read from an
+ * underlying stream and measures the time spent in read operations.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+class MeasuringInputStream extends FilterInputStream
+{
+    /** The number of bytes read. */
+    private long bytes;
+
+    /** The time spent in read operations. */
+    private long nanos;
+
+    /**
+     * Creates a new instance of {@code MeasuringInputStream}.
+     *
+     * @param in the underlying stream
+     */
+    public MeasuringInputStream(InputStream in)
+    {
+        super(in);
+    }
+
+    /**
+     * Returns the number of bytes read so far.
+     *
+     * @return the number of bytes read
+     */
+    public long getBytes()
+    {
+        return bytes;
+    }
+
+    /**
+     * Returns the time in nanoseconds spent in read operations so far.
+     *
+     * @return the read time
+     */
+    public long getNanos()
+    {
+        return nanos;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        long start = System.nanoTime();
+        int c = super.read();
+        nanos += System.nanoTime() - start;
+        if (c >= 0)
+        {
+            bytes++;
+        }
+        return c;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        long start = System.nanoTime();
+        int count = super.read(b, off, len);
+        nanos += System.nanoTime() - start;
+        if (count > 0)
+        {
+            bytes += count;
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException
+    {
+        long start = System.nanoTime();
+        long count = super.skip(n);
+        nanos += System.nanoTime() - start;
+        return count;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.metrics;
+
+import org.apache.commons.configuration2.sync.LockMode;
+
+/**
+ * <p>
+ * Definition of an interface for objects collecting metrics about the usage of
+ * configurations.
+ * </p>
+ * <p>
+ * An object implementing this interface can be assigned to a configuration
+ * object (see
+ * {@link org.apache.commons.configuration2.AbstractConfiguration#setMetrics(ConfigurationMetrics)
+ * AbstractConfiguration.setMetrics()}). The configuration then invokes the
+ * methods defined here for the operations it performs. It is up to a concrete
+ * implementation what to do with this data; it may be aggregated, logged, or
+ * forwarded to a monitoring system.
+ * </p>
+ * <p>
+ * The methods of this interface are called directly in the course of
+ * configuration operations, typically by multiple threads at the same time.
+ * So implementations have to be thread-safe, and they should be fast. They
+ * must not access the configuration reporting to them; this could cause
+ * endless recursion or deadlocks. Exceptions thrown by an implementation are
+ * propagated to the caller of the configuration operation.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public interface ConfigurationMetrics
+{
+    /**
+     * Notifies this object that an operation on a configuration has been
+     * performed. The duration includes the time spent waiting for locks.
+     *
+     * @param operation the operation
+     * @param key the key affected by the operation (<b>null</b> for
+     *        {@code CLEAR})
+     * @param nanos the duration of the operation in nanoseconds
+     */
+    void operationPerformed(ConfigurationOperation operation, String key,
+            long nanos);
+
+    /**
+     * Notifies this object that the value of a property could not be converted
+     * to the requested data type.
+     *
+     * @param key the key of the property
+     * @param targetClass the target class of the conversion
+     */
+    void conversionFailed(String key, Class<?> targetClass);
+
+    /**
+     * Notifies this object that a {@code Lookup} object has been invoked to
+     * resolve a variable during interpolation. The prefix is <b>null</b> for
+     * the default lookups which are queried for variables without a (known)
+     * prefix.
+     *
+     * @param prefix the prefix of the lookup (can be <b>null</b>)
+     * @param found a flag whether the variable could be resolved
+     */
+    void lookupPerformed(String prefix, boolean found);
+
+    /**
+     * Notifies this object that a cache maintained by a configuration has
+     * been accessed.
+     *
+     * @param cacheName the name of the cache
+     * @param hit <b>true</b> if the requested data was found in the cache,
+     *        <b>false</b> if it had to be created
+     */
+    void cacheAccessed(String cacheName, boolean hit);
+
+    /**
+     * Notifies this object that an entry has been removed from a cache
+     * maintained by a configuration because the cache exceeded its bounds or
+     * the entry expired.
+     *
+     * @param cacheName the name of the cache
+     */
+    void cacheEntryEvicted(String cacheName);
+
+    /**
+     * Notifies this object that a lock has been obtained from the
+     * configuration's {@code Synchronizer}.
+     *
+     * @param mode the lock mode
+     * @param waitNanos the time in nanoseconds spent waiting for the lock
+     */
+    void lockAcquired(LockMode mode, long waitNanos);
+
+    /**
+     * Notifies this object that a lock has been released.
+     *
+     * @param mode the lock mode
+     * @param holdNanos the time in nanoseconds the lock has been held
+     */
+    void lockReleased(LockMode mode, long holdNanos);
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.metrics;
+
+/**
+ * <p>
+ * An enumeration class for the operations on a configuration (or its
+ * {@code ConfigurationInterpolator}) which are reported to a
+ * {@link ConfigurationMetrics} object.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public enum ConfigurationOperation
+{
+    /** The value of a property is queried. */
+    GET_PROPERTY,
+
+    /** A value is added to a property. */
+    ADD_PROPERTY,
+
+    /** The value of a property is set. */
+    SET_PROPERTY,
+
+    /** A property is removed. */
+    CLEAR_PROPERTY,
+
+    /** The whole configuration is cleared. */
+    CLEAR,
+
+    /**
+     * A variable is resolved by a {@code ConfigurationInterpolator}. The key
+     * reported for this operation is the name of the variable including its
+     * prefix.
+     */
+    RESOLVE_VARIABLE
+}
@@ -0,0 +1,465 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
+import org.apache.commons.configuration2.sync.LockMode;
+
+/**
+ * <p>
+ * A default implementation of the {@code ConfigurationMetrics} interface
+ * which aggregates the reported data in memory.
+ * </p>
+ * <p>
+ * This class maintains counters for all events reported to it. For operations
+ * and locks, the total and the maximum duration is recorded as well. All
+ * counters are updated atomically without blocking; so an instance can be
+ * shared by multiple configurations accessed concurrently. The data can be
+ * queried using the methods defined by the
+ * {@link DefaultConfigurationMetricsMXBean} interface. As this interface is an
+ * MXBean interface, an instance can be registered at an MBean server, e.g.
+ * </p>
+ *
+ * <pre>
+ * DefaultConfigurationMetrics metrics = new DefaultConfigurationMetrics();
+ * config.setMetrics(metrics);
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(metrics,
+ *         DefaultConfigurationMetrics.createObjectName(&quot;myConfig&quot;));
+ * </pre>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public class DefaultConfigurationMetrics implements ConfigurationMetrics,
+        DefaultConfigurationMetricsMXBean
+{
+    /** The domain of the object names created by this class. */
+    public static final String DOMAIN = "org.apache.commons.configuration2";
+
+    /** The key under which default lookups are recorded. */
+    private static final String DEFAULT_LOOKUP = "";
+
+    /** The statistics for the single operations. */
+    private final Map<ConfigurationOperation, Statistics> operations;
+
+    /** The statistics for lock wait times. */
+    private final Map<LockMode, Statistics> lockWaits;
+
+    /** The statistics for lock hold times. */
+    private final Map<LockMode, Statistics> lockHolds;
+
+    /** The conversion failures per target class. */
+    private final ConcurrentMap<String, AtomicLong> conversionFailures;
+
+    /** The lookups per prefix. */
+    private final ConcurrentMap<String, AtomicLong> lookups;
+
+    /** The unsuccessful lookups per prefix. */
+    private final ConcurrentMap<String, AtomicLong> lookupMisses;
+
+    /** The hits per cache. */
+    private final ConcurrentMap<String, AtomicLong> cacheHits;
+
+    /** The misses per cache. */
+    private final ConcurrentMap<String, AtomicLong> cacheMisses;
+
+    /** The evictions per cache. */
+    private final ConcurrentMap<String, AtomicLong> cacheEvictions;
+
+    /**
+     * Creates a new instance of {@code DefaultConfigurationMetrics}.
+     */
+    public DefaultConfigurationMetrics()
+    {
+        operations =
+                new EnumMap<ConfigurationOperation, Statistics>(
+                        ConfigurationOperation.class);
+        for (ConfigurationOperation op : ConfigurationOperation.values())
+        {
+            operations.put(op, new Statistics());
+        }
+        lockWaits = createLockStatistics();
+        lockHolds = createLockStatistics();
+        conversionFailures = new ConcurrentHashMap<String, AtomicLong>();
+        lookups = new ConcurrentHashMap<String, AtomicLong>();
+        lookupMisses = new ConcurrentHashMap<String, AtomicLong>();
+        cacheHits = new ConcurrentHashMap<String, AtomicLong>();
+        cacheMisses = new ConcurrentHashMap<String, AtomicLong>();
+        cacheEvictions = new ConcurrentHashMap<String, AtomicLong>();
+    }
+
+    /**
+     * Creates an {@code ObjectName} which can be used to register an instance
+     * at an MBean server. The name is in the domain of this library; it has
+     * the type {@code ConfigurationMetrics} and the passed in name.
+     *
+     * @param name the name of the instance (typically identifying the
+     *        configuration it belongs to)
+     * @return the {@code ObjectName}
+     * @throws IllegalArgumentException if the name is <b>null</b>
+     */
+    public static ObjectName createObjectName(String name)
+    {
+        if (name == null)
+        {
+            throw new IllegalArgumentException("Name must not be null!");
+        }
+        try
+        {
+            return new ObjectName(DOMAIN + ":type=ConfigurationMetrics,name="
+                    + ObjectName.quote(name));
+        }
+        catch (MalformedObjectNameException monex)
+        {
+            // should not happen because the name is quoted
+            throw new ConfigurationRuntimeException(monex);
+        }
+    }
+
+    @Override
+    public void operationPerformed(ConfigurationOperation operation,
+            String key, long nanos)
+    {
+        operations.get(operation).record(nanos);
+    }
+
+    @Override
+    public void conversionFailed(String key, Class<?> targetClass)
+    {
+        increment(conversionFailures, targetClass.getName());
+    }
+
+    @Override
+    public void lookupPerformed(String prefix, boolean found)
+    {
+        String name = (prefix != null) ? prefix : DEFAULT_LOOKUP;
+        increment(lookups, name);
+        if (!found)
+        {
+            increment(lookupMisses, name);
+        }
+    }
+
+    @Override
+    public void cacheAccessed(String cacheName, boolean hit)
+    {
+        increment(hit ? cacheHits : cacheMisses, cacheName);
+    }
+
+    @Override
+    public void cacheEntryEvicted(String cacheName)
+    {
+        increment(cacheEvictions, cacheName);
+    }
+
+    @Override
+    public void lockAcquired(LockMode mode, long waitNanos)
+    {
+        lockWaits.get(mode).record(waitNanos);
+    }
+
+    @Override
+    public void lockReleased(LockMode mode, long holdNanos)
+    {
+        lockHolds.get(mode).record(holdNanos);
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts()
+    {
+        return countSnapshot(operations);
+    }
+
+    @Override
+    public Map<String, Long> getOperationTotalNanos()
+    {
+        return totalSnapshot(operations);
+    }
+
+    @Override
+    public Map<String, Long> getOperationMaxNanos()
+    {
+        return maxSnapshot(operations);
+    }
+
+    @Override
+    public long getConversionFailures()
+    {
+        long sum = 0;
+        for (AtomicLong count : conversionFailures.values())
+        {
+            sum += count.get();
+        }
+        return sum;
+    }
+
+    @Override
+    public Map<String, Long> getConversionFailuresByType()
+    {
+        return snapshot(conversionFailures);
+    }
+
+    @Override
+    public Map<String, Long> getLookupCounts()
+    {
+        return snapshot(lookups);
+    }
+
+    @Override
+    public Map<String, Long> getLookupMisses()
+    {
+        return snapshot(lookupMisses);
+    }
+
+    @Override
+    public Map<String, Long> getCacheHits()
+    {
+        return snapshot(cacheHits);
+    }
+
+    @Override
+    public Map<String, Long> getCacheMisses()
+    {
+        return snapshot(cacheMisses);
+    }
+
+    @Override
+    public Map<String, Long> getCacheEvictions()
+    {
+        return snapshot(cacheEvictions);
+    }
+
+    @Override
+    public Map<String, Long> getLockCounts()
+    {
+        return countSnapshot(lockWaits);
+    }
+
+    @Override
+    public Map<String, Long> getLockWaitNanos()
+    {
+        return totalSnapshot(lockWaits);
+    }
+
+    @Override
+    public Map<String, Long> getMaxLockWaitNanos()
+    {
+        return maxSnapshot(lockWaits);
+    }
+
+    @Override
+    public Map<String, Long> getLockHoldNanos()
+    {
+        return totalSnapshot(lockHolds);
+    }
+
+    @Override
+    public Map<String, Long> getMaxLockHoldNanos()
+    {
+        return maxSnapshot(lockHolds);
+    }
+
+    /**
+     * {@inheritDoc} Note that events reported concurrently to a reset may or
+     * may not be taken into account.
+     */
+    @Override
+    public void reset()
+    {
+        resetStatistics(operations);
+        resetStatistics(lockWaits);
+        resetStatistics(lockHolds);
+        conversionFailures.clear();
+        lookups.clear();
+        lookupMisses.clear();
+        cacheHits.clear();
+        cacheMisses.clear();
+        cacheEvictions.clear();
+    }
+
+    /**
+     * Creates a map with statistics objects for all lock modes.
+     *
+     * @return the map with statistics
+     */
+    private static Map<LockMode, Statistics> createLockStatistics()
+    {
+        Map<LockMode, Statistics> stats =
+                new EnumMap<LockMode, Statistics>(LockMode.class);
+        for (LockMode mode : LockMode.values())
+        {
+            stats.put(mode, new Statistics());
+        }
+        return stats;
+    }
+
+    /**
+     * Increments the counter stored under the given name in the specified map.
+     * The counter is created if necessary.
+     *
+     * @param counters the map with counters
+     * @param name the name of the counter
+     */
+    private static void increment(ConcurrentMap<String, AtomicLong> counters,
+            String name)
+    {
+        AtomicLong count = counters.get(name);
+        if (count == null)
+        {
+            AtomicLong newCount = new AtomicLong();
+            count = counters.putIfAbsent(name, newCount);
+            if (count == null)
+            {
+                count = newCount;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * Creates a snapshot of the given map with counters.
+     *
+     * @param counters the map with counters
+     * @return a map with the current values of the counters
+     */
+    private static Map<String, Long> snapshot(
+            Map<String, AtomicLong> counters)
+    {
+        Map<String, Long> result = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> e : counters.entrySet())
+        {
+            result.put(e.getKey(), e.getValue().get());
+        }
+        return result;
+    }
+
+    /**
+     * Creates a snapshot with the counts of the given statistics.
+     *
+     * @param stats the map with statistics
+     * @return a map with the current counts
+     */
+    private static Map<String, Long> countSnapshot(
+            Map<? extends Enum<?>, Statistics> stats)
+    {
+        Map<String, Long> result = new TreeMap<String, Long>();
+        for (Map.Entry<? extends Enum<?>, Statistics> e : stats.entrySet())
+        {
+            result.put(e.getKey().name(), e.getValue().count.get());
+        }
+        return result;
+    }
+
+    /**
+     * Creates a snapshot with the total durations of the given statistics.
+     *
+     * @param stats the map with statistics
+     * @return a map with the current total durations
+     */
+    private static Map<String, Long> totalSnapshot(
+            Map<? extends Enum<?>, Statistics> stats)
+    {
+        Map<String, Long> result = new TreeMap<String, Long>();
+        for (Map.Entry<? extends Enum<?>, Statistics> e : stats.entrySet())
+        {
+            result.put(e.getKey().name(), e.getValue().total.get());
+        }
+        return result;
+    }
+
+    /**
+     * Creates a snapshot with the maximum durations of the given statistics.
+     *
+     * @param stats the map with statistics
+     * @return a map with the current maximum durations
+     */
+    private static Map<String, Long> maxSnapshot(
+            Map<? extends Enum<?>, Statistics> stats)
+    {
+        Map<String, Long> result = new TreeMap<String, Long>();
+        for (Map.Entry<? extends Enum<?>, Statistics> e : stats.entrySet())
+        {
+            result.put(e.getKey().name(), e.getValue().max.get());
+        }
+        return result;
+    }
+
+    /**
+     * Resets all statistics objects contained in the given map.
+     *
+     * @param stats the map with statistics
+     */
+    private static void resetStatistics(Map<?, Statistics> stats)
+    {
+        for (Statistics s : stats.values())
+        {
+            s.reset();
+        }
+    }
+
+    /**
+     * A simple class storing the number, the total duration, and the maximum
+     * duration of events of a specific type.
+     */
+    private static class Statistics
+    {
+        /** The number of events. */
+        final AtomicLong count = new AtomicLong();
+
+        /** The total duration. */
+        final AtomicLong total = new AtomicLong();
+
+        /** The maximum duration. */
+        final AtomicLong max = new AtomicLong();
+
+        /**
+         * Records an event with the given duration.
+         *
+         * @param nanos the duration
+         */
+        public void record(long nanos)
+        {
+            count.incrementAndGet();
+            total.addAndGet(nanos);
+            long current = max.get();
+            while (nanos > current && !max.compareAndSet(current, nanos))
+            {
+                current = max.get();
+            }
+        }
+
+        /**
+         * Resets all values.
+         */
+        public void reset()
+        {
+            count.set(0);
+            total.set(0);
+            max.set(0);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.metrics;
+
+import java.util.Map;
+
+/**
+ * <p>
+ * The management interface of {@link DefaultConfigurationMetrics}.
+ * </p>
+ * <p>
+ * This interface follows the conventions of an MXBean. So the data collected
+ * by a {@code DefaultConfigurationMetrics} object can be inspected with
+ * standard JMX tools once it has been registered at an MBean server. Most
+ * properties are maps; their keys are the names of the operations, lookup
+ * prefixes, caches, or lock modes the values belong to. Durations are in
+ * nanoseconds.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public interface DefaultConfigurationMetricsMXBean
+{
+    /**
+     * Returns a map with the number of calls per configuration operation.
+     *
+     * @return the number of calls per operation
+     */
+    Map<String, Long> getOperationCounts();
+
+    /**
+     * Returns a map with the accumulated duration of the calls per
+     * configuration operation.
+     *
+     * @return the total duration per operation
+     */
+    Map<String, Long> getOperationTotalNanos();
+
+    /**
+     * Returns a map with the maximum duration of a single call per
+     * configuration operation.
+     *
+     * @return the maximum duration per operation
+     */
+    Map<String, Long> getOperationMaxNanos();
+
+    /**
+     * Returns the total number of failed data type conversions.
+     *
+     * @return the number of conversion failures
+     */
+    long getConversionFailures();
+
+    /**
+     * Returns a map with the number of failed data type conversions per
+     * target class.
+     *
+     * @return the number of conversion failures per target class
+     */
+    Map<String, Long> getConversionFailuresByType();
+
+    /**
+     * Returns a map with the number of variable lookups per prefix. The
+     * default lookups are represented by an empty string.
+     *
+     * @return the number of lookups per prefix
+     */
+    Map<String, Long> getLookupCounts();
+
+    /**
+     * Returns a map with the number of variable lookups per prefix which did
+     * not find a value.
+     *
+     * @return the number of unsuccessful lookups per prefix
+     */
+    Map<String, Long> getLookupMisses();
+
+    /**
+     * Returns a map with the number of hits per cache.
+     *
+     * @return the number of hits per cache
+     */
+    Map<String, Long> getCacheHits();
+
+    /**
+     * Returns a map with the number of misses per cache.
+     *
+     * @return the number of misses per cache
+     */
+    Map<String, Long> getCacheMisses();
+
+    /**
+     * Returns a map with the number of evicted entries per cache.
+     *
+     * @return the number of evictions per cache
+     */
+    Map<String, Long> getCacheEvictions();
+
+    /**
+     * Returns a map with the number of acquired locks per lock mode.
+     *
+     * @return the number of locks per mode
+     */
+    Map<String, Long> getLockCounts();
+
+    /**
+     * Returns a map with the accumulated time spent waiting for locks per
+     * lock mode.
+     *
+     * @return the total wait time per mode
+     */
+    Map<String, Long> getLockWaitNanos();
+
+    /**
+     * Returns a map with the maximum time spent waiting for a single lock per
+     * lock mode.
+     *
+     * @return the maximum wait time per mode
+     */
+    Map<String, Long> getMaxLockWaitNanos();
+
+    /**
+     * Returns a map with the accumulated time locks have been held per lock
+     * mode.
+     *
+     * @return the total hold time per mode
+     */
+    Map<String, Long> getLockHoldNanos();
+
+    /**
+     * Returns a map with the maximum time a single lock has been held per
+     * lock mode.
+     *
+     * @return the maximum hold time per mode
+     */
+    Map<String, Long> getMaxLockHoldNanos();
+
+    /**
+     * Resets all data collected so far.
+     */
+    void reset();
+}
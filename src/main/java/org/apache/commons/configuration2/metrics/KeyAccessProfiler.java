@@ -0,0 +1,386 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.metrics;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.configuration2.sync.LockMode;
+
+/**
+ * <p>
+ * A {@code ConfigurationMetrics} implementation which determines the keys
+ * accessed most frequently.
+ * </p>
+ * <p>
+ * An instance of this class can be set as metrics object of a configuration
+ * to find out which properties are read most often (via
+ * {@code getProperty()} or one of the typed getter methods) and which
+ * variables are resolved most often during interpolation. Such keys are good
+ * candidates for being cached by the application. For each key, the number of
+ * accesses and their cumulative duration are recorded. Other events reported
+ * to a {@code ConfigurationMetrics} object are ignored.
+ * </p>
+ * <p>
+ * Memory consumption is bounded: The number of tracked keys is limited by the
+ * capacity passed to the constructor. The counts are estimated using the
+ * space-saving algorithm; so the reported values for keys which have not been
+ * tracked from the beginning may be too high, the maximum error is reported
+ * as well. To reduce contention, keys are distributed over multiple
+ * independently synchronized sketches. In addition, a sample interval can be
+ * set; then only every n-th access of a thread is recorded (with a
+ * correspondingly increased weight).
+ * </p>
+ * <p>
+ * The results can be obtained programmatically, as a textual report via the
+ * {@code dump()} methods, or via JMX as this class implements an MXBean
+ * interface.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public class KeyAccessProfiler implements ConfigurationMetrics,
+        KeyAccessProfilerMXBean
+{
+    /** The default number of tracked keys. */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /** The default number of keys contained in reports. */
+    public static final int DEFAULT_REPORT_SIZE = 20;
+
+    /** The number of stripes (must be a power of 2). */
+    private static final int STRIPES = 8;
+
+    /** The format for a line of the textual report. */
+    private static final String REPORT_FORMAT = "%-50s %12s %12s %16s%n";
+
+    /** The sketches for property keys. */
+    private final SpaceSavingSketch[] keySketches;
+
+    /** The sketches for variables. */
+    private final SpaceSavingSketch[] variableSketches;
+
+    /** The sample interval. */
+    private final int sampleInterval;
+
+    /** The per-thread counters for sampling. */
+    private final ThreadLocal<int[]> sampleCounters;
+
+    /** The number of keys in reports. */
+    private volatile int reportSize;
+
+    /**
+     * Creates a new instance of {@code KeyAccessProfiler} with default
+     * settings. All accesses are recorded.
+     */
+    public KeyAccessProfiler()
+    {
+        this(DEFAULT_CAPACITY, 1);
+    }
+
+    /**
+     * Creates a new instance of {@code KeyAccessProfiler} with the given
+     * capacity and sample interval.
+     *
+     * @param capacity the maximum number of tracked property keys (the same
+     *        number of variables is tracked, too)
+     * @param sampleInterval the sample interval; a value of <em>n</em> means
+     *        that only every n-th access of a thread is recorded
+     * @throws IllegalArgumentException if a parameter is not positive
+     */
+    public KeyAccessProfiler(int capacity, int sampleInterval)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException(
+                    "Capacity must be positive: " + capacity);
+        }
+        if (sampleInterval <= 0)
+        {
+            throw new IllegalArgumentException(
+                    "Sample interval must be positive: " + sampleInterval);
+        }
+
+        keySketches = createSketches(capacity);
+        variableSketches = createSketches(capacity);
+        this.sampleInterval = sampleInterval;
+        sampleCounters = new ThreadLocal<int[]>()
+        {
+            @Override
+            protected int[] initialValue()
+            {
+                return new int[1];
+            }
+        };
+        reportSize = DEFAULT_REPORT_SIZE;
+    }
+
+    /**
+     * Returns the sample interval of this profiler.
+     *
+     * @return the sample interval
+     */
+    public int getSampleInterval()
+    {
+        return sampleInterval;
+    }
+
+    /**
+     * {@inheritDoc} This implementation records the accesses to properties and
+     * the resolution of variables.
+     */
+    @Override
+    public void operationPerformed(ConfigurationOperation operation,
+            String key, long nanos)
+    {
+        if (key == null)
+        {
+            return;
+        }
+        if (operation == ConfigurationOperation.GET_PROPERTY)
+        {
+            record(keySketches, key, nanos);
+        }
+        else if (operation == ConfigurationOperation.RESOLVE_VARIABLE)
+        {
+            record(variableSketches, key, nanos);
+        }
+    }
+
+    /**
+     * {@inheritDoc} This event is ignored.
+     */
+    @Override
+    public void conversionFailed(String key, Class<?> targetClass)
+    {
+    }
+
+    /**
+     * {@inheritDoc} This event is ignored.
+     */
+    @Override
+    public void lookupPerformed(String prefix, boolean found)
+    {
+    }
+
+    /**
+     * {@inheritDoc} This event is ignored.
+     */
+    @Override
+    public void cacheAccessed(String cacheName, boolean hit)
+    {
+    }
+
+    /**
+     * {@inheritDoc} This event is ignored.
+     */
+    @Override
+    public void cacheEntryEvicted(String cacheName)
+    {
+    }
+
+    /**
+     * {@inheritDoc} This event is ignored.
+     */
+    @Override
+    public void lockAcquired(LockMode mode, long waitNanos)
+    {
+    }
+
+    /**
+     * {@inheritDoc} This event is ignored.
+     */
+    @Override
+    public void lockReleased(LockMode mode, long holdNanos)
+    {
+    }
+
+    @Override
+    public List<KeyAccessStatistics> getTopKeys()
+    {
+        return topKeys(getReportSize());
+    }
+
+    @Override
+    public List<KeyAccessStatistics> getTopVariables()
+    {
+        return topVariables(getReportSize());
+    }
+
+    @Override
+    public List<KeyAccessStatistics> topKeys(int n)
+    {
+        return top(keySketches, n);
+    }
+
+    @Override
+    public List<KeyAccessStatistics> topVariables(int n)
+    {
+        return top(variableSketches, n);
+    }
+
+    @Override
+    public int getReportSize()
+    {
+        return reportSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    @Override
+    public void setReportSize(int size)
+    {
+        if (size <= 0)
+        {
+            throw new IllegalArgumentException(
+                    "Report size must be positive: " + size);
+        }
+        reportSize = size;
+    }
+
+    @Override
+    public String dump()
+    {
+        StringWriter out = new StringWriter();
+        dump(new PrintWriter(out));
+        return out.toString();
+    }
+
+    /**
+     * Writes a textual report with the most frequently accessed keys and
+     * variables to the given writer. The report contains tables with the
+     * number of entries defined by the report size.
+     *
+     * @param out the target writer
+     */
+    public void dump(PrintWriter out)
+    {
+        dumpTable(out, "Property keys", getTopKeys());
+        out.println();
+        dumpTable(out, "Variables", getTopVariables());
+        out.flush();
+    }
+
+    @Override
+    public void reset()
+    {
+        for (int i = 0; i < STRIPES; i++)
+        {
+            keySketches[i].clear();
+            variableSketches[i].clear();
+        }
+    }
+
+    /**
+     * Records an access to the given key if it is selected by sampling.
+     *
+     * @param sketches the sketches to be updated
+     * @param key the key
+     * @param nanos the duration of the access
+     */
+    private void record(SpaceSavingSketch[] sketches, String key, long nanos)
+    {
+        if (sampleInterval > 1)
+        {
+            int[] counter = sampleCounters.get();
+            if (++counter[0] < sampleInterval)
+            {
+                return;
+            }
+            counter[0] = 0;
+        }
+        sketches[stripe(key)].add(key, sampleInterval, nanos * sampleInterval);
+    }
+
+    /**
+     * Creates the sketches for the given total capacity.
+     *
+     * @param capacity the total capacity
+     * @return the array with the sketches
+     */
+    private static SpaceSavingSketch[] createSketches(int capacity)
+    {
+        int stripeCapacity = (capacity + STRIPES - 1) / STRIPES;
+        SpaceSavingSketch[] sketches = new SpaceSavingSketch[STRIPES];
+        for (int i = 0; i < STRIPES; i++)
+        {
+            sketches[i] = new SpaceSavingSketch(stripeCapacity);
+        }
+        return sketches;
+    }
+
+    /**
+     * Determines the index of the sketch responsible for the given key.
+     *
+     * @param key the key
+     * @return the index of the sketch
+     */
+    private static int stripe(String key)
+    {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return h & (STRIPES - 1);
+    }
+
+    /**
+     * Merges the top keys of the given sketches. As keys are distributed over
+     * the sketches by their hash codes, each key is contained in at most one
+     * sketch.
+     *
+     * @param sketches the sketches
+     * @param n the maximum number of keys
+     * @return a list with the statistics of the top keys
+     */
+    private static List<KeyAccessStatistics> top(
+            SpaceSavingSketch[] sketches, int n)
+    {
+        List<KeyAccessStatistics> result = new ArrayList<KeyAccessStatistics>();
+        for (SpaceSavingSketch sketch : sketches)
+        {
+            result.addAll(sketch.top(n));
+        }
+        Collections.sort(result, SpaceSavingSketch.COUNT_COMPARATOR);
+        return (result.size() > n) ? new ArrayList<KeyAccessStatistics>(
+                result.subList(0, n)) : result;
+    }
+
+    /**
+     * Writes a table with statistics to the given writer.
+     *
+     * @param out the target writer
+     * @param title the title of the table
+     * @param stats the statistics to be written
+     */
+    private static void dumpTable(PrintWriter out, String title,
+            List<KeyAccessStatistics> stats)
+    {
+        out.println(title);
+        out.printf(REPORT_FORMAT, "Key", "Count", "Error", "Total nanos");
+        for (KeyAccessStatistics s : stats)
+        {
+            out.printf(REPORT_FORMAT, s.getKey(), s.getCount(), s.getError(),
+                    s.getTotalNanos());
+        }
+    }
+}
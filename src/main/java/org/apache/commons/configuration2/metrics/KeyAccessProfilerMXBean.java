@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.metrics;
+
+import java.util.List;
+
+/**
+ * <p>
+ * The management interface of {@link KeyAccessProfiler}.
+ * </p>
+ * <p>
+ * This interface follows the conventions of an MXBean. It provides access to
+ * the keys and variables accessed most frequently.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public interface KeyAccessProfilerMXBean
+{
+    /**
+     * Returns the statistics of the most frequently read property keys. The
+     * number of keys is determined by the report size of the profiler.
+     *
+     * @return a list with the statistics of the top keys
+     */
+    List<KeyAccessStatistics> getTopKeys();
+
+    /**
+     * Returns the statistics of the most frequently resolved variables. The
+     * number of variables is determined by the report size of the profiler.
+     *
+     * @return a list with the statistics of the top variables
+     */
+    List<KeyAccessStatistics> getTopVariables();
+
+    /**
+     * Returns the statistics of the given number of most frequently read
+     * property keys.
+     *
+     * @param n the maximum number of keys
+     * @return a list with the statistics of the top keys
+     */
+    List<KeyAccessStatistics> topKeys(int n);
+
+    /**
+     * Returns the statistics of the given number of most frequently resolved
+     * variables.
+     *
+     * @param n the maximum number of variables
+     * @return a list with the statistics of the top variables
+     */
+    List<KeyAccessStatistics> topVariables(int n);
+
+    /**
+     * Returns the number of keys contained in the reports of the profiler.
+     *
+     * @return the report size
+     */
+    int getReportSize();
+
+    /**
+     * Sets the number of keys contained in the reports of the profiler.
+     *
+     * @param size the report size
+     */
+    void setReportSize(int size);
+
+    /**
+     * Returns a textual report with the most frequently accessed keys and
+     * variables.
+     *
+     * @return the report
+     */
+    String dump();
+
+    /**
+     * Removes all data collected so far.
+     */
+    void reset();
+}
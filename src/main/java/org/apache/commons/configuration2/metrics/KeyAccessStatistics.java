@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * <p>
+ * A class storing the access statistics of a single key as determined by a
+ * {@link KeyAccessProfiler}.
+ * </p>
+ * <p>
+ * The profiler estimates the number of accesses per key with bounded memory.
+ * The values stored in an instance can therefore be too high; the maximum
+ * overestimation is available via {@link #getError()}. So the number of
+ * accesses is guaranteed to be in the range from
+ * {@code getCount() - getError()} to {@code getCount()}. Instances of this
+ * class are immutable.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public class KeyAccessStatistics
+{
+    /** The key. */
+    private final String key;
+
+    /** The estimated number of accesses. */
+    private final long count;
+
+    /** The maximum overestimation of the count. */
+    private final long error;
+
+    /** The cumulative duration of the accesses. */
+    private final long totalNanos;
+
+    /**
+     * Creates a new instance of {@code KeyAccessStatistics}.
+     *
+     * @param key the key
+     * @param count the estimated number of accesses
+     * @param error the maximum overestimation of the count
+     * @param totalNanos the cumulative duration of the accesses in nanoseconds
+     */
+    @ConstructorProperties({ "key", "count", "error", "totalNanos" })
+    public KeyAccessStatistics(String key, long count, long error,
+            long totalNanos)
+    {
+        this.key = key;
+        this.count = count;
+        this.error = error;
+        this.totalNanos = totalNanos;
+    }
+
+    /**
+     * Returns the key these statistics belong to.
+     *
+     * @return the key
+     */
+    public String getKey()
+    {
+        return key;
+    }
+
+    /**
+     * Returns the estimated number of accesses to the key.
+     *
+     * @return the number of accesses
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the maximum overestimation of the number of accesses. This is 0
+     * if the key has been tracked since the profiler was started or reset.
+     *
+     * @return the maximum error of the count
+     */
+    public long getError()
+    {
+        return error;
+    }
+
+    /**
+     * Returns the cumulative duration of the accesses to the key in
+     * nanoseconds. The duration of accesses which happened before the key was
+     * tracked is not contained.
+     *
+     * @return the total duration of the accesses
+     */
+    public long getTotalNanos()
+    {
+        return totalNanos;
+    }
+
+    /**
+     * Returns a string representation of this object.
+     *
+     * @return a string for this object
+     */
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + " [key=" + key + ", count="
+                + count + ", error=" + error + ", totalNanos=" + totalNanos
+                + "]";
+    }
+}
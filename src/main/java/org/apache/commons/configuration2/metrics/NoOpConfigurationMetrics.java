@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.metrics;
+
+import org.apache.commons.configuration2.sync.LockMode;
+
+/**
+ * <p>
+ * An implementation of the {@code ConfigurationMetrics} interface which does
+ * nothing.
+ * </p>
+ * <p>
+ * This is the default implementation used by configurations for which no
+ * metrics have been set. All methods are empty.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public enum NoOpConfigurationMetrics implements ConfigurationMetrics
+{
+    /** The single shared instance of this class. */
+    INSTANCE;
+
+    @Override
+    public void operationPerformed(ConfigurationOperation operation,
+            String key, long nanos)
+    {
+    }
+
+    @Override
+    public void conversionFailed(String key, Class<?> targetClass)
+    {
+    }
+
+    @Override
+    public void lookupPerformed(String prefix, boolean found)
+    {
+    }
+
+    @Override
+    public void cacheAccessed(String cacheName, boolean hit)
+    {
+    }
+
+    /**
+     * {@inheritDoc} This event is ignored.
+     */
+    @Override
+    public void cacheEntryEvicted(String cacheName)
+    {
+    }
+
+    @Override
+    public void lockAcquired(LockMode mode, long waitNanos)
+    {
+    }
+
+    @Override
+    public void lockReleased(LockMode mode, long holdNanos)
+    {
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * An internally used helper class implementing the <em>space-saving</em>
+ * algorithm for finding the most frequent keys in a stream of accesses.
+ * </p>
+ * <p>
+ * The sketch tracks at most a fixed number of keys. If a key is reported
+ * which is not tracked and the capacity is reached, the key with the lowest
+ * count is replaced by the new one; the new key inherits the count of the
+ * replaced key, which is also recorded as the maximum error of the new count.
+ * This guarantees that all keys accessed more often than the total number of
+ * accesses divided by the capacity are tracked.
+ * </p>
+ * <p>
+ * Implementation note: This class is thread-safe; all methods are
+ * synchronized.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+class SpaceSavingSketch
+{
+    /** A comparator which orders statistics by descending counts. */
+    static final Comparator<KeyAccessStatistics> COUNT_COMPARATOR =
+            new Comparator<KeyAccessStatistics>()
+            {
+                @Override
+                public int compare(KeyAccessStatistics s1,
+                        KeyAccessStatistics s2)
+                {
+                    if (s1.getCount() != s2.getCount())
+                    {
+                        return (s1.getCount() > s2.getCount()) ? -1 : 1;
+                    }
+                    return s1.getKey().compareTo(s2.getKey());
+                }
+            };
+
+    /** The maximum number of tracked keys. */
+    private final int capacity;
+
+    /** The counters for the tracked keys. */
+    private final Map<String, Counter> counters;
+
+    /**
+     * Creates a new instance of {@code SpaceSavingSketch}.
+     *
+     * @param capacity the maximum number of tracked keys
+     */
+    public SpaceSavingSketch(int capacity)
+    {
+        this.capacity = capacity;
+        counters = new HashMap<String, Counter>();
+    }
+
+    /**
+     * Records accesses to the given key.
+     *
+     * @param key the key
+     * @param weight the number of accesses to record
+     * @param nanos the duration of the accesses
+     */
+    public synchronized void add(String key, long weight, long nanos)
+    {
+        Counter counter = counters.get(key);
+        if (counter == null)
+        {
+            counter = new Counter();
+            if (counters.size() >= capacity)
+            {
+                Map.Entry<String, Counter> min = findMinimum();
+                counters.remove(min.getKey());
+                counter.count = min.getValue().count;
+                counter.error = min.getValue().count;
+            }
+            counters.put(key, counter);
+        }
+        counter.count += weight;
+        counter.nanos += nanos;
+    }
+
+    /**
+     * Returns a list with the statistics of the tracked keys with the highest
+     * counts in descending order.
+     *
+     * @param n the maximum number of keys to return
+     * @return a list with the statistics of the top keys
+     */
+    public synchronized List<KeyAccessStatistics> top(int n)
+    {
+        List<KeyAccessStatistics> result =
+                new ArrayList<KeyAccessStatistics>(counters.size());
+        for (Map.Entry<String, Counter> e : counters.entrySet())
+        {
+            Counter c = e.getValue();
+            result.add(new KeyAccessStatistics(e.getKey(), c.count, c.error,
+                    c.nanos));
+        }
+        Collections.sort(result, COUNT_COMPARATOR);
+        return (result.size() > n) ? new ArrayList<KeyAccessStatistics>(
+                result.subList(0, n)) : result;
+    }
+
+    /**
+     * Removes all tracked keys.
+     */
+    public synchronized void clear()
+    {
+        counters.clear();
+    }
+
+    /**
+     * Finds the entry with the lowest count. This is a linear search; the
+     * number of tracked keys is expected to be small.
+     *
+     * @return the entry with the lowest count
+     */
+    private Map.Entry<String, Counter> findMinimum()
+    {
+        Map.Entry<String, Counter> min = null;
+        for (Map.Entry<String, Counter> e : counters.entrySet())
+        {
+            if (min == null || e.getValue().count < min.getValue().count)
+            {
+                min = e;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * A mutable counter for a tracked key.
+     */
+    private static class Counter
+    {
+        /** The estimated count. */
+        long count;
+
+        /** The maximum overestimation of the count. */
+        long error;
+
+        /** The cumulative duration. */
+        long nanos;
+    }
+}
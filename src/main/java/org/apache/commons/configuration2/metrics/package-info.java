@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * <p>
+ * A package with an SPI for collecting metrics about the usage of
+ * configuration objects.
+ * </p>
+ * <p>
+ * A {@link org.apache.commons.configuration2.metrics.ConfigurationMetrics
+ * ConfigurationMetrics} object can be assigned to a configuration. It is then
+ * notified about basic operations like reading or updating properties, failed
+ * data type conversions, variable lookups, cache accesses, and locks obtained
+ * from the configuration's {@code Synchronizer}. Per default, no metrics are
+ * collected, and there is no overhead. This package also contains a default
+ * implementation which aggregates the data and can be registered as an MBean.
+ * </p>
+ *
+ * @version $Id$
+ */
+package org.apache.commons.configuration2.metrics;
@@ -0,0 +1,382 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.sync;
+
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * A {@code Synchronizer} implementation which decorates another
+ * {@code Synchronizer} and collects statistics about the locks obtained from
+ * it.
+ * </p>
+ * <p>
+ * This class can be wrapped around an arbitrary {@code Synchronizer}, e.g. a
+ * {@link ReadWriteSynchronizer}, and then be set for a configuration instead
+ * of the original object. All calls are delegated. In addition, the times
+ * threads wait for locks and the times they hold them are recorded in
+ * separate histograms for read and write locks. This allows analyzing how
+ * long readers are blocked during reloads or bulk updates.
+ * </p>
+ * <p>
+ * As the {@code Synchronizer} interface does not tell whether a thread had
+ * to block, an acquisition is considered <em>contended</em> if the wait time
+ * exceeds a threshold which can be passed to the constructor. The longest
+ * time a write lock has been held is recorded together with the name of the
+ * thread which held it.
+ * </p>
+ * <p>
+ * Hold times are determined by storing the acquisition times of the locks of
+ * a thread on a thread-local stack. This works with reentrant locks as long
+ * as locks are released in reverse order of their acquisition, which is the
+ * case for configurations. The statistics can be accessed via JMX because this
+ * class implements an MXBean interface. Derived classes can process the
+ * measured times in a different way by overriding the
+ * {@link #lockAcquired(LockMode, long)} and
+ * {@link #lockReleased(LockMode, long)} methods.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public class InstrumentedSynchronizer implements Synchronizer,
+        InstrumentedSynchronizerMXBean
+{
+    /** The default contention threshold in nanoseconds. */
+    public static final long DEFAULT_CONTENTION_THRESHOLD_NANOS = 50000;
+
+    /** The wrapped synchronizer. */
+    private final Synchronizer synchronizer;
+
+    /** The contention threshold. */
+    private final long contentionThreshold;
+
+    /** The histogram for read wait times. */
+    private final TimeHistogram readWaitTimes;
+
+    /** The histogram for read hold times. */
+    private final TimeHistogram readHoldTimes;
+
+    /** The histogram for write wait times. */
+    private final TimeHistogram writeWaitTimes;
+
+    /** The histogram for write hold times. */
+    private final TimeHistogram writeHoldTimes;
+
+    /** The number of contended read acquisitions. */
+    private final AtomicLong contendedReads;
+
+    /** The number of contended write acquisitions. */
+    private final AtomicLong contendedWrites;
+
+    /** The acquisition times of the read locks of the current thread. */
+    private final ThreadLocal<LinkedList<Long>> readLockTimes;
+
+    /** The acquisition times of the write locks of the current thread. */
+    private final ThreadLocal<LinkedList<Long>> writeLockTimes;
+
+    /** The longest write hold time. */
+    private volatile long longestWriteHold;
+
+    /** The name of the thread with the longest write hold time. */
+    private String longestWriteHoldThread;
+
+    /**
+     * Creates a new instance of {@code InstrumentedSynchronizer} which wraps
+     * the given {@code Synchronizer} and uses the default contention
+     * threshold.
+     *
+     * @param sync the {@code Synchronizer} to be decorated
+     * @throws IllegalArgumentException if the {@code Synchronizer} is
+     *         <b>null</b>
+     */
+    public InstrumentedSynchronizer(Synchronizer sync)
+    {
+        this(sync, DEFAULT_CONTENTION_THRESHOLD_NANOS);
+    }
+
+    /**
+     * Creates a new instance of {@code InstrumentedSynchronizer} which wraps
+     * the given {@code Synchronizer} and uses the specified contention
+     * threshold.
+     *
+     * @param sync the {@code Synchronizer} to be decorated
+     * @param contentionThresholdNanos the wait time in nanoseconds above
+     *        which an acquisition is considered contended
+     * @throws IllegalArgumentException if the {@code Synchronizer} is
+     *         <b>null</b>
+     */
+    public InstrumentedSynchronizer(Synchronizer sync,
+            long contentionThresholdNanos)
+    {
+        if (sync == null)
+        {
+            throw new IllegalArgumentException(
+                    "Synchronizer must not be null!");
+        }
+        synchronizer = sync;
+        contentionThreshold = contentionThresholdNanos;
+        readWaitTimes = new TimeHistogram();
+        readHoldTimes = new TimeHistogram();
+        writeWaitTimes = new TimeHistogram();
+        writeHoldTimes = new TimeHistogram();
+        contendedReads = new AtomicLong();
+        contendedWrites = new AtomicLong();
+        readLockTimes = createLockTimes();
+        writeLockTimes = createLockTimes();
+    }
+
+    /**
+     * Returns the {@code Synchronizer} decorated by this object.
+     *
+     * @return the wrapped {@code Synchronizer}
+     */
+    public Synchronizer getSynchronizer()
+    {
+        return synchronizer;
+    }
+
+    @Override
+    public void beginRead()
+    {
+        long startTime = System.nanoTime();
+        synchronizer.beginRead();
+        lockAcquired(LockMode.READ, pushAcquisitionTime(readLockTimes)
+                - startTime);
+    }
+
+    @Override
+    public void endRead()
+    {
+        long holdTime = popHoldTime(readLockTimes);
+        synchronizer.endRead();
+        if (holdTime >= 0)
+        {
+            lockReleased(LockMode.READ, holdTime);
+        }
+    }
+
+    @Override
+    public void beginWrite()
+    {
+        long startTime = System.nanoTime();
+        synchronizer.beginWrite();
+        lockAcquired(LockMode.WRITE, pushAcquisitionTime(writeLockTimes)
+                - startTime);
+    }
+
+    @Override
+    public void endWrite()
+    {
+        long holdTime = popHoldTime(writeLockTimes);
+        synchronizer.endWrite();
+        if (holdTime >= 0)
+        {
+            lockReleased(LockMode.WRITE, holdTime);
+        }
+    }
+
+    @Override
+    public TimeHistogram getReadWaitTimes()
+    {
+        return readWaitTimes;
+    }
+
+    @Override
+    public TimeHistogram getReadHoldTimes()
+    {
+        return readHoldTimes;
+    }
+
+    @Override
+    public TimeHistogram getWriteWaitTimes()
+    {
+        return writeWaitTimes;
+    }
+
+    @Override
+    public TimeHistogram getWriteHoldTimes()
+    {
+        return writeHoldTimes;
+    }
+
+    @Override
+    public long getContendedReadAcquisitions()
+    {
+        return contendedReads.get();
+    }
+
+    @Override
+    public long getContendedWriteAcquisitions()
+    {
+        return contendedWrites.get();
+    }
+
+    @Override
+    public long getContentionThresholdNanos()
+    {
+        return contentionThreshold;
+    }
+
+    @Override
+    public long getLongestWriteHoldNanos()
+    {
+        return longestWriteHold;
+    }
+
+    @Override
+    public synchronized String getLongestWriteHoldThread()
+    {
+        return longestWriteHoldThread;
+    }
+
+    /**
+     * {@inheritDoc} Note that locks currently held are still reported when
+     * they are released.
+     */
+    @Override
+    public void reset()
+    {
+        readWaitTimes.reset();
+        readHoldTimes.reset();
+        writeWaitTimes.reset();
+        writeHoldTimes.reset();
+        contendedReads.set(0);
+        contendedWrites.set(0);
+        synchronized (this)
+        {
+            longestWriteHold = 0;
+            longestWriteHoldThread = null;
+        }
+    }
+
+    /**
+     * Notifies this object that a lock has been obtained from the wrapped
+     * {@code Synchronizer}. This implementation records the wait time in the
+     * histogram for the lock mode and checks whether the acquisition was
+     * contended.
+     *
+     * @param mode the lock mode
+     * @param waitNanos the time in nanoseconds spent waiting for the lock
+     */
+    protected void lockAcquired(LockMode mode, long waitNanos)
+    {
+        boolean contended = waitNanos > contentionThreshold;
+        if (mode == LockMode.READ)
+        {
+            readWaitTimes.record(waitNanos);
+            if (contended)
+            {
+                contendedReads.incrementAndGet();
+            }
+        }
+        else
+        {
+            writeWaitTimes.record(waitNanos);
+            if (contended)
+            {
+                contendedWrites.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Notifies this object that a lock obtained via this object has been
+     * released. Locks which were obtained before this object was installed
+     * are not reported because their hold time is unknown. This
+     * implementation records the hold time in the histogram for the lock
+     * mode; for write locks, the longest hold time is updated.
+     *
+     * @param mode the lock mode
+     * @param holdNanos the time in nanoseconds the lock has been held
+     */
+    protected void lockReleased(LockMode mode, long holdNanos)
+    {
+        if (mode == LockMode.READ)
+        {
+            readHoldTimes.record(holdNanos);
+        }
+        else
+        {
+            writeHoldTimes.record(holdNanos);
+            if (holdNanos > longestWriteHold)
+            {
+                updateLongestWriteHold(holdNanos);
+            }
+        }
+    }
+
+    /**
+     * Stores the acquisition time of a lock which has just been obtained.
+     *
+     * @param lockTimes the stack with acquisition times
+     * @return the acquisition time
+     */
+    private static long pushAcquisitionTime(
+            ThreadLocal<LinkedList<Long>> lockTimes)
+    {
+        long acquisitionTime = System.nanoTime();
+        lockTimes.get().addFirst(acquisitionTime);
+        return acquisitionTime;
+    }
+
+    /**
+     * Determines the hold time of a lock which is about to be released.
+     * Result is -1 if no acquisition time is available; this is the case if
+     * the lock was not obtained via this object.
+     *
+     * @param lockTimes the stack with acquisition times
+     * @return the hold time or -1
+     */
+    private static long popHoldTime(ThreadLocal<LinkedList<Long>> lockTimes)
+    {
+        LinkedList<Long> times = lockTimes.get();
+        return times.isEmpty() ? -1 : System.nanoTime() - times.removeFirst();
+    }
+
+    /**
+     * Updates the longest write hold time if the given time is greater.
+     *
+     * @param holdTime the hold time
+     */
+    private synchronized void updateLongestWriteHold(long holdTime)
+    {
+        if (holdTime > longestWriteHold)
+        {
+            longestWriteHold = holdTime;
+            longestWriteHoldThread = Thread.currentThread().getName();
+        }
+    }
+
+    /**
+     * Creates a thread-local stack for storing acquisition times.
+     *
+     * @return the thread-local stack
+     */
+    private static ThreadLocal<LinkedList<Long>> createLockTimes()
+    {
+        return new ThreadLocal<LinkedList<Long>>()
+        {
+            @Override
+            protected LinkedList<Long> initialValue()
+            {
+                return new LinkedList<Long>();
+            }
+        };
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.sync;
+
+/**
+ * <p>
+ * The management interface of {@link InstrumentedSynchronizer}.
+ * </p>
+ * <p>
+ * This interface follows the conventions of an MXBean. So the lock statistics
+ * collected by an {@code InstrumentedSynchronizer} can be inspected with
+ * standard JMX tools.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public interface InstrumentedSynchronizerMXBean
+{
+    /**
+     * Returns the histogram of the times spent waiting for read locks.
+     *
+     * @return the read lock wait times
+     */
+    TimeHistogram getReadWaitTimes();
+
+    /**
+     * Returns the histogram of the times read locks have been held.
+     *
+     * @return the read lock hold times
+     */
+    TimeHistogram getReadHoldTimes();
+
+    /**
+     * Returns the histogram of the times spent waiting for write locks.
+     *
+     * @return the write lock wait times
+     */
+    TimeHistogram getWriteWaitTimes();
+
+    /**
+     * Returns the histogram of the times write locks have been held.
+     *
+     * @return the write lock hold times
+     */
+    TimeHistogram getWriteHoldTimes();
+
+    /**
+     * Returns the number of read lock acquisitions which were contended.
+     *
+     * @return the number of contended read locks
+     */
+    long getContendedReadAcquisitions();
+
+    /**
+     * Returns the number of write lock acquisitions which were contended.
+     *
+     * @return the number of contended write locks
+     */
+    long getContendedWriteAcquisitions();
+
+    /**
+     * Returns the wait time in nanoseconds above which an acquisition is
+     * considered contended.
+     *
+     * @return the contention threshold
+     */
+    long getContentionThresholdNanos();
+
+    /**
+     * Returns the longest time in nanoseconds a write lock has been held.
+     *
+     * @return the longest write hold time
+     */
+    long getLongestWriteHoldNanos();
+
+    /**
+     * Returns the name of the thread which held the write lock for the
+     * longest time. Result is <b>null</b> if no write lock has been released
+     * yet.
+     *
+     * @return the name of the thread with the longest write hold time
+     */
+    String getLongestWriteHoldThread();
+
+    /**
+     * Resets all statistics.
+     */
+    void reset();
+}
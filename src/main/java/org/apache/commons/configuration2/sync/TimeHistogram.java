@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.sync;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * A thread-safe histogram for durations measured in nanoseconds.
+ * </p>
+ * <p>
+ * This class is used by {@link InstrumentedSynchronizer} to record the times
+ * threads wait for locks or hold them. Durations are assigned to buckets whose
+ * upper bounds are powers of 2: bucket 0 contains durations of 0 or 1
+ * nanoseconds, bucket <em>i</em> durations greater than
+ * 2<sup><em>i</em>-1</sup> and up to 2<sup><em>i</em></sup> nanoseconds. The
+ * last bucket contains all durations that do not fit into the other ones. In
+ * addition, the number of recorded durations, their sum, and the maximum
+ * duration are available.
+ * </p>
+ * <p>
+ * All values are updated atomically without blocking. The getter methods
+ * return current values; they are not necessarily consistent with each other
+ * if durations are recorded concurrently. As the class follows the bean
+ * conventions, it can be used as data type of MXBean attributes.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public class TimeHistogram
+{
+    /** The number of buckets. */
+    public static final int BUCKET_COUNT = 40;
+
+    /** The counts of the single buckets. */
+    private final AtomicLongArray buckets;
+
+    /** The number of recorded durations. */
+    private final AtomicLong count;
+
+    /** The sum of all durations. */
+    private final AtomicLong totalNanos;
+
+    /** The maximum duration. */
+    private final AtomicLong maxNanos;
+
+    /**
+     * Creates a new, empty instance of {@code TimeHistogram}.
+     */
+    public TimeHistogram()
+    {
+        buckets = new AtomicLongArray(BUCKET_COUNT);
+        count = new AtomicLong();
+        totalNanos = new AtomicLong();
+        maxNanos = new AtomicLong();
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos)
+    {
+        buckets.incrementAndGet(bucketIndex(nanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos))
+        {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return the count
+     */
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    /**
+     * Returns the sum of all recorded durations in nanoseconds.
+     *
+     * @return the total duration
+     */
+    public long getTotalNanos()
+    {
+        return totalNanos.get();
+    }
+
+    /**
+     * Returns the maximum recorded duration in nanoseconds.
+     *
+     * @return the maximum duration
+     */
+    public long getMaxNanos()
+    {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns an array with the counts of all buckets. The array is a copy.
+     *
+     * @return the bucket counts
+     */
+    public long[] getBucketCounts()
+    {
+        long[] result = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            result[i] = buckets.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns an array with the upper bounds of all buckets in nanoseconds.
+     * The upper bound of the last bucket is {@code Long.MAX_VALUE}.
+     *
+     * @return the bucket upper bounds
+     */
+    public long[] getBucketUpperBounds()
+    {
+        long[] result = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            result[i] = upperBound(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns an estimate for the given percentile of the recorded durations.
+     * Result is the upper bound of the bucket containing this percentile, or
+     * the maximum duration if it is smaller. If no durations have been
+     * recorded, result is 0.
+     *
+     * @param percentile the percentile (a value between 0 and 100)
+     * @return the estimated duration for this percentile in nanoseconds
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public long percentile(double percentile)
+    {
+        if (percentile < 0 || percentile > 100)
+        {
+            throw new IllegalArgumentException("Invalid percentile: "
+                    + percentile);
+        }
+
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long c : counts)
+        {
+            total += c;
+        }
+        long threshold = (long) Math.ceil(total * percentile / 100);
+        long sum = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            sum += counts[i];
+            if (sum >= threshold && sum > 0)
+            {
+                return Math.min(upperBound(i), getMaxNanos());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Resets this histogram. Durations recorded concurrently may or may not
+     * be taken into account.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    /**
+     * Returns a string representation of this object.
+     *
+     * @return a string for this object
+     */
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + " [count=" + getCount()
+                + ", totalNanos=" + getTotalNanos() + ", maxNanos="
+                + getMaxNanos() + "]";
+    }
+
+    /**
+     * Determines the index of the bucket for the given duration.
+     *
+     * @param nanos the duration
+     * @return the bucket index
+     */
+    static int bucketIndex(long nanos)
+    {
+        if (nanos <= 1)
+        {
+            return 0;
+        }
+        return Math.min(BUCKET_COUNT - 1,
+                64 - Long.numberOfLeadingZeros(nanos - 1));
+    }
+
+    /**
+     * Returns the upper bound of the bucket with the given index.
+     *
+     * @param index the bucket index
+     * @return the upper bound of this bucket
+     */
+    private static long upperBound(int index)
+    {
+        return (index < BUCKET_COUNT - 1) ? 1L << index : Long.MAX_VALUE;
+    }
+}
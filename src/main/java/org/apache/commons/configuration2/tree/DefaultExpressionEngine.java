@@ -129,6 +129,9 @@ public class DefaultExpressionEngine implements ExpressionEngine
     /** The matcher for node names. */
     private final NodeMatcher<String> nameMatcher;
 
+    /** A flag whether queries can be answered by a key index. */
+    private final boolean keyIndexSupported;
+
     /**
      * Creates a new instance of {@code DefaultExpressionEngine} and initializes
      * its symbols.
@@ -164,6 +167,11 @@ public class DefaultExpressionEngine implements ExpressionEngine
         nameMatcher =
                 (nodeNameMatcher != null) ? nodeNameMatcher
                         : NodeNameMatchers.EQUALS;
+        keyIndexSupported =
+                getClass() == DefaultExpressionEngine.class
+                        && nameMatcher == NodeNameMatchers.EQUALS
+                        && DefaultExpressionEngineSymbols.DEFAULT_SYMBOLS
+                                .equals(syms);
     }
 
     /**
@@ -180,12 +188,23 @@ public class DefaultExpressionEngine implements ExpressionEngine
 
     /**
      * {@inheritDoc} This method supports the syntax as described in the class
-     * comment.
+     * comment. If the node structure is managed by an
+     * {@link InMemoryNodeModel}, simple keys without indices can be looked up
+     * in an index maintained for the current version of the structure. This
+     * is possible only if this engine uses the default symbols and the
+     * default matcher for node names.
      */
     @Override
     public <T> List<QueryResult<T>> query(T root, String key,
             NodeHandler<T> handler)
     {
+        List<QueryResult<T>> indexedResults =
+                queryKeyIndex(root, key, handler);
+        if (indexedResults != null)
+        {
+            return indexedResults;
+        }
+
         List<QueryResult<T>> results = new LinkedList<QueryResult<T>>();
         findNodesForKey(new DefaultConfigurationKey(this, key).iterator(),
                 root, results, handler);
@@ -481,6 +500,36 @@ public class DefaultExpressionEngine implements ExpressionEngine
         }
     }
 
+    /**
+     * Tries to evaluate a query using the key index of the node structure.
+     * This is possible if the handler belongs to an {@code InMemoryNodeModel}
+     * and the key is supported by the index. Otherwise, result is
+     * <b>null</b>.
+     *
+     * @param root the root node of the query
+     * @param key the key
+     * @param handler the node handler
+     * @param <T> the type of the nodes to be dealt with
+     * @return the query results or <b>null</b>
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<QueryResult<T>> queryKeyIndex(T root, String key,
+            NodeHandler<T> handler)
+    {
+        if (keyIndexSupported && handler instanceof TreeData)
+        {
+            List<QueryResult<ImmutableNode>> results =
+                    ((TreeData) handler).queryKeyIndex(root, key);
+            if (results != null)
+            {
+                // the handler is a TreeData, so T is ImmutableNode
+                List<?> copy = new LinkedList<QueryResult<ImmutableNode>>(results);
+                return (List<QueryResult<T>>) copy;
+            }
+        }
+        return null;
+    }
+
     /**
      * Determines the index of the given node based on its parent node.
      *
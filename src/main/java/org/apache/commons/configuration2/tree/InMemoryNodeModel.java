@@ -58,8 +58,8 @@ public class InMemoryNodeModel implements NodeModel<ImmutableNode>
      */
     private static final NodeHandler<ImmutableNode> DUMMY_HANDLER =
             new TreeData(null,
-                    Collections.<ImmutableNode, ImmutableNode> emptyMap(),
-                    Collections.<ImmutableNode, ImmutableNode> emptyMap(), null, new ReferenceTracker());
+                    PersistentHashMap.<ImmutableNode, ImmutableNode> empty(),
+                    null, new ReferenceTracker());
 
     /** Stores information about the current nodes structure. */
     private final AtomicReference<TreeData> structure;
@@ -806,10 +806,11 @@ public class InMemoryNodeModel implements NodeModel<ImmutableNode>
      * of the passed in root node. For each node in the subtree the parent
      * relation is added to the map.
      *
-     * @param parents the map with parent nodes
+     * @param parents the mutator for the map with parent nodes
      * @param root the root node of the current tree
      */
-    static void updateParentMapping(final Map<ImmutableNode, ImmutableNode> parents,
+    static void updateParentMapping(
+            final PersistentHashMap.Mutator<ImmutableNode, ImmutableNode> parents,
             ImmutableNode root)
     {
         NodeTreeWalker.INSTANCE.walkBFS(root,
@@ -890,9 +891,8 @@ public class InMemoryNodeModel implements NodeModel<ImmutableNode>
     private TreeData createTreeDataForRootAndTracker(ImmutableNode root,
             NodeTracker newTracker)
     {
-        return new TreeData(root, createParentMapping(root),
-                Collections.<ImmutableNode, ImmutableNode> emptyMap(),
-                newTracker, new ReferenceTracker());
+        return new TreeData(root, createParentMapping(root), newTracker,
+                new ReferenceTracker());
     }
 
     /**
@@ -1135,13 +1135,14 @@ public class InMemoryNodeModel implements NodeModel<ImmutableNode>
      * @param root the root node of the structure
      * @return the parent node mapping
      */
-    private Map<ImmutableNode, ImmutableNode> createParentMapping(
+    private PersistentHashMap<ImmutableNode, ImmutableNode> createParentMapping(
             ImmutableNode root)
     {
-        Map<ImmutableNode, ImmutableNode> parents =
-                new HashMap<ImmutableNode, ImmutableNode>();
+        PersistentHashMap.Mutator<ImmutableNode, ImmutableNode> parents =
+                PersistentHashMap.<ImmutableNode, ImmutableNode> empty()
+                        .mutator();
         updateParentMapping(parents, root);
-        return parents;
+        return parents.toMap();
     }
 
     /**
@@ -66,11 +66,12 @@ class ModelTransaction
 {
     /**
      * Constant for the maximum number of entries in the replacement mapping. If
-     * this number is exceeded, the parent mapping is reconstructed. The number
-     * is a bit arbitrary. If it is too low, updates - especially on large node
-     * structures - are expensive because the parent mapping is often rebuild.
-     * If it is too big, read access to the model is slowed down because looking
-     * up the parent of a node is more complicated.
+     * this number is exceeded, the replacements are merged into the parent
+     * mapping. The number is a bit arbitrary. If it is too low, updates -
+     * especially on nodes with many children - are expensive because the
+     * parent mapping is often updated. If it is too big, read access to the
+     * model is slowed down because looking up the parent of a node is more
+     * complicated.
      */
     private static final int MAX_REPLACEMENTS = 200;
 
@@ -90,17 +91,26 @@ class ModelTransaction
     private final NodeKeyResolver<ImmutableNode> resolver;
 
     /** A new replacement mapping. */
-    private final Map<ImmutableNode, ImmutableNode> replacementMapping;
+    private PersistentHashMap.Mutator<ImmutableNode, ImmutableNode> replacementMapping;
+
+    /** A new inverse replacement mapping. */
+    private PersistentHashMap.Mutator<ImmutableNode, ImmutableNode> inverseReplacementMapping;
 
     /** The nodes replaced in this transaction. */
     private final Map<ImmutableNode, ImmutableNode> replacedNodes;
 
     /** A new parent mapping. */
-    private final Map<ImmutableNode, ImmutableNode> parentMapping;
+    private PersistentHashMap.Mutator<ImmutableNode, ImmutableNode> parentMapping;
 
     /** A collection with nodes which have been added. */
     private final Collection<ImmutableNode> addedNodes;
 
+    /**
+     * Stores the nodes whose content is changed directly by this transaction.
+     * This information is used to update tracked nodes.
+     */
+    private final Collection<ImmutableNode> changedNodes;
+
     /** A collection with nodes which have been removed. */
     private final Collection<ImmutableNode> removedNodes;
 
@@ -139,11 +149,14 @@ class ModelTransaction
     {
         currentData = treeData;
         this.resolver = resolver;
-        replacementMapping = getCurrentData().copyReplacementMapping();
+        replacementMapping = getCurrentData().getReplacementMapping().mutator();
+        inverseReplacementMapping =
+                getCurrentData().getInverseReplacementMapping().mutator();
         replacedNodes = new HashMap<ImmutableNode, ImmutableNode>();
-        parentMapping = getCurrentData().copyParentMapping();
+        parentMapping = getCurrentData().getParentMapping().mutator();
         operations = new TreeMap<Integer, Map<ImmutableNode, Operations>>();
         addedNodes = new LinkedList<ImmutableNode>();
+        changedNodes = new LinkedList<ImmutableNode>();
         removedNodes = new LinkedList<ImmutableNode>();
         allRemovedNodes = new LinkedList<ImmutableNode>();
         queryRoot = initQueryRoot(treeData, selector);
@@ -286,6 +299,12 @@ class ModelTransaction
     {
         fetchOperations(target, LEVEL_UNKNOWN).addOperation(
                 new ChangeNodeNameOperation(newName));
+        ImmutableNode parent = getParent(target);
+        if (parent != null)
+        {
+            // the names of the parent's children are changed
+            changedNodes.add(parent);
+        }
     }
 
     /**
@@ -321,9 +340,11 @@ class ModelTransaction
     {
         executeOperations();
         updateParentMapping();
-        return new TreeData(newRoot, parentMapping, replacementMapping,
+        return new TreeData(newRoot, parentMapping.toMap(),
+                replacementMapping.toMap(), inverseReplacementMapping.toMap(),
                 currentData.getNodeTracker().update(newRoot, rootNodeSelector,
-                        getResolver(), getCurrentData()), updateReferenceTracker()
+                        getResolver(), getCurrentData(), changedNodes),
+                updateReferenceTracker()
         );
     }
 
@@ -350,7 +371,9 @@ class ModelTransaction
     /**
      * Obtains the {@code Operations} object for manipulating the specified
      * node. If no such object exists yet, it is created. The level can be
-     * undefined, then it is determined based on the target node.
+     * undefined, then it is determined based on the target node. This is the
+     * case for operations requested directly by a client; so the target node
+     * is recorded as a changed node.
      *
      * @param target the target node
      * @param level the level of the target node (may be undefined)
@@ -373,6 +396,10 @@ class ModelTransaction
         {
             ops = new Operations();
             levelOperations.put(target, ops);
+            if (level == LEVEL_UNKNOWN)
+            {
+                changedNodes.add(target);
+            }
         }
         return ops;
     }
@@ -436,28 +463,110 @@ class ModelTransaction
      */
     private void updateParentMapping()
     {
-        replacementMapping.putAll(replacedNodes);
+        for (Map.Entry<ImmutableNode, ImmutableNode> e : replacedNodes
+                .entrySet())
+        {
+            addReplacement(e.getKey(), e.getValue());
+        }
+        updateParentMappingForAddedNodes();
+        updateParentMappingForRemovedNodes();
         if (replacementMapping.size() > MAX_REPLACEMENTS)
         {
-            rebuildParentMapping();
+            mergeReplacements();
         }
-        else
+    }
+
+    /**
+     * Merges the replacement mapping into the parent mapping. This method is
+     * called if the replacement mapping exceeds its maximum size. Rather than
+     * constructing a new parent mapping from scratch (which would be
+     * expensive for large node structures), only the entries for the replaced
+     * nodes and their direct children are updated. Afterwards, the
+     * replacement mapping is empty.
+     */
+    private void mergeReplacements()
+    {
+        TreeData data =
+                new TreeData(newRoot, parentMapping.toMap(),
+                        replacementMapping.toMap(),
+                        inverseReplacementMapping.toMap(), null, null);
+        PersistentHashMap<ImmutableNode, ImmutableNode> replacements =
+                data.getReplacementMapping();
+        parentMapping = data.getParentMapping().mutator();
+
+        for (Map.Entry<ImmutableNode, ImmutableNode> e : replacements)
         {
-            updateParentMappingForAddedNodes();
-            updateParentMappingForRemovedNodes();
+            // replaced nodes are no longer part of the structure
+            parentMapping.remove(e.getKey());
         }
+        for (Map.Entry<ImmutableNode, ImmutableNode> e : replacements)
+        {
+            ImmutableNode node = e.getValue();
+            if (!replacements.containsKey(node) && isContained(data, node))
+            {
+                if (node != newRoot)
+                {
+                    parentMapping.put(node, data.getParent(node));
+                }
+                for (ImmutableNode child : node.getChildren())
+                {
+                    parentMapping.put(child, node);
+                }
+            }
+        }
+
+        replacementMapping =
+                PersistentHashMap.<ImmutableNode, ImmutableNode> empty()
+                        .mutator();
+        inverseReplacementMapping =
+                PersistentHashMap.<ImmutableNode, ImmutableNode> empty()
+                        .mutator();
     }
 
     /**
-     * Rebuilds the parent mapping from scratch. This method is called if the
-     * replacement mapping exceeds its maximum size. In this case, it is
-     * cleared, and a new parent mapping is constructed for the new root node.
+     * Checks whether the given node is part of the structure defined by the
+     * specified {@code TreeData} object, i.e. whether the chain of its parent
+     * nodes leads to the root node.
+     *
+     * @param data the {@code TreeData}
+     * @param node the node in question
+     * @return a flag whether this node belongs to the structure
      */
-    private void rebuildParentMapping()
+    private static boolean isContained(TreeData data, ImmutableNode node)
     {
-        replacementMapping.clear();
-        parentMapping.clear();
-        InMemoryNodeModel.updateParentMapping(parentMapping, newRoot);
+        try
+        {
+            ImmutableNode current = node;
+            while (current != data.getRootNode())
+            {
+                current = data.getParent(current);
+            }
+            return true;
+        }
+        catch (IllegalArgumentException iex)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Adds an entry to the replacement mapping and its inverse. If the node
+     * has already replaced another node, the mapping for this original node is
+     * updated; so there are no chains of replacements, and a node can be
+     * mapped to its current replacement with a single lookup.
+     *
+     * @param node the node which has been replaced
+     * @param replacement the replacing node
+     */
+    private void addReplacement(ImmutableNode node, ImmutableNode replacement)
+    {
+        ImmutableNode original = inverseReplacementMapping.remove(node);
+        if (original == null)
+        {
+            original = node;
+        }
+        replacementMapping.put(original, replacement);
+        inverseReplacementMapping.put(replacement, original);
     }
 
     /**
@@ -507,7 +616,9 @@ class ModelTransaction
 
     /**
      * Removes the specified node completely from the replacement mapping. This
-     * also includes the nodes that replace the given one.
+     * also includes the nodes that replace the given one and the nodes
+     * replaced by it; the original node at the start of this chain of
+     * replacements is removed from the parent mapping.
      *
      * @param node the node to be removed
      */
@@ -517,7 +628,24 @@ class ModelTransaction
         do
         {
             replacement = replacementMapping.remove(replacement);
+            if (replacement != null)
+            {
+                inverseReplacementMapping.remove(replacement);
+            }
         } while (replacement != null);
+
+        ImmutableNode original = node;
+        ImmutableNode replaced;
+        do
+        {
+            replaced = inverseReplacementMapping.remove(original);
+            if (replaced != null)
+            {
+                replacementMapping.remove(replaced);
+                original = replaced;
+            }
+        } while (replaced != null);
+        parentMapping.remove(original);
     }
 
     /**
@@ -1051,7 +1179,7 @@ class ModelTransaction
                 }
             }
 
-            handleAddedNodes(node);
+            handleAddedNodes(target);
             if (level == 0)
             {
                 // reached the root node
@@ -1086,23 +1214,33 @@ class ModelTransaction
             else
             {
                 co.addNodeToRemove(target);
+                changedNodes.add(parent);
             }
             fetchOperations(parent, level - 1).addChildrenOperation(co);
         }
 
         /**
          * Checks whether new nodes have been added during operation execution.
-         * If so, the parent mapping has to be updated.
+         * If so, the parent mapping has to be updated. The new nodes are
+         * mapped to the original instance of their parent node; so their
+         * parent can be resolved via the replacement mapping, even if the
+         * parent is replaced again later.
          *
-         * @param node the resulting node after applying all operations
+         * @param target the target node for this operation
          */
-        private void handleAddedNodes(ImmutableNode node)
+        private void handleAddedNodes(ImmutableNode target)
         {
             if (addedNodesInOperation != null)
             {
+                ImmutableNode original =
+                        inverseReplacementMapping.get(target);
+                if (original == null)
+                {
+                    original = target;
+                }
                 for (ImmutableNode child : addedNodesInOperation)
                 {
-                    parentMapping.put(child, node);
+                    parentMapping.put(child, original);
                     addedNodes.add(child);
                 }
             }
@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.tree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * An internally used helper class which maps the keys of a node structure
+ * directly to the query results they select.
+ * </p>
+ * <p>
+ * A {@code TreeData} object represents an immutable version of a node
+ * structure. So the results of a query for a specific key do not change as
+ * long as this version is current. This class exploits this by creating a map
+ * from keys in the default syntax (without indices) to the corresponding
+ * nodes and attributes. A query for such a key then becomes a simple map
+ * lookup. Keys using other features of the default syntax, e.g. indices, are
+ * not handled by this class; they have to be evaluated by the expression
+ * engine.
+ * </p>
+ * <p>
+ * Creating the map requires a traversal of the whole node structure. This
+ * pays off only if a version of the structure is queried multiple times.
+ * Therefore, the map is created lazily after a number of queries which
+ * depends on the size of the structure. If a node or attribute name contains
+ * characters with a special meaning in keys, the map is not created at all.
+ * </p>
+ * <p>
+ * This class is thread-safe. It is shared by all {@code TreeData} objects
+ * with the same root node.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+final class NodeKeyIndex
+{
+    /** The minimum number of queries before the index is created. */
+    private static final int MIN_QUERIES = 16;
+
+    /**
+     * The factor for the number of nodes in the structure. The index is
+     * created after the number of nodes divided by this factor queries.
+     */
+    private static final int NODES_PER_QUERY = 8;
+
+    /** The symbols of the default key syntax. */
+    private static final DefaultExpressionEngineSymbols SYMBOLS =
+            DefaultExpressionEngineSymbols.DEFAULT_SYMBOLS;
+
+    /** The root node of the indexed structure. */
+    private final ImmutableNode root;
+
+    /** The number of queries after which the index is created. */
+    private final int threshold;
+
+    /** A counter for the queries processed before the index was created. */
+    private final AtomicInteger queryCount;
+
+    /** The map with the index data. */
+    private volatile Map<String, List<QueryResult<ImmutableNode>>> index;
+
+    /** A flag whether the structure cannot be indexed. */
+    private volatile boolean unsupported;
+
+    /**
+     * Creates a new instance of {@code NodeKeyIndex} for the given root node.
+     *
+     * @param root the root node (may be <b>null</b>)
+     * @param nodeCount the (approximate) number of nodes in the structure
+     */
+    public NodeKeyIndex(ImmutableNode root, int nodeCount)
+    {
+        this.root = root;
+        threshold = MIN_QUERIES + nodeCount / NODES_PER_QUERY;
+        queryCount = new AtomicInteger();
+        unsupported = root == null;
+    }
+
+    /**
+     * Tries to answer a query for the given key using the index. If this is
+     * possible, result is a list with the query results (which must not be
+     * modified). A result of <b>null</b> means that the key cannot be handled
+     * by this index; it then has to be evaluated by the expression engine.
+     *
+     * @param key the key
+     * @return a list with the query results or <b>null</b>
+     */
+    public List<QueryResult<ImmutableNode>> query(String key)
+    {
+        if (unsupported || !isIndexedKey(key))
+        {
+            return null;
+        }
+
+        Map<String, List<QueryResult<ImmutableNode>>> data = fetchIndex();
+        if (data == null)
+        {
+            return null;
+        }
+        List<QueryResult<ImmutableNode>> results = data.get(key);
+        return (results != null) ? results : Collections
+                .<QueryResult<ImmutableNode>> emptyList();
+    }
+
+    /**
+     * Checks whether the given key can be handled by an index. This is the
+     * case for keys consisting of plain node names separated by the property
+     * delimiter, optionally followed by an attribute.
+     *
+     * @param key the key to be checked
+     * @return a flag whether this key can be looked up in an index
+     */
+    static boolean isIndexedKey(String key)
+    {
+        if (key == null || key.length() == 0)
+        {
+            return false;
+        }
+
+        String path = key;
+        if (key.endsWith(SYMBOLS.getAttributeEnd()))
+        {
+            int attrPos = key.lastIndexOf(SYMBOLS.getAttributeStart());
+            if (attrPos < 0
+                    || !isPlainName(key.substring(attrPos
+                            + SYMBOLS.getAttributeStart().length(),
+                            key.length() - SYMBOLS.getAttributeEnd().length())))
+            {
+                return false;
+            }
+            if (attrPos == 0)
+            {
+                return true;
+            }
+            path = key.substring(0, attrPos);
+        }
+
+        int start = 0;
+        int pos;
+        while ((pos = path.indexOf(SYMBOLS.getPropertyDelimiter(), start)) >= 0)
+        {
+            if (!isPlainName(path.substring(start, pos)))
+            {
+                return false;
+            }
+            start = pos + SYMBOLS.getPropertyDelimiter().length();
+        }
+        return isPlainName(path.substring(start));
+    }
+
+    /**
+     * Returns the index data. Creates it if the number of queries reaches the
+     * threshold. This is done by a single thread only; until the index is
+     * available, result is <b>null</b>.
+     *
+     * @return the index data or <b>null</b>
+     */
+    private Map<String, List<QueryResult<ImmutableNode>>> fetchIndex()
+    {
+        Map<String, List<QueryResult<ImmutableNode>>> data = index;
+        if (data == null && queryCount.incrementAndGet() == threshold)
+        {
+            data = createIndex(root);
+            if (data == null)
+            {
+                unsupported = true;
+            }
+            else
+            {
+                index = data;
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Creates the index data for the structure below the given root node.
+     * Result is <b>null</b> if the structure contains names which cannot be
+     * indexed.
+     *
+     * @param root the root node
+     * @return the index data or <b>null</b>
+     */
+    private static Map<String, List<QueryResult<ImmutableNode>>> createIndex(
+            ImmutableNode root)
+    {
+        Map<String, List<QueryResult<ImmutableNode>>> data =
+                new HashMap<String, List<QueryResult<ImmutableNode>>>();
+        return addAttributes(data, root, "")
+                && addChildren(data, root, null) ? data : null;
+    }
+
+    /**
+     * Adds the children of the given node and their subtrees to the index.
+     *
+     * @param data the index data
+     * @param node the parent node
+     * @param key the key of the parent node (<b>null</b> for the root node)
+     * @return a flag whether all nodes could be indexed
+     */
+    private static boolean addChildren(
+            Map<String, List<QueryResult<ImmutableNode>>> data,
+            ImmutableNode node, String key)
+    {
+        for (ImmutableNode child : node.getChildren())
+        {
+            if (!isPlainName(child.getNodeName()))
+            {
+                return false;
+            }
+            String childKey =
+                    (key == null) ? child.getNodeName() : key
+                            + SYMBOLS.getPropertyDelimiter()
+                            + child.getNodeName();
+            addResult(data, childKey, QueryResult.createNodeResult(child));
+            if (!addAttributes(data, child, childKey)
+                    || !addChildren(data, child, childKey))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the attributes of the given node to the index.
+     *
+     * @param data the index data
+     * @param node the node
+     * @param key the key of the node
+     * @return a flag whether all attributes could be indexed
+     */
+    private static boolean addAttributes(
+            Map<String, List<QueryResult<ImmutableNode>>> data,
+            ImmutableNode node, String key)
+    {
+        for (Map.Entry<String, Object> e : node.getAttributes().entrySet())
+        {
+            if (!isPlainName(e.getKey()))
+            {
+                return false;
+            }
+            if (e.getValue() != null)
+            {
+                addResult(data, key + SYMBOLS.getAttributeStart() + e.getKey()
+                        + SYMBOLS.getAttributeEnd(),
+                        QueryResult.createAttributeResult(node, e.getKey()));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a query result for the given key to the index.
+     *
+     * @param data the index data
+     * @param key the key
+     * @param result the result to be added
+     */
+    private static void addResult(
+            Map<String, List<QueryResult<ImmutableNode>>> data, String key,
+            QueryResult<ImmutableNode> result)
+    {
+        List<QueryResult<ImmutableNode>> results = data.get(key);
+        if (results == null)
+        {
+            results = new ArrayList<QueryResult<ImmutableNode>>(1);
+            data.put(key, results);
+        }
+        results.add(result);
+    }
+
+    /**
+     * Checks whether the given name is a plain name. Plain names are not empty
+     * and do not contain any characters with a special meaning in keys.
+     *
+     * @param name the name to be checked
+     * @return a flag whether this is a plain name
+     */
+    private static boolean isPlainName(String name)
+    {
+        return name != null && name.length() > 0
+                && !name.contains(SYMBOLS.getPropertyDelimiter())
+                && !name.contains(SYMBOLS.getAttributeStart())
+                && !name.contains(SYMBOLS.getAttributeEnd())
+                && !name.contains(SYMBOLS.getIndexStart())
+                && !name.contains(SYMBOLS.getIndexEnd());
+    }
+}
@@ -0,0 +1,612 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.tree;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * <p>
+ * A read-only representation of a node structure stored in a compact binary
+ * format.
+ * </p>
+ * <p>
+ * Parsing large configuration files can take a significant amount of time. If
+ * a node structure is needed frequently, e.g. on every start of an
+ * application, it can be written into a <em>snapshot</em> file once using the
+ * {@link #write(ImmutableNode, File)} method. The snapshot can then be opened
+ * using {@link #open(File)}. The file is mapped into memory, and the nodes are
+ * read directly from the mapped buffer when they are accessed; no Java objects
+ * are created for nodes which are not accessed. A snapshot can be queried via
+ * the {@link NodeHandler} returned by {@link #getNodeHandler()}; the
+ * {@link SnapshotNodeModel} class makes it available as a {@link NodeModel}.
+ * </p>
+ * <p>
+ * A snapshot file consists of the following sections (all numbers are stored
+ * in big endian byte order):
+ * <ul>
+ * <li>A header with a magic number, the format version, the number of
+ * strings, nodes, and attributes, and the size of the string data.</li>
+ * <li>The string table: an array with the start offsets of all strings
+ * followed by the UTF-8 encoded string data. Node names, attribute names, and
+ * string values are stored in this table only once and referenced by their
+ * indices; the index -1 stands for a <b>null</b> name.</li>
+ * <li>The node table: a record of fixed size for each node. It contains the
+ * name of the node, the index of its parent, the range of its children and
+ * attributes, and the node's value. The nodes are stored in breadth-first
+ * order, so the children of a node occupy a continuous range in this
+ * table.</li>
+ * <li>The attribute table: a record of fixed size for each attribute with its
+ * name and value.</li>
+ * </ul>
+ * Values are stored together with their type. Strings, booleans, and numbers
+ * of type {@code Integer}, {@code Long}, {@code Float}, and {@code Double}
+ * retain their type; other objects are stored as strings.
+ * </p>
+ * <p>
+ * Objects of this class are immutable and can be shared between multiple
+ * threads.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public final class NodeSnapshot
+{
+    /** The magic number at the start of a snapshot file. */
+    static final int MAGIC = 0x434E5350;
+
+    /** The version of the snapshot format. */
+    static final int VERSION = 1;
+
+    /** The size of the header. */
+    static final int HEADER_SIZE = 24;
+
+    /** The size of a record in the node table. */
+    static final int NODE_SIZE = 36;
+
+    /** The size of a record in the attribute table. */
+    static final int ATTRIBUTE_SIZE = 16;
+
+    /** Type constant for a <b>null</b> value. */
+    static final int TYPE_NULL = 0;
+
+    /** Type constant for a string value. */
+    static final int TYPE_STRING = 1;
+
+    /** Type constant for a boolean value. */
+    static final int TYPE_BOOLEAN = 2;
+
+    /** Type constant for an integer value. */
+    static final int TYPE_INTEGER = 3;
+
+    /** Type constant for a long value. */
+    static final int TYPE_LONG = 4;
+
+    /** Type constant for a float value. */
+    static final int TYPE_FLOAT = 5;
+
+    /** Type constant for a double value. */
+    static final int TYPE_DOUBLE = 6;
+
+    /** The charset for encoding strings. */
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Constant for the offset of the parent index in a node record. */
+    private static final int NODE_PARENT = 4;
+
+    /** Constant for the offset of the first child in a node record. */
+    private static final int NODE_FIRST_CHILD = 8;
+
+    /** Constant for the offset of the child count in a node record. */
+    private static final int NODE_CHILD_COUNT = 12;
+
+    /** Constant for the offset of the first attribute in a node record. */
+    private static final int NODE_FIRST_ATTRIBUTE = 16;
+
+    /** Constant for the offset of the attribute count in a node record. */
+    private static final int NODE_ATTRIBUTE_COUNT = 20;
+
+    /** Constant for the offset of the value in a node record. */
+    private static final int NODE_VALUE = 24;
+
+    /** Constant for the offset of the value in an attribute record. */
+    private static final int ATTRIBUTE_VALUE = 4;
+
+    /** The buffer with the data of this snapshot. */
+    private final ByteBuffer buffer;
+
+    /** A cache for the strings which have already been decoded. */
+    private final String[] strings;
+
+    /** The number of nodes. */
+    private final int nodeCount;
+
+    /** The number of attributes. */
+    private final int attributeCount;
+
+    /** The position of the string data. */
+    private final int stringDataOffset;
+
+    /** The size of the string data. */
+    private final int stringDataLength;
+
+    /** The position of the node table. */
+    private final int nodeTableOffset;
+
+    /** The position of the attribute table. */
+    private final int attributeTableOffset;
+
+    /** The root node of this snapshot. */
+    private final SnapshotNode rootNode;
+
+    /** The node handler for the whole structure. */
+    private final NodeHandler<SnapshotNode> nodeHandler;
+
+    /**
+     * Creates a new instance of {@code NodeSnapshot} and initializes it from
+     * the given buffer.
+     *
+     * @param buf the buffer
+     * @throws IllegalArgumentException if the buffer does not contain a valid
+     *         snapshot
+     */
+    private NodeSnapshot(ByteBuffer buf)
+    {
+        buffer = buf;
+        if (buf.capacity() < HEADER_SIZE || buf.getInt(0) != MAGIC)
+        {
+            throw new IllegalArgumentException("No node snapshot!");
+        }
+        if (buf.getInt(4) != VERSION)
+        {
+            throw new IllegalArgumentException(
+                    "Unsupported snapshot version: " + buf.getInt(4));
+        }
+
+        int stringCount = buf.getInt(8);
+        nodeCount = buf.getInt(12);
+        attributeCount = buf.getInt(16);
+        stringDataLength = buf.getInt(20);
+        stringDataOffset = HEADER_SIZE + 4 * stringCount;
+        nodeTableOffset = stringDataOffset + stringDataLength;
+        attributeTableOffset = nodeTableOffset + NODE_SIZE * nodeCount;
+        if (stringCount < 0 || nodeCount < 1 || attributeCount < 0
+                || stringDataLength < 0
+                || attributeTableOffset + ATTRIBUTE_SIZE * attributeCount != buf
+                        .capacity())
+        {
+            throw new IllegalArgumentException("Corrupt node snapshot!");
+        }
+
+        strings = new String[stringCount];
+        rootNode = node(0);
+        nodeHandler = new SnapshotNodeHandler(this, rootNode);
+    }
+
+    /**
+     * Writes the node structure below the given root node as a snapshot into
+     * the specified stream.
+     *
+     * @param root the root node of the structure (must not be <b>null</b>)
+     * @param out the output stream (must not be <b>null</b>)
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if a required parameter is missing
+     */
+    public static void write(ImmutableNode root, OutputStream out)
+            throws IOException
+    {
+        if (root == null)
+        {
+            throw new IllegalArgumentException("Root node must not be null!");
+        }
+        if (out == null)
+        {
+            throw new IllegalArgumentException(
+                    "Output stream must not be null!");
+        }
+        new NodeSnapshotWriter(root).write(out);
+    }
+
+    /**
+     * Writes the node structure below the given root node as a snapshot into
+     * the specified file.
+     *
+     * @param root the root node of the structure (must not be <b>null</b>)
+     * @param file the target file (must not be <b>null</b>)
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if a required parameter is missing
+     */
+    public static void write(ImmutableNode root, File file) throws IOException
+    {
+        if (file == null)
+        {
+            throw new IllegalArgumentException("File must not be null!");
+        }
+        OutputStream out =
+                new BufferedOutputStream(new FileOutputStream(file));
+        try
+        {
+            write(root, out);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Opens the specified snapshot file. The file is mapped into memory in
+     * read-only mode; its content is accessed when the nodes are queried.
+     *
+     * @param file the snapshot file (must not be <b>null</b>)
+     * @return the {@code NodeSnapshot} for this file
+     * @throws IOException if the file cannot be mapped
+     * @throws IllegalArgumentException if the file is <b>null</b> or does not
+     *         contain a valid snapshot
+     */
+    public static NodeSnapshot open(File file) throws IOException
+    {
+        if (file == null)
+        {
+            throw new IllegalArgumentException("File must not be null!");
+        }
+        FileInputStream in = new FileInputStream(file);
+        try
+        {
+            FileChannel channel = in.getChannel();
+            return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size()));
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Creates a {@code NodeSnapshot} for the data in the given buffer. The
+     * buffer must contain a snapshot starting at position 0 and ending at its
+     * capacity. Its content must not be changed afterwards.
+     *
+     * @param buf the buffer (must not be <b>null</b>)
+     * @return the {@code NodeSnapshot} for this buffer
+     * @throws IllegalArgumentException if the buffer is <b>null</b> or does
+     *         not contain a valid snapshot
+     */
+    public static NodeSnapshot wrap(ByteBuffer buf)
+    {
+        if (buf == null)
+        {
+            throw new IllegalArgumentException("Buffer must not be null!");
+        }
+        return new NodeSnapshot(buf.asReadOnlyBuffer());
+    }
+
+    /**
+     * Checks whether the given value retains its type when it is stored in a
+     * snapshot. This is the case for <b>null</b>, strings, booleans, and
+     * numbers of type {@code Integer}, {@code Long}, {@code Float}, and
+     * {@code Double}. Other values are converted to strings.
+     *
+     * @param value the value to be checked
+     * @return a flag whether this value is stored with its type
+     */
+    public static boolean isTypePreserved(Object value)
+    {
+        return value == null || value instanceof String
+                || value instanceof Boolean || value instanceof Integer
+                || value instanceof Long || value instanceof Float
+                || value instanceof Double;
+    }
+
+    /**
+     * Returns the root node of this snapshot.
+     *
+     * @return the root node
+     */
+    public SnapshotNode getRootNode()
+    {
+        return rootNode;
+    }
+
+    /**
+     * Returns a {@code NodeHandler} for accessing the nodes of this snapshot.
+     *
+     * @return the {@code NodeHandler}
+     */
+    public NodeHandler<SnapshotNode> getNodeHandler()
+    {
+        return nodeHandler;
+    }
+
+    /**
+     * Returns the number of nodes contained in this snapshot.
+     *
+     * @return the number of nodes
+     */
+    public int getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    /**
+     * Converts the structure below the given node to a structure of
+     * {@link ImmutableNode} objects. This method creates objects for all nodes
+     * in the sub tree.
+     *
+     * @param node the root node of the structure to be converted (must belong
+     *        to this snapshot)
+     * @return the corresponding {@code ImmutableNode}
+     * @throws IllegalArgumentException if the node does not belong to this
+     *         snapshot
+     */
+    public ImmutableNode toImmutableNode(SnapshotNode node)
+    {
+        return createImmutableNode(checkNode(node).getIndex());
+    }
+
+    /**
+     * Returns the node with the given index.
+     *
+     * @param index the index
+     * @return the node
+     */
+    SnapshotNode node(int index)
+    {
+        return new SnapshotNode(this, index);
+    }
+
+    /**
+     * Checks whether the given node belongs to this snapshot.
+     *
+     * @param node the node to be checked
+     * @return the same node
+     * @throws IllegalArgumentException if the node does not belong to this
+     *         snapshot
+     */
+    SnapshotNode checkNode(SnapshotNode node)
+    {
+        if (node == null || node.getSnapshot() != this)
+        {
+            throw new IllegalArgumentException(
+                    "Node does not belong to this snapshot: " + node);
+        }
+        return node;
+    }
+
+    /**
+     * Returns the name of the node with the given index.
+     *
+     * @param index the index of the node
+     * @return the name of this node
+     */
+    String nodeName(int index)
+    {
+        return string(buffer.getInt(nodeOffset(index)));
+    }
+
+    /**
+     * Returns the value of the node with the given index.
+     *
+     * @param index the index of the node
+     * @return the value of this node
+     */
+    Object nodeValue(int index)
+    {
+        return value(nodeOffset(index) + NODE_VALUE);
+    }
+
+    /**
+     * Returns the index of the parent of the node with the given index. The
+     * root node has the parent -1.
+     *
+     * @param index the index of the node
+     * @return the index of the parent node
+     */
+    int parent(int index)
+    {
+        return buffer.getInt(nodeOffset(index) + NODE_PARENT);
+    }
+
+    /**
+     * Returns the index of the first child of the node with the given index.
+     *
+     * @param index the index of the node
+     * @return the index of the first child node
+     */
+    int firstChild(int index)
+    {
+        return buffer.getInt(nodeOffset(index) + NODE_FIRST_CHILD);
+    }
+
+    /**
+     * Returns the number of children of the node with the given index.
+     *
+     * @param index the index of the node
+     * @return the number of child nodes
+     */
+    int childCount(int index)
+    {
+        return buffer.getInt(nodeOffset(index) + NODE_CHILD_COUNT);
+    }
+
+    /**
+     * Returns the index of the first attribute of the node with the given
+     * index.
+     *
+     * @param index the index of the node
+     * @return the index of the first attribute
+     */
+    int firstAttribute(int index)
+    {
+        return buffer.getInt(nodeOffset(index) + NODE_FIRST_ATTRIBUTE);
+    }
+
+    /**
+     * Returns the number of attributes of the node with the given index.
+     *
+     * @param index the index of the node
+     * @return the number of attributes
+     */
+    int attributeCount(int index)
+    {
+        return buffer.getInt(nodeOffset(index) + NODE_ATTRIBUTE_COUNT);
+    }
+
+    /**
+     * Returns the name of the attribute with the given index.
+     *
+     * @param attrIndex the index of the attribute
+     * @return the name of this attribute
+     */
+    String attributeName(int attrIndex)
+    {
+        return string(buffer.getInt(attributeOffset(attrIndex)));
+    }
+
+    /**
+     * Returns the value of the attribute with the given index.
+     *
+     * @param attrIndex the index of the attribute
+     * @return the value of this attribute
+     */
+    Object attributeValue(int attrIndex)
+    {
+        return value(attributeOffset(attrIndex) + ATTRIBUTE_VALUE);
+    }
+
+    /**
+     * Returns the string with the given index from the string table. Strings
+     * are decoded only once. The index -1 represents a <b>null</b> string.
+     *
+     * @param stringIndex the index of the string
+     * @return the string
+     */
+    private String string(int stringIndex)
+    {
+        if (stringIndex < 0)
+        {
+            return null;
+        }
+        String s = strings[stringIndex];
+        if (s == null)
+        {
+            int start = buffer.getInt(HEADER_SIZE + 4 * stringIndex);
+            int end =
+                    (stringIndex < strings.length - 1) ? buffer
+                            .getInt(HEADER_SIZE + 4 * (stringIndex + 1))
+                            : stringDataLength;
+            byte[] bytes = new byte[end - start];
+            ByteBuffer buf = buffer.duplicate();
+            buf.position(stringDataOffset + start);
+            buf.get(bytes);
+            s = new String(bytes, UTF8);
+            // a race condition is harmless, strings are immutable
+            strings[stringIndex] = s;
+        }
+        return s;
+    }
+
+    /**
+     * Reads a typed value at the given position.
+     *
+     * @param pos the position of the value
+     * @return the value
+     */
+    private Object value(int pos)
+    {
+        switch (buffer.getInt(pos))
+        {
+        case TYPE_NULL:
+            return null;
+        case TYPE_STRING:
+            return string((int) buffer.getLong(pos + 4));
+        case TYPE_BOOLEAN:
+            return Boolean.valueOf(buffer.getLong(pos + 4) != 0);
+        case TYPE_INTEGER:
+            return Integer.valueOf((int) buffer.getLong(pos + 4));
+        case TYPE_LONG:
+            return Long.valueOf(buffer.getLong(pos + 4));
+        case TYPE_FLOAT:
+            return Float.valueOf(Float.intBitsToFloat((int) buffer
+                    .getLong(pos + 4)));
+        case TYPE_DOUBLE:
+            return Double.valueOf(Double.longBitsToDouble(buffer
+                    .getLong(pos + 4)));
+        default:
+            throw new IllegalStateException("Unknown value type: "
+                    + buffer.getInt(pos));
+        }
+    }
+
+    /**
+     * Returns the position of the record for the node with the given index.
+     *
+     * @param index the index of the node
+     * @return the position of this node's record
+     */
+    private int nodeOffset(int index)
+    {
+        return nodeTableOffset + NODE_SIZE * index;
+    }
+
+    /**
+     * Returns the position of the record for the attribute with the given
+     * index.
+     *
+     * @param attrIndex the index of the attribute
+     * @return the position of this attribute's record
+     */
+    private int attributeOffset(int attrIndex)
+    {
+        return attributeTableOffset + ATTRIBUTE_SIZE * attrIndex;
+    }
+
+    /**
+     * Creates an {@code ImmutableNode} for the node with the given index and
+     * its sub tree.
+     *
+     * @param index the index of the node
+     * @return the {@code ImmutableNode}
+     */
+    private ImmutableNode createImmutableNode(int index)
+    {
+        int count = childCount(index);
+        ImmutableNode.Builder builder = new ImmutableNode.Builder(count);
+        builder.name(nodeName(index)).value(nodeValue(index));
+        int firstAttr = firstAttribute(index);
+        for (int i = 0; i < attributeCount(index); i++)
+        {
+            builder.addAttribute(attributeName(firstAttr + i),
+                    attributeValue(firstAttr + i));
+        }
+        int first = firstChild(index);
+        for (int i = 0; i < count; i++)
+        {
+            builder.addChild(createImmutableNode(first + i));
+        }
+        return builder.create();
+    }
+}
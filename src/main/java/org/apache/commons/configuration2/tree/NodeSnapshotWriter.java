@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.tree;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * An internally used helper class which writes a node structure in the
+ * format of a {@link NodeSnapshot}.
+ * </p>
+ * <p>
+ * The constructor traverses the structure in breadth-first order and
+ * collects the data of all nodes, attributes, and strings. The
+ * {@code write()} method then produces the binary representation. Refer to
+ * the documentation of {@link NodeSnapshot} for a description of the format.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+class NodeSnapshotWriter
+{
+    /** The nodes of the structure in breadth-first order. */
+    private final List<ImmutableNode> nodes;
+
+    /** The indices of the parents of the nodes. */
+    private final List<Integer> parents;
+
+    /** A map assigning indices to the strings of the string table. */
+    private final Map<String, Integer> stringIndices;
+
+    /** The encoded strings of the string table. */
+    private final List<byte[]> strings;
+
+    /** The total number of attributes. */
+    private int attributeCount;
+
+    /**
+     * Creates a new instance of {@code NodeSnapshotWriter} for the structure
+     * below the given root node.
+     *
+     * @param root the root node
+     */
+    public NodeSnapshotWriter(ImmutableNode root)
+    {
+        nodes = new ArrayList<ImmutableNode>();
+        parents = new ArrayList<Integer>();
+        stringIndices = new HashMap<String, Integer>();
+        strings = new ArrayList<byte[]>();
+
+        nodes.add(root);
+        parents.add(-1);
+        for (int i = 0; i < nodes.size(); i++)
+        {
+            ImmutableNode node = nodes.get(i);
+            registerString(node.getNodeName());
+            registerValue(node.getValue());
+            for (Map.Entry<String, Object> e : node.getAttributes().entrySet())
+            {
+                registerString(e.getKey());
+                registerValue(e.getValue());
+                attributeCount++;
+            }
+            for (ImmutableNode child : node.getChildren())
+            {
+                nodes.add(child);
+                parents.add(i);
+            }
+        }
+    }
+
+    /**
+     * Writes the snapshot into the given stream.
+     *
+     * @param os the output stream
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(OutputStream os) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(os);
+        int stringDataLength = 0;
+        for (byte[] s : strings)
+        {
+            stringDataLength += s.length;
+        }
+
+        out.writeInt(NodeSnapshot.MAGIC);
+        out.writeInt(NodeSnapshot.VERSION);
+        out.writeInt(strings.size());
+        out.writeInt(nodes.size());
+        out.writeInt(attributeCount);
+        out.writeInt(stringDataLength);
+
+        int offset = 0;
+        for (byte[] s : strings)
+        {
+            out.writeInt(offset);
+            offset += s.length;
+        }
+        for (byte[] s : strings)
+        {
+            out.write(s);
+        }
+
+        writeNodes(out);
+        writeAttributes(out);
+        out.flush();
+    }
+
+    /**
+     * Writes the node table.
+     *
+     * @param out the output stream
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeNodes(DataOutputStream out) throws IOException
+    {
+        int nextChild = 1;
+        int nextAttribute = 0;
+        for (int i = 0; i < nodes.size(); i++)
+        {
+            ImmutableNode node = nodes.get(i);
+            int childCount = node.getChildren().size();
+            int attrCount = node.getAttributes().size();
+            out.writeInt(stringIndex(node.getNodeName()));
+            out.writeInt(parents.get(i));
+            out.writeInt(nextChild);
+            out.writeInt(childCount);
+            out.writeInt(nextAttribute);
+            out.writeInt(attrCount);
+            writeValue(out, node.getValue());
+            nextChild += childCount;
+            nextAttribute += attrCount;
+        }
+    }
+
+    /**
+     * Writes the attribute table.
+     *
+     * @param out the output stream
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeAttributes(DataOutputStream out) throws IOException
+    {
+        for (ImmutableNode node : nodes)
+        {
+            for (Map.Entry<String, Object> e : node.getAttributes().entrySet())
+            {
+                out.writeInt(stringIndex(e.getKey()));
+                writeValue(out, e.getValue());
+            }
+        }
+    }
+
+    /**
+     * Writes a typed value.
+     *
+     * @param out the output stream
+     * @param value the value
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeValue(DataOutputStream out, Object value)
+            throws IOException
+    {
+        if (value == null)
+        {
+            out.writeInt(NodeSnapshot.TYPE_NULL);
+            out.writeLong(0);
+        }
+        else if (value instanceof Boolean)
+        {
+            out.writeInt(NodeSnapshot.TYPE_BOOLEAN);
+            out.writeLong(((Boolean) value).booleanValue() ? 1 : 0);
+        }
+        else if (value instanceof Integer)
+        {
+            out.writeInt(NodeSnapshot.TYPE_INTEGER);
+            out.writeLong(((Integer) value).intValue());
+        }
+        else if (value instanceof Long)
+        {
+            out.writeInt(NodeSnapshot.TYPE_LONG);
+            out.writeLong(((Long) value).longValue());
+        }
+        else if (value instanceof Float)
+        {
+            out.writeInt(NodeSnapshot.TYPE_FLOAT);
+            out.writeLong(Float.floatToIntBits(((Float) value).floatValue()));
+        }
+        else if (value instanceof Double)
+        {
+            out.writeInt(NodeSnapshot.TYPE_DOUBLE);
+            out.writeLong(Double.doubleToLongBits(((Double) value)
+                    .doubleValue()));
+        }
+        else
+        {
+            out.writeInt(NodeSnapshot.TYPE_STRING);
+            out.writeLong(stringIndex(String.valueOf(value)));
+        }
+    }
+
+    /**
+     * Adds the given value to the string table if it is stored as a string.
+     *
+     * @param value the value
+     */
+    private void registerValue(Object value)
+    {
+        if (value instanceof String || !NodeSnapshot.isTypePreserved(value))
+        {
+            registerString(String.valueOf(value));
+        }
+    }
+
+    /**
+     * Returns the index of the given string in the string table. A
+     * <b>null</b> string is represented by the index -1.
+     *
+     * @param s the string
+     * @return the index of this string
+     */
+    private int stringIndex(String s)
+    {
+        return (s == null) ? -1 : stringIndices.get(s);
+    }
+
+    /**
+     * Adds the given string to the string table if it is not yet contained.
+     *
+     * @param s the string (may be <b>null</b>)
+     */
+    private void registerString(String s)
+    {
+        if (s != null && !stringIndices.containsKey(s))
+        {
+            stringIndices.put(s, strings.size());
+            strings.add(s.getBytes(NodeSnapshot.UTF8));
+        }
+    }
+}
@@ -16,11 +16,15 @@
  */
 package org.apache.commons.configuration2.tree;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
 
@@ -53,9 +57,23 @@ import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
  * </ul>
  * </p>
  * <p>
+ * If the nodes changed by an update are known, not all selectors have to be
+ * evaluated again. A selector is only applied if the subtree of its tracked
+ * node was changed, or if a node on the path from the root node to the tracked
+ * node (or a node with the same name on one of these levels) was changed. All
+ * other tracked nodes are not affected by the update and keep their current
+ * node instances. This works for keys which select nodes by navigating down
+ * the hierarchy based on node names; keys whose results depend on the content
+ * of unrelated parts of the hierarchy (e.g. XPath predicates referencing
+ * sibling nodes) are not evaluated again for changes in those parts.
+ * </p>
+ * <p>
  * Implementation note: This class is intended to work in a concurrent
  * environment. Instances are immutable. The represented state can be updated by
- * creating new instances which are then stored by the owning node model.
+ * creating new instances which are then stored by the owning node model. The
+ * tracked nodes are stored in a persistent map; so the costs of an update
+ * depend on the number of affected tracked nodes rather than on the total
+ * number of tracked nodes.
  * </p>
  *
  * @version $Id$
@@ -64,7 +82,7 @@ import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
 class NodeTracker
 {
     /** A map with data about tracked nodes. */
-    private final Map<NodeSelector, TrackedNodeData> trackedNodes;
+    private final PersistentHashMap<NodeSelector, TrackedNodeData> trackedNodes;
 
     /**
      * Creates a new instance of {@code NodeTracker}. This instance does not yet
@@ -72,7 +90,7 @@ class NodeTracker
      */
     public NodeTracker()
     {
-        this(Collections.<NodeSelector, TrackedNodeData> emptyMap());
+        this(PersistentHashMap.<NodeSelector, TrackedNodeData> empty());
     }
 
     /**
@@ -82,7 +100,7 @@ class NodeTracker
      *
      * @param map the map with tracked nodes
      */
-    private NodeTracker(Map<NodeSelector, TrackedNodeData> map)
+    private NodeTracker(PersistentHashMap<NodeSelector, TrackedNodeData> map)
     {
         trackedNodes = map;
     }
@@ -104,14 +122,11 @@ class NodeTracker
             NodeKeyResolver<ImmutableNode> resolver,
             NodeHandler<ImmutableNode> handler)
     {
-        Map<NodeSelector, TrackedNodeData> newState =
-                new HashMap<NodeSelector, TrackedNodeData>(trackedNodes);
-        TrackedNodeData trackData = newState.get(selector);
-        newState.put(
+        TrackedNodeData trackData = trackedNodes.get(selector);
+        return new NodeTracker(trackedNodes.put(
                 selector,
                 trackDataForAddedObserver(root, selector, resolver, handler,
-                        trackData));
-        return new NodeTracker(newState);
+                        trackData)));
     }
 
     /**
@@ -125,8 +140,8 @@ class NodeTracker
     public NodeTracker trackNodes(Collection<NodeSelector> selectors,
             Collection<ImmutableNode> nodes)
     {
-        Map<NodeSelector, TrackedNodeData> newState =
-                new HashMap<NodeSelector, TrackedNodeData>(trackedNodes);
+        PersistentHashMap.Mutator<NodeSelector, TrackedNodeData> newState =
+                trackedNodes.mutator();
         Iterator<ImmutableNode> itNodes = nodes.iterator();
         for (NodeSelector selector : selectors)
         {
@@ -143,7 +158,7 @@ class NodeTracker
             newState.put(selector, trackData);
         }
 
-        return new NodeTracker(newState);
+        return new NodeTracker(newState.toMap());
     }
 
     /**
@@ -160,18 +175,9 @@ class NodeTracker
     {
         TrackedNodeData trackData = getTrackedNodeData(selector);
 
-        Map<NodeSelector, TrackedNodeData> newState =
-                new HashMap<NodeSelector, TrackedNodeData>(trackedNodes);
         TrackedNodeData newTrackData = trackData.observerRemoved();
-        if (newTrackData == null)
-        {
-            newState.remove(selector);
-        }
-        else
-        {
-            newState.put(selector, newTrackData);
-        }
-        return new NodeTracker(newState);
+        return new NodeTracker((newTrackData == null) ? trackedNodes
+                .remove(selector) : trackedNodes.put(selector, newTrackData));
     }
 
     /**
@@ -241,6 +247,36 @@ class NodeTracker
     public NodeTracker update(ImmutableNode root, NodeSelector txTarget,
             NodeKeyResolver<ImmutableNode> resolver,
             NodeHandler<ImmutableNode> handler)
+    {
+        return update(root, txTarget, resolver, handler, null);
+    }
+
+    /**
+     * Updates tracking information after some nodes of the node structure
+     * have been changed. This method works like the method with the same name
+     * which does not expect a collection of changed nodes. However, selectors
+     * are only evaluated again for tracked nodes which can be affected by the
+     * changes on the passed in nodes. The nodes in the collection belong to
+     * the node structure before the update; these are the nodes whose content
+     * was changed directly (not the ancestor nodes which had to be replaced
+     * only because one of their descendants was changed). The passed in
+     * {@code NodeHandler} must be able to determine the parents of these nodes
+     * and of the tracked nodes. If the collection is <b>null</b>, all tracked
+     * nodes are updated.
+     *
+     * @param root the root node
+     * @param txTarget the {@code NodeSelector} referencing the target node of
+     *        the current transaction (may be <b>null</b>)
+     * @param resolver the {@code NodeKeyResolver}
+     * @param handler the {@code NodeHandler} for the old node structure
+     * @param changedNodes a collection with the nodes that have been changed
+     *        (may be <b>null</b>)
+     * @return the updated instance
+     */
+    public NodeTracker update(ImmutableNode root, NodeSelector txTarget,
+            NodeKeyResolver<ImmutableNode> resolver,
+            NodeHandler<ImmutableNode> handler,
+            Collection<ImmutableNode> changedNodes)
     {
         if (trackedNodes.isEmpty())
         {
@@ -248,18 +284,25 @@ class NodeTracker
             return this;
         }
 
-        Map<NodeSelector, TrackedNodeData> newState =
-                new HashMap<NodeSelector, TrackedNodeData>();
-        for (Map.Entry<NodeSelector, TrackedNodeData> e : trackedNodes
-                .entrySet())
+        ChangedNodes changes =
+                (changedNodes != null) ? new ChangedNodes(changedNodes,
+                        handler) : null;
+        PersistentHashMap.Mutator<NodeSelector, TrackedNodeData> newState =
+                trackedNodes.mutator();
+        for (Map.Entry<NodeSelector, TrackedNodeData> e : trackedNodes)
         {
-            newState.put(
-                    e.getKey(),
-                    determineUpdatedTrackedNodeData(root, txTarget, resolver,
-                            handler, e));
+            if (!e.getValue().isDetached()
+                    && (changes == null || changes.isAffected(e.getValue()
+                            .getNode(), handler)))
+            {
+                newState.put(
+                        e.getKey(),
+                        determineUpdatedTrackedNodeData(root, txTarget,
+                                resolver, handler, e));
+            }
         }
 
-        return new NodeTracker(newState);
+        return new NodeTracker(newState.toMap());
     }
 
     /**
@@ -277,18 +320,17 @@ class NodeTracker
             return this;
         }
 
-        Map<NodeSelector, TrackedNodeData> newState =
-                new HashMap<NodeSelector, TrackedNodeData>();
-        for (Map.Entry<NodeSelector, TrackedNodeData> e : trackedNodes
-                .entrySet())
+        PersistentHashMap.Mutator<NodeSelector, TrackedNodeData> newState =
+                trackedNodes.mutator();
+        for (Map.Entry<NodeSelector, TrackedNodeData> e : trackedNodes)
         {
-            TrackedNodeData newData =
-                    e.getValue().isDetached() ? e.getValue() : e.getValue()
-                            .detach(null);
-            newState.put(e.getKey(), newData);
+            if (!e.getValue().isDetached())
+            {
+                newState.put(e.getKey(), e.getValue().detach(null));
+            }
         }
 
-        return new NodeTracker(newState);
+        return new NodeTracker(newState.toMap());
     }
 
     /**
@@ -303,10 +345,8 @@ class NodeTracker
     public NodeTracker replaceAndDetachTrackedNode(NodeSelector selector,
             ImmutableNode newNode)
     {
-        Map<NodeSelector, TrackedNodeData> newState =
-                new HashMap<NodeSelector, TrackedNodeData>(trackedNodes);
-        newState.put(selector, getTrackedNodeData(selector).detach(newNode));
-        return new NodeTracker(newState);
+        return new NodeTracker(trackedNodes.put(selector,
+                getTrackedNodeData(selector).detach(newNode)));
     }
 
     /**
@@ -442,6 +482,199 @@ class NodeTracker
         }
     }
 
+    /**
+     * A helper class storing information about the nodes changed by an update
+     * of the node structure. An instance is used to find out which tracked
+     * nodes may be affected by the update. For this purpose, the changed nodes
+     * and all their ancestors are stored; a tracked node contained in this set
+     * has been changed itself or in its subtree. In addition, the names of the
+     * changed nodes are stored per level of the hierarchy. If a node on the
+     * path to a tracked node has the same name as a changed node on the same
+     * level, the key of the tracked node may yield a different result now.
+     */
+    private static class ChangedNodes
+    {
+        /** A set with the changed nodes and their ancestors. */
+        private final Set<ImmutableNode> changedSubtrees;
+
+        /** A list with the names of changed nodes per level. */
+        private final List<Set<String>> changedNames;
+
+        /**
+         * Caches the levels of the ancestor nodes of tracked nodes which have
+         * already been checked.
+         */
+        private final Map<ImmutableNode, Integer> ancestorLevels;
+
+        /**
+         * Caches the results of checks for ancestor nodes. An entry is
+         * <b>true</b> if a changed node may affect the descendants of this
+         * node.
+         */
+        private final Map<ImmutableNode, Boolean> ancestorResults;
+
+        /** A flag whether the changed nodes could not be determined. */
+        private boolean unknownChanges;
+
+        /**
+         * Creates a new instance of {@code ChangedNodes} and initializes it
+         * from the given collection of changed nodes.
+         *
+         * @param nodes the changed nodes
+         * @param handler the {@code NodeHandler} for the old node structure
+         */
+        public ChangedNodes(Collection<ImmutableNode> nodes,
+                NodeHandler<ImmutableNode> handler)
+        {
+            changedSubtrees = new HashSet<ImmutableNode>();
+            changedNames = new ArrayList<Set<String>>();
+            ancestorLevels = new HashMap<ImmutableNode, Integer>();
+            ancestorResults = new HashMap<ImmutableNode, Boolean>();
+            for (ImmutableNode node : nodes)
+            {
+                List<ImmutableNode> path = pathToRoot(node, handler);
+                if (path == null)
+                {
+                    unknownChanges = true;
+                    break;
+                }
+                changedSubtrees.addAll(path);
+                fetchNamesForLevel(path.size() - 1).add(
+                        normalizeName(node.getNodeName()));
+            }
+        }
+
+        /**
+         * Checks whether the given tracked node can be affected by the changes
+         * represented by this object. If this method returns <b>false</b>,
+         * the selector of this node does not need to be evaluated again.
+         *
+         * @param node the tracked node
+         * @param handler the {@code NodeHandler} for the old node structure
+         * @return a flag whether this tracked node is affected
+         */
+        public boolean isAffected(ImmutableNode node,
+                NodeHandler<ImmutableNode> handler)
+        {
+            if (unknownChanges || changedSubtrees.contains(node))
+            {
+                return true;
+            }
+
+            try
+            {
+                ImmutableNode parent = handler.getParent(node);
+                return parent != null && isAncestorAffected(parent, handler);
+            }
+            catch (IllegalArgumentException iex)
+            {
+                return true;
+            }
+        }
+
+        /**
+         * Checks whether a change may affect the descendants of the given
+         * ancestor node of a tracked node. This is the case if this node or
+         * one of its ancestors has the same name as a changed node on the
+         * same level. Results are cached, so that each ancestor node is
+         * checked only once.
+         *
+         * @param node the ancestor node
+         * @param handler the {@code NodeHandler} for the old node structure
+         * @return a flag whether the descendants of this node are affected
+         */
+        private boolean isAncestorAffected(ImmutableNode node,
+                NodeHandler<ImmutableNode> handler)
+        {
+            Boolean result = ancestorResults.get(node);
+            if (result == null)
+            {
+                ImmutableNode parent = handler.getParent(node);
+                boolean affected;
+                int level;
+                if (parent == null)
+                {
+                    affected = false;
+                    level = 0;
+                }
+                else
+                {
+                    affected = isAncestorAffected(parent, handler);
+                    level = ancestorLevels.get(parent).intValue() + 1;
+                }
+                if (!affected && level < changedNames.size())
+                {
+                    affected =
+                            changedNames.get(level).contains(
+                                    normalizeName(node.getNodeName()));
+                }
+                result = Boolean.valueOf(affected);
+                ancestorLevels.put(node, Integer.valueOf(level));
+                ancestorResults.put(node, result);
+            }
+            return result.booleanValue();
+        }
+
+        /**
+         * Returns the set with the names of changed nodes on the given level.
+         * It is created on demand.
+         *
+         * @param level the level
+         * @return the set with names for this level
+         */
+        private Set<String> fetchNamesForLevel(int level)
+        {
+            while (changedNames.size() <= level)
+            {
+                changedNames.add(new HashSet<String>());
+            }
+            return changedNames.get(level);
+        }
+
+        /**
+         * Normalizes a node name for comparisons. Names are compared case
+         * insensitively because expression engines may match node names in
+         * this way.
+         *
+         * @param name the node name (may be <b>null</b>)
+         * @return the normalized name
+         */
+        private static String normalizeName(String name)
+        {
+            return (name != null) ? name.toLowerCase(Locale.ENGLISH) : null;
+        }
+
+        /**
+         * Determines the path from the given node to the root node. The list
+         * returned by this method starts with the passed in node and ends with
+         * the root node. If the node does not belong to the structure, result
+         * is <b>null</b>.
+         *
+         * @param node the node
+         * @param handler the {@code NodeHandler}
+         * @return the path from this node to the root node or <b>null</b>
+         */
+        private static List<ImmutableNode> pathToRoot(ImmutableNode node,
+                NodeHandler<ImmutableNode> handler)
+        {
+            List<ImmutableNode> path = new ArrayList<ImmutableNode>();
+            try
+            {
+                ImmutableNode current = node;
+                while (current != null)
+                {
+                    path.add(current);
+                    current = handler.getParent(current);
+                }
+                return path;
+            }
+            catch (IllegalArgumentException iex)
+            {
+                return null;
+            }
+        }
+    }
+
     /**
      * A simple data class holding information about a tracked node.
      */
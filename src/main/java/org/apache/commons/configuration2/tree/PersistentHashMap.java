@@ -0,0 +1,999 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.tree;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * An internally used immutable map implementation which supports cheap
+ * modifications through structural sharing.
+ * </p>
+ * <p>
+ * This class is used by the in-memory node model to store information about
+ * the current node structure, e.g. the mapping from nodes to their parents.
+ * Each update of the model produces a new {@link TreeData} object; copying
+ * such mappings completely on each update would make changes on large node
+ * structures very expensive. Therefore, this class implements a hash array
+ * mapped trie: Entries are stored in a tree of small nodes which are indexed
+ * by fragments of the hash codes of the keys. Adding or removing an entry
+ * only creates copies of the nodes on the path to the affected entry (at most
+ * 7 levels); all other nodes are shared between the old and the new map.
+ * </p>
+ * <p>
+ * Instances are immutable and thus can be shared between threads without
+ * synchronization. For bulk updates, a {@link Mutator} can be obtained. A
+ * mutator modifies nodes it has created itself in place and therefore
+ * produces less garbage; the map it has been created from is not affected.
+ * </p>
+ * <p>
+ * Keys are compared using their {@code equals()} and {@code hashCode()}
+ * methods. <b>null</b> keys and values are not supported.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+final class PersistentHashMap<K, V> implements Iterable<Map.Entry<K, V>>
+{
+    /** The number of hash bits consumed on each level of the trie. */
+    private static final int BITS = 5;
+
+    /** The mask for extracting the hash bits for a level. */
+    private static final int MASK = (1 << BITS) - 1;
+
+    /** A special object for marking missing entries. */
+    private static final Object NOT_FOUND = new Object();
+
+    /** The empty map instance. */
+    @SuppressWarnings("rawtypes")
+    private static final PersistentHashMap EMPTY = new PersistentHashMap(null,
+            0);
+
+    /** The root node of the trie; <b>null</b> for an empty map. */
+    private final TrieNode root;
+
+    /** The number of entries in this map. */
+    private final int size;
+
+    /**
+     * Creates a new instance of {@code PersistentHashMap} with the given root
+     * node and size.
+     *
+     * @param root the root node
+     * @param size the number of entries
+     */
+    private PersistentHashMap(TrieNode root, int size)
+    {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns an empty {@code PersistentHashMap}.
+     *
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty()
+    {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a new {@code PersistentHashMap} with the content of the given
+     * map.
+     *
+     * @param map the map to be copied
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     * @return the new {@code PersistentHashMap}
+     */
+    public static <K, V> PersistentHashMap<K, V> copyOf(
+            Map<? extends K, ? extends V> map)
+    {
+        Mutator<K, V> mutator = PersistentHashMap.<K, V> empty().mutator();
+        for (Map.Entry<? extends K, ? extends V> e : map.entrySet())
+        {
+            mutator.put(e.getKey(), e.getValue());
+        }
+        return mutator.toMap();
+    }
+
+    /**
+     * Returns the number of entries contained in this map.
+     *
+     * @return the size of this map
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns a flag whether this map is empty.
+     *
+     * @return <b>true</b> if this map contains no entries, <b>false</b>
+     *         otherwise
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value associated with the given key or <b>null</b> if the
+     * key cannot be resolved.
+     *
+     * @param key the key
+     * @return the value of this key or <b>null</b>
+     */
+    public V get(Object key)
+    {
+        Object value = find(root, key);
+        return (value == NOT_FOUND) ? null : PersistentHashMap.<V> cast(value);
+    }
+
+    /**
+     * Returns a flag whether this map contains the given key.
+     *
+     * @param key the key
+     * @return <b>true</b> if this key is contained in this map, <b>false</b>
+     *         otherwise
+     */
+    public boolean containsKey(Object key)
+    {
+        return find(root, key) != NOT_FOUND;
+    }
+
+    /**
+     * Returns a map with the given entry added. If the key is already
+     * contained, its value is replaced. This map is not changed.
+     *
+     * @param key the key (must not be <b>null</b>)
+     * @param value the value (must not be <b>null</b>)
+     * @return the updated map
+     */
+    public PersistentHashMap<K, V> put(K key, V value)
+    {
+        Mutator<K, V> mutator = mutator();
+        mutator.put(key, value);
+        return mutator.toMap(this);
+    }
+
+    /**
+     * Returns a map with the given key removed. If the key is not contained,
+     * this instance is returned.
+     *
+     * @param key the key to be removed
+     * @return the updated map
+     */
+    public PersistentHashMap<K, V> remove(Object key)
+    {
+        Mutator<K, V> mutator = mutator();
+        mutator.remove(key);
+        return mutator.toMap(this);
+    }
+
+    /**
+     * Returns a {@code Mutator} for performing a series of updates on this
+     * map. This map is not affected by the updates.
+     *
+     * @return the {@code Mutator}
+     */
+    public Mutator<K, V> mutator()
+    {
+        return new Mutator<K, V>(this);
+    }
+
+    /**
+     * Returns an iterator over the entries of this map. The order is
+     * undefined. The entries returned by the iterator do not support the
+     * {@code setValue()} operation.
+     *
+     * @return an iterator over all entries
+     */
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator()
+    {
+        return new EntryIterator<K, V>(root);
+    }
+
+    /**
+     * Returns a string representation for this map.
+     *
+     * @return a string for this object
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder buf = new StringBuilder();
+        buf.append('{');
+        for (Map.Entry<K, V> e : this)
+        {
+            if (buf.length() > 1)
+            {
+                buf.append(", ");
+            }
+            buf.append(e.getKey()).append('=').append(e.getValue());
+        }
+        return buf.append('}').toString();
+    }
+
+    /**
+     * Searches for the value of the given key starting with the specified
+     * node.
+     *
+     * @param node the root node of the search (may be <b>null</b>)
+     * @param key the key
+     * @return the value found or {@code NOT_FOUND}
+     */
+    private static Object find(TrieNode node, Object key)
+    {
+        if (node == null || key == null)
+        {
+            return NOT_FOUND;
+        }
+        return node.find(0, hash(key), key);
+    }
+
+    /**
+     * Calculates the hash code of the given key. The bits of the original hash
+     * code are spread so that the low order bits used on the first levels of
+     * the trie are well distributed.
+     *
+     * @param key the key
+     * @return the hash code for this key
+     */
+    private static int hash(Object key)
+    {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the position of a hash in the bitmap of a node on the level
+     * determined by the shift.
+     *
+     * @param hash the hash code
+     * @param shift the shift
+     * @return the bit representing this hash on this level
+     */
+    private static int bitpos(int hash, int shift)
+    {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /**
+     * Creates a copy of an array with a pair of elements inserted at the
+     * given index.
+     *
+     * @param array the source array
+     * @param idx the index
+     * @param a the first element to be inserted
+     * @param b the second element to be inserted
+     * @return the new array
+     */
+    private static Object[] insertPair(Object[] array, int idx, Object a,
+            Object b)
+    {
+        Object[] result = new Object[array.length + 2];
+        System.arraycopy(array, 0, result, 0, idx);
+        result[idx] = a;
+        result[idx + 1] = b;
+        System.arraycopy(array, idx, result, idx + 2, array.length - idx);
+        return result;
+    }
+
+    /**
+     * Creates a copy of an array with the pair of elements at the given index
+     * removed.
+     *
+     * @param array the source array
+     * @param idx the index
+     * @return the new array
+     */
+    private static Object[] removePair(Object[] array, int idx)
+    {
+        Object[] result = new Object[array.length - 2];
+        System.arraycopy(array, 0, result, 0, idx);
+        System.arraycopy(array, idx + 2, result, idx, result.length - idx);
+        return result;
+    }
+
+    /**
+     * Creates a node containing the two specified entries.
+     *
+     * @param edit the edit token
+     * @param shift the current shift
+     * @param key1 the first key
+     * @param val1 the first value
+     * @param hash2 the hash of the second key
+     * @param key2 the second key
+     * @param val2 the second value
+     * @return the new node
+     */
+    private static TrieNode createNode(Object edit, int shift, Object key1,
+            Object val1, int hash2, Object key2, Object val2)
+    {
+        int hash1 = hash(key1);
+        if (hash1 == hash2)
+        {
+            return new CollisionNode(edit, hash1, new Object[] {
+                    key1, val1, key2, val2
+            });
+        }
+        Counter dummy = new Counter();
+        return BitmapNode.EMPTY.put(edit, shift, hash1, key1, val1, dummy)
+                .put(edit, shift, hash2, key2, val2, dummy);
+    }
+
+    /**
+     * Helper method for an unchecked cast.
+     *
+     * @param obj the object to be casted
+     * @param <T> the target type
+     * @return the casted object
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object obj)
+    {
+        return (T) obj;
+    }
+
+    /**
+     * <p>
+     * A class for performing multiple updates on a {@code PersistentHashMap}
+     * efficiently.
+     * </p>
+     * <p>
+     * A mutator is initialized from an existing map. It offers methods for
+     * adding and removing entries. Trie nodes which are created by the
+     * mutator are owned by it and updated in place; nodes of the original map
+     * are copied before they are changed. So the original map is never
+     * affected. When all updates are done, the resulting map can be obtained
+     * using the {@link #toMap()} method. After that, the mutator must not be
+     * used any more. Instances are not thread-safe.
+     * </p>
+     *
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     */
+    static final class Mutator<K, V>
+    {
+        /** The token identifying nodes owned by this mutator. */
+        private Object edit;
+
+        /** The current root node. */
+        private TrieNode root;
+
+        /** The current size. */
+        private int size;
+
+        /**
+         * Creates a new instance of {@code Mutator} based on the given map.
+         *
+         * @param map the map to be updated
+         */
+        private Mutator(PersistentHashMap<K, V> map)
+        {
+            edit = new Object();
+            root = map.root;
+            size = map.size;
+        }
+
+        /**
+         * Returns the current number of entries.
+         *
+         * @return the size
+         */
+        public int size()
+        {
+            return size;
+        }
+
+        /**
+         * Returns the current value of the given key.
+         *
+         * @param key the key
+         * @return the value of this key or <b>null</b>
+         */
+        public V get(Object key)
+        {
+            Object value = find(root, key);
+            return (value == NOT_FOUND) ? null : PersistentHashMap
+                    .<V> cast(value);
+        }
+
+        /**
+         * Adds or replaces an entry.
+         *
+         * @param key the key (must not be <b>null</b>)
+         * @param value the value (must not be <b>null</b>)
+         * @return the previous value of this key or <b>null</b>
+         * @throws IllegalArgumentException if the key or the value is
+         *         <b>null</b>
+         */
+        public V put(K key, V value)
+        {
+            ensureActive();
+            if (key == null || value == null)
+            {
+                throw new IllegalArgumentException(
+                        "Null keys or values are not supported!");
+            }
+            Counter counter = new Counter();
+            TrieNode start = (root != null) ? root : BitmapNode.EMPTY;
+            root = start.put(edit, 0, hash(key), key, value, counter);
+            size += counter.added;
+            return PersistentHashMap.<V> cast(counter.oldValue);
+        }
+
+        /**
+         * Removes an entry.
+         *
+         * @param key the key to be removed
+         * @return the value of the removed key or <b>null</b>
+         */
+        public V remove(Object key)
+        {
+            ensureActive();
+            if (root == null || key == null)
+            {
+                return null;
+            }
+            Counter counter = new Counter();
+            root = root.remove(edit, 0, hash(key), key, counter);
+            if (counter.oldValue != null)
+            {
+                size--;
+            }
+            return PersistentHashMap.<V> cast(counter.oldValue);
+        }
+
+        /**
+         * Returns the map resulting from the updates performed by this
+         * mutator. This mutator must not be used any more.
+         *
+         * @return the resulting map
+         */
+        public PersistentHashMap<K, V> toMap()
+        {
+            ensureActive();
+            edit = null;
+            return (size == 0) ? PersistentHashMap.<K, V> empty()
+                    : new PersistentHashMap<K, V>(root, size);
+        }
+
+        /**
+         * Returns the resulting map, reusing the given original map if no
+         * changes have been made.
+         *
+         * @param original the map this mutator was created from
+         * @return the resulting map
+         */
+        private PersistentHashMap<K, V> toMap(PersistentHashMap<K, V> original)
+        {
+            return (root == original.root) ? original : toMap();
+        }
+
+        /**
+         * Checks whether this mutator can still be used.
+         *
+         * @throws IllegalStateException if the map has already been created
+         */
+        private void ensureActive()
+        {
+            if (edit == null)
+            {
+                throw new IllegalStateException("Mutator already completed!");
+            }
+        }
+    }
+
+    /**
+     * A helper class for passing information about an update operation back
+     * to the caller.
+     */
+    private static class Counter
+    {
+        /** The number of entries added. */
+        int added;
+
+        /** The previous value of the affected key. */
+        Object oldValue;
+    }
+
+    /**
+     * Definition of an interface for the nodes of the trie.
+     */
+    private interface TrieNode
+    {
+        /**
+         * Searches for a key.
+         *
+         * @param shift the current shift
+         * @param hash the hash of the key
+         * @param key the key
+         * @return the value or {@code NOT_FOUND}
+         */
+        Object find(int shift, int hash, Object key);
+
+        /**
+         * Adds or replaces an entry.
+         *
+         * @param edit the edit token
+         * @param shift the current shift
+         * @param hash the hash of the key
+         * @param key the key
+         * @param value the value
+         * @param counter the counter for reporting changes
+         * @return the updated node
+         */
+        TrieNode put(Object edit, int shift, int hash, Object key,
+                Object value, Counter counter);
+
+        /**
+         * Removes an entry.
+         *
+         * @param edit the edit token
+         * @param shift the current shift
+         * @param hash the hash of the key
+         * @param key the key
+         * @param counter the counter for reporting changes
+         * @return the updated node or <b>null</b> if it became empty
+         */
+        TrieNode remove(Object edit, int shift, int hash, Object key,
+                Counter counter);
+
+        /**
+         * Returns the array with the content of this node. The array contains
+         * pairs of elements. In a pair, the first element is a key and the
+         * second one the value; if the key is <b>null</b>, the second element
+         * is a sub node.
+         *
+         * @return the array with the content
+         */
+        Object[] content();
+    }
+
+    /**
+     * A trie node whose content is indexed by a bitmap. For each bit in the
+     * bitmap, the node contains either a single entry or a sub node.
+     */
+    private static final class BitmapNode implements TrieNode
+    {
+        /** An empty node. */
+        static final BitmapNode EMPTY = new BitmapNode(null, 0, new Object[0]);
+
+        /** The edit token of the mutator owning this node. */
+        private final Object edit;
+
+        /** The bitmap. */
+        private int bitmap;
+
+        /** The array with the content of this node. */
+        private Object[] array;
+
+        /**
+         * Creates a new instance of {@code BitmapNode}.
+         *
+         * @param edit the edit token
+         * @param bitmap the bitmap
+         * @param array the content array
+         */
+        BitmapNode(Object edit, int bitmap, Object[] array)
+        {
+            this.edit = edit;
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        @Override
+        public Object find(int shift, int hash, Object key)
+        {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0)
+            {
+                return NOT_FOUND;
+            }
+            int idx = index(bit);
+            Object k = array[2 * idx];
+            Object v = array[2 * idx + 1];
+            if (k == null)
+            {
+                return ((TrieNode) v).find(shift + BITS, hash, key);
+            }
+            return key.equals(k) ? v : NOT_FOUND;
+        }
+
+        @Override
+        public TrieNode put(Object edit, int shift, int hash, Object key,
+                Object value, Counter counter)
+        {
+            int bit = bitpos(hash, shift);
+            int idx = index(bit);
+            if ((bitmap & bit) == 0)
+            {
+                counter.added = 1;
+                return new BitmapNode(edit, bitmap | bit, insertPair(array,
+                        2 * idx, key, value));
+            }
+
+            Object k = array[2 * idx];
+            Object v = array[2 * idx + 1];
+            if (k == null)
+            {
+                TrieNode child = (TrieNode) v;
+                TrieNode newChild =
+                        child.put(edit, shift + BITS, hash, key, value,
+                                counter);
+                return (newChild == child) ? this : set(edit, 2 * idx + 1,
+                        newChild);
+            }
+            if (key.equals(k))
+            {
+                counter.oldValue = v;
+                return (v == value) ? this : set(edit, 2 * idx + 1, value);
+            }
+
+            counter.added = 1;
+            BitmapNode node = editable(edit);
+            node.array[2 * idx] = null;
+            node.array[2 * idx + 1] =
+                    createNode(edit, shift + BITS, k, v, hash, key, value);
+            return node;
+        }
+
+        @Override
+        public TrieNode remove(Object edit, int shift, int hash, Object key,
+                Counter counter)
+        {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0)
+            {
+                return this;
+            }
+            int idx = index(bit);
+            Object k = array[2 * idx];
+            Object v = array[2 * idx + 1];
+            if (k == null)
+            {
+                TrieNode child = (TrieNode) v;
+                TrieNode newChild =
+                        child.remove(edit, shift + BITS, hash, key, counter);
+                if (newChild == child)
+                {
+                    return this;
+                }
+                if (newChild != null)
+                {
+                    return set(edit, 2 * idx + 1, newChild);
+                }
+                return removeIndex(edit, idx, bit);
+            }
+            if (key.equals(k))
+            {
+                counter.oldValue = v;
+                return removeIndex(edit, idx, bit);
+            }
+            return this;
+        }
+
+        @Override
+        public Object[] content()
+        {
+            return array;
+        }
+
+        /**
+         * Returns the index in the content array (divided by 2) for the given
+         * bit.
+         *
+         * @param bit the bit
+         * @return the index
+         */
+        private int index(int bit)
+        {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        /**
+         * Returns a node with the element at the given index replaced.
+         *
+         * @param edit the edit token
+         * @param idx the index in the content array
+         * @param obj the new element
+         * @return the updated node
+         */
+        private BitmapNode set(Object edit, int idx, Object obj)
+        {
+            BitmapNode node = editable(edit);
+            node.array[idx] = obj;
+            return node;
+        }
+
+        /**
+         * Returns a node with the entry at the given index removed.
+         *
+         * @param edit the edit token
+         * @param idx the index (divided by 2)
+         * @param bit the bit of the entry
+         * @return the updated node or <b>null</b> if it is empty
+         */
+        private BitmapNode removeIndex(Object edit, int idx, int bit)
+        {
+            if (bitmap == bit)
+            {
+                return null;
+            }
+            return new BitmapNode(edit, bitmap ^ bit, removePair(array,
+                    2 * idx));
+        }
+
+        /**
+         * Returns a node which can be changed in place using the given edit
+         * token. If this node is owned by this token, it is returned.
+         * Otherwise, a copy is created.
+         *
+         * @param token the edit token
+         * @return the editable node
+         */
+        private BitmapNode editable(Object token)
+        {
+            if (edit != null && edit == token)
+            {
+                return this;
+            }
+            return new BitmapNode(token, bitmap, array.clone());
+        }
+    }
+
+    /**
+     * A trie node storing entries whose keys have the same hash code.
+     */
+    private static final class CollisionNode implements TrieNode
+    {
+        /** The edit token of the mutator owning this node. */
+        private final Object edit;
+
+        /** The common hash code. */
+        private final int hash;
+
+        /** The array with keys and values. */
+        private Object[] array;
+
+        /**
+         * Creates a new instance of {@code CollisionNode}.
+         *
+         * @param edit the edit token
+         * @param hash the hash code
+         * @param array the array with keys and values
+         */
+        CollisionNode(Object edit, int hash, Object[] array)
+        {
+            this.edit = edit;
+            this.hash = hash;
+            this.array = array;
+        }
+
+        @Override
+        public Object find(int shift, int hash, Object key)
+        {
+            int idx = indexOf(key);
+            return (idx < 0) ? NOT_FOUND : array[idx + 1];
+        }
+
+        @Override
+        public TrieNode put(Object edit, int shift, int hash, Object key,
+                Object value, Counter counter)
+        {
+            if (hash != this.hash)
+            {
+                // nest this node into a bitmap node and add the new entry
+                TrieNode node =
+                        new BitmapNode(edit, bitpos(this.hash, shift),
+                                new Object[] {
+                                        null, this
+                                });
+                return node.put(edit, shift, hash, key, value, counter);
+            }
+
+            int idx = indexOf(key);
+            if (idx >= 0)
+            {
+                counter.oldValue = array[idx + 1];
+                if (array[idx + 1] == value)
+                {
+                    return this;
+                }
+                CollisionNode node = editable(edit);
+                node.array[idx + 1] = value;
+                return node;
+            }
+
+            counter.added = 1;
+            return new CollisionNode(edit, hash, insertPair(array,
+                    array.length, key, value));
+        }
+
+        @Override
+        public TrieNode remove(Object edit, int shift, int hash, Object key,
+                Counter counter)
+        {
+            int idx = indexOf(key);
+            if (idx < 0)
+            {
+                return this;
+            }
+            counter.oldValue = array[idx + 1];
+            if (array.length == 2)
+            {
+                return null;
+            }
+            return new CollisionNode(edit, hash, removePair(array, idx));
+        }
+
+        @Override
+        public Object[] content()
+        {
+            return array;
+        }
+
+        /**
+         * Returns the index of the given key in the content array.
+         *
+         * @param key the key
+         * @return the index or -1 if the key cannot be found
+         */
+        private int indexOf(Object key)
+        {
+            for (int i = 0; i < array.length; i += 2)
+            {
+                if (key.equals(array[i]))
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns a node which can be changed in place using the given edit
+         * token.
+         *
+         * @param token the edit token
+         * @return the editable node
+         */
+        private CollisionNode editable(Object token)
+        {
+            if (edit != null && edit == token)
+            {
+                return this;
+            }
+            return new CollisionNode(token, hash, array.clone());
+        }
+    }
+
+    /**
+     * An iterator implementation over the entries of a trie. The trie is
+     * traversed in depth-first order using an explicit stack.
+     *
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     */
+    private static final class EntryIterator<K, V> implements
+            Iterator<Map.Entry<K, V>>
+    {
+        /** The stack with the arrays of the nodes to be processed. */
+        private final LinkedList<Object[]> arrays;
+
+        /** The stack with the current positions in these arrays. */
+        private final LinkedList<Integer> positions;
+
+        /** The next entry to be returned. */
+        private Map.Entry<K, V> nextEntry;
+
+        /**
+         * Creates a new instance of {@code EntryIterator}.
+         *
+         * @param root the root node of the trie (may be <b>null</b>)
+         */
+        EntryIterator(TrieNode root)
+        {
+            arrays = new LinkedList<Object[]>();
+            positions = new LinkedList<Integer>();
+            if (root != null)
+            {
+                arrays.push(root.content());
+                positions.push(Integer.valueOf(0));
+            }
+            advance();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return nextEntry != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next()
+        {
+            if (nextEntry == null)
+            {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<K, V> result = nextEntry;
+            advance();
+            return result;
+        }
+
+        /**
+         * {@inheritDoc} This operation is not supported.
+         */
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException(
+                    "Persistent maps cannot be changed!");
+        }
+
+        /**
+         * Determines the next entry to be returned.
+         */
+        private void advance()
+        {
+            nextEntry = null;
+            while (nextEntry == null && !arrays.isEmpty())
+            {
+                Object[] array = arrays.peek();
+                int pos = positions.pop().intValue();
+                if (pos >= array.length)
+                {
+                    arrays.pop();
+                }
+                else
+                {
+                    positions.push(Integer.valueOf(pos + 2));
+                    Object key = array[pos];
+                    if (key == null)
+                    {
+                        arrays.push(((TrieNode) array[pos + 1]).content());
+                        positions.push(Integer.valueOf(0));
+                    }
+                    else
+                    {
+                        nextEntry =
+                                new AbstractMap.SimpleImmutableEntry<K, V>(
+                                        PersistentHashMap.<K> cast(key),
+                                        PersistentHashMap
+                                                .<V> cast(array[pos + 1]));
+                    }
+                }
+            }
+        }
+    }
+}
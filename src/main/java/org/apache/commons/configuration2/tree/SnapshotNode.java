@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.tree;
+
+/**
+ * <p>
+ * A class representing a node of a {@link NodeSnapshot}.
+ * </p>
+ * <p>
+ * Objects of this class are lightweight handles which only store a reference
+ * to the snapshot and the index of the node. They are created on demand when
+ * a {@code NodeHandler} navigates through the structure of a snapshot. The
+ * data of a node can be obtained via the {@code NodeHandler} of the
+ * snapshot. Two instances are equal if they refer to the same node of the
+ * same snapshot.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public final class SnapshotNode
+{
+    /** The snapshot this node belongs to. */
+    private final NodeSnapshot snapshot;
+
+    /** The index of this node. */
+    private final int index;
+
+    /**
+     * Creates a new instance of {@code SnapshotNode}.
+     *
+     * @param snap the snapshot
+     * @param idx the index of the node
+     */
+    SnapshotNode(NodeSnapshot snap, int idx)
+    {
+        snapshot = snap;
+        index = idx;
+    }
+
+    /**
+     * Returns the snapshot this node belongs to.
+     *
+     * @return the {@code NodeSnapshot}
+     */
+    public NodeSnapshot getSnapshot()
+    {
+        return snapshot;
+    }
+
+    /**
+     * Returns the index of this node in the node table of its snapshot.
+     *
+     * @return the index of this node
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return index;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (!(obj instanceof SnapshotNode))
+        {
+            return false;
+        }
+
+        SnapshotNode c = (SnapshotNode) obj;
+        return index == c.index && snapshot == c.snapshot;
+    }
+
+    /**
+     * Returns a string representation of this node. It contains the name and
+     * the index of the node.
+     *
+     * @return a string for this object
+     */
+    @Override
+    public String toString()
+    {
+        return "SnapshotNode [name=" + snapshot.nodeName(index) + ", index="
+                + index + "]";
+    }
+}
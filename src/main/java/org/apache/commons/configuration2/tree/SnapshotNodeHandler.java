@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.tree;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * <p>
+ * An internally used {@code NodeHandler} implementation for the nodes of a
+ * {@link NodeSnapshot}.
+ * </p>
+ * <p>
+ * All data is read directly from the snapshot. Node objects are only created
+ * for the nodes which are returned by the methods of this class. A handler
+ * can be created for an arbitrary node of a snapshot; this node is then
+ * treated as root node, i.e. it does not have a parent.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+class SnapshotNodeHandler implements NodeHandler<SnapshotNode>
+{
+    /** The snapshot. */
+    private final NodeSnapshot snapshot;
+
+    /** The root node of this handler. */
+    private final SnapshotNode rootNode;
+
+    /**
+     * Creates a new instance of {@code SnapshotNodeHandler}.
+     *
+     * @param snap the snapshot
+     * @param root the root node
+     */
+    public SnapshotNodeHandler(NodeSnapshot snap, SnapshotNode root)
+    {
+        snapshot = snap;
+        rootNode = root;
+    }
+
+    @Override
+    public String nodeName(SnapshotNode node)
+    {
+        return snapshot.nodeName(node.getIndex());
+    }
+
+    @Override
+    public Object getValue(SnapshotNode node)
+    {
+        return snapshot.nodeValue(node.getIndex());
+    }
+
+    /**
+     * {@inheritDoc} The root node of this handler does not have a parent.
+     */
+    @Override
+    public SnapshotNode getParent(SnapshotNode node)
+    {
+        if (rootNode.equals(node))
+        {
+            return null;
+        }
+        int parent = snapshot.parent(node.getIndex());
+        return (parent < 0) ? null : snapshot.node(parent);
+    }
+
+    @Override
+    public List<SnapshotNode> getChildren(SnapshotNode node)
+    {
+        return new ChildList(snapshot.firstChild(node.getIndex()),
+                snapshot.childCount(node.getIndex()));
+    }
+
+    @Override
+    public List<SnapshotNode> getChildren(SnapshotNode node, String name)
+    {
+        return getMatchingChildren(node, NodeNameMatchers.EQUALS, name);
+    }
+
+    @Override
+    public <C> List<SnapshotNode> getMatchingChildren(SnapshotNode node,
+            NodeMatcher<C> matcher, C criterion)
+    {
+        List<SnapshotNode> result = new ArrayList<SnapshotNode>();
+        for (SnapshotNode c : getChildren(node))
+        {
+            if (matcher.matches(c, this, criterion))
+            {
+                result.add(c);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public SnapshotNode getChild(SnapshotNode node, int index)
+    {
+        return getChildren(node).get(index);
+    }
+
+    @Override
+    public int indexOfChild(SnapshotNode parent, SnapshotNode child)
+    {
+        if (snapshot.parent(child.getIndex()) != parent.getIndex())
+        {
+            return -1;
+        }
+        return child.getIndex() - snapshot.firstChild(parent.getIndex());
+    }
+
+    @Override
+    public int getChildrenCount(SnapshotNode node, String name)
+    {
+        if (name == null)
+        {
+            return snapshot.childCount(node.getIndex());
+        }
+        else
+        {
+            return getMatchingChildrenCount(node, NodeNameMatchers.EQUALS,
+                    name);
+        }
+    }
+
+    @Override
+    public <C> int getMatchingChildrenCount(SnapshotNode node,
+            NodeMatcher<C> matcher, C criterion)
+    {
+        int count = 0;
+        for (SnapshotNode c : getChildren(node))
+        {
+            if (matcher.matches(c, this, criterion))
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Set<String> getAttributes(SnapshotNode node)
+    {
+        int first = snapshot.firstAttribute(node.getIndex());
+        int count = snapshot.attributeCount(node.getIndex());
+        Set<String> names = new LinkedHashSet<String>();
+        for (int i = 0; i < count; i++)
+        {
+            names.add(snapshot.attributeName(first + i));
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
+    @Override
+    public boolean hasAttributes(SnapshotNode node)
+    {
+        return snapshot.attributeCount(node.getIndex()) > 0;
+    }
+
+    @Override
+    public Object getAttributeValue(SnapshotNode node, String name)
+    {
+        int first = snapshot.firstAttribute(node.getIndex());
+        int count = snapshot.attributeCount(node.getIndex());
+        for (int i = 0; i < count; i++)
+        {
+            if (snapshot.attributeName(first + i).equals(name))
+            {
+                return snapshot.attributeValue(first + i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc} This implementation assumes that a node is defined if it
+     * has a value or has children or has attributes.
+     */
+    @Override
+    public boolean isDefined(SnapshotNode node)
+    {
+        return getValue(node) != null
+                || snapshot.childCount(node.getIndex()) > 0
+                || hasAttributes(node);
+    }
+
+    @Override
+    public SnapshotNode getRootNode()
+    {
+        return rootNode;
+    }
+
+    /**
+     * A list implementation for the children of a node. As the children are
+     * stored in a continuous range of the node table, the node objects can be
+     * created on demand when they are accessed.
+     */
+    private class ChildList extends AbstractList<SnapshotNode> implements
+            RandomAccess
+    {
+        /** The index of the first child. */
+        private final int first;
+
+        /** The number of children. */
+        private final int count;
+
+        /**
+         * Creates a new instance of {@code ChildList}.
+         *
+         * @param firstChild the index of the first child
+         * @param childCount the number of children
+         */
+        public ChildList(int firstChild, int childCount)
+        {
+            first = firstChild;
+            count = childCount;
+        }
+
+        @Override
+        public SnapshotNode get(int index)
+        {
+            if (index < 0 || index >= count)
+            {
+                throw new IndexOutOfBoundsException("Invalid child index: "
+                        + index);
+            }
+            return snapshot.node(first + index);
+        }
+
+        @Override
+        public int size()
+        {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.tree;
+
+import java.util.Collection;
+
+/**
+ * <p>
+ * A read-only {@code NodeModel} implementation based on a
+ * {@link NodeSnapshot}.
+ * </p>
+ * <p>
+ * This class allows using the data of a snapshot as content of a hierarchical
+ * configuration. The nodes are read directly from the snapshot. As snapshots
+ * are immutable, all methods which would change the model throw an
+ * {@code UnsupportedOperationException}. Instances can be shared between
+ * multiple threads.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+public class SnapshotNodeModel implements NodeModel<SnapshotNode>
+{
+    /** Constant for the error message for update operations. */
+    private static final String ERR_READ_ONLY =
+            "A SnapshotNodeModel cannot be changed!";
+
+    /** The snapshot. */
+    private final NodeSnapshot snapshot;
+
+    /** The node handler. */
+    private final NodeHandler<SnapshotNode> nodeHandler;
+
+    /**
+     * Creates a new instance of {@code SnapshotNodeModel} which contains the
+     * whole structure of the given snapshot.
+     *
+     * @param snap the snapshot (must not be <b>null</b>)
+     * @throws IllegalArgumentException if the snapshot is <b>null</b>
+     */
+    public SnapshotNodeModel(NodeSnapshot snap)
+    {
+        this(checkSnapshot(snap), snap.getRootNode());
+    }
+
+    /**
+     * Creates a new instance of {@code SnapshotNodeModel} which contains the
+     * sub tree of the given node.
+     *
+     * @param snap the snapshot (must not be <b>null</b>)
+     * @param root the root node of the model (must belong to the snapshot)
+     * @throws IllegalArgumentException if the snapshot is <b>null</b> or the
+     *         root node does not belong to it
+     */
+    public SnapshotNodeModel(NodeSnapshot snap, SnapshotNode root)
+    {
+        snapshot = checkSnapshot(snap);
+        nodeHandler =
+                snap.checkNode(root).equals(snap.getRootNode()) ? snap
+                        .getNodeHandler() : new SnapshotNodeHandler(snap, root);
+    }
+
+    /**
+     * Returns the snapshot this model is based on.
+     *
+     * @return the {@code NodeSnapshot}
+     */
+    public NodeSnapshot getSnapshot()
+    {
+        return snapshot;
+    }
+
+    @Override
+    public NodeHandler<SnapshotNode> getNodeHandler()
+    {
+        return nodeHandler;
+    }
+
+    /**
+     * {@inheritDoc} This implementation converts the structure of this model
+     * to {@code ImmutableNode} objects.
+     */
+    @Override
+    public ImmutableNode getInMemoryRepresentation()
+    {
+        return snapshot.toImmutableNode(nodeHandler.getRootNode());
+    }
+
+    /**
+     * {@inheritDoc} This model cannot be changed; so this implementation
+     * throws an exception.
+     */
+    @Override
+    public void setRootNode(SnapshotNode newRoot)
+    {
+        throw new UnsupportedOperationException(ERR_READ_ONLY);
+    }
+
+    /**
+     * {@inheritDoc} This model cannot be changed; so this implementation
+     * throws an exception.
+     */
+    @Override
+    public void addProperty(String key, Iterable<?> values,
+            NodeKeyResolver<SnapshotNode> resolver)
+    {
+        throw new UnsupportedOperationException(ERR_READ_ONLY);
+    }
+
+    /**
+     * {@inheritDoc} This model cannot be changed; so this implementation
+     * throws an exception.
+     */
+    @Override
+    public void addNodes(String key, Collection<? extends SnapshotNode> nodes,
+            NodeKeyResolver<SnapshotNode> resolver)
+    {
+        throw new UnsupportedOperationException(ERR_READ_ONLY);
+    }
+
+    /**
+     * {@inheritDoc} This model cannot be changed; so this implementation
+     * throws an exception.
+     */
+    @Override
+    public void setProperty(String key, Object value,
+            NodeKeyResolver<SnapshotNode> resolver)
+    {
+        throw new UnsupportedOperationException(ERR_READ_ONLY);
+    }
+
+    /**
+     * {@inheritDoc} This model cannot be changed; so this implementation
+     * throws an exception.
+     */
+    @Override
+    public Object clearTree(String key, NodeKeyResolver<SnapshotNode> resolver)
+    {
+        throw new UnsupportedOperationException(ERR_READ_ONLY);
+    }
+
+    /**
+     * {@inheritDoc} This model cannot be changed; so this implementation
+     * throws an exception.
+     */
+    @Override
+    public void clearProperty(String key,
+            NodeKeyResolver<SnapshotNode> resolver)
+    {
+        throw new UnsupportedOperationException(ERR_READ_ONLY);
+    }
+
+    /**
+     * {@inheritDoc} This model cannot be changed; so this implementation
+     * throws an exception.
+     */
+    @Override
+    public void clear(NodeKeyResolver<SnapshotNode> resolver)
+    {
+        throw new UnsupportedOperationException(ERR_READ_ONLY);
+    }
+
+    /**
+     * Checks that a snapshot was provided.
+     *
+     * @param snap the snapshot to be checked
+     * @return the same snapshot
+     * @throws IllegalArgumentException if the snapshot is <b>null</b>
+     */
+    private static NodeSnapshot checkSnapshot(NodeSnapshot snap)
+    {
+        if (snap == null)
+        {
+            throw new IllegalArgumentException("Snapshot must not be null!");
+        }
+        return snap;
+    }
+}
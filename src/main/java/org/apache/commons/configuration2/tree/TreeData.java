@@ -16,9 +16,7 @@
  */
 package org.apache.commons.configuration2.tree;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * An internally used helper class for storing information about the managed
@@ -34,18 +32,23 @@ class TreeData extends AbstractImmutableNodeHandler implements ReferenceNodeHand
     /** The root node of the tree. */
     private final ImmutableNode root;
 
-    /** A map that associates the parent node to each node. */
-    private final Map<ImmutableNode, ImmutableNode> parentMapping;
+    /**
+     * A map that associates the parent node to each node. This is a
+     * persistent map, so it can be shared with the {@code TreeData} objects
+     * derived from this instance; an update only copies the parts affected by
+     * the changes.
+     */
+    private final PersistentHashMap<ImmutableNode, ImmutableNode> parentMapping;
 
     /**
      * Stores information about nodes which have been replaced by
      * manipulations of the structure. This map is used to avoid that the
      * parent mapping has to be updated after each change.
      */
-    private final Map<ImmutableNode, ImmutableNode> replacementMapping;
+    private final PersistentHashMap<ImmutableNode, ImmutableNode> replacementMapping;
 
     /** An inverse replacement mapping. */
-    private final Map<ImmutableNode, ImmutableNode> inverseReplacementMapping;
+    private final PersistentHashMap<ImmutableNode, ImmutableNode> inverseReplacementMapping;
 
     /** The node tracker. */
     private final NodeTracker nodeTracker;
@@ -53,6 +56,9 @@ class TreeData extends AbstractImmutableNodeHandler implements ReferenceNodeHand
     /** The reference tracker. */
     private final ReferenceTracker referenceTracker;
 
+    /** The index for looking up keys in this structure. */
+    private final NodeKeyIndex keyIndex;
+
     /**
      * Creates a new instance of {@code TreeData} and initializes it with all
      * data to be stored.
@@ -60,20 +66,65 @@ class TreeData extends AbstractImmutableNodeHandler implements ReferenceNodeHand
      * @param root the root node of the current tree
      * @param parentMapping the mapping to parent nodes
      * @param replacements the map with the nodes that have been replaced
+     * @param inverseReplacements the inverse of the replacement mapping
+     * @param tracker the {@code NodeTracker}
+     * @param refTracker the {@code ReferenceTracker}
+     */
+    public TreeData(ImmutableNode root,
+            PersistentHashMap<ImmutableNode, ImmutableNode> parentMapping,
+            PersistentHashMap<ImmutableNode, ImmutableNode> replacements,
+            PersistentHashMap<ImmutableNode, ImmutableNode> inverseReplacements,
+            NodeTracker tracker, ReferenceTracker refTracker)
+    {
+        this(root, parentMapping, replacements, inverseReplacements, tracker,
+                refTracker, new NodeKeyIndex(root, parentMapping.size()));
+    }
+
+    /**
+     * Creates a new instance of {@code TreeData} for the given root node
+     * which does not contain any replacements.
+     *
+     * @param root the root node of the current tree
+     * @param parentMapping the mapping to parent nodes
      * @param tracker the {@code NodeTracker}
      * @param refTracker the {@code ReferenceTracker}
      */
     public TreeData(ImmutableNode root,
-            Map<ImmutableNode, ImmutableNode> parentMapping,
-            Map<ImmutableNode, ImmutableNode> replacements,
+            PersistentHashMap<ImmutableNode, ImmutableNode> parentMapping,
             NodeTracker tracker, ReferenceTracker refTracker)
+    {
+        this(root, parentMapping, PersistentHashMap
+                .<ImmutableNode, ImmutableNode> empty(), PersistentHashMap
+                .<ImmutableNode, ImmutableNode> empty(), tracker, refTracker);
+    }
+
+    /**
+     * Creates a new instance of {@code TreeData} which uses the given key
+     * index. This constructor is used when only information not related to
+     * the node structure is changed; then the index can be shared.
+     *
+     * @param root the root node of the current tree
+     * @param parentMapping the mapping to parent nodes
+     * @param replacements the map with the nodes that have been replaced
+     * @param inverseReplacements the inverse of the replacement mapping
+     * @param tracker the {@code NodeTracker}
+     * @param refTracker the {@code ReferenceTracker}
+     * @param index the key index
+     */
+    private TreeData(ImmutableNode root,
+            PersistentHashMap<ImmutableNode, ImmutableNode> parentMapping,
+            PersistentHashMap<ImmutableNode, ImmutableNode> replacements,
+            PersistentHashMap<ImmutableNode, ImmutableNode> inverseReplacements,
+            NodeTracker tracker, ReferenceTracker refTracker,
+            NodeKeyIndex index)
     {
         this.root = root;
         this.parentMapping = parentMapping;
         replacementMapping = replacements;
-        inverseReplacementMapping = createInverseMapping(replacements);
+        inverseReplacementMapping = inverseReplacements;
         nodeTracker = tracker;
         referenceTracker = refTracker;
+        keyIndex = index;
     }
 
     @Override
@@ -130,23 +181,36 @@ class TreeData extends AbstractImmutableNodeHandler implements ReferenceNodeHand
     }
 
     /**
-     * Returns a copy of the mapping from nodes to their parents.
+     * Returns the mapping from nodes to their parents. Because this map is
+     * immutable, it can be used as starting point for the parent mapping of
+     * an updated structure without copying it.
+     *
+     * @return the parent mapping
+     */
+    public PersistentHashMap<ImmutableNode, ImmutableNode> getParentMapping()
+    {
+        return parentMapping;
+    }
+
+    /**
+     * Returns the map storing the replaced nodes.
      *
-     * @return the copy of the parent mapping
+     * @return the replacement mapping
      */
-    public Map<ImmutableNode, ImmutableNode> copyParentMapping()
+    public PersistentHashMap<ImmutableNode, ImmutableNode> getReplacementMapping()
     {
-        return new HashMap<ImmutableNode, ImmutableNode>(parentMapping);
+        return replacementMapping;
     }
 
     /**
-     * Returns a copy of the map storing the replaced nodes.
+     * Returns the inverse of the map storing the replaced nodes. This map
+     * associates replacement nodes with the nodes they have replaced.
      *
-     * @return the copy of the replacement mapping
+     * @return the inverse replacement mapping
      */
-    public Map<ImmutableNode, ImmutableNode> copyReplacementMapping()
+    public PersistentHashMap<ImmutableNode, ImmutableNode> getInverseReplacementMapping()
     {
-        return new HashMap<ImmutableNode, ImmutableNode>(replacementMapping);
+        return inverseReplacementMapping;
     }
 
     /**
@@ -160,7 +224,8 @@ class TreeData extends AbstractImmutableNodeHandler implements ReferenceNodeHand
     public TreeData updateNodeTracker(NodeTracker newTracker)
     {
         return new TreeData(root, parentMapping, replacementMapping,
-                newTracker, referenceTracker);
+                inverseReplacementMapping, newTracker, referenceTracker,
+                keyIndex);
     }
 
     /**
@@ -174,7 +239,24 @@ class TreeData extends AbstractImmutableNodeHandler implements ReferenceNodeHand
     public TreeData updateReferenceTracker(ReferenceTracker newTracker)
     {
         return new TreeData(root, parentMapping, replacementMapping,
-                nodeTracker, newTracker);
+                inverseReplacementMapping, nodeTracker, newTracker, keyIndex);
+    }
+
+    /**
+     * Tries to evaluate a query for a key in the default syntax using the key
+     * index of this structure. This is possible only if the query starts at
+     * the root node and the key does not use special features like indices.
+     * If the query cannot be handled, result is <b>null</b>. Otherwise, the
+     * query results are returned; this list must not be modified.
+     *
+     * @param queryRoot the node at which the query starts
+     * @param key the key
+     * @return the query results or <b>null</b>
+     */
+    public List<QueryResult<ImmutableNode>> queryKeyIndex(Object queryRoot,
+            String key)
+    {
+        return (queryRoot == root) ? keyIndex.query(key) : null;
     }
 
     /**
@@ -209,7 +291,7 @@ class TreeData extends AbstractImmutableNodeHandler implements ReferenceNodeHand
      * @return the corresponding node according to the mapping
      */
     private static ImmutableNode handleReplacements(ImmutableNode replace,
-            Map<ImmutableNode, ImmutableNode> mapping)
+            PersistentHashMap<ImmutableNode, ImmutableNode> mapping)
     {
         ImmutableNode node = replace;
         ImmutableNode org;
@@ -223,23 +305,4 @@ class TreeData extends AbstractImmutableNodeHandler implements ReferenceNodeHand
         } while (org != null);
         return node;
     }
-
-    /**
-     * Creates the inverse replacement mapping.
-     *
-     * @param replacements the original replacement mapping
-     * @return the inverse replacement mapping
-     */
-    private Map<ImmutableNode, ImmutableNode> createInverseMapping(
-            Map<ImmutableNode, ImmutableNode> replacements)
-    {
-        Map<ImmutableNode, ImmutableNode> inverseMapping =
-                new HashMap<ImmutableNode, ImmutableNode>();
-        for (Map.Entry<ImmutableNode, ImmutableNode> e : replacements
-                .entrySet())
-        {
-            inverseMapping.put(e.getValue(), e.getKey());
-        }
-        return inverseMapping;
-    }
 }
@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.tree.xpath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.configuration2.tree.NodeHandler;
+import org.apache.commons.configuration2.tree.QueryResult;
+
+/**
+ * <p>
+ * An internally used helper class representing a simple XPath expression
+ * which can be evaluated directly on a {@code NodeHandler}.
+ * </p>
+ * <p>
+ * Many keys passed to {@link XPathExpressionEngine} are plain paths like
+ * {@code tables/table[2]/@name}. Such paths only navigate along the child
+ * axis, optionally select a child by its position, and may end with an
+ * attribute. For them the overhead of JXPath is not necessary. This class
+ * checks whether a key has this simple form. If so, it can evaluate it by
+ * iterating over the children of the nodes involved. The results are the same
+ * as if the key was evaluated by JXPath.
+ * </p>
+ * <p>
+ * A simple path consists of steps separated by slashes; it may start with a
+ * slash. Each step is a node name, optionally followed by a positive index in
+ * square brackets. The last step can also be an attribute name prefixed by
+ * {@code @}. Names must not contain namespace prefixes or wildcards. All other
+ * expressions are handled by JXPath.
+ * </p>
+ * <p>
+ * Instances of this class are immutable and can be shared between multiple
+ * threads.
+ * </p>
+ *
+ * @version $Id$
+ * @since 2.1
+ */
+final class SimpleXPath
+{
+    /** Constant for an undefined index. */
+    private static final int NO_INDEX = 0;
+
+    /** The names of the nodes to be selected in the single steps. */
+    private final String[] names;
+
+    /** The indices of the nodes to be selected in the single steps. */
+    private final int[] indices;
+
+    /** The name of the selected attribute (may be <b>null</b>). */
+    private final String attributeName;
+
+    /**
+     * Creates a new instance of {@code SimpleXPath}.
+     *
+     * @param stepNames the names of the single steps
+     * @param stepIndices the indices of the single steps
+     * @param attrName the name of the selected attribute
+     */
+    private SimpleXPath(String[] stepNames, int[] stepIndices, String attrName)
+    {
+        names = stepNames;
+        indices = stepIndices;
+        attributeName = attrName;
+    }
+
+    /**
+     * Tries to parse the given key as a simple path. If this is successful, a
+     * new instance is returned. Otherwise, result is <b>null</b>; the key then
+     * has to be evaluated by JXPath.
+     *
+     * @param key the key to be parsed
+     * @return the corresponding {@code SimpleXPath} or <b>null</b>
+     */
+    public static SimpleXPath parse(String key)
+    {
+        if (key == null || key.length() == 0)
+        {
+            return null;
+        }
+
+        int pos = key.startsWith(XPathExpressionEngine.PATH_DELIMITER) ? 1 : 0;
+        List<String> stepNames = new ArrayList<String>();
+        List<Integer> stepIndices = new ArrayList<Integer>();
+        while (true)
+        {
+            if (pos >= key.length())
+            {
+                // empty step
+                return null;
+            }
+            if (key.startsWith(XPathExpressionEngine.ATTR_DELIMITER, pos))
+            {
+                int end = scanName(key, pos + 1);
+                return (end == key.length() && end > pos + 1) ? new SimpleXPath(
+                        toArray(stepNames), toIntArray(stepIndices),
+                        key.substring(pos + 1)) : null;
+            }
+
+            int end = scanName(key, pos);
+            if (end == pos)
+            {
+                return null;
+            }
+            stepNames.add(key.substring(pos, end));
+            pos = end;
+
+            int index = NO_INDEX;
+            if (pos < key.length() && key.charAt(pos) == '[')
+            {
+                int endIdx = key.indexOf(']', pos);
+                if (endIdx < 0)
+                {
+                    return null;
+                }
+                index = parseIndex(key.substring(pos + 1, endIdx));
+                if (index == NO_INDEX)
+                {
+                    return null;
+                }
+                pos = endIdx + 1;
+            }
+            stepIndices.add(Integer.valueOf(index));
+
+            if (pos == key.length())
+            {
+                return new SimpleXPath(toArray(stepNames),
+                        toIntArray(stepIndices), null);
+            }
+            if (!key.startsWith(XPathExpressionEngine.PATH_DELIMITER, pos))
+            {
+                return null;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * Evaluates this path on the specified root node. The path is always
+     * interpreted relative to the root node, no matter whether it starts with
+     * a slash or not.
+     *
+     * @param root the root node
+     * @param handler the {@code NodeHandler}
+     * @param <T> the type of the nodes involved
+     * @return a list with the results of the evaluation
+     */
+    public <T> List<QueryResult<T>> evaluate(T root, NodeHandler<T> handler)
+    {
+        List<T> nodes = Collections.singletonList(root);
+        for (int i = 0; i < names.length && !nodes.isEmpty(); i++)
+        {
+            List<T> children = new ArrayList<T>();
+            for (T node : nodes)
+            {
+                List<T> matches = handler.getChildren(node, names[i]);
+                if (indices[i] == NO_INDEX)
+                {
+                    children.addAll(matches);
+                }
+                else if (indices[i] <= matches.size())
+                {
+                    children.add(matches.get(indices[i] - 1));
+                }
+            }
+            nodes = children;
+        }
+
+        List<QueryResult<T>> results =
+                new ArrayList<QueryResult<T>>(nodes.size());
+        for (T node : nodes)
+        {
+            if (attributeName == null)
+            {
+                results.add(QueryResult.createNodeResult(node));
+            }
+            else if (handler.getAttributeValue(node, attributeName) != null)
+            {
+                results.add(QueryResult.createAttributeResult(node,
+                        attributeName));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Determines the end of a node or attribute name starting at the given
+     * position. Only characters allowed in XPath names are accepted; a name
+     * has to start with a letter or an underscore. If there is no valid name
+     * at this position, the start position is returned.
+     *
+     * @param key the key
+     * @param start the start position of the name
+     * @return the position after the end of the name
+     */
+    private static int scanName(String key, int start)
+    {
+        if (start >= key.length() || !isNameStart(key.charAt(start)))
+        {
+            return start;
+        }
+        int pos = start + 1;
+        while (pos < key.length() && isNamePart(key.charAt(pos)))
+        {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Checks whether the given character can start a name.
+     *
+     * @param c the character
+     * @return a flag whether this character is allowed
+     */
+    private static boolean isNameStart(char c)
+    {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    /**
+     * Checks whether the given character can be part of a name.
+     *
+     * @param c the character
+     * @return a flag whether this character is allowed
+     */
+    private static boolean isNamePart(char c)
+    {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-'
+                || c == '.';
+    }
+
+    /**
+     * Parses the content of an index expression. Only positive numbers
+     * consisting of digits are accepted. In all other cases, result is
+     * {@code NO_INDEX}.
+     *
+     * @param s the index expression
+     * @return the index
+     */
+    private static int parseIndex(String s)
+    {
+        if (s.length() == 0 || s.length() > 9)
+        {
+            return NO_INDEX;
+        }
+        int index = 0;
+        for (int i = 0; i < s.length(); i++)
+        {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9')
+            {
+                return NO_INDEX;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+
+    /**
+     * Converts a list of strings to an array.
+     *
+     * @param list the list
+     * @return the array
+     */
+    private static String[] toArray(List<String> list)
+    {
+        return list.toArray(new String[list.size()]);
+    }
+
+    /**
+     * Converts a list of integers to an array.
+     *
+     * @param list the list
+     * @return the array
+     */
+    private static int[] toIntArray(List<Integer> list)
+    {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++)
+        {
+            result[i] = list.get(i).intValue();
+        }
+        return result;
+    }
+}
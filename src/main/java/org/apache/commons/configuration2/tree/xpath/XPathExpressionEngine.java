@@ -18,8 +18,10 @@ package org.apache.commons.configuration2.tree.xpath;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 
 import org.apache.commons.configuration2.tree.ExpressionEngine;
@@ -133,6 +135,16 @@ import org.apache.commons.lang3.StringUtils;
  * should be added. For keys without a whitespace delimiter there may be
  * ambiguities.
  * </p>
+ * <p>
+ * Keys which are simple paths along the child axis - like
+ * {@code tables/table[1]/fields/field/@name} - are evaluated directly on the
+ * nodes without involving JXPath; this is significantly faster. The results
+ * are the same. The information whether a key is such a simple path is
+ * cached, so that frequently used keys have to be parsed only once. Compiled
+ * JXPath expressions are cached by JXPath itself. All other keys are
+ * evaluated by JXPath; here each query creates its own
+ * {@code JXPathContext}.
+ * </p>
  *
  * @since 1.3
  * @version $Id$
@@ -164,9 +176,24 @@ public class XPathExpressionEngine implements ExpressionEngine
     /** Constant for the end of an index expression. */
     private static final char END_INDEX = ']';
 
+    /** Constant for the maximum number of keys stored in the key cache. */
+    private static final int MAX_CACHED_KEYS = 256;
+
+    /**
+     * Constant for the object stored in the key cache for keys which cannot
+     * be evaluated as simple paths.
+     */
+    private static final Object NO_SIMPLE_PATH = new Object();
+
     /** The internally used context factory. */
     private final XPathContextFactory contextFactory;
 
+    /**
+     * A cache storing the parsed simple paths for keys. For keys which are no
+     * simple paths the {@code NO_SIMPLE_PATH} object is stored.
+     */
+    private final Map<String, Object> keyCache;
+
     /**
      * Creates a new instance of {@code XPathExpressionEngine} with default
      * settings.
@@ -185,6 +212,7 @@ public class XPathExpressionEngine implements ExpressionEngine
     XPathExpressionEngine(XPathContextFactory factory)
     {
         contextFactory = factory;
+        keyCache = createKeyCache();
     }
 
     /**
@@ -202,6 +230,12 @@ public class XPathExpressionEngine implements ExpressionEngine
         }
         else
         {
+            SimpleXPath path = fetchSimplePath(key);
+            if (path != null)
+            {
+                return path.evaluate(root, handler);
+            }
+
             JXPathContext context = createContext(root, handler);
             List<?> results = context.selectNodes(key);
             if (results == null)
@@ -332,7 +366,8 @@ public class XPathExpressionEngine implements ExpressionEngine
 
     /**
      * Creates the {@code JXPathContext} to be used for executing a query. This
-     * method delegates to the context factory.
+     * method delegates to the context factory. A new context is created for
+     * each query because a {@code JXPathContext} is not thread-safe.
      *
      * @param root the configuration root node
      * @param handler the node handler
@@ -343,6 +378,35 @@ public class XPathExpressionEngine implements ExpressionEngine
         return getContextFactory().createContext(root, handler);
     }
 
+    /**
+     * Returns the {@code SimpleXPath} object for the given key. If the key is
+     * not a simple path, result is <b>null</b>. Results are cached.
+     *
+     * @param key the key
+     * @return the {@code SimpleXPath} for this key or <b>null</b>
+     */
+    private SimpleXPath fetchSimplePath(String key)
+    {
+        Object path;
+        synchronized (keyCache)
+        {
+            path = keyCache.get(key);
+        }
+        if (path == null)
+        {
+            path = SimpleXPath.parse(key);
+            if (path == null)
+            {
+                path = NO_SIMPLE_PATH;
+            }
+            synchronized (keyCache)
+            {
+                keyCache.put(key, path);
+            }
+        }
+        return (path != NO_SIMPLE_PATH) ? (SimpleXPath) path : null;
+    }
+
     /**
      * Creates a {@code NodeAddData} object as a result of a
      * {@code prepareAdd()} operation. This method interprets the passed in path
@@ -558,6 +622,29 @@ public class XPathExpressionEngine implements ExpressionEngine
         }
     }
 
+    /**
+     * Creates the map for caching information about keys. The map has a
+     * limited size; the least recently used keys are removed.
+     *
+     * @return the key cache
+     */
+    private static Map<String, Object> createKeyCache()
+    {
+        return new LinkedHashMap<String, Object>(MAX_CACHED_KEYS, .75f, true)
+        {
+            /**
+             * The serial version UID.
+             */
+            private static final long serialVersionUID = 20160101L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest)
+            {
+                return size() > MAX_CACHED_KEYS;
+            }
+        };
+    }
+
     // static initializer: registers the configuration node pointer factory
     static
     {
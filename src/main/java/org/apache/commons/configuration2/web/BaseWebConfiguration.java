@@ -16,9 +16,12 @@
  */
 package org.apache.commons.configuration2.web;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 
 import org.apache.commons.configuration2.AbstractConfiguration;
+import org.apache.commons.configuration2.convert.ListDelimiterHandler;
 
 /**
  * <p>
@@ -29,6 +32,13 @@ import org.apache.commons.configuration2.AbstractConfiguration;
  * configurations. E.g. some methods are not supported by configurations of this
  * type, so they throw a {@code UnsupportedOperationException} exception.
  * </p>
+ * <p>
+ * The parameters of web configurations are plain strings which have to be
+ * split at list delimiters on each access. As the web container typically
+ * returns the same string instances again and again, the results of split
+ * operations are kept in a small cache keyed by the identity of the raw
+ * string. So repeated accesses to the same parameter do not split it again.
+ * </p>
  *
  * @author <a
  * href="http://commons.apache.org/configuration/team-list.html">Commons
@@ -38,6 +48,12 @@ import org.apache.commons.configuration2.AbstractConfiguration;
  */
 abstract class BaseWebConfiguration extends AbstractConfiguration
 {
+    /** Constant for the number of entries of the split cache. */
+    private static final int SPLIT_CACHE_SIZE = 64;
+
+    /** The cache for the results of split operations. */
+    private final SplitResult[] splitCache = new SplitResult[SPLIT_CACHE_SIZE];
+
     /**
      * Checks if this configuration is empty. This implementation makes use of
      * the {@code getKeys()} method (which must be defined by concrete
@@ -104,11 +120,93 @@ abstract class BaseWebConfiguration extends AbstractConfiguration
     {
         if (value instanceof String)
         {
-            Collection<String> values =
-                    getListDelimiterHandler().split((String) value, true);
-            value = values.size() > 1 ? values : values.iterator().next();
+            return splitValue((String) value);
         }
 
         return value;
     }
+
+    /**
+     * Splits the given string value at list delimiters. The result is looked
+     * up in the split cache first. If it is not found, the current
+     * {@code ListDelimiterHandler} is invoked, and the result is stored in the
+     * cache. Results with multiple values are stored as unmodifiable lists
+     * because they are shared between all callers.
+     *
+     * @param value the string value
+     * @return the processed value
+     */
+    private Object splitValue(String value)
+    {
+        ListDelimiterHandler handler = getListDelimiterHandler();
+        int index =
+                System.identityHashCode(value) & (SPLIT_CACHE_SIZE - 1);
+        SplitResult cached = splitCache[index];
+        if (cached != null && cached.matches(value, handler))
+        {
+            return cached.getResult();
+        }
+
+        Collection<String> values = handler.split(value, true);
+        Object result =
+                values.size() > 1 ? Collections
+                        .unmodifiableList(new ArrayList<String>(values))
+                        : values.iterator().next();
+        splitCache[index] = new SplitResult(value, handler, result);
+        return result;
+    }
+
+    /**
+     * A simple immutable class representing an entry of the split cache. An
+     * entry is valid only for the very same string instance and list
+     * delimiter handler which have been used to produce it.
+     */
+    private static class SplitResult
+    {
+        /** The raw string which has been split. */
+        private final String value;
+
+        /** The list delimiter handler which performed the split. */
+        private final ListDelimiterHandler handler;
+
+        /** The result of the split operation. */
+        private final Object result;
+
+        /**
+         * Creates a new instance of {@code SplitResult}.
+         *
+         * @param v the raw string
+         * @param h the list delimiter handler
+         * @param r the result
+         */
+        public SplitResult(String v, ListDelimiterHandler h, Object r)
+        {
+            value = v;
+            handler = h;
+            result = r;
+        }
+
+        /**
+         * Checks whether this entry stores the result for the given string and
+         * list delimiter handler.
+         *
+         * @param v the raw string
+         * @param h the list delimiter handler
+         * @return a flag whether this entry can be used
+         */
+        public boolean matches(String v, ListDelimiterHandler h)
+        {
+            return value == v && handler == h;
+        }
+
+        /**
+         * Returns the result of the split operation.
+         *
+         * @return the result
+         */
+        public Object getResult()
+        {
+            return result;
+        }
+    }
 }
@@ -26,6 +26,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -392,6 +393,63 @@ public class TestAbstractHierarchicalConfiguration
                 new String[]{"url", "user"});
     }
 
+    /**
+     * Tests that keys of nodes with the same name are returned only once and
+     * in the order in which they are first encountered.
+     */
+    @Test
+    public void testGetKeysSameNameSiblings()
+    {
+        config.clear();
+        config.addProperty("list.item.a", "1");
+        config.addProperty("list.other", "x");
+        config.addProperty("list.item(-1).b", "2");
+        config.addProperty("list.item(-1).a", "3");
+        config.addProperty("list.item(2)[@id]", "i");
+        config.addProperty("list.item(2).a.c", "4");
+
+        List<String> keys = new ArrayList<String>();
+        for (Iterator<String> it = config.getKeys(); it.hasNext();)
+        {
+            keys.add(it.next());
+        }
+        assertEquals("Wrong keys", Arrays.asList("list.item.a", "list.other",
+                "list.item.b", "list.item[@id]", "list.item.a.c"), keys);
+    }
+
+    /**
+     * Tests that keys are not duplicated if the prefix selects multiple
+     * nodes.
+     */
+    @Test
+    public void testGetKeysPrefixMultipleNodes()
+    {
+        config.addProperty("tables.table(0)[@type]", "system");
+        config.addProperty("tables.table(1)[@type]", "user");
+        List<String> keys = new ArrayList<String>();
+        for (Iterator<String> it = config.getKeys("tables.table"); it.hasNext();)
+        {
+            keys.add(it.next());
+        }
+        assertEquals("Wrong keys", Arrays.asList("tables.table.name",
+                "tables.table.fields.field.name", "tables.table[@type]"), keys);
+    }
+
+    /**
+     * Tests that the key iterator is not affected by later changes of the
+     * configuration.
+     */
+    @Test
+    public void testGetKeysSnapshot()
+    {
+        Iterator<String> it = config.getKeys();
+        assertEquals("Wrong first key", "tables.table.name", it.next());
+        config.clear();
+        assertEquals("Wrong second key", "tables.table.fields.field.name",
+                it.next());
+        assertFalse("Too many keys", it.hasNext());
+    }
+
     /**
      * Tests getKeys() with a prefix when the prefix matches exactly a key.
      */
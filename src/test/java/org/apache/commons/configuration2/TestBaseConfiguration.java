@@ -26,6 +26,7 @@ import static org.junit.Assert.assertTrue;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -43,6 +44,10 @@ import org.apache.commons.configuration2.event.EventListenerTestImpl;
 import org.apache.commons.configuration2.ex.ConversionException;
 import org.apache.commons.configuration2.interpol.ConfigurationInterpolator;
 import org.apache.commons.configuration2.interpol.Lookup;
+import org.apache.commons.configuration2.metrics.ConfigurationOperation;
+import org.apache.commons.configuration2.metrics.DefaultConfigurationMetrics;
+import org.apache.commons.configuration2.metrics.NoOpConfigurationMetrics;
+import org.apache.commons.configuration2.sync.ReadWriteSynchronizer;
 import org.easymock.EasyMock;
 import org.junit.Before;
 import org.junit.Test;
@@ -776,4 +781,229 @@ public class TestBaseConfiguration
         }
         assertEquals("Wrong size", count, config.size());
     }
+
+    /**
+     * Helper method for obtaining the keys with a given prefix.
+     *
+     * @param prefix the prefix
+     * @return a list with the keys returned by getKeys()
+     */
+    private List<String> fetchKeys(String prefix)
+    {
+        List<String> keys = new ArrayList<String>();
+        for (Iterator<String> it = config.getKeys(prefix); it.hasNext();)
+        {
+            keys.add(it.next());
+        }
+        return keys;
+    }
+
+    /**
+     * Tests that getKeys() with a prefix returns the keys in insertion order.
+     */
+    @Test
+    public void testGetKeysPrefixOrder()
+    {
+        config.addProperty("db.user", "scott");
+        config.addProperty("dbdriver", "test");
+        config.addProperty("db.pool.size", 8);
+        config.addProperty("db", "test");
+        config.addProperty("db.password", "tiger");
+        config.addProperty("other.db.user", "me");
+        assertEquals("Wrong keys", Arrays.asList("db.user", "db.pool.size",
+                "db", "db.password"), fetchKeys("db"));
+        assertEquals("Wrong nested keys", Arrays.asList("db.pool.size"),
+                fetchKeys("db.pool"));
+        assertTrue("Got keys for unknown prefix", fetchKeys("unknown")
+                .isEmpty());
+    }
+
+    /**
+     * Tests that getKeys() with a prefix takes changes into account which are
+     * performed after a first query.
+     */
+    @Test
+    public void testGetKeysPrefixAfterUpdate()
+    {
+        config.addProperty("db.user", "scott");
+        config.addProperty("db.password", "tiger");
+        fetchKeys("db");
+        config.setProperty("db.user", "admin");
+        config.addProperty("db.url", "jdbc:test");
+        config.clearProperty("db.password");
+        assertEquals("Wrong keys", Arrays.asList("db.user", "db.url"),
+                fetchKeys("db"));
+        config.clear();
+        assertTrue("Got keys after clear", fetchKeys("db").isEmpty());
+        config.addProperty("db.driver", "test");
+        assertEquals("Wrong keys after clear", Arrays.asList("db.driver"),
+                fetchKeys("db"));
+    }
+
+    /**
+     * Tests whether keys can be removed using the prefix iterator.
+     */
+    @Test
+    public void testGetKeysPrefixRemove()
+    {
+        config.addProperty("db.user", "scott");
+        config.addProperty("db.password", "tiger");
+        config.addProperty("other", "value");
+        Iterator<String> it = config.getKeys("db");
+        it.next();
+        it.remove();
+        assertFalse("Key not removed", config.containsKey("db.user"));
+        assertEquals("Wrong keys", Arrays.asList("db.password"),
+                fetchKeys("db"));
+        assertTrue("Other key removed", config.containsKey("other"));
+    }
+
+    /**
+     * Tests that a clone uses its own index for keys.
+     */
+    @Test
+    public void testCloneGetKeysPrefix()
+    {
+        config.addProperty("db.user", "scott");
+        fetchKeys("db");
+        BaseConfiguration copy = (BaseConfiguration) config.clone();
+        copy.addProperty("db.password", "tiger");
+        assertEquals("Original changed", Arrays.asList("db.user"),
+                fetchKeys("db"));
+        assertTrue("Key not found in copy", copy.getKeys("db.password")
+                .hasNext());
+    }
+
+    /**
+     * Tests that per default no metrics are collected.
+     */
+    @Test
+    public void testGetMetricsDefault()
+    {
+        assertSame("Wrong default metrics", NoOpConfigurationMetrics.INSTANCE,
+                config.getMetrics());
+        assertSame("Wrong default interpolator metrics",
+                NoOpConfigurationMetrics.INSTANCE, config.getInterpolator()
+                        .getMetrics());
+    }
+
+    /**
+     * Tests whether metrics can be disabled again.
+     */
+    @Test
+    public void testSetMetricsNull()
+    {
+        config.setMetrics(new DefaultConfigurationMetrics());
+        config.setMetrics(null);
+        assertSame("Wrong metrics", NoOpConfigurationMetrics.INSTANCE,
+                config.getMetrics());
+        assertSame("Wrong interpolator metrics",
+                NoOpConfigurationMetrics.INSTANCE, config.getInterpolator()
+                        .getMetrics());
+    }
+
+    /**
+     * Tests whether operations are reported to the metrics object.
+     */
+    @Test
+    public void testMetricsOperations()
+    {
+        DefaultConfigurationMetrics metrics = new DefaultConfigurationMetrics();
+        config.setMetrics(metrics);
+        config.addProperty("key", "value");
+        config.getProperty("key");
+        config.getString("key");
+        config.clearProperty("key");
+        config.clear();
+        Map<String, Long> counts = metrics.getOperationCounts();
+        assertEquals("Wrong adds", 1L,
+                counts.get(ConfigurationOperation.ADD_PROPERTY.name())
+                        .longValue());
+        assertEquals("Wrong gets", 2L,
+                counts.get(ConfigurationOperation.GET_PROPERTY.name())
+                        .longValue());
+        assertEquals("Wrong clear properties", 1L,
+                counts.get(ConfigurationOperation.CLEAR_PROPERTY.name())
+                        .longValue());
+        assertEquals("Wrong clears", 1L,
+                counts.get(ConfigurationOperation.CLEAR.name()).longValue());
+    }
+
+    /**
+     * Tests whether failed conversions are reported to the metrics object.
+     */
+    @Test
+    public void testMetricsConversionFailure()
+    {
+        DefaultConfigurationMetrics metrics = new DefaultConfigurationMetrics();
+        config.setMetrics(metrics);
+        config.addProperty("key", "noNumber");
+        try
+        {
+            config.getInt("key");
+        }
+        catch (ConversionException cex)
+        {
+            // expected
+        }
+        assertEquals("Wrong failures", 1L, metrics
+                .getConversionFailuresByType().get(Integer.class.getName())
+                .longValue());
+    }
+
+    /**
+     * Tests whether locks are reported to the metrics object.
+     */
+    @Test
+    public void testMetricsLocks()
+    {
+        DefaultConfigurationMetrics metrics = new DefaultConfigurationMetrics();
+        config.setSynchronizer(new ReadWriteSynchronizer());
+        config.setMetrics(metrics);
+        config.addProperty("key", "value");
+        config.getProperty("key");
+        config.getProperty("key");
+        assertEquals("Wrong read locks", 2L, metrics.getLockCounts()
+                .get("READ").longValue());
+        assertEquals("Wrong write locks", 1L, metrics.getLockCounts()
+                .get("WRITE").longValue());
+        assertTrue("No hold time", metrics.getLockHoldNanos().get("READ")
+                .longValue() > 0);
+    }
+
+    /**
+     * Tests that the metrics object is passed to a new interpolator.
+     */
+    @Test
+    public void testMetricsSetInterpolator()
+    {
+        DefaultConfigurationMetrics metrics = new DefaultConfigurationMetrics();
+        config.setMetrics(metrics);
+        ConfigurationInterpolator ci = new ConfigurationInterpolator();
+        config.setInterpolator(ci);
+        assertSame("Metrics not passed", metrics, ci.getMetrics());
+    }
+
+    /**
+     * Tests whether variable lookups are reported to the metrics object.
+     */
+    @Test
+    public void testMetricsLookups()
+    {
+        DefaultConfigurationMetrics metrics = new DefaultConfigurationMetrics();
+        config.setMetrics(metrics);
+        config.addProperty("home", "${sys:user.home}");
+        config.addProperty("ref", "${home}");
+        config.addProperty("unknown", "${unknownKey}");
+        config.getString("ref");
+        assertTrue("No sys lookups", metrics.getLookupCounts().get("sys")
+                .longValue() > 0);
+        assertTrue("No default lookups", metrics.getLookupCounts().get("")
+                .longValue() > 0);
+        assertFalse("Got lookup misses", metrics.getLookupMisses()
+                .containsKey(""));
+        config.getString("unknown");
+        assertTrue("No default lookup misses", metrics.getLookupMisses()
+                .get("").longValue() > 0);
+    }
 }
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.commons.configuration2.convert.DefaultListDelimiterHandler;
+import org.junit.Test;
+
+/**
+ * Test class for {@code ConcurrentBaseConfiguration}.
+ *
+ * @version $Id$
+ */
+public class TestConcurrentBaseConfiguration extends TestAbstractConfiguration
+{
+    /** Constant for the number of threads used by concurrent tests. */
+    private static final int THREAD_COUNT = 8;
+
+    /** Constant for the number of operations per thread. */
+    private static final int OPERATIONS = 500;
+
+    @Override
+    protected AbstractConfiguration getConfiguration()
+    {
+        ConcurrentBaseConfiguration config = new ConcurrentBaseConfiguration();
+        config.setListDelimiterHandler(new DefaultListDelimiterHandler(','));
+        config.addProperty("key1", "value1");
+        config.addProperty("key2", "value2");
+        config.addProperty("list", "value1, value2");
+        config.addProperty("listesc", "value1\\,value2");
+        return config;
+    }
+
+    @Override
+    protected AbstractConfiguration getEmptyConfiguration()
+    {
+        return new ConcurrentBaseConfiguration();
+    }
+
+    /**
+     * Returns a list with all keys of the given configuration.
+     *
+     * @param config the configuration
+     * @return a list with the keys
+     */
+    private static List<String> fetchKeys(Configuration config)
+    {
+        List<String> keys = new ArrayList<String>();
+        for (Iterator<String> it = config.getKeys(); it.hasNext();)
+        {
+            keys.add(it.next());
+        }
+        return keys;
+    }
+
+    /**
+     * Tests that keys are returned in the order in which they were added.
+     */
+    @Test
+    public void testGetKeysOrder()
+    {
+        ConcurrentBaseConfiguration config = new ConcurrentBaseConfiguration();
+        for (int i = 20; i > 0; i--)
+        {
+            config.addProperty("key" + i, i);
+        }
+        config.addProperty("key10", "another value");
+        config.clearProperty("key5");
+        config.addProperty("key5", "again");
+
+        List<String> expected = new ArrayList<String>();
+        for (int i = 20; i > 0; i--)
+        {
+            if (i != 5)
+            {
+                expected.add("key" + i);
+            }
+        }
+        expected.add("key5");
+        assertEquals("Wrong keys", expected, fetchKeys(config));
+    }
+
+    /**
+     * Tests that setting a property does not change the position of its key.
+     */
+    @Test
+    public void testSetPropertyKeepsPosition()
+    {
+        AbstractConfiguration config = getConfiguration();
+        config.setProperty("key1", "newValue");
+        assertEquals("Wrong keys",
+                Arrays.asList("key1", "key2", "list", "listesc"),
+                fetchKeys(config));
+        assertEquals("Wrong value", "newValue", config.getProperty("key1"));
+    }
+
+    /**
+     * Tests setProperty() with multiple values.
+     */
+    @Test
+    public void testSetPropertyList()
+    {
+        AbstractConfiguration config = getConfiguration();
+        config.setProperty("key1", "a,b,c");
+        assertEquals("Wrong values", Arrays.asList("a", "b", "c"),
+                config.getList("key1"));
+        config.setProperty("key1", null);
+        assertFalse("Key not removed", config.containsKey("key1"));
+    }
+
+    /**
+     * Tests that a list value cannot be modified.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testListValueUnmodifiable()
+    {
+        AbstractConfiguration config = getConfiguration();
+        ((List<?>) config.getProperty("list")).clear();
+    }
+
+    /**
+     * Tests whether keys can be removed using the key iterator.
+     */
+    @Test
+    public void testGetKeysRemove()
+    {
+        AbstractConfiguration config = getConfiguration();
+        Iterator<String> it = config.getKeys();
+        it.next();
+        it.remove();
+        assertFalse("Key not removed", config.containsKey("key1"));
+        assertEquals("Wrong keys", Arrays.asList("key2", "list", "listesc"),
+                fetchKeys(config));
+    }
+
+    /**
+     * Tests that a clone is independent of the original configuration.
+     */
+    @Test
+    public void testClone()
+    {
+        AbstractConfiguration config = getConfiguration();
+        ConcurrentBaseConfiguration copy =
+                (ConcurrentBaseConfiguration) ((ConcurrentBaseConfiguration) config)
+                        .clone();
+        assertTrue("Configurations are not equal",
+                new StrictConfigurationComparator().compare(config, copy));
+        assertEquals("Wrong keys in copy", fetchKeys(config), fetchKeys(copy));
+        copy.addProperty("key1", "other");
+        copy.addProperty("newKey", "value");
+        assertEquals("Original changed", "value1", config.getProperty("key1"));
+        assertFalse("Key added to original", config.containsKey("newKey"));
+    }
+
+    /**
+     * Tests that concurrent additions of values to the same key do not get
+     * lost.
+     */
+    @Test
+    public void testConcurrentAddProperty() throws InterruptedException
+    {
+        final ConcurrentBaseConfiguration config =
+                new ConcurrentBaseConfiguration();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < THREAD_COUNT; t++)
+        {
+            final int threadIdx = t;
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        startLatch.await();
+                    }
+                    catch (InterruptedException iex)
+                    {
+                        return;
+                    }
+                    for (int i = 0; i < OPERATIONS; i++)
+                    {
+                        config.addProperty("shared", threadIdx * OPERATIONS
+                                + i);
+                        config.addProperty("key" + threadIdx + "." + i, i);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        startLatch.countDown();
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        List<Object> values = config.getList("shared");
+        assertEquals("Wrong number of values", THREAD_COUNT * OPERATIONS,
+                values.size());
+        assertEquals("Duplicate values", values.size(),
+                new HashSet<Object>(values).size());
+        assertEquals("Wrong size", THREAD_COUNT * OPERATIONS + 1,
+                config.size());
+        Set<String> keys = new HashSet<String>(fetchKeys(config));
+        assertEquals("Wrong number of keys", config.size(), keys.size());
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.configuration2.convert.DefaultListDelimiterHandler;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@code ConfigurationBindingInvocationHandler}. The binding is
+ * created through {@code ConfigurationUtils}.
+ *
+ * @version $Id$
+ */
+public class TestConfigurationBindingInvocationHandler
+{
+    /** The configuration to be bound. */
+    private BaseConfiguration config;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        config = new BaseConfiguration();
+        config.setListDelimiterHandler(new DefaultListDelimiterHandler(','));
+        config.addProperty("port", "8080");
+        config.addProperty("host", "localhost");
+        config.addProperty("enabled", "true");
+        config.addProperty("server.timeout", "30");
+        config.addProperty("server.aliases", "a, b, c");
+        config.addProperty("server.ports", "1, 2");
+    }
+
+    /**
+     * Tests whether keys are derived from method names.
+     */
+    @Test
+    public void testBindKeysFromMethodNames()
+    {
+        SimpleSettings settings =
+                ConfigurationUtils.bind(SimpleSettings.class, config);
+        assertEquals("Wrong port", 8080, settings.port());
+        assertEquals("Wrong host", "localhost", settings.getHost());
+        assertTrue("Wrong enabled flag", settings.isEnabled());
+    }
+
+    /**
+     * Tests whether keys and default values can be defined by annotations.
+     */
+    @Test
+    public void testBindAnnotations()
+    {
+        AnnotatedSettings settings =
+                ConfigurationUtils.bind(AnnotatedSettings.class, config);
+        assertEquals("Wrong timeout", 30L, settings.timeout());
+        assertEquals("Wrong default", 42, settings.retries());
+        assertEquals("Wrong list", Arrays.asList("a", "b", "c"),
+                settings.aliases());
+        assertArrayEquals("Wrong array", new int[] {
+                1, 2
+        }, settings.ports());
+        assertEquals("Wrong default list", Arrays.asList(1, 2, 3),
+                settings.levels());
+        assertNull("Got a value", settings.description());
+    }
+
+    /**
+     * Tests whether a prefix for keys can be specified.
+     */
+    @Test
+    public void testBindPrefix()
+    {
+        config.addProperty("sub.port", "9090");
+        config.addProperty("sub.host", "remote");
+        SimpleSettings settings =
+                ConfigurationUtils.bind(SimpleSettings.class, config, "sub");
+        assertEquals("Wrong port", 9090, settings.port());
+        assertEquals("Wrong host", "remote", settings.getHost());
+    }
+
+    /**
+     * Tests that an undefined primitive property without default causes an
+     * exception.
+     */
+    @Test(expected = NoSuchElementException.class)
+    public void testBindPrimitiveUndefined()
+    {
+        config.clearProperty("port");
+        ConfigurationUtils.bind(SimpleSettings.class, config).port();
+    }
+
+    /**
+     * Tests that values are cached.
+     */
+    @Test
+    public void testValuesCached()
+    {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("host", "localhost");
+        MapConfiguration mapConfig = new MapConfiguration(map);
+        SimpleSettings settings =
+                ConfigurationUtils.bind(SimpleSettings.class, mapConfig);
+        assertEquals("Wrong host", "localhost", settings.getHost());
+        map.put("host", "changed");
+        assertEquals("Value not cached", "localhost", settings.getHost());
+    }
+
+    /**
+     * Tests that cached values are refreshed if the configuration changes.
+     */
+    @Test
+    public void testRefreshOnChange()
+    {
+        SimpleSettings settings =
+                ConfigurationUtils.bind(SimpleSettings.class, config);
+        assertEquals("Wrong port", 8080, settings.port());
+        config.setProperty("port", "8081");
+        assertEquals("Not refreshed", 8081, settings.port());
+        config.clear();
+        assertNull("Not refreshed after clear", settings.getHost());
+    }
+
+    /**
+     * Tests that cached arrays cannot be modified by the caller.
+     */
+    @Test
+    public void testArrayCopied()
+    {
+        AnnotatedSettings settings =
+                ConfigurationUtils.bind(AnnotatedSettings.class, config);
+        settings.ports()[0] = 100;
+        assertEquals("Array modified", 1, settings.ports()[0]);
+    }
+
+    /**
+     * Tests that cached lists cannot be modified.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testListUnmodifiable()
+    {
+        ConfigurationUtils.bind(AnnotatedSettings.class, config).aliases()
+                .clear();
+    }
+
+    /**
+     * Tests the methods inherited from Object.
+     */
+    @Test
+    public void testObjectMethods()
+    {
+        SimpleSettings settings =
+                ConfigurationUtils.bind(SimpleSettings.class, config);
+        SimpleSettings settings2 =
+                ConfigurationUtils.bind(SimpleSettings.class, config);
+        assertTrue("Not equal to itself", settings.equals(settings));
+        assertFalse("Equal to other proxy", settings.equals(settings2));
+        assertEquals("Wrong hash code", System.identityHashCode(settings),
+                settings.hashCode());
+        assertTrue("Wrong string", settings.toString().contains(
+                SimpleSettings.class.getName()));
+    }
+
+    /**
+     * Tries to bind an interface with a method that has parameters.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBindInvalidMethod()
+    {
+        ConfigurationUtils.bind(InvalidSettings.class, config);
+    }
+
+    /**
+     * Tries to bind a class which is not an interface.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBindNoInterface()
+    {
+        ConfigurationUtils.bind(String.class, config);
+    }
+
+    /**
+     * Tries to bind a null configuration.
+     */
+    @Test(expected = NullPointerException.class)
+    public void testBindNullConfiguration()
+    {
+        ConfigurationUtils.bind(SimpleSettings.class, null);
+    }
+
+    /**
+     * A test interface using keys derived from method names.
+     */
+    public static interface SimpleSettings
+    {
+        int port();
+
+        String getHost();
+
+        boolean isEnabled();
+    }
+
+    /**
+     * A test interface using annotations.
+     */
+    public static interface AnnotatedSettings
+    {
+        @ConfigurationKey("server.timeout")
+        long timeout();
+
+        @ConfigurationKey(value = "server.retries", defaultValue = "42")
+        int retries();
+
+        @ConfigurationKey("server.aliases")
+        List<String> aliases();
+
+        @ConfigurationKey("server.ports")
+        int[] ports();
+
+        @ConfigurationKey(value = "server.levels", defaultValue = {
+                "1", "2", "3"
+        })
+        List<Integer> levels();
+
+        @ConfigurationKey("server.description")
+        String description();
+    }
+
+    /**
+     * A test interface which cannot be bound.
+     */
+    public static interface InvalidSettings
+    {
+        String value(String key);
+    }
+}
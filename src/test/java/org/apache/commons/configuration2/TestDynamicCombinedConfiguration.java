@@ -30,7 +30,13 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.configuration2.SynchronizerTestImpl.Methods;
 import org.apache.commons.configuration2.builder.BuilderConfigurationWrapperFactory;
@@ -42,11 +48,15 @@ import org.apache.commons.configuration2.builder.combined.CombinedConfigurationB
 import org.apache.commons.configuration2.builder.combined.MultiFileConfigurationBuilder;
 import org.apache.commons.configuration2.builder.combined.ReloadingCombinedConfigurationBuilder;
 import org.apache.commons.configuration2.builder.fluent.Parameters;
+import org.apache.commons.configuration2.cache.StandardEvictionPolicy;
 import org.apache.commons.configuration2.convert.DefaultListDelimiterHandler;
+import org.apache.commons.configuration2.event.ConfigurationEvent;
+import org.apache.commons.configuration2.event.EventListener;
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.commons.configuration2.interpol.ConfigurationInterpolator;
 import org.apache.commons.configuration2.interpol.Lookup;
 import org.apache.commons.configuration2.io.FileHandler;
+import org.apache.commons.configuration2.metrics.DefaultConfigurationMetrics;
 import org.apache.commons.configuration2.sync.LockMode;
 import org.apache.commons.configuration2.sync.ReadWriteSynchronizer;
 import org.apache.commons.configuration2.tree.xpath.XPathExpressionEngine;
@@ -568,4 +578,304 @@ public class TestDynamicCombinedConfiguration
 
         }
     }
+
+    /**
+     * Tests whether accesses to the cache of child configurations are reported
+     * to the metrics object.
+     */
+    @Test
+    public void testMetricsCacheAccess()
+    {
+        DynamicCombinedConfiguration config =
+                new DynamicCombinedConfiguration();
+        config.setKeyPattern("fixed");
+        BaseConfiguration child = new BaseConfiguration();
+        child.addProperty("key", "value");
+        config.addConfiguration(child);
+        DefaultConfigurationMetrics metrics = new DefaultConfigurationMetrics();
+        config.setMetrics(metrics);
+        config.getProperty("key");
+        assertEquals("Wrong value", "value", config.getProperty("key"));
+        assertEquals("Wrong hits", 1L, metrics.getCacheHits()
+                .get(DynamicCombinedConfiguration.CONFIGURATION_CACHE)
+                .longValue());
+        assertEquals("Wrong misses", 1L, metrics.getCacheMisses()
+                .get(DynamicCombinedConfiguration.CONFIGURATION_CACHE)
+                .longValue());
+    }
+
+    /**
+     * Creates a configuration whose key pattern refers to a tenant lookup.
+     *
+     * @param tenant the reference for the current tenant
+     * @param lookupCount a counter for the invocations of the lookup
+     * @return the configuration
+     */
+    private static DynamicCombinedConfiguration createTenantConfiguration(
+            final AtomicReference<String> tenant,
+            final AtomicInteger lookupCount)
+    {
+        DynamicCombinedConfiguration config =
+                new DynamicCombinedConfiguration();
+        config.getInterpolator().registerLookup("tenant", new Lookup()
+        {
+            @Override
+            public Object lookup(String variable)
+            {
+                lookupCount.incrementAndGet();
+                return tenant.get();
+            }
+        });
+        config.setKeyPattern("${tenant:id}");
+        BaseConfiguration child = new BaseConfiguration();
+        child.addProperty("key", "value");
+        config.addConfiguration(child);
+        return config;
+    }
+
+    /**
+     * Tests that the key pattern is resolved on each access per default.
+     */
+    @Test
+    public void testResolvedKeysNotCachedByDefault()
+    {
+        AtomicInteger lookupCount = new AtomicInteger();
+        DynamicCombinedConfiguration config =
+                createTenantConfiguration(new AtomicReference<String>("a"),
+                        lookupCount);
+        assertFalse("Caching enabled", config.isCacheResolvedKeys());
+        config.getString("key");
+        int count = lookupCount.get();
+        config.getString("key");
+        assertTrue("Key pattern not resolved", lookupCount.get() > count);
+    }
+
+    /**
+     * Tests whether resolved keys are cached per thread until they are
+     * invalidated.
+     */
+    @Test
+    public void testCacheResolvedKeys()
+    {
+        AtomicReference<String> tenant = new AtomicReference<String>("a");
+        AtomicInteger lookupCount = new AtomicInteger();
+        DynamicCombinedConfiguration config =
+                createTenantConfiguration(tenant, lookupCount);
+        DefaultConfigurationMetrics metrics = new DefaultConfigurationMetrics();
+        config.setMetrics(metrics);
+        config.setCacheResolvedKeys(true);
+        assertEquals("Wrong value", "value", config.getString("key"));
+        int count = lookupCount.get();
+        for (int i = 0; i < 5; i++)
+        {
+            assertEquals("Wrong value", "value", config.getString("key"));
+        }
+        assertEquals("Key not cached", count, lookupCount.get());
+
+        tenant.set("b");
+        config.getString("key");
+        assertEquals("Key not cached after change", count, lookupCount.get());
+        config.invalidateResolvedKey();
+        config.getString("key");
+        assertTrue("Key not invalidated", lookupCount.get() > count);
+        count = lookupCount.get();
+        config.invalidateResolvedKeys();
+        config.getString("key");
+        assertTrue("Keys not invalidated", lookupCount.get() > count);
+        assertEquals("Wrong number of configurations", 2L, metrics
+                .getCacheMisses()
+                .get(DynamicCombinedConfiguration.CONFIGURATION_CACHE)
+                .longValue());
+        assertEquals("Wrong key misses", 3L,
+                metrics.getCacheMisses()
+                        .get(DynamicCombinedConfiguration.RESOLVED_KEY_CACHE)
+                        .longValue());
+    }
+
+    /**
+     * Tests that resolved keys are invalidated when the key pattern changes.
+     */
+    @Test
+    public void testCacheResolvedKeysSetKeyPattern()
+    {
+        AtomicInteger lookupCount = new AtomicInteger();
+        DynamicCombinedConfiguration config =
+                createTenantConfiguration(new AtomicReference<String>("a"),
+                        lookupCount);
+        config.setCacheResolvedKeys(true);
+        config.getString("key");
+        int count = lookupCount.get();
+        config.getString("key");
+        assertEquals("Key not cached", count, lookupCount.get());
+        config.setKeyPattern("${tenant:other}");
+        config.getString("key");
+        assertTrue("Pattern not resolved again", lookupCount.get() > count);
+    }
+
+    /**
+     * Accesses the given configuration for all the passed in tenants.
+     *
+     * @param config the configuration
+     * @param tenant the reference for the current tenant
+     * @param tenants the tenants to be accessed
+     */
+    private static void accessTenants(DynamicCombinedConfiguration config,
+            AtomicReference<String> tenant, String... tenants)
+    {
+        for (String t : tenants)
+        {
+            tenant.set(t);
+            assertEquals("Wrong value for " + t, "value",
+                    config.getString("key"));
+        }
+    }
+
+    /**
+     * Registers a listener for eviction events at the given configuration.
+     *
+     * @param config the configuration
+     * @return a list which is filled with the keys of evicted configurations
+     */
+    private static List<String> registerEvictionListener(
+            DynamicCombinedConfiguration config)
+    {
+        final List<String> evictedKeys = new ArrayList<String>();
+        config.addEventListener(DynamicCombinedConfiguration.CONFIGURATION_EVICTED,
+                new EventListener<ConfigurationEvent>()
+                {
+                    @Override
+                    public void onEvent(ConfigurationEvent event)
+                    {
+                        evictedKeys.add(event.getPropertyName());
+                    }
+                });
+        return evictedKeys;
+    }
+
+    /**
+     * Tests that the cache of child configurations is unbounded per default.
+     */
+    @Test
+    public void testConfigurationCacheUnboundedByDefault()
+    {
+        DynamicCombinedConfiguration config = new DynamicCombinedConfiguration();
+        assertEquals("Wrong max configurations", 0,
+                config.getMaxConfigurations());
+        assertEquals("Wrong max idle time", 0,
+                config.getMaxIdleTime(TimeUnit.MILLISECONDS));
+        assertEquals("Wrong max nodes", 0, config.getMaxConfigurationNodes());
+        assertEquals("Wrong policy", StandardEvictionPolicy.LRU,
+                config.getEvictionPolicy());
+    }
+
+    /**
+     * Tests whether the number of child configurations can be restricted.
+     */
+    @Test
+    public void testMaxConfigurations()
+    {
+        AtomicReference<String> tenant = new AtomicReference<String>("a");
+        DynamicCombinedConfiguration config =
+                createTenantConfiguration(tenant, new AtomicInteger());
+        DefaultConfigurationMetrics metrics = new DefaultConfigurationMetrics();
+        config.setMetrics(metrics);
+        config.setMaxConfigurations(2);
+        List<String> evictedKeys = registerEvictionListener(config);
+        BaseConfiguration child = (BaseConfiguration) config.getConfiguration(0);
+        int listenerCount =
+                child.getEventListeners(ConfigurationEvent.ANY).size();
+
+        accessTenants(config, tenant, "a", "b", "a", "c");
+        assertEquals("Wrong evicted keys", Arrays.asList("b"),
+                evictedKeys);
+        assertEquals("Wrong number of evictions", 1L, metrics
+                .getCacheEvictions()
+                .get(DynamicCombinedConfiguration.CONFIGURATION_CACHE)
+                .longValue());
+        assertEquals("Listener of evicted configuration not removed",
+                listenerCount + 1,
+                child.getEventListeners(ConfigurationEvent.ANY).size());
+
+        accessTenants(config, tenant, "b");
+        assertEquals("Wrong number of configurations", 4L, metrics
+                .getCacheMisses()
+                .get(DynamicCombinedConfiguration.CONFIGURATION_CACHE)
+                .longValue());
+    }
+
+    /**
+     * Tests whether child configurations can be evicted in LFU order.
+     */
+    @Test
+    public void testMaxConfigurationsLFU()
+    {
+        AtomicReference<String> tenant = new AtomicReference<String>("a");
+        DynamicCombinedConfiguration config =
+                createTenantConfiguration(tenant, new AtomicInteger());
+        config.setMaxConfigurations(2);
+        config.setEvictionPolicy(StandardEvictionPolicy.LFU);
+        List<String> evictedKeys = registerEvictionListener(config);
+
+        accessTenants(config, tenant, "a", "a", "a", "b", "c");
+        assertEquals("Wrong evicted keys", Arrays.asList("b"),
+                evictedKeys);
+    }
+
+    /**
+     * Tests whether the total number of nodes of child configurations can be
+     * restricted.
+     */
+    @Test
+    public void testMaxConfigurationNodes()
+    {
+        AtomicReference<String> tenant = new AtomicReference<String>("a");
+        DynamicCombinedConfiguration config =
+                createTenantConfiguration(tenant, new AtomicInteger());
+        config.setMaxConfigurationNodes(4);
+        List<String> evictedKeys = registerEvictionListener(config);
+
+        accessTenants(config, tenant, "a", "b");
+        assertTrue("Got evictions", evictedKeys.isEmpty());
+        accessTenants(config, tenant, "c");
+        assertEquals("Wrong evicted keys", Arrays.asList("a"),
+                evictedKeys);
+    }
+
+    /**
+     * Tests that the weight of a new child configuration is taken into
+     * account when it is added to the cache.
+     */
+    @Test
+    public void testMaxConfigurationNodesNewChildWeighed()
+    {
+        AtomicReference<String> tenant = new AtomicReference<String>("a");
+        DynamicCombinedConfiguration config =
+                createTenantConfiguration(tenant, new AtomicInteger());
+        config.setMaxConfigurationNodes(3);
+        List<String> evictedKeys = registerEvictionListener(config);
+
+        accessTenants(config, tenant, "a", "b");
+        assertEquals("Wrong evicted keys", Arrays.asList("a"),
+                evictedKeys);
+    }
+
+    /**
+     * Tests that child configurations expire after the maximum idle time.
+     */
+    @Test
+    public void testMaxIdleTime() throws InterruptedException
+    {
+        AtomicReference<String> tenant = new AtomicReference<String>("a");
+        DynamicCombinedConfiguration config =
+                createTenantConfiguration(tenant, new AtomicInteger());
+        config.setMaxIdleTime(1, TimeUnit.MILLISECONDS);
+        List<String> evictedKeys = registerEvictionListener(config);
+
+        accessTenants(config, tenant, "a");
+        Thread.sleep(20);
+        config.cleanUpConfigurations();
+        assertEquals("Wrong evicted keys", Arrays.asList("a"),
+                evictedKeys);
+        accessTenants(config, tenant, "a");
+    }
 }
@@ -18,14 +18,23 @@ package org.apache.commons.configuration2;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.configuration2.convert.DefaultListDelimiterHandler;
 import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
+import org.apache.commons.configuration2.interpol.InterpolationDependencyTracker;
+import org.apache.commons.configuration2.interpol.Lookup;
 import org.apache.commons.configuration2.tree.DefaultConfigurationKey;
 import org.apache.commons.configuration2.tree.DefaultExpressionEngine;
 import org.apache.commons.configuration2.tree.ImmutableNode;
@@ -536,6 +545,316 @@ public class TestHierarchicalConfiguration
         checkContent(c);
     }
 
+    /**
+     * Adds some properties with variables to the test configuration.
+     */
+    private void setUpInterpolationProperties()
+    {
+        for (int i = 0; i < 40; i++)
+        {
+            config.addProperty("section" + i + ".base", "value" + i);
+            config.addProperty("section" + i + ".ref", "${section" + i
+                    + ".base}-${root}");
+            config.addProperty("section" + i + ".sub.attr[@a]", "${root}");
+        }
+        config.addProperty("root", "rootValue");
+        config.addProperty("unrelated", "${count:x}");
+    }
+
+    /**
+     * Returns the root node of the given configuration.
+     *
+     * @param c the configuration
+     * @return the root node
+     */
+    private static ImmutableNode rootNode(Configuration c)
+    {
+        return ((BaseHierarchicalConfiguration) c).getNodeModel()
+                .getNodeHandler().getRootNode();
+    }
+
+    /**
+     * Returns the child node of the given configuration's root node with the
+     * given name.
+     *
+     * @param c the configuration
+     * @param name the name of the child
+     * @return the child node
+     */
+    private static ImmutableNode childNode(Configuration c, String name)
+    {
+        for (ImmutableNode child : rootNode(c).getChildren())
+        {
+            if (name.equals(child.getNodeName()))
+            {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether two node structures have the same content.
+     *
+     * @param expected the expected node
+     * @param actual the actual node
+     */
+    private static void checkSameStructure(ImmutableNode expected,
+            ImmutableNode actual)
+    {
+        assertEquals("Wrong name", expected.getNodeName(),
+                actual.getNodeName());
+        assertEquals("Wrong value of " + expected.getNodeName(),
+                expected.getValue(), actual.getValue());
+        assertEquals("Wrong attributes of " + expected.getNodeName(),
+                expected.getAttributes(), actual.getAttributes());
+        assertEquals("Wrong number of children of " + expected.getNodeName(),
+                expected.getChildren().size(), actual.getChildren().size());
+        for (int i = 0; i < expected.getChildren().size(); i++)
+        {
+            checkSameStructure(expected.getChildren().get(i), actual
+                    .getChildren().get(i));
+        }
+    }
+
+    /**
+     * Registers a lookup at the test configuration which counts its
+     * invocations.
+     *
+     * @return the counter
+     */
+    private AtomicInteger installCountingLookup()
+    {
+        final AtomicInteger counter = new AtomicInteger();
+        config.getInterpolator().registerLookup("count", new Lookup()
+        {
+            @Override
+            public Object lookup(String variable)
+            {
+                return "count" + counter.incrementAndGet();
+            }
+        });
+        return counter;
+    }
+
+    /**
+     * Tests whether a configuration can be interpolated in parallel.
+     */
+    @Test
+    public void testInterpolatedConfigurationParallel()
+    {
+        setUpInterpolationProperties();
+        installCountingLookup();
+        config.setProperty("unrelated", "constant");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            Configuration c = config.interpolatedConfiguration(executor);
+            checkSameStructure(rootNode(config.interpolatedConfiguration()),
+                    rootNode(c));
+            assertEquals("Wrong value", "value3-rootValue",
+                    c.getString("section3.ref"));
+            assertEquals("Wrong attribute", "rootValue",
+                    c.getString("section7.sub.attr[@a]"));
+            checkContent(new BaseHierarchicalConfiguration(
+                    (BaseHierarchicalConfiguration) c));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Tests that an exception thrown during parallel interpolation is
+     * propagated.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testInterpolatedConfigurationParallelException()
+    {
+        setUpInterpolationProperties();
+        config.addProperty("section5.cycle", "${section5.cycle}");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            config.interpolatedConfiguration(executor);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Tries to interpolate in parallel without an executor.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInterpolatedConfigurationParallelNoExecutor()
+    {
+        config.interpolatedConfiguration(null);
+    }
+
+    /**
+     * Tests an incremental interpolation without a dependency tracker. In
+     * this case, all values with variables are interpolated again.
+     */
+    @Test
+    public void testInterpolatedConfigurationIncremental()
+    {
+        setUpInterpolationProperties();
+        AtomicInteger counter = installCountingLookup();
+        Configuration previous = config.interpolatedConfiguration();
+        int count = counter.get();
+        config.setProperty("section1.base", "newValue");
+
+        Configuration c =
+                config.interpolatedConfiguration(
+                        (BaseHierarchicalConfiguration) previous,
+                        Collections.singleton("section1.base"));
+        assertEquals("Wrong changed value", "newValue-rootValue",
+                c.getString("section1.ref"));
+        assertEquals("Wrong unchanged value", "value2-rootValue",
+                c.getString("section2.ref"));
+        assertSame("Tables not shared", childNode(previous, "tables"),
+                childNode(c, "tables"));
+        assertEquals("Value with variable not interpolated again",
+                2 * count, counter.get());
+        config.setProperty("unrelated", "constant");
+        checkSameStructure(rootNode(config.interpolatedConfiguration()),
+                rootNode(config.interpolatedConfiguration(
+                        (BaseHierarchicalConfiguration) c,
+                        Collections.singleton("unrelated"))));
+    }
+
+    /**
+     * Tests an incremental interpolation if the structure has been changed.
+     */
+    @Test
+    public void testInterpolatedConfigurationIncrementalStructureChange()
+    {
+        setUpInterpolationProperties();
+        Configuration previous = config.interpolatedConfiguration();
+        config.clearTree("section4.sub");
+        config.addProperty("section4.sub(-1).attr[@b]", "${section4.base}");
+        config.addProperty("root", "anotherRoot");
+
+        Configuration c =
+                config.interpolatedConfiguration(
+                        (BaseHierarchicalConfiguration) previous,
+                        Arrays.asList("section4.sub", "root"));
+        checkSameStructure(rootNode(config.interpolatedConfiguration()),
+                rootNode(c));
+        assertEquals("Wrong new attribute", "value4",
+                c.getString("section4.sub.attr[@b]"));
+    }
+
+    /**
+     * Tests that an incremental interpolation with a dependency tracker only
+     * interpolates the affected values.
+     */
+    @Test
+    public void testInterpolatedConfigurationIncrementalWithTracker()
+    {
+        setUpInterpolationProperties();
+        AtomicInteger counter = installCountingLookup();
+        InterpolationDependencyTracker tracker =
+                new InterpolationDependencyTracker();
+        config.getInterpolator().setDependencyTracker(tracker);
+        Configuration previous =
+                config.interpolatedConfiguration(
+                        (BaseHierarchicalConfiguration) config
+                                .interpolatedConfiguration(), Collections
+                                .<String> emptySet());
+        assertEquals("Wrong dependencies",
+                new java.util.HashSet<String>(Arrays.asList("section1.base",
+                        "root")), tracker.getDependencies("section1.ref"));
+        int count = counter.get();
+
+        config.setProperty("section1.base", "newValue");
+        Configuration c =
+                config.interpolatedConfiguration(
+                        (BaseHierarchicalConfiguration) previous,
+                        Collections.singleton("section1.base"));
+        assertEquals("Wrong changed value", "newValue-rootValue",
+                c.getString("section1.ref"));
+        assertEquals("Unrelated value interpolated", count, counter.get());
+        assertSame("Section not shared", childNode(previous, "section2"),
+                childNode(c, "section2"));
+        assertNotSame("Changed section shared", childNode(previous,
+                "section1"), childNode(c, "section1"));
+    }
+
+    /**
+     * Tests an incremental interpolation with a dependency tracker if an
+     * element of a list has been changed which is addressed by an index.
+     */
+    @Test
+    public void testInterpolatedConfigurationIncrementalWithTrackerIndexedKey()
+    {
+        setUpInterpolationProperties();
+        config.addProperty("list.item", "${root}");
+        config.addProperty("list.item", "constant");
+        config.addProperty("list.item", "${section3.base}");
+        config.getInterpolator().setDependencyTracker(
+                new InterpolationDependencyTracker());
+        Configuration previous =
+                config.interpolatedConfiguration(
+                        (BaseHierarchicalConfiguration) config
+                                .interpolatedConfiguration(), Collections
+                                .<String> emptySet());
+
+        config.setProperty("list.item(1)", "${section2.base}");
+        Configuration c =
+                config.interpolatedConfiguration(
+                        (BaseHierarchicalConfiguration) previous,
+                        Collections.singleton("list.item(1)"));
+        assertEquals("Wrong changed value", "value2",
+                c.getString("list.item(1)"));
+        assertEquals("Wrong first value", "rootValue",
+                c.getString("list.item(0)"));
+        assertEquals("Wrong last value", "value3",
+                c.getString("list.item(2)"));
+        checkSameStructure(rootNode(config.interpolatedConfiguration()),
+                rootNode(c));
+    }
+
+    /**
+     * Tests an incremental interpolation with a dependency tracker if a
+     * variable references an indexed list element which has been changed.
+     */
+    @Test
+    public void testInterpolatedConfigurationIncrementalWithTrackerIndexedReference()
+    {
+        setUpInterpolationProperties();
+        config.addProperty("list.item", "first");
+        config.addProperty("list.item", "second");
+        config.addProperty("ref", "${list.item(1)}");
+        config.getInterpolator().setDependencyTracker(
+                new InterpolationDependencyTracker());
+        Configuration previous =
+                config.interpolatedConfiguration(
+                        (BaseHierarchicalConfiguration) config
+                                .interpolatedConfiguration(), Collections
+                                .<String> emptySet());
+
+        config.setProperty("list.item(1)", "changed");
+        Configuration c =
+                config.interpolatedConfiguration(
+                        (BaseHierarchicalConfiguration) previous,
+                        Collections.singleton("list.item(1)"));
+        assertEquals("Wrong reference", "changed", c.getString("ref"));
+    }
+
+    /**
+     * Tries an incremental interpolation without a previous result.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInterpolatedConfigurationIncrementalNoPrevious()
+    {
+        config.interpolatedConfiguration(null,
+                Collections.<String> emptySet());
+    }
+
     /**
      * Tests whether interpolation works on an empty configuration.
      */
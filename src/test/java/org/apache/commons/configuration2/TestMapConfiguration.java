@@ -137,6 +137,20 @@ public class TestMapConfiguration extends TestAbstractConfiguration
         assertEquals("Wrong number of values", 3, values.size());
     }
 
+    /**
+     * Tests that a value can be added to a property which has been split by
+     * the list delimiter handler.
+     */
+    @Test
+    public void testAddPropertyToSplitValue()
+    {
+        MapConfiguration config = (MapConfiguration) getConfiguration();
+        config.addProperty("list", "value3");
+        List<Object> values = config.getList("list");
+        assertTrue("Value 1 not found", values.contains("value1"));
+        assertTrue("Value 2 not found", values.contains("value2"));
+    }
+
     /**
      * Tests querying a property when trimming is active.
      */
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@code PrefixKeyIndex}.
+ *
+ * @version $Id$
+ */
+public class TestPrefixKeyIndex
+{
+    /** An array with test keys. */
+    private static final String[] KEYS = {
+            "a.b", "ab", "a", "a.b.c", "", ".x", "a..b", "a.", "b.a"
+    };
+
+    /**
+     * Determines the keys matching a prefix in the same way as
+     * {@code PrefixedKeysIterator}.
+     *
+     * @param keys the keys
+     * @param prefix the prefix
+     * @return a list with the matching keys
+     */
+    private static List<String> filter(List<String> keys, String prefix)
+    {
+        List<String> result = new ArrayList<String>();
+        for (String key : keys)
+        {
+            if (key.startsWith(prefix + ".") || key.equals(prefix))
+            {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tests whether the expected keys are found for different prefixes.
+     */
+    @Test
+    public void testKeysWithPrefix()
+    {
+        List<String> keys = Arrays.asList(KEYS);
+        PrefixKeyIndex index = new PrefixKeyIndex(keys);
+        for (String prefix : new String[] {
+                "a", "a.b", "", "a.", "ab", "b", "a.b.c.d", "x"
+        })
+        {
+            assertEquals("Wrong keys for prefix '" + prefix + "'",
+                    filter(keys, prefix), index.keysWithPrefix(prefix));
+        }
+    }
+
+    /**
+     * Tests that a key which is added again keeps its position.
+     */
+    @Test
+    public void testAddExistingKey()
+    {
+        PrefixKeyIndex index = new PrefixKeyIndex(Arrays.asList("a.x", "a.y"));
+        index.add("a.x");
+        assertEquals("Wrong keys", Arrays.asList("a.x", "a.y"),
+                index.keysWithPrefix("a"));
+    }
+
+    /**
+     * Tests whether keys can be removed.
+     */
+    @Test
+    public void testRemove()
+    {
+        List<String> keys = new ArrayList<String>(Arrays.asList(KEYS));
+        PrefixKeyIndex index = new PrefixKeyIndex(keys);
+        index.remove("a.b");
+        index.remove("a.b.c");
+        index.remove("unknown.key");
+        keys.remove("a.b");
+        keys.remove("a.b.c");
+        assertEquals("Wrong keys", filter(keys, "a"), index.keysWithPrefix("a"));
+        assertTrue("Got keys for removed prefix", index.keysWithPrefix("a.b")
+                .isEmpty());
+    }
+
+    /**
+     * Tests that a removed key is appended at the end when it is added
+     * again.
+     */
+    @Test
+    public void testRemoveAndAdd()
+    {
+        PrefixKeyIndex index =
+                new PrefixKeyIndex(Arrays.asList("a.x", "a.y", "a.z"));
+        index.remove("a.x");
+        index.add("a.x");
+        assertEquals("Wrong keys", Arrays.asList("a.y", "a.z", "a.x"),
+                index.keysWithPrefix("a"));
+    }
+}
@@ -210,6 +210,69 @@ public class TestPropertiesConfiguration
         assertEquals("true", loaded);
     }
 
+    /**
+     * Tests whether the URLs of included files are recorded.
+     */
+    @Test
+    public void testGetIncludedURLs()
+    {
+        List<URL> urls = conf.getIncludedURLs();
+        assertEquals("Wrong number of included files", 2, urls.size());
+        assertTrue("Wrong first include: " + urls.get(0), urls.get(0)
+                .toString().endsWith("/include.properties"));
+        assertTrue("Wrong second include: " + urls.get(1), urls.get(1)
+                .toString().endsWith("/include-interpol.properties"));
+        assertEquals("Not copied on clone", urls,
+                ((PropertiesConfiguration) conf.clone()).getIncludedURLs());
+    }
+
+    /**
+     * Tests that the list of included URLs is reset by clear().
+     */
+    @Test
+    public void testGetIncludedURLsAfterClear()
+    {
+        conf.clear();
+        assertTrue("Got included URLs", conf.getIncludedURLs().isEmpty());
+    }
+
+    /**
+     * Tests that the list of included URLs is reset when the configuration is
+     * reloaded after an include statement has been removed.
+     */
+    @Test
+    public void testGetIncludedURLsReloadIncludeRemoved() throws Exception
+    {
+        Writer out = new FileWriter(testSavePropertiesFile);
+        try
+        {
+            out.write(PropertiesConfiguration.getInclude() + " = "
+                    + ConfigurationAssert.getTestURL("include.properties")
+                    + CR);
+        }
+        finally
+        {
+            out.close();
+        }
+        conf = new PropertiesConfiguration();
+        FileHandler handler =
+                load(conf, testSavePropertiesFile.getAbsolutePath());
+        assertEquals("Wrong number of included files", 1, conf
+                .getIncludedURLs().size());
+
+        out = new FileWriter(testSavePropertiesFile);
+        try
+        {
+            out.write("test = value" + CR);
+        }
+        finally
+        {
+            out.close();
+        }
+        handler.load();
+        assertTrue("Got included URLs", conf.getIncludedURLs().isEmpty());
+    }
+
     /**
      * Tests whether include files can be resolved if a configuration file is
      * read from a reader.
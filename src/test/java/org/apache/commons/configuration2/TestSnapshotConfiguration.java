@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.configuration2.io.FileHandler;
+import org.apache.commons.configuration2.tree.NodeSnapshot;
+import org.apache.commons.configuration2.tree.SnapshotNode;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test class for {@code SnapshotConfiguration}.
+ *
+ * @version $Id$
+ */
+public class TestSnapshotConfiguration
+{
+    /** A helper object for creating temporary files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** The original configuration. */
+    private XMLConfiguration original;
+
+    /** The configuration to be tested. */
+    private SnapshotConfiguration config;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        original = new XMLConfiguration();
+        new FileHandler(original).load(ConfigurationAssert
+                .getTestFile("test.xml"));
+        File file = folder.newFile("test.snapshot");
+        NodeSnapshot.write(original.getNodeModel()
+                .getInMemoryRepresentation(), file);
+        config = new SnapshotConfiguration(NodeSnapshot.open(file));
+    }
+
+    /**
+     * Tests that the snapshot contains the same properties as the original
+     * configuration.
+     */
+    @Test
+    public void testSameProperties()
+    {
+        int count = 0;
+        for (Iterator<String> it = original.getKeys(); it.hasNext();)
+        {
+            String key = it.next();
+            assertEquals("Wrong value for " + key, original.getProperty(key),
+                    config.getProperty(key));
+            count++;
+        }
+        assertEquals("Wrong number of keys", count, config.size());
+        assertEquals("Wrong root element name",
+                original.getRootElementName(), config.getRootElementName());
+    }
+
+    /**
+     * Tests whether keys with indices and attributes can be resolved.
+     */
+    @Test
+    public void testComplexKeys()
+    {
+        assertEquals("Wrong indexed value", original.getString("list.item(1)"),
+                config.getString("list.item(1)"));
+        assertEquals("Wrong attribute value",
+                original.getString("element3[@name]"),
+                config.getString("element3[@name]"));
+        assertEquals("Wrong max index", original.getMaxIndex("list.item"),
+                config.getMaxIndex("list.item"));
+    }
+
+    /**
+     * Tests whether interpolation works.
+     */
+    @Test
+    public void testInterpolation()
+    {
+        assertEquals("Wrong interpolated value",
+                original.getString("test.short"),
+                config.getString("test.short"));
+    }
+
+    /**
+     * Tests whether sub configurations can be created.
+     */
+    @Test
+    public void testConfigurationAt()
+    {
+        HierarchicalConfiguration<SnapshotNode> sub =
+                config.configurationAt("list(0)");
+        assertEquals("Wrong value in sub configuration",
+                original.getString("list.item(0)"), sub.getString("item(0)"));
+        List<HierarchicalConfiguration<SnapshotNode>> subs =
+                config.configurationsAt("list");
+        assertEquals("Wrong number of sub configurations", 2, subs.size());
+        assertEquals("Wrong value in second sub configuration",
+                original.getString("list(1).sublist.item(1)"), subs.get(1)
+                        .getString("sublist.item(1)"));
+        assertEquals("Wrong number of child configurations", 3, config
+                .childConfigurationsAt("list(1)").size());
+    }
+
+    /**
+     * Tests that the configuration cannot be changed.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAddPropertyReadOnly()
+    {
+        config.addProperty("newKey", "value");
+    }
+
+    /**
+     * Tests that properties cannot be removed.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testClearPropertyReadOnly()
+    {
+        config.clearProperty("element");
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.beanutils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.apache.commons.beanutils.PropertyUtilsBean;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@code BeanClassInfo}.
+ *
+ * @version $Id$
+ */
+public class TestBeanClassInfo
+{
+    /** The object for introspection. */
+    private PropertyUtilsBean propUtils;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        propUtils = new PropertyUtilsBean();
+    }
+
+    /**
+     * Tests that the same instance is returned for the same class.
+     */
+    @Test
+    public void testForClassCached()
+    {
+        BeanClassInfo info = BeanClassInfo.forClass(BeanCreationTestBean.class);
+        assertSame("Not cached", info,
+                BeanClassInfo.forClass(BeanCreationTestBean.class));
+    }
+
+    /**
+     * Tests whether the constructors of a class can be queried.
+     */
+    @Test
+    public void testConstructors()
+    {
+        BeanClassInfo info =
+                BeanClassInfo.forClass(BeanCreationTestCtorBean.class);
+        assertEquals("Wrong number of constructors",
+                BeanCreationTestCtorBean.class.getConstructors().length,
+                info.getConstructorCount());
+        for (int i = 0; i < info.getConstructorCount(); i++)
+        {
+            assertEquals("Wrong parameter types at " + i, info
+                    .getConstructor(i).getParameterTypes().length,
+                    info.getConstructorParameterTypes(i).length);
+        }
+    }
+
+    /**
+     * Tests that classes of this library and the JDK are cached safely.
+     */
+    @Test
+    public void testIsCacheSafe()
+    {
+        assertTrue("JDK class not safe", BeanClassInfo.isCacheSafe(String.class));
+        assertTrue("Library class not safe",
+                BeanClassInfo.isCacheSafe(BeanHelper.class));
+    }
+
+    /**
+     * Tests the cache for a class from a class loader which is not a parent
+     * of the class loader of this library.
+     */
+    @Test
+    public void testForClassForeignClassLoader() throws Exception
+    {
+        URL classesURL =
+                BeanCreationTestBean.class.getProtectionDomain()
+                        .getCodeSource().getLocation();
+        URLClassLoader loader = new URLClassLoader(new URL[] {
+            classesURL
+        }, null);
+        Class<?> cls = loader.loadClass(BeanCreationTestBean.class.getName());
+        assertNotSame("Same class", BeanCreationTestBean.class, cls);
+        assertFalse("Foreign class safe", BeanClassInfo.isCacheSafe(cls));
+        BeanClassInfo info = BeanClassInfo.forClass(cls);
+        assertSame("Not cached", info, BeanClassInfo.forClass(cls));
+        assertEquals("Wrong number of constructors",
+                cls.getConstructors().length, info.getConstructorCount());
+    }
+
+    /**
+     * Tests whether the write method of a property can be queried.
+     */
+    @Test
+    public void testGetWriteMethod() throws Exception
+    {
+        Method m =
+                BeanClassInfo.forClass(BeanCreationTestBean.class)
+                        .getWriteMethod("stringValue", propUtils);
+        assertNotNull("No write method", m);
+        BeanCreationTestBean bean = new BeanCreationTestBean();
+        m.invoke(bean, "test");
+        assertEquals("Property not set", "test", bean.getStringValue());
+    }
+
+    /**
+     * Tests getWriteMethod() for an unknown property.
+     */
+    @Test
+    public void testGetWriteMethodUnknownProperty()
+    {
+        assertNull("Got a write method",
+                BeanClassInfo.forClass(BeanCreationTestBean.class)
+                        .getWriteMethod("unknown", propUtils));
+    }
+
+    /**
+     * Tests that no write method is returned for a class which is not public.
+     * Such methods cannot be invoked directly.
+     */
+    @Test
+    public void testGetWriteMethodNonPublicClass()
+    {
+        BeanClassInfo info = BeanClassInfo.forClass(NonPublicBean.class);
+        assertNull("Got a write method",
+                info.getWriteMethod("value", propUtils));
+    }
+
+    /**
+     * A bean class which is not public.
+     */
+    static class NonPublicBean
+    {
+        /** A test property. */
+        private String value;
+
+        public String getValue()
+        {
+            return value;
+        }
+
+        public void setValue(String value)
+        {
+            this.value = value;
+        }
+    }
+}
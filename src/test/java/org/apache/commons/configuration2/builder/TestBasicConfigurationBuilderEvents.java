@@ -22,12 +22,16 @@ import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.configuration2.BaseHierarchicalConfiguration;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.PropertiesConfiguration;
 import org.apache.commons.configuration2.event.Event;
 import org.apache.commons.configuration2.event.EventListener;
 import org.apache.commons.configuration2.event.EventType;
 import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.commons.configuration2.tree.InMemoryNodeModel;
 import org.junit.Test;
 
 /**
@@ -227,4 +231,57 @@ public class TestBasicConfigurationBuilderEvents
         assertSame("Wrong configuration", configuration,
                 event.getConfiguration());
     }
+
+    /**
+     * Tests that the nodes of a new result configuration are only counted if
+     * there is a listener for result created events.
+     */
+    @Test
+    public void testResultCreatedNodeCountOnlyWithListener()
+            throws ConfigurationException
+    {
+        BasicConfigurationBuilder<NodeModelAccessConfiguration> builder =
+                new BasicConfigurationBuilder<NodeModelAccessConfiguration>(
+                        NodeModelAccessConfiguration.class);
+        assertEquals("Node model accessed", 0, builder.getConfiguration()
+                .getAccessCount());
+
+        builder.resetResult();
+        BuilderEventListenerImpl listener = new BuilderEventListenerImpl();
+        builder.addEventListener(
+                ConfigurationBuilderResultCreatedEvent.RESULT_CREATED,
+                listener);
+        NodeModelAccessConfiguration config = builder.getConfiguration();
+        assertTrue("Node model not accessed", config.getAccessCount() > 0);
+        assertEquals("Wrong node count", 1, listener.nextEvent(
+                ConfigurationBuilderResultCreatedEvent.RESULT_CREATED)
+                .getLoadStatistics().getNodeCount());
+    }
+
+    /**
+     * A test configuration class which counts the accesses to its node model.
+     */
+    public static class NodeModelAccessConfiguration extends
+            BaseHierarchicalConfiguration
+    {
+        /** The number of accesses to the node model. */
+        private final AtomicInteger accessCount = new AtomicInteger();
+
+        @Override
+        public InMemoryNodeModel getNodeModel()
+        {
+            accessCount.incrementAndGet();
+            return super.getNodeModel();
+        }
+
+        /**
+         * Returns the number of accesses to the node model.
+         *
+         * @return the access count
+         */
+        public int getAccessCount()
+        {
+            return accessCount.get();
+        }
+    }
 }
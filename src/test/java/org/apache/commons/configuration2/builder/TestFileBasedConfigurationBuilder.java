@@ -45,6 +45,8 @@ import org.apache.commons.configuration2.io.FileHandler;
 import org.apache.commons.configuration2.io.FileLocator;
 import org.apache.commons.configuration2.io.FileLocatorUtils;
 import org.apache.commons.configuration2.io.HomeDirectoryLocationStrategy;
+import org.apache.commons.configuration2.io.LoadPhase;
+import org.apache.commons.configuration2.io.LoadStatistics;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -137,6 +139,39 @@ public class TestFileBasedConfigurationBuilder
                 .getFileHandler().getContent());
     }
 
+    /**
+     * Tests whether the result created event contains statistics about the
+     * loading of the file.
+     */
+    @Test
+    public void testResultCreatedEventLoadStatistics()
+            throws ConfigurationException
+    {
+        File file = ConfigurationAssert.getTestFile("test.xml");
+        FileBasedConfigurationBuilder<XMLConfiguration> builder =
+                new FileBasedConfigurationBuilder<XMLConfiguration>(
+                        XMLConfiguration.class)
+                        .configure(new FileBasedBuilderParametersImpl()
+                                .setFile(file));
+        BuilderEventListenerImpl listener = new BuilderEventListenerImpl();
+        builder.addEventListener(
+                ConfigurationBuilderResultCreatedEvent.RESULT_CREATED,
+                listener);
+        builder.getConfiguration();
+
+        LoadStatistics stats =
+                listener.nextEvent(
+                        ConfigurationBuilderResultCreatedEvent.RESULT_CREATED)
+                        .getLoadStatistics();
+        assertEquals("Wrong bytes read", file.length(), stats.getBytesRead());
+        assertTrue("No nodes", stats.getNodeCount() > 1);
+        assertTrue("No parse time", stats.getPhaseNanos(LoadPhase.PARSE) > 0);
+        assertTrue("Wrong total time",
+                stats.getTotalNanos() >= stats.getPhaseNanos(LoadPhase.READ)
+                        + stats.getPhaseNanos(LoadPhase.PARSE));
+        assertNull("Statistics still active", LoadStatistics.current());
+    }
+
     /**
      * Tests that the location in the FileHandler remains the same if the
      * builder's result is reset.
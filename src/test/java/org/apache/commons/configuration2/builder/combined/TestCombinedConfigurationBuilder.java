@@ -26,7 +26,9 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.Collection;
@@ -84,7 +86,9 @@ import org.apache.commons.configuration2.tree.xpath.XPathExpressionEngine;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * Test class for {@code CombinedConfigurationBuilder}.
@@ -109,6 +113,10 @@ public class TestCombinedConfigurationBuilder
      */
     private static final String MULTI_FILE_PROPERTY = "Id";
 
+    /** A helper object for creating temporary files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     /** A helper object for creating builder parameters. */
     protected Parameters parameters;
 
@@ -896,6 +904,181 @@ public class TestCombinedConfigurationBuilder
                 config.getString("somekey"));
     }
 
+    /**
+     * Writes a properties file with the given content.
+     *
+     * @param file the file to be written
+     * @param content the content
+     * @throws IOException if an error occurs
+     */
+    private static void writePropertiesFile(File file, String content)
+            throws IOException
+    {
+        Writer out = new FileWriter(file);
+        try
+        {
+            out.write(content);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Creates a builder for a combined configuration with two properties
+     * files which uses the given startup cache file.
+     *
+     * @param file1 the first properties file
+     * @param file2 the second properties file
+     * @param cacheFile the cache file
+     * @return the builder
+     */
+    private static CombinedConfigurationBuilder createStartupCacheBuilder(
+            File file1, File file2, File cacheFile)
+    {
+        BaseHierarchicalConfiguration defConfig =
+                new BaseHierarchicalConfiguration();
+        defConfig.addProperty("properties(-1)[@fileName]",
+                file1.getAbsolutePath());
+        defConfig.addProperty("properties(-1)[@fileName]",
+                file2.getAbsolutePath());
+        return new CombinedConfigurationBuilder()
+                .configure(new CombinedBuilderParametersImpl()
+                        .setDefinitionBuilder(
+                                new ConstantConfigurationBuilder(defConfig))
+                        .setStartupCacheFile(cacheFile));
+    }
+
+    /**
+     * Tests whether a startup cache is used if the sources are unchanged and
+     * discarded if a source changes.
+     */
+    @Test
+    public void testStartupCache() throws ConfigurationException, IOException
+    {
+        File file1 = folder.newFile("cache1.properties");
+        File file2 = folder.newFile("cache2.properties");
+        File cacheFile = new File(folder.getRoot(), "startup.cache");
+        writePropertiesFile(file1, "key1 = value1\nshared = first\n");
+        writePropertiesFile(file2, "key2 = value2\nshared = second\n");
+
+        CombinedConfiguration config =
+                createStartupCacheBuilder(file1, file2, cacheFile)
+                        .getConfiguration();
+        assertNull("Got cached data", config.getConfiguration(CombinedConfigurationBuilder.CACHED_NAME));
+        assertEquals("Wrong shared value", "first", config.getString("shared"));
+        assertTrue("No cache file", cacheFile.isFile());
+
+        CombinedConfiguration cachedConfig =
+                createStartupCacheBuilder(file1, file2, cacheFile)
+                        .getConfiguration();
+        assertNotNull("No cached data", cachedConfig
+                .getConfiguration(CombinedConfigurationBuilder.CACHED_NAME));
+        assertEquals("Wrong number of configurations", 1,
+                cachedConfig.getNumberOfConfigurations());
+        assertEquals("Wrong value 1", "value1", cachedConfig.getString("key1"));
+        assertEquals("Wrong value 2", "value2", cachedConfig.getString("key2"));
+        assertEquals("Wrong shared value", "first",
+                cachedConfig.getString("shared"));
+
+        writePropertiesFile(file2, "key2 = changed value\n");
+        CombinedConfiguration changedConfig =
+                createStartupCacheBuilder(file1, file2, cacheFile)
+                        .getConfiguration();
+        assertNull("Cache not invalidated", changedConfig
+                .getConfiguration(CombinedConfigurationBuilder.CACHED_NAME));
+        assertEquals("Wrong changed value", "changed value",
+                changedConfig.getString("key2"));
+    }
+
+    /**
+     * Tests that a corrupt startup cache file is ignored.
+     */
+    @Test
+    public void testStartupCacheCorruptFile() throws ConfigurationException,
+            IOException
+    {
+        File file1 = folder.newFile("cache1.properties");
+        File file2 = folder.newFile("cache2.properties");
+        File cacheFile = folder.newFile("startup.cache");
+        writePropertiesFile(file1, "key1 = value1\n");
+        writePropertiesFile(file2, "key2 = value2\n");
+        writePropertiesFile(cacheFile, "no valid cache data");
+
+        CombinedConfiguration config =
+                createStartupCacheBuilder(file1, file2, cacheFile)
+                        .getConfiguration();
+        assertEquals("Wrong value", "value2", config.getString("key2"));
+        assertNotNull("No cached data",
+                createStartupCacheBuilder(file1, file2, cacheFile)
+                        .getConfiguration().getConfiguration(
+                                CombinedConfigurationBuilder.CACHED_NAME));
+    }
+
+    /**
+     * Tests that the startup cache is discarded if a file included by a
+     * properties source has changed.
+     */
+    @Test
+    public void testStartupCacheIncludedFileChanged()
+            throws ConfigurationException, IOException
+    {
+        File file1 = folder.newFile("cache1.properties");
+        File file2 = folder.newFile("cache2.properties");
+        File includeFile = folder.newFile("cacheInclude.properties");
+        File cacheFile = new File(folder.getRoot(), "startup.cache");
+        writePropertiesFile(file1, "key1 = value1\n");
+        writePropertiesFile(file2, PropertiesConfiguration.getInclude()
+                + " = " + includeFile.getName() + "\n");
+        writePropertiesFile(includeFile, "included = value\n");
+        createStartupCacheBuilder(file1, file2, cacheFile).getConfiguration();
+        CombinedConfiguration cachedConfig =
+                createStartupCacheBuilder(file1, file2, cacheFile)
+                        .getConfiguration();
+        assertNotNull("No cached data", cachedConfig
+                .getConfiguration(CombinedConfigurationBuilder.CACHED_NAME));
+        assertEquals("Wrong included value", "value",
+                cachedConfig.getString("included"));
+
+        writePropertiesFile(includeFile, "included = changed value\n");
+        CombinedConfiguration changedConfig =
+                createStartupCacheBuilder(file1, file2, cacheFile)
+                        .getConfiguration();
+        assertNull("Cache not invalidated", changedConfig
+                .getConfiguration(CombinedConfigurationBuilder.CACHED_NAME));
+        assertEquals("Wrong changed value", "changed value",
+                changedConfig.getString("included"));
+    }
+
+    /**
+     * Tests that no startup cache is written if an XML source contains a
+     * document type declaration.
+     */
+    @Test
+    public void testStartupCacheXMLWithDoctype() throws ConfigurationException,
+            IOException
+    {
+        File xmlFile = folder.newFile("cache.xml");
+        File cacheFile = new File(folder.getRoot(), "startup.cache");
+        writePropertiesFile(xmlFile, "<?xml version=\"1.0\"?>\n"
+                + "<!DOCTYPE config [<!ENTITY val \"entity value\">]>\n"
+                + "<config><key>&val;</key></config>\n");
+        BaseHierarchicalConfiguration defConfig =
+                new BaseHierarchicalConfiguration();
+        defConfig.addProperty("xml[@fileName]", xmlFile.getAbsolutePath());
+        CombinedConfiguration config =
+                new CombinedConfigurationBuilder().configure(
+                        new CombinedBuilderParametersImpl()
+                                .setDefinitionBuilder(
+                                        new ConstantConfigurationBuilder(
+                                                defConfig))
+                                .setStartupCacheFile(cacheFile))
+                        .getConfiguration();
+        assertEquals("Wrong value", "entity value", config.getString("key"));
+        assertFalse("Cache file written", cacheFile.exists());
+    }
+
     /**
      * Tests whether the resulting combined configuration can be customized.
      */
@@ -28,6 +28,7 @@ import java.util.Map;
 import org.apache.commons.configuration2.beanutils.BeanHelper;
 import org.apache.commons.configuration2.builder.BuilderParameters;
 import org.apache.commons.configuration2.builder.FileBasedBuilderParametersImpl;
+import org.apache.commons.configuration2.cache.StandardEvictionPolicy;
 import org.easymock.EasyMock;
 import org.junit.Before;
 import org.junit.Test;
@@ -84,6 +85,25 @@ public class TestMultiFileBuilderParametersImpl
         assertNotNull("No new instance", params);
     }
 
+    /**
+     * Tests whether the bounds for the cache of managed builders can be set.
+     */
+    @Test
+    public void testSetManagedBuilderCacheBounds()
+    {
+        assertSame("Wrong result", params, params.setMaxManagedBuilders(10)
+                .setMaxManagedBuilderIdleTime(1000)
+                .setMaxManagedConfigurationNodes(500)
+                .setManagedBuilderEvictionPolicy(StandardEvictionPolicy.LFU));
+        assertEquals("Wrong max builders", 10, params.getMaxManagedBuilders());
+        assertEquals("Wrong idle time", 1000,
+                params.getMaxManagedBuilderIdleTime());
+        assertEquals("Wrong max nodes", 500,
+                params.getMaxManagedConfigurationNodes());
+        assertEquals("Wrong policy", StandardEvictionPolicy.LFU,
+                params.getManagedBuilderEvictionPolicy());
+    }
+
     /**
      * Tests whether a file pattern can be set.
      */
@@ -24,9 +24,19 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.configuration2.ConfigurationLookup;
 import org.apache.commons.configuration2.DynamicCombinedConfiguration;
@@ -40,6 +50,7 @@ import org.apache.commons.configuration2.builder.ConfigurationBuilderEvent;
 import org.apache.commons.configuration2.builder.ConfigurationBuilderResultCreatedEvent;
 import org.apache.commons.configuration2.builder.FileBasedConfigurationBuilder;
 import org.apache.commons.configuration2.builder.XMLBuilderParametersImpl;
+import org.apache.commons.configuration2.cache.StandardEvictionPolicy;
 import org.apache.commons.configuration2.convert.DefaultListDelimiterHandler;
 import org.apache.commons.configuration2.event.ConfigurationEvent;
 import org.apache.commons.configuration2.event.Event;
@@ -48,7 +59,11 @@ import org.apache.commons.configuration2.event.EventListenerTestImpl;
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.commons.configuration2.interpol.ConfigurationInterpolator;
 import org.apache.commons.configuration2.interpol.DefaultLookups;
+import org.apache.commons.configuration2.tree.ConfigurationNodeVisitorAdapter;
 import org.apache.commons.configuration2.tree.ExpressionEngine;
+import org.apache.commons.configuration2.tree.ImmutableNode;
+import org.apache.commons.configuration2.tree.NodeHandler;
+import org.apache.commons.configuration2.tree.NodeTreeWalker;
 import org.apache.commons.configuration2.tree.xpath.XPathExpressionEngine;
 import org.easymock.EasyMock;
 import org.junit.Test;
@@ -86,6 +101,22 @@ public class TestMultiFileConfigurationBuilder extends AbstractMultiFileConfigur
      */
     private static MultiFileConfigurationBuilder<XMLConfiguration> createBuilderWithAccessToManagedBuilders(
             final Collection<FileBasedConfigurationBuilder<XMLConfiguration>> managedBuilders)
+    {
+        return createBuilderWithAccessToManagedBuilders(managedBuilders,
+                createTestBuilderParameters(null));
+    }
+
+    /**
+     * Creates a test builder instance which allows access to the managed
+     * builders created by it and initializes it with the given parameters.
+     *
+     * @param managedBuilders a collection in which to store managed builders
+     * @param params the parameters for the builder
+     * @return the test builder instance
+     */
+    private static MultiFileConfigurationBuilder<XMLConfiguration> createBuilderWithAccessToManagedBuilders(
+            final Collection<FileBasedConfigurationBuilder<XMLConfiguration>> managedBuilders,
+            BuilderParameters params)
     {
         MultiFileConfigurationBuilder<XMLConfiguration> builder =
                 new MultiFileConfigurationBuilder<XMLConfiguration>(
@@ -104,7 +135,7 @@ public class TestMultiFileConfigurationBuilder extends AbstractMultiFileConfigur
                         return result;
                     }
                 };
-        builder.configure(createTestBuilderParameters(null));
+        builder.configure(params);
         return builder;
     }
 
@@ -459,4 +490,306 @@ public class TestMultiFileConfigurationBuilder extends AbstractMultiFileConfigur
                 HierarchicalConfiguration.class, builder), "Multi");
         assertTrue("Got configuration data", config.isEmpty());
     }
+
+    /**
+     * Creates a parameters object with default settings for a test builder
+     * which allows setting the specific properties of multi file builders.
+     *
+     * @return the test parameters
+     */
+    private static MultiFileBuilderParametersImpl createMultiParameters()
+    {
+        return (MultiFileBuilderParametersImpl) createTestBuilderParameters(null);
+    }
+
+    /**
+     * Tests whether the number of managed builders can be restricted.
+     */
+    @Test
+    public void testMaxManagedBuilders() throws ConfigurationException
+    {
+        BuilderEventListenerImpl listener = new BuilderEventListenerImpl();
+        List<FileBasedConfigurationBuilder<XMLConfiguration>> managedBuilders =
+                new ArrayList<FileBasedConfigurationBuilder<XMLConfiguration>>();
+        MultiFileConfigurationBuilder<XMLConfiguration> builder =
+                createBuilderWithAccessToManagedBuilders(managedBuilders,
+                        createMultiParameters().setMaxManagedBuilders(2));
+        builder.addEventListener(ConfigurationBuilderEvent.RESET, listener);
+        for (int index : new int[] {
+                1, 2, 1, 3
+        })
+        {
+            switchToConfig(index);
+            builder.getConfiguration();
+        }
+        assertEquals("Wrong number of managed builders", 2, builder
+                .getManagedBuilders().size());
+        assertFalse("Builder not evicted", builder.getManagedBuilders()
+                .containsValue(managedBuilders.get(1)));
+
+        managedBuilders.get(1).resetResult();
+        listener.assertNoMoreEvents();
+        switchToConfig(2);
+        assertEquals("Wrong property", 25,
+                builder.getConfiguration().getInt("rowsPerPage"));
+        assertEquals("Builder not created again", 4, managedBuilders.size());
+    }
+
+    /**
+     * Tests whether the number of nodes of managed configurations can be
+     * restricted.
+     */
+    @Test
+    public void testMaxManagedConfigurationNodes()
+            throws ConfigurationException
+    {
+        List<FileBasedConfigurationBuilder<XMLConfiguration>> managedBuilders =
+                new ArrayList<FileBasedConfigurationBuilder<XMLConfiguration>>();
+        MultiFileConfigurationBuilder<XMLConfiguration> builder =
+                createBuilderWithAccessToManagedBuilders(managedBuilders,
+                        createMultiParameters().setMaxManagedConfigurationNodes(2));
+        switchToConfig(1);
+        builder.getConfiguration();
+        switchToConfig(2);
+        builder.getConfiguration();
+        assertEquals("Wrong managed builders",
+                Collections.singletonList(managedBuilders.get(1)),
+                new ArrayList<FileBasedConfigurationBuilder<XMLConfiguration>>(
+                        builder.getManagedBuilders().values()));
+    }
+
+    /**
+     * Tests whether the node bound is checked again after a managed builder
+     * has loaded its configuration and its weight is known.
+     */
+    @Test
+    public void testMaxManagedConfigurationNodesCheckedAfterLoad()
+            throws ConfigurationException
+    {
+        switchToConfig(1);
+        long nodeCount =
+                countNodes(createBuilderWithAccessToManagedBuilders(
+                        new ArrayList<FileBasedConfigurationBuilder<XMLConfiguration>>())
+                        .getConfiguration());
+        List<FileBasedConfigurationBuilder<XMLConfiguration>> managedBuilders =
+                new ArrayList<FileBasedConfigurationBuilder<XMLConfiguration>>();
+        MultiFileConfigurationBuilder<XMLConfiguration> builder =
+                createBuilderWithAccessToManagedBuilders(managedBuilders,
+                        createMultiParameters()
+                                .setMaxManagedConfigurationNodes(nodeCount + 1));
+        builder.getConfiguration();
+        switchToConfig(2);
+        builder.getConfiguration();
+        assertEquals("Wrong managed builders",
+                Collections.singletonList(managedBuilders.get(1)),
+                new ArrayList<FileBasedConfigurationBuilder<XMLConfiguration>>(
+                        builder.getManagedBuilders().values()));
+    }
+
+    /**
+     * Tests that a managed builder which has just loaded its configuration is
+     * not evicted when the bounds are checked again, even if its file name
+     * is normalized and thus differs from the key in the cache.
+     */
+    @Test
+    public void testMaxManagedConfigurationNodesLoadedBuilderNotEvicted()
+            throws ConfigurationException
+    {
+        switchToConfig(1);
+        long nodeCount =
+                countNodes(createBuilderWithAccessToManagedBuilders(
+                        new ArrayList<FileBasedConfigurationBuilder<XMLConfiguration>>())
+                        .getConfiguration());
+        List<FileBasedConfigurationBuilder<XMLConfiguration>> managedBuilders =
+                new ArrayList<FileBasedConfigurationBuilder<XMLConfiguration>>();
+        MultiFileBuilderParametersImpl params = createMultiParameters();
+        params.setFilePattern("file:" + new File(PATTERN).getAbsolutePath())
+                .setMaxManagedConfigurationNodes(nodeCount + 1)
+                .setManagedBuilderEvictionPolicy(StandardEvictionPolicy.LFU);
+        MultiFileConfigurationBuilder<XMLConfiguration> builder =
+                createBuilderWithAccessToManagedBuilders(managedBuilders,
+                        params);
+        for (int i = 0; i < 3; i++)
+        {
+            builder.getConfiguration();
+        }
+        switchToConfig(2);
+        builder.getConfiguration();
+        assertEquals("Wrong managed builders",
+                Collections.singletonList(managedBuilders.get(1)),
+                new ArrayList<FileBasedConfigurationBuilder<XMLConfiguration>>(
+                        builder.getManagedBuilders().values()));
+    }
+
+    /**
+     * Determines the number of nodes of the given configuration.
+     *
+     * @param config the configuration
+     * @return the number of nodes
+     */
+    private static long countNodes(XMLConfiguration config)
+    {
+        final long[] count = new long[1];
+        NodeTreeWalker.INSTANCE.walkBFS(config.getNodeModel().getNodeHandler()
+                .getRootNode(),
+                new ConfigurationNodeVisitorAdapter<ImmutableNode>()
+                {
+                    @Override
+                    public void visitBeforeChildren(ImmutableNode node,
+                            NodeHandler<ImmutableNode> handler)
+                    {
+                        count[0]++;
+                    }
+                }, config.getNodeModel().getNodeHandler());
+        return count[0];
+    }
+
+    /**
+     * Tests whether managed builders expire after the maximum idle time.
+     */
+    @Test
+    public void testMaxManagedBuilderIdleTime() throws ConfigurationException,
+            InterruptedException
+    {
+        List<FileBasedConfigurationBuilder<XMLConfiguration>> managedBuilders =
+                new ArrayList<FileBasedConfigurationBuilder<XMLConfiguration>>();
+        MultiFileConfigurationBuilder<XMLConfiguration> builder =
+                createBuilderWithAccessToManagedBuilders(managedBuilders,
+                        createMultiParameters().setMaxManagedBuilderIdleTime(1));
+        switchToConfig(1);
+        builder.getConfiguration();
+        Thread.sleep(20);
+        builder.getConfiguration();
+        assertEquals("Expired builder not replaced", 2, managedBuilders.size());
+        assertEquals("Wrong number of managed builders", 1, builder
+                .getManagedBuilders().size());
+    }
+
+    /**
+     * Tests whether managed builders can be evicted in LFU order.
+     */
+    @Test
+    public void testManagedBuilderEvictionPolicy()
+            throws ConfigurationException
+    {
+        List<FileBasedConfigurationBuilder<XMLConfiguration>> managedBuilders =
+                new ArrayList<FileBasedConfigurationBuilder<XMLConfiguration>>();
+        MultiFileConfigurationBuilder<XMLConfiguration> builder =
+                createBuilderWithAccessToManagedBuilders(managedBuilders,
+                        createMultiParameters().setMaxManagedBuilders(2)
+                                .setManagedBuilderEvictionPolicy(
+                                        StandardEvictionPolicy.LFU));
+        for (int index : new int[] {
+                1, 1, 1, 2, 3
+        })
+        {
+            switchToConfig(index);
+            builder.getConfiguration();
+        }
+        assertTrue("Frequently used builder evicted", builder
+                .getManagedBuilders().containsValue(managedBuilders.get(0)));
+        assertFalse("Builder not evicted", builder.getManagedBuilders()
+                .containsValue(managedBuilders.get(1)));
+    }
+
+    /**
+     * Tests whether configurations can be preloaded in parallel.
+     */
+    @Test
+    public void testPreload() throws Exception
+    {
+        List<FileBasedConfigurationBuilder<XMLConfiguration>> managedBuilders =
+                Collections
+                        .synchronizedList(new ArrayList<FileBasedConfigurationBuilder<XMLConfiguration>>());
+        MultiFileConfigurationBuilder<XMLConfiguration> builder =
+                createBuilderWithAccessToManagedBuilders(managedBuilders);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            Future<Map<String, ConfigurationException>> future =
+                    builder.preload(Arrays.asList("1001", "1002", "1003"),
+                            executor);
+            assertTrue("Got failures", future.get(10, TimeUnit.SECONDS)
+                    .isEmpty());
+            assertTrue("Not done", future.isDone());
+            assertFalse("Cancelled", future.isCancelled());
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertEquals("Wrong number of managed builders", 3, builder
+                .getManagedBuilders().size());
+
+        switchToConfig(2);
+        assertEquals("Wrong property", 25,
+                builder.getConfiguration().getInt("rowsPerPage"));
+        assertEquals("Builder created again", 3, managedBuilders.size());
+    }
+
+    /**
+     * Tests that failures during preloading are reported per pattern value.
+     */
+    @Test
+    public void testPreloadFailures() throws Exception
+    {
+        MultiFileConfigurationBuilder<XMLConfiguration> builder =
+                createTestBuilder(null);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Map<String, ConfigurationException> failures;
+        try
+        {
+            failures =
+                    builder.preload(Arrays.asList("1001", "unknown"), executor)
+                            .get(10, TimeUnit.SECONDS);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertEquals("Wrong failures", Collections.singleton("unknown"),
+                failures.keySet());
+        assertNotNull("No exception", failures.get("unknown"));
+        assertEquals("Wrong number of managed builders", 2, builder
+                .getManagedBuilders().size());
+    }
+
+    /**
+     * Tests that a task rejected by the executor is reported as failure.
+     */
+    @Test
+    public void testPreloadRejected() throws Exception
+    {
+        MultiFileConfigurationBuilder<XMLConfiguration> builder =
+                createTestBuilder(null);
+        Executor executor = new Executor()
+        {
+            @Override
+            public void execute(Runnable command)
+            {
+                throw new RejectedExecutionException("Test exception");
+            }
+        };
+        Future<Map<String, ConfigurationException>> future =
+                builder.preload(Collections.singleton("1001"), executor);
+        assertTrue("Not done", future.isDone());
+        Map<String, ConfigurationException> failures = future.get();
+        assertTrue("Wrong cause",
+                failures.get("1001").getCause() instanceof RejectedExecutionException);
+    }
+
+    /**
+     * Tests preload() if no file pattern is set.
+     */
+    @Test(expected = ConfigurationException.class)
+    public void testPreloadNoPattern() throws ConfigurationException
+    {
+        MultiFileConfigurationBuilder<XMLConfiguration> builder =
+                new MultiFileConfigurationBuilder<XMLConfiguration>(
+                        XMLConfiguration.class);
+        builder.configure(new MultiFileBuilderParametersImpl()
+                .setInterpolator(new ConfigurationInterpolator()));
+        builder.preload(Collections.singleton("1001"),
+                EasyMock.createMock(Executor.class));
+    }
 }
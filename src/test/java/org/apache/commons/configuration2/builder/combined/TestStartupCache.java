@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.builder.combined;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.builder.ConfigurationBuilder;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.commons.configuration2.tree.ImmutableNode;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test class for {@code StartupCache}.
+ *
+ * @version $Id$
+ */
+public class TestStartupCache
+{
+    /** Constant for the test fingerprints. */
+    private static final List<String> FINGERPRINTS = Arrays.asList("fp1",
+            "fp2");
+
+    /** A helper object for managing temporary files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** The cache to be tested. */
+    private StartupCache cache;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        cache = new StartupCache(new File(folder.getRoot(), "test.cache"));
+    }
+
+    /**
+     * Returns an empty collection of builders.
+     *
+     * @return the collection with builders
+     */
+    private static List<ConfigurationBuilder<? extends Configuration>> noBuilders()
+    {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Creates a node structure with a child node having the given value.
+     *
+     * @param value the value
+     * @return the root node of the structure
+     */
+    private static ImmutableNode createStructure(Object value)
+    {
+        return new ImmutableNode.Builder()
+                .addChild(
+                        new ImmutableNode.Builder().name("key").value(value)
+                                .create()).create();
+    }
+
+    /**
+     * Tests that typed values are retained when they are read from the cache.
+     */
+    @Test
+    public void testStoreAndLoadTypedValue() throws ConfigurationException,
+            IOException
+    {
+        assertTrue("Not stored", cache.store(
+                createStructure(Integer.valueOf(42)), FINGERPRINTS,
+                noBuilders()));
+        ImmutableNode root = cache.load(FINGERPRINTS);
+        assertEquals("Wrong value", Integer.valueOf(42), root.getChildren()
+                .get(0).getValue());
+    }
+
+    /**
+     * Tests that the cache is not used if the fingerprints have changed.
+     */
+    @Test
+    public void testLoadChangedFingerprints() throws ConfigurationException,
+            IOException
+    {
+        cache.store(createStructure("value"), FINGERPRINTS, noBuilders());
+        assertNull("Got data", cache.load(Arrays.asList("fp1", "other")));
+    }
+
+    /**
+     * Tests that a structure with a value whose type would be lost is not
+     * stored and that an existing cache file is removed.
+     */
+    @Test
+    public void testStoreUnsupportedValueType()
+            throws ConfigurationException, IOException
+    {
+        cache.store(createStructure("value"), FINGERPRINTS, noBuilders());
+        assertFalse("Stored", cache.store(createStructure(new Date()),
+                FINGERPRINTS, noBuilders()));
+        assertFalse("Cache file exists", cache.getCacheFile().exists());
+        assertNull("Got data", cache.load(FINGERPRINTS));
+    }
+}
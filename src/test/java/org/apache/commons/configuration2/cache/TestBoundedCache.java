@@ -0,0 +1,403 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@code BoundedCache}.
+ *
+ * @version $Id$
+ */
+public class TestBoundedCache
+{
+    /** The cache to be tested. */
+    private BoundedCacheTestImpl cache;
+
+    /** A listener recording the keys of evicted entries. */
+    private EvictionListenerTestImpl listener;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        cache = new BoundedCacheTestImpl();
+        listener = new EvictionListenerTestImpl();
+        cache.addEvictionListener(listener);
+    }
+
+    /**
+     * Adds the given keys to the test cache. The value of each key is its
+     * length. The clock is advanced after each key.
+     *
+     * @param keys the keys to be added
+     */
+    private void putKeys(String... keys)
+    {
+        for (String key : keys)
+        {
+            cache.put(key, key.length());
+            cache.time++;
+        }
+    }
+
+    /**
+     * Tests an unbounded cache.
+     */
+    @Test
+    public void testUnbounded()
+    {
+        assertFalse("Bounded", cache.isBounded());
+        putKeys("a", "bb", "ccc");
+        assertEquals("Wrong size", 3, cache.size());
+        assertEquals("Wrong value", Integer.valueOf(2), cache.get("bb"));
+        assertNull("Got value for unknown key", cache.get("d"));
+        assertEquals("Wrong values", new HashSet<Integer>(Arrays.asList(1, 2,
+                3)), new HashSet<Integer>(cache.values()));
+        assertTrue("Got evictions", listener.evicted.isEmpty());
+    }
+
+    /**
+     * Tests that the least recently used entries are evicted per default.
+     */
+    @Test
+    public void testMaxSizeLRU()
+    {
+        cache.setMaxSize(2);
+        putKeys("a", "b");
+        cache.get("a");
+        cache.time++;
+        putKeys("c");
+        assertEquals("Wrong evicted keys", Arrays.asList("b"),
+                listener.evicted);
+        assertNull("Entry not evicted", cache.get("b"));
+        assertEquals("Wrong size", 2, cache.size());
+    }
+
+    /**
+     * Tests that the least frequently used entries can be evicted.
+     */
+    @Test
+    public void testMaxSizeLFU()
+    {
+        cache.setMaxSize(2);
+        cache.setEvictionPolicy(StandardEvictionPolicy.LFU);
+        putKeys("a", "b");
+        cache.get("b");
+        cache.get("b");
+        cache.time++;
+        cache.get("a");
+        putKeys("c");
+        assertEquals("Wrong evicted keys", Arrays.asList("a"),
+                listener.evicted);
+    }
+
+    /**
+     * Tests the LFU policy with entries having different numbers of accesses
+     * which change over time.
+     */
+    @Test
+    public void testMaxSizeLFUMultipleAccessCounts()
+    {
+        cache.setMaxSize(3);
+        cache.setEvictionPolicy(StandardEvictionPolicy.LFU);
+        putKeys("a", "b", "c");
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        cache.get("c");
+        cache.get("c");
+        cache.get("b");
+        cache.get("b");
+        putKeys("d");
+        assertEquals("Wrong evicted keys", Arrays.asList("a"),
+                listener.evicted);
+        cache.get("d");
+        putKeys("e");
+        assertEquals("Wrong evicted keys (2)", Arrays.asList("a", "d"),
+                listener.evicted);
+        putKeys("f");
+        assertEquals("Wrong evicted keys (3)", Arrays.asList("a", "d", "e"),
+                listener.evicted);
+    }
+
+    /**
+     * Tests that a custom eviction policy is taken into account.
+     */
+    @Test
+    public void testCustomEvictionPolicy()
+    {
+        cache.setMaxSize(2);
+        cache.setWeigher(new CacheWeigher<Integer>()
+        {
+            @Override
+            public long weigh(Integer value)
+            {
+                return value.longValue();
+            }
+        });
+        cache.setMaxWeight(100);
+        cache.setEvictionPolicy(new EvictionPolicy()
+        {
+            @Override
+            public int compare(CacheEntryInfo e1, CacheEntryInfo e2)
+            {
+                // heaviest entries first
+                return (int) (e2.getWeight() - e1.getWeight());
+            }
+        });
+        putKeys("bb", "a", "ccc");
+        assertEquals("Wrong evicted keys", Arrays.asList("bb"),
+                listener.evicted);
+    }
+
+    /**
+     * Tests that a newly added entry is not evicted, even if it is ranked
+     * lowest by the eviction policy.
+     */
+    @Test
+    public void testNewEntryNotEvicted()
+    {
+        cache.setMaxSize(1);
+        cache.setEvictionPolicy(StandardEvictionPolicy.LFU);
+        putKeys("a");
+        cache.get("a");
+        putKeys("b");
+        assertEquals("Wrong evicted keys", Arrays.asList("a"),
+                listener.evicted);
+        assertEquals("Wrong value", Integer.valueOf(1), cache.get("b"));
+    }
+
+    /**
+     * Tests that entries expire after the maximum idle time.
+     */
+    @Test
+    public void testMaxIdleTime()
+    {
+        cache.setMaxIdleTime(10, TimeUnit.NANOSECONDS);
+        putKeys("a", "b");
+        cache.time += 9;
+        assertEquals("Wrong value", Integer.valueOf(1), cache.get("b"));
+        cache.time += 2;
+        assertNull("Entry not expired", cache.get("a"));
+        assertEquals("Wrong evicted keys", Arrays.asList("a"),
+                listener.evicted);
+        cache.time += 10;
+        cache.cleanUp();
+        assertEquals("Wrong evicted keys after clean up",
+                Arrays.asList("a", "b"), listener.evicted);
+        assertEquals("Wrong size", 0, cache.size());
+    }
+
+    /**
+     * Tests whether the cache can be bounded by the weight of its entries.
+     */
+    @Test
+    public void testMaxWeight()
+    {
+        cache.setWeigher(new CacheWeigher<Integer>()
+        {
+            @Override
+            public long weigh(Integer value)
+            {
+                return value.longValue();
+            }
+        });
+        cache.setMaxWeight(6);
+        putKeys("aaa", "bb", "c");
+        assertTrue("Got evictions", listener.evicted.isEmpty());
+        putKeys("dd");
+        assertEquals("Wrong evicted keys", Arrays.asList("aaa"),
+                listener.evicted);
+        putKeys("eeee");
+        assertEquals("Wrong evicted keys (2)",
+                Arrays.asList("aaa", "bb", "c"), listener.evicted);
+    }
+
+    /**
+     * Tests whether the bounds are checked again if the weight of an entry
+     * changes. The changed entry is not evicted.
+     */
+    @Test
+    public void testWeightChanged()
+    {
+        final Map<String, Long> weights = new HashMap<String, Long>();
+        cache.setWeigher(new CacheWeigher<Integer>()
+        {
+            @Override
+            public long weigh(Integer value)
+            {
+                Long weight = weights.get(String.valueOf(value));
+                return (weight != null) ? weight.longValue() : 1;
+            }
+        });
+        cache.setMaxWeight(4);
+        putKeys("a", "bb", "ccc");
+        weights.put("3", Long.valueOf(4));
+        assertTrue("Got evictions", listener.evicted.isEmpty());
+        cache.weightChanged("ccc");
+        assertEquals("Wrong evicted keys", Arrays.asList("a", "bb"),
+                listener.evicted);
+        assertEquals("Wrong value", Integer.valueOf(3), cache.get("ccc"));
+    }
+
+    /**
+     * Tests putIfAbsent() for an existing and an expired entry.
+     */
+    @Test
+    public void testPutIfAbsent()
+    {
+        cache.setMaxIdleTime(10, TimeUnit.NANOSECONDS);
+        assertNull("Got a value", cache.putIfAbsent("a", 1));
+        assertEquals("Wrong existing value", Integer.valueOf(1),
+                cache.putIfAbsent("a", 2));
+        cache.time += 20;
+        assertNull("Expired value returned", cache.putIfAbsent("a", 3));
+        assertEquals("Wrong value", Integer.valueOf(3), cache.get("a"));
+        assertEquals("Wrong evicted keys", Arrays.asList("a"),
+                listener.evicted);
+    }
+
+    /**
+     * Tests that explicit removals do not notify eviction listeners.
+     */
+    @Test
+    public void testRemoveNoEviction()
+    {
+        putKeys("a", "b");
+        assertEquals("Wrong removed value", Integer.valueOf(1),
+                cache.remove("a"));
+        cache.clear();
+        assertEquals("Wrong size", 0, cache.size());
+        assertTrue("Got evictions", listener.evicted.isEmpty());
+    }
+
+    /**
+     * Tests that an eviction listener can be removed.
+     */
+    @Test
+    public void testRemoveEvictionListener()
+    {
+        assertTrue("Listener not removed",
+                cache.removeEvictionListener(listener));
+        cache.setMaxSize(1);
+        putKeys("a", "b");
+        assertTrue("Got evictions", listener.evicted.isEmpty());
+    }
+
+    /**
+     * Tests the map view of the cache.
+     */
+    @Test
+    public void testAsMap()
+    {
+        cache.setMaxSize(2);
+        ConcurrentMap<String, Integer> map = cache.asMap();
+        map.put("a", 1);
+        cache.time++;
+        assertNull("Got a value", map.putIfAbsent("b", 2));
+        cache.time++;
+        assertEquals("Wrong value", Integer.valueOf(1), map.get("a"));
+        assertNull("Got value for other type", map.get(Integer.valueOf(1)));
+        cache.time++;
+        map.put("c", 3);
+        assertEquals("Wrong evicted keys", Arrays.asList("b"),
+                listener.evicted);
+        assertEquals("Wrong map", new HashSet<String>(Arrays.asList("a", "c")),
+                map.keySet());
+        assertFalse("Removed with wrong value", map.remove("a", 2));
+        assertTrue("Not replaced", map.replace("a", 1, 10));
+        assertEquals("Wrong replaced value", Integer.valueOf(10),
+                map.replace("a", 11));
+        assertTrue("Not removed", map.remove("a", 11));
+        Iterator<Map.Entry<String, Integer>> it = map.entrySet().iterator();
+        assertEquals("Wrong entry", "c", it.next().getKey());
+        it.remove();
+        assertTrue("Map not empty", map.isEmpty());
+        assertEquals("Wrong cache size", 0, cache.size());
+    }
+
+    /**
+     * Tests that a negative maximum size is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetMaxSizeNegative()
+    {
+        cache.setMaxSize(-1);
+    }
+
+    /**
+     * Tests the default eviction policy.
+     */
+    @Test
+    public void testDefaultEvictionPolicy()
+    {
+        assertEquals("Wrong default policy", StandardEvictionPolicy.LRU,
+                cache.getEvictionPolicy());
+        cache.setEvictionPolicy(StandardEvictionPolicy.LFU);
+        cache.setEvictionPolicy(null);
+        assertEquals("Wrong policy after reset", StandardEvictionPolicy.LRU,
+                cache.getEvictionPolicy());
+    }
+
+    /**
+     * A test implementation of a cache which allows controlling the time.
+     */
+    private static class BoundedCacheTestImpl extends
+            BoundedCache<String, Integer>
+    {
+        /** The current time. */
+        long time;
+
+        @Override
+        long nanoTime()
+        {
+            return time;
+        }
+    }
+
+    /**
+     * A test eviction listener which records the keys of evicted entries.
+     */
+    private static class EvictionListenerTestImpl implements
+            CacheEvictionListener<String, Integer>
+    {
+        /** The evicted keys. */
+        final List<String> evicted = new ArrayList<String>();
+
+        @Override
+        public void entryEvicted(String key, Integer value)
+        {
+            evicted.add(key);
+        }
+    }
+}
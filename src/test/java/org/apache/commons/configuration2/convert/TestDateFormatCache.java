@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.convert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.text.DateFormat;
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test class for {@code DateFormatCache}.
+ *
+ * @version $Id$
+ */
+public class TestDateFormatCache
+{
+    /** Constant for a test date pattern. */
+    private static final String PATTERN = "yyyy-MM-dd";
+
+    @After
+    public void tearDown() throws Exception
+    {
+        DateFormatCache.clear();
+    }
+
+    /**
+     * Tests that the same format is returned for a pattern.
+     */
+    @Test
+    public void testGetFormatCached()
+    {
+        DateFormat format = DateFormatCache.getFormat(PATTERN);
+        assertSame("Not cached", format, DateFormatCache.getFormat(PATTERN));
+        assertNotSame("Same format for other pattern", format,
+                DateFormatCache.getFormat("dd.MM.yyyy"));
+    }
+
+    /**
+     * Tests that different threads use different formats.
+     */
+    @Test
+    public void testGetFormatOtherThread() throws InterruptedException
+    {
+        final AtomicReference<DateFormat> ref =
+                new AtomicReference<DateFormat>();
+        Thread t = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                ref.set(DateFormatCache.getFormat(PATTERN));
+            }
+        };
+        t.start();
+        t.join();
+        assertNotSame("Format shared", ref.get(),
+                DateFormatCache.getFormat(PATTERN));
+    }
+
+    /**
+     * Tests that the number of cached formats is limited.
+     */
+    @Test
+    public void testMaxFormats()
+    {
+        DateFormat format = DateFormatCache.getFormat(PATTERN);
+        for (int i = 0; i < DateFormatCache.MAX_FORMATS; i++)
+        {
+            DateFormatCache.getFormat(PATTERN + " '" + i + "'");
+        }
+        assertNotSame("Format not evicted", format,
+                DateFormatCache.getFormat(PATTERN));
+    }
+
+    /**
+     * Tests that a change of the default time zone is taken into account.
+     */
+    @Test
+    public void testChangedDefaultTimeZone() throws Exception
+    {
+        TimeZone orgZone = TimeZone.getDefault();
+        try
+        {
+            TimeZone.setDefault(TimeZone.getTimeZone("GMT+02:00"));
+            DateFormat format = DateFormatCache.getFormat(PATTERN);
+            TimeZone.setDefault(TimeZone.getTimeZone("GMT-05:00"));
+            DateFormat format2 = DateFormatCache.getFormat(PATTERN);
+            assertNotSame("Format not replaced", format, format2);
+            Calendar cal = Calendar.getInstance();
+            cal.setTime(format2.parse("2014-11-15"));
+            assertEquals("Wrong day", 15, cal.get(Calendar.DAY_OF_MONTH));
+            assertEquals("Wrong hour", 0, cal.get(Calendar.HOUR_OF_DAY));
+        }
+        finally
+        {
+            TimeZone.setDefault(orgZone);
+        }
+    }
+}
@@ -17,9 +17,17 @@
 package org.apache.commons.configuration2.convert;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.net.Inet4Address;
+import java.net.URL;
+import java.net.URLClassLoader;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -27,6 +35,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.configuration2.ex.ConversionException;
 import org.apache.commons.configuration2.interpol.ConfigurationInterpolator;
@@ -374,4 +383,228 @@ public class TestDefaultConversionHandler
         Object result = handler.to(value.toString(), Long.TYPE, null);
         assertEquals("Wrong conversion result", value, result);
     }
+
+    /**
+     * Tests that a registered converter is used for its target class.
+     */
+    @Test
+    public void testRegisterConverter()
+    {
+        handler.registerConverter(Point.class, new PointConverter());
+        Point pt = handler.to("1,2", Point.class, null);
+        assertEquals("Wrong x", 1, pt.getX());
+        assertEquals("Wrong y", 2, pt.getY());
+    }
+
+    /**
+     * Tests that a registered converter is also used for subclasses of its
+     * target class.
+     */
+    @Test
+    public void testRegisterConverterSubclass()
+    {
+        handler.registerConverter(Point.class, new PointConverter());
+        Object result = handler.to("3,4", SubPoint.class, null);
+        assertEquals("Wrong result", "3/4", result.toString());
+    }
+
+    /**
+     * Tests that a more specific converter takes precedence over a converter
+     * for a superclass, even if the superclass converter was resolved before.
+     */
+    @Test
+    public void testRegisterConverterMoreSpecific()
+    {
+        handler.registerConverter(Point.class, new PointConverter());
+        handler.to("1,1", SubPoint.class, null);
+        handler.registerConverter(SubPoint.class, new TypeConverter<SubPoint>()
+        {
+            @Override
+            public SubPoint convert(Object value,
+                    DefaultConversionHandler h)
+            {
+                return new SubPoint(0, 0);
+            }
+        });
+        SubPoint pt = handler.to("5,6", SubPoint.class, null);
+        assertEquals("Wrong x", 0, pt.getX());
+    }
+
+    /**
+     * Tests whether a standard converter can be overridden.
+     */
+    @Test
+    public void testRegisterConverterOverrideStandard()
+    {
+        handler.registerConverter(Integer.class, new TypeConverter<Integer>()
+        {
+            @Override
+            public Integer convert(Object value, DefaultConversionHandler h)
+            {
+                return Integer.valueOf(String.valueOf(value).length());
+            }
+        });
+        assertEquals("Wrong wrapper result", Integer.valueOf(3),
+                handler.to("abc", Integer.class, null));
+        assertEquals("Wrong primitive result", Integer.valueOf(4),
+                handler.to("abcd", Integer.TYPE, null));
+        assertEquals("Other handler affected", Integer.valueOf(42),
+                new DefaultConversionHandler().to("42", Integer.class, null));
+    }
+
+    /**
+     * Tests whether a converter can be removed again.
+     */
+    @Test
+    public void testUnregisterConverter()
+    {
+        handler.registerConverter(Point.class, new PointConverter());
+        handler.to("1,2", Point.class, null);
+        assertTrue("Not removed", handler.unregisterConverter(Point.class));
+        assertFalse("Removed twice", handler.unregisterConverter(Point.class));
+        try
+        {
+            handler.to("1,2", Point.class, null);
+            Assert.fail("Converter still used!");
+        }
+        catch (ConversionException cex)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Tests that resolved converters are cached.
+     */
+    @Test
+    public void testFetchConverterCached()
+    {
+        TypeConverter<?> converter = handler.fetchConverter(Long.TYPE);
+        assertNotNull("No converter", converter);
+        assertSame("Not cached", converter, handler.fetchConverter(Long.TYPE));
+        assertSame("Different converter for wrapper", converter,
+                handler.fetchConverter(Long.class));
+        assertSame("Different enum converter",
+                handler.fetchConverter(TimeUnit.class),
+                handler.fetchConverter(TimeUnit.class));
+        assertNull("Got a converter for unsupported class",
+                handler.fetchConverter(Point.class));
+    }
+
+    /**
+     * Tests that converters for classes from a class loader which is not a
+     * parent of the class loader of this library are not cached.
+     */
+    @Test
+    public void testFetchConverterForeignClassLoaderNotCached()
+            throws Exception
+    {
+        URLClassLoader loader = new URLClassLoader(new URL[] {
+            TestEnum.class.getProtectionDomain().getCodeSource()
+                    .getLocation()
+        }, null);
+        Class<?> enumClass = loader.loadClass(TestEnum.class.getName());
+        TypeConverter<?> converter = handler.fetchConverter(enumClass);
+        assertNotNull("No converter", converter);
+        assertNotSame("Converter cached", converter,
+                handler.fetchConverter(enumClass));
+        assertEquals("Wrong conversion result",
+                enumClass.getEnumConstants()[1],
+                handler.to("VALUE2", enumClass, null));
+    }
+
+    /**
+     * Tests the standard converter for subclasses of InetAddress.
+     */
+    @Test
+    public void testToInetAddressSubclass()
+    {
+        Object result = handler.to("127.0.0.1", Inet4Address.class, null);
+        assertTrue("Wrong result", result instanceof Inet4Address);
+    }
+
+    /**
+     * Tries to register a converter without a target class.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRegisterConverterNoClass()
+    {
+        handler.registerConverter(null, new PointConverter());
+    }
+
+    /**
+     * Tries to register a null converter.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRegisterConverterNull()
+    {
+        handler.registerConverter(Point.class, null);
+    }
+
+    /**
+     * A simple domain class used for testing custom converters.
+     */
+    private static class Point
+    {
+        /** The x coordinate. */
+        private final int x;
+
+        /** The y coordinate. */
+        private final int y;
+
+        public Point(int x, int y)
+        {
+            this.x = x;
+            this.y = y;
+        }
+
+        public int getX()
+        {
+            return x;
+        }
+
+        public int getY()
+        {
+            return y;
+        }
+
+        @Override
+        public String toString()
+        {
+            return x + "/" + y;
+        }
+    }
+
+    /**
+     * A subclass of the test domain class.
+     */
+    private static class SubPoint extends Point
+    {
+        public SubPoint(int x, int y)
+        {
+            super(x, y);
+        }
+    }
+
+    /**
+     * A test converter for points. It parses strings of the form x,y.
+     */
+    private static class PointConverter implements TypeConverter<Point>
+    {
+        @Override
+        public Point convert(Object value, DefaultConversionHandler h)
+        {
+            String[] coords = String.valueOf(value).split(",");
+            return new Point(Integer.parseInt(coords[0]),
+                    Integer.parseInt(coords[1]));
+        }
+    }
+
+    /**
+     * An enumeration class used for tests of the converter cache.
+     */
+    public static enum TestEnum
+    {
+        VALUE1, VALUE2
+    }
 }
@@ -17,6 +17,7 @@
 package org.apache.commons.configuration2.convert;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.util.Arrays;
 import java.util.Collection;
@@ -149,6 +150,42 @@ public class TestDefaultListDelimiterHandler
         checkSplit("test", true, "test");
     }
 
+    /**
+     * Tests that a string without special characters is not copied by a split
+     * operation.
+     */
+    @Test
+    public void testSplitSingleElementNoCopy()
+    {
+        String value = "test";
+        assertSame("Wrong element", value, handler.split(value, false)
+                .iterator().next());
+    }
+
+    /**
+     * Tests whether tokens with escaped characters are mixed correctly with
+     * plain tokens.
+     */
+    @Test
+    public void testSplitMixedEscapedTokens()
+    {
+        checkSplit("a,b\\,c,d,\\\\e", true, "a", "b,c", "d", "\\e");
+    }
+
+    /**
+     * Tests that the result of a split operation can be modified.
+     */
+    @Test
+    public void testSplitResultModifiable()
+    {
+        Collection<String> result = handler.split("a,b", true);
+        result.add("c");
+        assertEquals("Wrong result", Arrays.asList("a", "b", "c"), result);
+        Collection<String> single = handler.split("a", true);
+        single.add("b");
+        assertEquals("Wrong single result", Arrays.asList("a", "b"), single);
+    }
+
     /**
      * Tests whether a string list is split correctly.
      */
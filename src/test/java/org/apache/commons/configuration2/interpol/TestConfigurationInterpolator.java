@@ -29,6 +29,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.configuration2.metrics.ConfigurationMetrics;
+import org.apache.commons.configuration2.metrics.ConfigurationOperation;
 import org.easymock.EasyMock;
 import org.easymock.IAnswer;
 import org.junit.Before;
@@ -634,4 +636,33 @@ public class TestConfigurationInterpolator
         Lookup lookup = ConfigurationInterpolator.nullSafeLookup(null);
         assertNull("Got a lookup result", lookup.lookup("someVar"));
     }
+
+    /**
+     * Tests whether lookups and resolved variables are reported to a metrics
+     * object.
+     */
+    @Test
+    public void testResolveMetrics()
+    {
+        ConfigurationMetrics metrics =
+                EasyMock.createMock(ConfigurationMetrics.class);
+        String var1 = TEST_PREFIX + ":" + TEST_NAME + "2";
+        String var2 = "unknown:" + TEST_NAME;
+        metrics.lookupPerformed(TEST_PREFIX, false);
+        metrics.lookupPerformed(null, true);
+        metrics.operationPerformed(
+                EasyMock.eq(ConfigurationOperation.RESOLVE_VARIABLE),
+                EasyMock.eq(var1), EasyMock.anyLong());
+        metrics.lookupPerformed(null, false);
+        metrics.operationPerformed(
+                EasyMock.eq(ConfigurationOperation.RESOLVE_VARIABLE),
+                EasyMock.eq(var2), EasyMock.anyLong());
+        EasyMock.replay(metrics);
+        interpolator.registerLookup(TEST_PREFIX, setUpTestLookup());
+        interpolator.addDefaultLookup(setUpTestLookup(var1, TEST_VALUE));
+        interpolator.setMetrics(metrics);
+        assertEquals("Wrong value", TEST_VALUE, interpolator.resolve(var1));
+        assertNull("Got a value", interpolator.resolve(var2));
+        EasyMock.verify(metrics);
+    }
 }
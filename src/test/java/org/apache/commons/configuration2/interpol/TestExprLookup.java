@@ -17,9 +17,13 @@
 package org.apache.commons.configuration2.interpol;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.commons.configuration2.ConfigurationAssert;
 import org.apache.commons.configuration2.io.ConfigurationLogger;
@@ -89,6 +93,155 @@ public class TestExprLookup
         assertEquals("Wrong result", value, lookup.lookup(value));
     }
 
+    /**
+     * Creates a lookup with some test variables and an interpolator.
+     *
+     * @return the test lookup
+     */
+    private static ExprLookup createLookup()
+    {
+        ExprLookup.Variables vars = new ExprLookup.Variables();
+        vars.add(new ExprLookup.Variable("String",
+                org.apache.commons.lang3.StringUtils.class));
+        vars.add(new ExprLookup.Variable("Util", new Utility("Hello")));
+        ExprLookup lookup = new ExprLookup(vars);
+        lookup.setInterpolator(new ConfigurationInterpolator());
+        return lookup;
+    }
+
+    /**
+     * Tests that compiled expressions are cached.
+     */
+    @Test
+    public void testExpressionCache()
+    {
+        ExprLookup lookup = createLookup();
+        String expr = "String.upperCase(Util.message)";
+        assertEquals("Wrong result (1)", "HELLO", lookup.lookup(expr));
+        assertEquals("Wrong cache size", 1, lookup.getExpressionCache().size());
+        Object exp = lookup.getExpressionCache().get(expr);
+        assertEquals("Wrong result (2)", "HELLO", lookup.lookup(expr));
+        assertSame("Expression parsed again", exp, lookup
+                .getExpressionCache().get(expr));
+    }
+
+    /**
+     * Tests that the size of the expression cache is limited.
+     */
+    @Test
+    public void testExpressionCacheSize()
+    {
+        ExprLookup lookup = createLookup();
+        assertEquals("Wrong default size",
+                ExprLookup.DEFAULT_EXPRESSION_CACHE_SIZE,
+                lookup.getExpressionCacheSize());
+        lookup.setExpressionCacheSize(2);
+        for (int i = 0; i < 5; i++)
+        {
+            assertEquals("Wrong result", "x" + i,
+                    lookup.lookup("Util.str('x" + i + "')"));
+        }
+        assertEquals("Wrong cache size", 2, lookup.getExpressionCache().size());
+    }
+
+    /**
+     * Tests that caching of expressions can be disabled.
+     */
+    @Test
+    public void testExpressionCacheDisabled()
+    {
+        ExprLookup lookup = createLookup();
+        lookup.lookup("Util.message");
+        lookup.setExpressionCacheSize(0);
+        assertEquals("Cache not cleared", 0, lookup.getExpressionCache()
+                .size());
+        assertEquals("Wrong result", "Hello", lookup.lookup("Util.message"));
+        assertEquals("Expression cached", 0, lookup.getExpressionCache()
+                .size());
+    }
+
+    /**
+     * Tries to set a negative size for the expression cache.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetExpressionCacheSizeNegative()
+    {
+        new ExprLookup().setExpressionCacheSize(-1);
+    }
+
+    /**
+     * Tests that variables assigned by an expression do not affect other
+     * evaluations.
+     */
+    @Test
+    public void testAssignedVariablesNotShared()
+    {
+        ExprLookup lookup = createLookup();
+        assertEquals("Wrong result (1)", "test",
+                lookup.lookup("Util = 'test'"));
+        assertEquals("Variable changed", "Hello",
+                lookup.lookup("Util.message"));
+    }
+
+    /**
+     * Tests that changes on the value of a variable are visible to
+     * subsequent evaluations.
+     */
+    @Test
+    public void testVariableValueChanged()
+    {
+        ExprLookup.Variable var =
+                new ExprLookup.Variable("Util", new Utility("Hello"));
+        ExprLookup.Variables vars = new ExprLookup.Variables();
+        vars.add(var);
+        ExprLookup lookup = new ExprLookup(vars);
+        lookup.setInterpolator(new ConfigurationInterpolator());
+        assertEquals("Wrong result (1)", "Hello",
+                lookup.lookup("Util.message"));
+        var.setValue(new Utility("Goodbye"));
+        assertEquals("Wrong result (2)", "Goodbye",
+                lookup.lookup("Util.message"));
+    }
+
+    /**
+     * Tests whether expressions can be evaluated concurrently.
+     */
+    @Test
+    public void testConcurrentLookup() throws InterruptedException
+    {
+        final ExprLookup lookup = createLookup();
+        final List<String> errors =
+                Collections.synchronizedList(new ArrayList<String>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++)
+        {
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for (int i = 0; i < 200; i++)
+                    {
+                        String expected = "v" + (i % 10);
+                        String result =
+                                lookup.lookup("Util.str('" + expected + "')");
+                        if (!expected.equals(result))
+                        {
+                            errors.add(result);
+                        }
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        assertTrue("Wrong results: " + errors, errors.isEmpty());
+    }
+
     public static class Utility
     {
         String message;
@@ -0,0 +1,411 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.interpol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.apache.commons.configuration2.BaseHierarchicalConfiguration;
+import org.apache.commons.configuration2.event.ConfigurationEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@code InterpolationDependencyTracker}.
+ *
+ * @version $Id$
+ */
+public class TestInterpolationDependencyTracker
+{
+    /** The configuration used by the tests. */
+    private BaseConfiguration config;
+
+    /** The tracker to be tested. */
+    private InterpolationDependencyTracker tracker;
+
+    /** A listener recording invalidated keys. */
+    private InvalidationListenerTestImpl listener;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        config = new BaseConfiguration();
+        config.addProperty("base", "value");
+        config.addProperty("ref1", "${base}");
+        config.addProperty("ref2", "prefix-${ref1}");
+        config.addProperty("other", "${sys:java.version}");
+        tracker = new InterpolationDependencyTracker();
+        config.getInterpolator().setDependencyTracker(tracker);
+        config.addEventListener(ConfigurationEvent.ANY, tracker);
+        listener = new InvalidationListenerTestImpl();
+        tracker.addInvalidationListener(listener);
+    }
+
+    /**
+     * Interpolates the value of the given key and records dependencies.
+     *
+     * @param key the key
+     * @return the interpolated value
+     */
+    private Object interpolate(String key)
+    {
+        return config.getInterpolator().interpolate(key,
+                config.getProperty(key));
+    }
+
+    /**
+     * Creates a set with the given elements.
+     *
+     * @param elems the elements
+     * @return the set
+     */
+    private static Set<String> set(String... elems)
+    {
+        return new HashSet<String>(Arrays.asList(elems));
+    }
+
+    /**
+     * Tests that interpolation results are not changed by the tracker.
+     */
+    @Test
+    public void testInterpolationResults()
+    {
+        assertEquals("Wrong value (1)", "prefix-value", interpolate("ref2"));
+        assertEquals("Wrong value (2)", "prefix-value",
+                config.getString("ref2"));
+        assertEquals("Wrong value (3)", System.getProperty("java.version"),
+                config.getString("other"));
+    }
+
+    /**
+     * Tests that escaped variables are handled as without a tracker.
+     */
+    @Test
+    public void testEscapedVariables()
+    {
+        config.addProperty("escaped", "$${base}");
+        config.addProperty("refEscaped", "${escaped} ${unknown}");
+        assertEquals("Wrong value", "${base} ${unknown}",
+                interpolate("refEscaped"));
+        config.getInterpolator().setDependencyTracker(null);
+        assertEquals("Wrong value without tracker", "${base} ${unknown}",
+                interpolate("refEscaped"));
+    }
+
+    /**
+     * Tests whether dependencies are recorded during interpolation.
+     */
+    @Test
+    public void testDependenciesRecorded()
+    {
+        interpolate("ref2");
+        assertEquals("Wrong dependencies of ref2", set("ref1"),
+                tracker.getDependencies("ref2"));
+        assertEquals("Wrong dependencies of ref1", set("base"),
+                tracker.getDependencies("ref1"));
+        assertEquals("Wrong dependents of base", set("ref1"),
+                tracker.getDependents("base"));
+        assertEquals("Wrong transitive dependents", set("ref1", "ref2"),
+                tracker.getTransitiveDependents(Collections
+                        .singleton("base")));
+        assertTrue("Got dependencies", tracker.getDependencies("base")
+                .isEmpty());
+    }
+
+    /**
+     * Tests whether dependencies are recorded when properties are read from
+     * the configuration.
+     */
+    @Test
+    public void testDependenciesRecordedOnRead()
+    {
+        assertEquals("Wrong value", "prefix-value", config.getString("ref2"));
+        assertEquals("Wrong dependencies of ref2", set("ref1"),
+                tracker.getDependencies("ref2"));
+        assertEquals("Wrong dependencies of ref1", set("base"),
+                tracker.getDependencies("ref1"));
+        assertEquals("Wrong transitive dependents", set("ref1", "ref2"),
+                tracker.getTransitiveDependents(Collections
+                        .singleton("base")));
+    }
+
+    /**
+     * Tests whether dependencies are recorded when list properties are read
+     * or properties are converted to other types.
+     */
+    @Test
+    public void testDependenciesRecordedOnReadListAndConversion()
+    {
+        config.addProperty("number", "42");
+        config.addProperty("refNumber", "${number}");
+        config.addProperty("refList", Arrays.asList("${base}", "${number}"));
+        assertEquals("Wrong list", Arrays.asList("value", "42"),
+                config.getList("refList"));
+        assertEquals("Wrong number", 42, config.getInt("refNumber"));
+        assertEquals("Wrong dependencies of list", set("base", "number"),
+                tracker.getDependencies("refList"));
+        assertEquals("Wrong dependencies of number", set("number"),
+                tracker.getDependencies("refNumber"));
+        config.getStringArray("ref1");
+        assertEquals("Wrong dependencies of array", set("base"),
+                tracker.getDependencies("ref1"));
+    }
+
+    /**
+     * Tests that the tracker is in a valid state after a failed read
+     * operation.
+     */
+    @Test
+    public void testReadCycleResetsState()
+    {
+        config.addProperty("self", "${self}");
+        try
+        {
+            config.getString("self");
+            fail("Cycle not detected!");
+        }
+        catch (IllegalStateException isex)
+        {
+            // expected
+        }
+        config.getString("ref1");
+        assertEquals("Wrong dependencies", set("base"),
+                tracker.getDependencies("ref1"));
+        assertTrue("Got dependencies of base", tracker
+                .getDependencies("base").isEmpty());
+    }
+
+    /**
+     * Tests that dependencies are also recorded for a single variable.
+     */
+    @Test
+    public void testDependenciesSingleVariable()
+    {
+        config.addProperty("list", Arrays.asList("a", "b"));
+        config.addProperty("refList", "${list}");
+        interpolate("refList");
+        assertEquals("Wrong dependencies", set("list"),
+                tracker.getDependencies("refList"));
+    }
+
+    /**
+     * Tests that no dependencies are recorded for a value which only looks
+     * like a single variable.
+     */
+    @Test
+    public void testDependenciesSingleVariableFalsePositive()
+    {
+        config.addProperty("combined", "${base}-${ref1}");
+        interpolate("combined");
+        assertEquals("Wrong dependencies", set("base", "ref1"),
+                tracker.getDependencies("combined"));
+    }
+
+    /**
+     * Tests that a change of a key invalidates exactly its dependents.
+     */
+    @Test
+    public void testInvalidationOnChange()
+    {
+        interpolate("ref2");
+        interpolate("other");
+        config.setProperty("base", "newValue");
+        assertEquals("Wrong invalidated keys", set("base", "ref1", "ref2"),
+                listener.nextKeys());
+        listener.assertNoMoreInvalidations();
+        assertEquals("Wrong new value", "prefix-newValue", interpolate("ref2"));
+    }
+
+    /**
+     * Tests that the dependencies of a changed key are discarded.
+     */
+    @Test
+    public void testInvalidationRemovesDependencies()
+    {
+        interpolate("ref2");
+        config.setProperty("ref1", "literal");
+        assertEquals("Wrong invalidated keys", set("ref1", "ref2"),
+                listener.nextKeys());
+        assertTrue("Dependencies not removed", tracker
+                .getDependencies("ref1").isEmpty());
+        assertTrue("Dependents not removed", tracker.getDependents("base")
+                .isEmpty());
+        assertEquals("Dependents of ref1 removed", set("ref2"),
+                tracker.getDependents("ref1"));
+    }
+
+    /**
+     * Tests that adding a previously unresolvable key invalidates its
+     * dependents.
+     */
+    @Test
+    public void testInvalidationOnAdd()
+    {
+        config.addProperty("refMissing", "${missing}");
+        assertEquals("Wrong value", "${missing}", interpolate("refMissing"));
+        listener.clear();
+        config.addProperty("missing", "found");
+        assertEquals("Wrong invalidated keys", set("missing", "refMissing"),
+                listener.nextKeys());
+    }
+
+    /**
+     * Tests that clearing the configuration invalidates everything.
+     */
+    @Test
+    public void testInvalidationOnClear()
+    {
+        interpolate("ref2");
+        config.clear();
+        boolean foundAll = false;
+        for (Set<String> keys : listener.invalidations)
+        {
+            foundAll |= keys == null;
+        }
+        assertTrue("Not all keys invalidated", foundAll);
+        assertTrue("Dependencies not cleared", tracker.getDependencies("ref2")
+                .isEmpty());
+    }
+
+    /**
+     * Tests that changes on a subtree invalidate keys below this subtree.
+     */
+    @Test
+    public void testInvalidationOnSubtreeChange()
+    {
+        BaseHierarchicalConfiguration hc = new BaseHierarchicalConfiguration();
+        hc.addProperty("db.user", "scott");
+        hc.addProperty("db.url", "jdbc:${db.user}");
+        hc.addProperty("other", "x");
+        hc.getInterpolator().setDependencyTracker(tracker);
+        hc.addEventListener(ConfigurationEvent.ANY, tracker);
+        assertEquals("Wrong value", "jdbc:scott", hc.getInterpolator()
+                .interpolate("conn", "${db.url}"));
+        listener.clear();
+        hc.clearTree("db");
+        assertEquals("Wrong invalidated keys", set("db", "db.user",
+                "db.url", "conn"), listener.nextKeys());
+    }
+
+    /**
+     * Tests whether a cyclic reference is detected.
+     */
+    @Test
+    public void testCycleDetection()
+    {
+        config.addProperty("cycle1", "${cycle2}");
+        config.addProperty("cycle2", "a${cycle3}");
+        config.addProperty("cycle3", "${cycle1}");
+        try
+        {
+            interpolate("cycle1");
+            fail("Cycle not detected!");
+        }
+        catch (IllegalStateException isex)
+        {
+            assertEquals("Wrong message",
+                    "Cyclic reference in interpolation: "
+                            + "cycle1 -> cycle2 -> cycle3 -> cycle1",
+                    isex.getMessage());
+        }
+        assertEquals("Tracker in invalid state", "prefix-value",
+                interpolate("ref2"));
+    }
+
+    /**
+     * Tests that a self reference is detected.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testCycleDetectionSelfReference()
+    {
+        config.addProperty("self", "${self}");
+        config.getString("self");
+    }
+
+    /**
+     * Tests whether a listener can be removed.
+     */
+    @Test
+    public void testRemoveInvalidationListener()
+    {
+        assertTrue("Wrong result", tracker.removeInvalidationListener(listener));
+        tracker.invalidate("base");
+        listener.assertNoMoreInvalidations();
+    }
+
+    /**
+     * Tries to add a null listener.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddInvalidationListenerNull()
+    {
+        tracker.addInvalidationListener(null);
+    }
+
+    /**
+     * A test listener implementation which records invalidated keys.
+     */
+    private static class InvalidationListenerTestImpl implements
+            InterpolationDependencyTracker.InvalidationListener
+    {
+        /** The recorded invalidations. */
+        final List<Set<String>> invalidations = new ArrayList<Set<String>>();
+
+        @Override
+        public void keysInvalidated(Set<String> keys)
+        {
+            invalidations.add(keys);
+        }
+
+        /**
+         * Returns the keys of the next invalidation.
+         *
+         * @return the invalidated keys
+         */
+        public Set<String> nextKeys()
+        {
+            assertTrue("No invalidation", !invalidations.isEmpty());
+            return invalidations.remove(0);
+        }
+
+        /**
+         * Clears all recorded invalidations.
+         */
+        public void clear()
+        {
+            invalidations.clear();
+        }
+
+        /**
+         * Checks that no more invalidations have been recorded.
+         */
+        public void assertNoMoreInvalidations()
+        {
+            assertTrue("Too many invalidations: " + invalidations,
+                    invalidations.isEmpty());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test class for {@code LoadStatistics}.
+ *
+ * @version $Id$
+ */
+public class TestLoadStatistics
+{
+    @After
+    public void tearDown() throws Exception
+    {
+        while (LoadStatistics.current() != null)
+        {
+            LoadStatistics.current().finish();
+        }
+    }
+
+    /**
+     * Tests that no statistics are active initially.
+     */
+    @Test
+    public void testCurrentNoStatistics()
+    {
+        assertNull("Got statistics", LoadStatistics.current());
+    }
+
+    /**
+     * Tests whether statistics are bound to the current thread.
+     */
+    @Test
+    public void testStartAndFinish()
+    {
+        LoadStatistics stats = LoadStatistics.start();
+        assertSame("Not current", stats, LoadStatistics.current());
+        stats.addPhaseNanos(LoadPhase.READ, 10);
+        stats.addPhaseNanos(LoadPhase.READ, 5);
+        stats.addBytesRead(100);
+        stats.setNodeCount(7);
+        assertSame("Wrong result", stats, stats.finish());
+        assertNull("Still current", LoadStatistics.current());
+        assertEquals("Wrong read time", 15, stats.getPhaseNanos(LoadPhase.READ));
+        assertEquals("Wrong parse time", 0,
+                stats.getPhaseNanos(LoadPhase.PARSE));
+        assertEquals("Wrong bytes", 100, stats.getBytesRead());
+        assertEquals("Wrong node count", 7, stats.getNodeCount());
+    }
+
+    /**
+     * Tests that the data of nested statistics is added to the enclosing
+     * ones.
+     */
+    @Test
+    public void testNestedStatistics()
+    {
+        LoadStatistics outer = LoadStatistics.start();
+        outer.addPhaseNanos(LoadPhase.COMBINE, 3);
+        LoadStatistics inner = LoadStatistics.start();
+        inner.addPhaseNanos(LoadPhase.PARSE, 20);
+        inner.addBytesRead(50);
+        inner.setNodeCount(10);
+        inner.finish();
+        assertSame("Outer not restored", outer, LoadStatistics.current());
+        outer.setNodeCount(4);
+        outer.finish();
+
+        assertEquals("Wrong parse time", 20,
+                outer.getPhaseNanos(LoadPhase.PARSE));
+        assertEquals("Wrong combine time", 3,
+                outer.getPhaseNanos(LoadPhase.COMBINE));
+        assertEquals("Wrong bytes", 50, outer.getBytesRead());
+        assertEquals("Wrong node count", 4, outer.getNodeCount());
+        assertEquals("Inner changed", 0, inner.getPhaseNanos(LoadPhase.COMBINE));
+    }
+
+    /**
+     * Tests the map with the times of all phases.
+     */
+    @Test
+    public void testGetPhaseTimes()
+    {
+        LoadStatistics stats = LoadStatistics.start();
+        stats.addPhaseNanos(LoadPhase.LOCATE, 1);
+        stats.addPhaseNanos(LoadPhase.PARSE, 2);
+        stats.finish();
+        Map<LoadPhase, Long> times = stats.getPhaseTimes();
+        assertEquals("Wrong number of phases", LoadPhase.values().length,
+                times.size());
+        assertEquals("Wrong locate time", Long.valueOf(1),
+                times.get(LoadPhase.LOCATE));
+        assertEquals("Wrong read time", Long.valueOf(0),
+                times.get(LoadPhase.READ));
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import org.apache.commons.configuration2.sync.LockMode;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@code DefaultConfigurationMetrics}.
+ *
+ * @version $Id$
+ */
+public class TestDefaultConfigurationMetrics
+{
+    /** The metrics object to be tested. */
+    private DefaultConfigurationMetrics metrics;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        metrics = new DefaultConfigurationMetrics();
+    }
+
+    /**
+     * Tests the data recorded for operations.
+     */
+    @Test
+    public void testOperations()
+    {
+        metrics.operationPerformed(ConfigurationOperation.GET_PROPERTY, "a",
+                10);
+        metrics.operationPerformed(ConfigurationOperation.GET_PROPERTY, "b",
+                30);
+        metrics.operationPerformed(ConfigurationOperation.CLEAR, null, 5);
+        Map<String, Long> counts = metrics.getOperationCounts();
+        assertEquals("Wrong number of gets", 2L,
+                counts.get(ConfigurationOperation.GET_PROPERTY.name())
+                        .longValue());
+        assertEquals("Wrong number of clears", 1L,
+                counts.get(ConfigurationOperation.CLEAR.name()).longValue());
+        assertEquals("Wrong number of adds", 0L,
+                counts.get(ConfigurationOperation.ADD_PROPERTY.name())
+                        .longValue());
+        assertEquals("Wrong total", 40L, metrics.getOperationTotalNanos()
+                .get(ConfigurationOperation.GET_PROPERTY.name()).longValue());
+        assertEquals("Wrong maximum", 30L, metrics.getOperationMaxNanos()
+                .get(ConfigurationOperation.GET_PROPERTY.name()).longValue());
+    }
+
+    /**
+     * Tests the data recorded for locks.
+     */
+    @Test
+    public void testLocks()
+    {
+        metrics.lockAcquired(LockMode.WRITE, 100);
+        metrics.lockReleased(LockMode.WRITE, 1000);
+        metrics.lockAcquired(LockMode.WRITE, 50);
+        metrics.lockReleased(LockMode.WRITE, 2000);
+        metrics.lockAcquired(LockMode.READ, 1);
+        assertEquals("Wrong write locks", 2L,
+                metrics.getLockCounts().get("WRITE").longValue());
+        assertEquals("Wrong read locks", 1L,
+                metrics.getLockCounts().get("READ").longValue());
+        assertEquals("Wrong wait time", 150L, metrics.getLockWaitNanos()
+                .get("WRITE").longValue());
+        assertEquals("Wrong max wait time", 100L, metrics
+                .getMaxLockWaitNanos().get("WRITE").longValue());
+        assertEquals("Wrong hold time", 3000L, metrics.getLockHoldNanos()
+                .get("WRITE").longValue());
+        assertEquals("Wrong max hold time", 2000L, metrics
+                .getMaxLockHoldNanos().get("WRITE").longValue());
+    }
+
+    /**
+     * Tests the counters for conversion failures, lookups, and caches.
+     */
+    @Test
+    public void testCounters()
+    {
+        metrics.conversionFailed("k1", Integer.class);
+        metrics.conversionFailed("k2", Integer.class);
+        metrics.conversionFailed("k1", Long.class);
+        metrics.lookupPerformed("sys", true);
+        metrics.lookupPerformed("sys", false);
+        metrics.lookupPerformed(null, false);
+        metrics.cacheAccessed("cache", true);
+        metrics.cacheAccessed("cache", false);
+        metrics.cacheAccessed("cache", true);
+        metrics.cacheEntryEvicted("cache");
+
+        assertEquals("Wrong conversion failures", 3,
+                metrics.getConversionFailures());
+        assertEquals("Wrong failures by type", 2L, metrics
+                .getConversionFailuresByType().get(Integer.class.getName())
+                .longValue());
+        assertEquals("Wrong lookups", 2L, metrics.getLookupCounts().get("sys")
+                .longValue());
+        assertEquals("Wrong lookup misses", 1L, metrics.getLookupMisses()
+                .get("sys").longValue());
+        assertEquals("Wrong default lookups", 1L, metrics.getLookupCounts()
+                .get("").longValue());
+        assertEquals("Wrong cache hits", 2L, metrics.getCacheHits()
+                .get("cache").longValue());
+        assertEquals("Wrong cache misses", 1L, metrics.getCacheMisses()
+                .get("cache").longValue());
+        assertEquals("Wrong cache evictions", 1L, metrics.getCacheEvictions()
+                .get("cache").longValue());
+    }
+
+    /**
+     * Tests whether all data can be reset.
+     */
+    @Test
+    public void testReset()
+    {
+        metrics.operationPerformed(ConfigurationOperation.SET_PROPERTY, "a",
+                10);
+        metrics.lockAcquired(LockMode.READ, 5);
+        metrics.conversionFailed("k", Integer.class);
+        metrics.cacheAccessed("cache", true);
+        metrics.reset();
+        assertEquals("Operation not reset", 0L, metrics.getOperationCounts()
+                .get(ConfigurationOperation.SET_PROPERTY.name()).longValue());
+        assertEquals("Max not reset", 0L, metrics.getOperationMaxNanos()
+                .get(ConfigurationOperation.SET_PROPERTY.name()).longValue());
+        assertEquals("Lock not reset", 0L, metrics.getLockCounts().get("READ")
+                .longValue());
+        assertEquals("Failures not reset", 0, metrics.getConversionFailures());
+        assertTrue("Cache hits not reset", metrics.getCacheHits().isEmpty());
+    }
+
+    /**
+     * Tests whether an object name can be created.
+     */
+    @Test
+    public void testCreateObjectName()
+    {
+        ObjectName name =
+                DefaultConfigurationMetrics.createObjectName("my:config");
+        assertEquals("Wrong domain", DefaultConfigurationMetrics.DOMAIN,
+                name.getDomain());
+        assertEquals("Wrong type", "ConfigurationMetrics",
+                name.getKeyProperty("type"));
+        assertEquals("Wrong name", "my:config",
+                ObjectName.unquote(name.getKeyProperty("name")));
+    }
+
+    /**
+     * Tries to create an object name without a name.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateObjectNameNull()
+    {
+        DefaultConfigurationMetrics.createObjectName(null);
+    }
+
+    /**
+     * Tests whether an instance can be registered as MXBean and its data can
+     * be queried.
+     */
+    @Test
+    public void testRegisterMBean() throws Exception
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name =
+                DefaultConfigurationMetrics
+                        .createObjectName("TestDefaultConfigurationMetrics");
+        metrics.conversionFailed("k", Integer.class);
+        server.registerMBean(metrics, name);
+        try
+        {
+            assertEquals("Wrong attribute", 1L,
+                    server.getAttribute(name, "ConversionFailures"));
+            TabularData counts =
+                    (TabularData) server.getAttribute(name, "OperationCounts");
+            assertEquals("Wrong number of operations",
+                    ConfigurationOperation.values().length, counts.size());
+            server.invoke(name, "reset", new Object[0], new String[0]);
+            assertEquals("Not reset", 0, metrics.getConversionFailures());
+        }
+        finally
+        {
+            server.unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@code KeyAccessProfiler}.
+ *
+ * @version $Id$
+ */
+public class TestKeyAccessProfiler
+{
+    /** The profiler to be tested. */
+    private KeyAccessProfiler profiler;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        profiler = new KeyAccessProfiler();
+    }
+
+    /**
+     * Tests whether property accesses are recorded.
+     */
+    @Test
+    public void testTopKeys()
+    {
+        for (int i = 0; i < 10; i++)
+        {
+            profiler.operationPerformed(ConfigurationOperation.GET_PROPERTY,
+                    "key" + (i % 3), 10);
+        }
+        profiler.operationPerformed(ConfigurationOperation.ADD_PROPERTY,
+                "key2", 10);
+        List<KeyAccessStatistics> top = profiler.topKeys(2);
+        assertEquals("Wrong number of keys", 2, top.size());
+        assertEquals("Wrong first key", "key0", top.get(0).getKey());
+        assertEquals("Wrong count", 4, top.get(0).getCount());
+        assertEquals("Wrong nanos", 40, top.get(0).getTotalNanos());
+        assertEquals("Wrong second key", "key1", top.get(1).getKey());
+        assertTrue("Got variables", profiler.getTopVariables().isEmpty());
+    }
+
+    /**
+     * Tests whether the profiler can be used with a configuration.
+     */
+    @Test
+    public void testConfiguration()
+    {
+        BaseConfiguration config = new BaseConfiguration();
+        config.addProperty("home", "${sys:user.home}");
+        config.addProperty("other", "value");
+        config.setMetrics(profiler);
+        for (int i = 0; i < 5; i++)
+        {
+            config.getString("home");
+        }
+        config.getString("other");
+        List<KeyAccessStatistics> top = profiler.getTopKeys();
+        assertEquals("Wrong top key", "home", top.get(0).getKey());
+        assertEquals("Wrong count", 5, top.get(0).getCount());
+        assertEquals("Wrong top variable", "sys:user.home", profiler
+                .getTopVariables().get(0).getKey());
+    }
+
+    /**
+     * Tests whether only a sample of accesses is recorded.
+     */
+    @Test
+    public void testSampling()
+    {
+        profiler = new KeyAccessProfiler(16, 4);
+        for (int i = 0; i < 10; i++)
+        {
+            profiler.operationPerformed(ConfigurationOperation.GET_PROPERTY,
+                    "key", 1);
+        }
+        KeyAccessStatistics stats = profiler.getTopKeys().get(0);
+        assertEquals("Wrong count", 8, stats.getCount());
+        assertEquals("Wrong nanos", 8, stats.getTotalNanos());
+    }
+
+    /**
+     * Tests that the number of tracked keys is bounded.
+     */
+    @Test
+    public void testBoundedCapacity()
+    {
+        profiler = new KeyAccessProfiler(16, 1);
+        for (int i = 0; i < 1000; i++)
+        {
+            profiler.operationPerformed(ConfigurationOperation.GET_PROPERTY,
+                    "key" + i, 1);
+        }
+        assertTrue("Too many keys", profiler.topKeys(1000).size() <= 16);
+    }
+
+    /**
+     * Tests the textual report.
+     */
+    @Test
+    public void testDump()
+    {
+        profiler.operationPerformed(ConfigurationOperation.GET_PROPERTY,
+                "myKey", 1);
+        profiler.operationPerformed(ConfigurationOperation.RESOLVE_VARIABLE,
+                "sys:myVar", 1);
+        String report = profiler.dump();
+        assertTrue("Key not found: " + report, report.contains("myKey"));
+        assertTrue("Variable not found: " + report,
+                report.contains("sys:myVar"));
+    }
+
+    /**
+     * Tests whether the data can be reset.
+     */
+    @Test
+    public void testReset()
+    {
+        profiler.operationPerformed(ConfigurationOperation.GET_PROPERTY,
+                "key", 1);
+        profiler.reset();
+        assertTrue("Not reset", profiler.getTopKeys().isEmpty());
+    }
+
+    /**
+     * Tries to create an instance with an invalid sample interval.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSampleInterval()
+    {
+        new KeyAccessProfiler(10, 0);
+    }
+
+    /**
+     * Tries to set an invalid report size.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetReportSizeInvalid()
+    {
+        profiler.setReportSize(0);
+    }
+
+    /**
+     * Tests whether the profiler can be accessed via JMX.
+     */
+    @Test
+    public void testRegisterMBean() throws Exception
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name =
+                new ObjectName(DefaultConfigurationMetrics.DOMAIN
+                        + ":type=KeyAccessProfiler");
+        profiler.operationPerformed(ConfigurationOperation.GET_PROPERTY,
+                "key", 1);
+        server.registerMBean(profiler, name);
+        try
+        {
+            CompositeData[] top =
+                    (CompositeData[]) server.getAttribute(name, "TopKeys");
+            assertEquals("Wrong number of keys", 1, top.length);
+            assertEquals("Wrong key", "key", top[0].get("key"));
+            assertEquals("Wrong count", 1L, top[0].get("count"));
+        }
+        finally
+        {
+            server.unregisterMBean(name);
+        }
+    }
+}
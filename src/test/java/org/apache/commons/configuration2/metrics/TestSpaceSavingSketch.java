@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@code SpaceSavingSketch}.
+ *
+ * @version $Id$
+ */
+public class TestSpaceSavingSketch
+{
+    /**
+     * Tests the statistics of keys if the capacity is not exceeded.
+     */
+    @Test
+    public void testTopWithinCapacity()
+    {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(10);
+        sketch.add("a", 1, 10);
+        sketch.add("b", 1, 5);
+        sketch.add("a", 2, 20);
+        List<KeyAccessStatistics> top = sketch.top(5);
+        assertEquals("Wrong number of keys", 2, top.size());
+        KeyAccessStatistics stats = top.get(0);
+        assertEquals("Wrong key", "a", stats.getKey());
+        assertEquals("Wrong count", 3, stats.getCount());
+        assertEquals("Wrong error", 0, stats.getError());
+        assertEquals("Wrong nanos", 30, stats.getTotalNanos());
+        assertEquals("Wrong second key", "b", top.get(1).getKey());
+    }
+
+    /**
+     * Tests that the number of returned keys is limited.
+     */
+    @Test
+    public void testTopLimit()
+    {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(10);
+        for (int i = 0; i < 5; i++)
+        {
+            sketch.add("key" + i, i + 1, 0);
+        }
+        List<KeyAccessStatistics> top = sketch.top(2);
+        assertEquals("Wrong number of keys", 2, top.size());
+        assertEquals("Wrong first key", "key4", top.get(0).getKey());
+        assertEquals("Wrong second key", "key3", top.get(1).getKey());
+    }
+
+    /**
+     * Tests that the key with the lowest count is replaced if the capacity is
+     * reached.
+     */
+    @Test
+    public void testReplaceMinimum()
+    {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        sketch.add("a", 5, 0);
+        sketch.add("b", 2, 0);
+        sketch.add("c", 1, 0);
+        List<KeyAccessStatistics> top = sketch.top(5);
+        assertEquals("Wrong number of keys", 2, top.size());
+        assertEquals("Wrong first key", "a", top.get(0).getKey());
+        KeyAccessStatistics stats = top.get(1);
+        assertEquals("Wrong replacing key", "c", stats.getKey());
+        assertEquals("Wrong count", 3, stats.getCount());
+        assertEquals("Wrong error", 2, stats.getError());
+    }
+
+    /**
+     * Tests that frequent keys are found in a stream with many rare keys.
+     */
+    @Test
+    public void testFrequentKeysFound()
+    {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(8);
+        for (int i = 0; i < 1000; i++)
+        {
+            sketch.add("hot" + (i % 2), 1, 0);
+            sketch.add("cold" + i, 1, 0);
+        }
+        List<KeyAccessStatistics> top = sketch.top(2);
+        assertTrue("Wrong first key", top.get(0).getKey().startsWith("hot"));
+        assertTrue("Wrong second key", top.get(1).getKey().startsWith("hot"));
+        assertTrue("Count too low", top.get(0).getCount() >= 500);
+    }
+
+    /**
+     * Tests whether the sketch can be cleared.
+     */
+    @Test
+    public void testClear()
+    {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        sketch.add("a", 1, 0);
+        sketch.clear();
+        assertTrue("Not cleared", sketch.top(5).isEmpty());
+    }
+}
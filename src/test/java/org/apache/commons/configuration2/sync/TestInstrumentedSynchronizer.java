@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+/**
+ * Test class for {@code InstrumentedSynchronizer}.
+ *
+ * @version $Id$
+ */
+public class TestInstrumentedSynchronizer
+{
+    /** Constant for the name of the writer thread. */
+    private static final String WRITER_THREAD = "TestWriterThread";
+
+    /**
+     * Tries to create an instance without a synchronizer.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInitNull()
+    {
+        new InstrumentedSynchronizer(null);
+    }
+
+    /**
+     * Tests that all calls are delegated to the wrapped synchronizer.
+     */
+    @Test
+    public void testDelegation()
+    {
+        Synchronizer sync = EasyMock.createMock(Synchronizer.class);
+        sync.beginRead();
+        sync.endRead();
+        sync.beginWrite();
+        sync.endWrite();
+        EasyMock.replay(sync);
+        InstrumentedSynchronizer instrSync = new InstrumentedSynchronizer(sync);
+        assertSame("Wrong synchronizer", sync, instrSync.getSynchronizer());
+        instrSync.beginRead();
+        instrSync.endRead();
+        instrSync.beginWrite();
+        instrSync.endWrite();
+        EasyMock.verify(sync);
+    }
+
+    /**
+     * Tests whether lock times are recorded when used by a configuration.
+     */
+    @Test
+    public void testConfiguration()
+    {
+        InstrumentedSynchronizer sync =
+                new InstrumentedSynchronizer(new ReadWriteSynchronizer());
+        BaseConfiguration config = new BaseConfiguration();
+        config.setSynchronizer(sync);
+        config.addProperty("key", "value");
+        config.getProperty("key");
+        config.lock(LockMode.READ);
+        try
+        {
+            config.getProperty("key");
+        }
+        finally
+        {
+            config.unlock(LockMode.READ);
+        }
+        assertEquals("Wrong read waits", 3, sync.getReadWaitTimes()
+                .getCount());
+        assertEquals("Wrong read holds", 3, sync.getReadHoldTimes()
+                .getCount());
+        assertEquals("Wrong write waits", 1, sync.getWriteWaitTimes()
+                .getCount());
+        assertEquals("Wrong write holds", 1, sync.getWriteHoldTimes()
+                .getCount());
+        assertEquals("Wrong longest write hold thread", Thread.currentThread()
+                .getName(), sync.getLongestWriteHoldThread());
+    }
+
+    /**
+     * Tests that a reader blocked by a writer is recorded as contended, and
+     * that the longest write hold is attributed to the writer thread.
+     */
+    @Test
+    public void testContention() throws InterruptedException
+    {
+        final InstrumentedSynchronizer sync =
+                new InstrumentedSynchronizer(new ReadWriteSynchronizer(), 0);
+        final CountDownLatch writeLocked = new CountDownLatch(1);
+        Thread writer = new Thread(WRITER_THREAD)
+        {
+            @Override
+            public void run()
+            {
+                sync.beginWrite();
+                writeLocked.countDown();
+                try
+                {
+                    Thread.sleep(50);
+                }
+                catch (InterruptedException iex)
+                {
+                    // ignore
+                }
+                finally
+                {
+                    sync.endWrite();
+                }
+            }
+        };
+        writer.start();
+        writeLocked.await();
+        sync.beginRead();
+        sync.endRead();
+        writer.join();
+
+        assertEquals("Wrong contended reads", 1,
+                sync.getContendedReadAcquisitions());
+        assertTrue("Wait time too short",
+                sync.getReadWaitTimes().getMaxNanos() > 0);
+        assertEquals("Wrong thread", WRITER_THREAD,
+                sync.getLongestWriteHoldThread());
+        assertTrue("Write hold time too short",
+                sync.getLongestWriteHoldNanos() >= 40000000L);
+    }
+
+    /**
+     * Tests that a lock released without being obtained via the instrumented
+     * synchronizer is not recorded.
+     */
+    @Test
+    public void testEndReadWithoutBegin()
+    {
+        Synchronizer sync = EasyMock.createMock(Synchronizer.class);
+        sync.endRead();
+        EasyMock.replay(sync);
+        InstrumentedSynchronizer instrSync = new InstrumentedSynchronizer(sync);
+        instrSync.endRead();
+        assertEquals("Hold time recorded", 0, instrSync.getReadHoldTimes()
+                .getCount());
+        EasyMock.verify(sync);
+    }
+
+    /**
+     * Tests whether derived classes are notified about the measured lock
+     * times.
+     */
+    @Test
+    public void testLockTimeNotifications()
+    {
+        final List<String> notifications = new ArrayList<String>();
+        InstrumentedSynchronizer sync =
+                new InstrumentedSynchronizer(new ReadWriteSynchronizer())
+                {
+                    @Override
+                    protected void lockAcquired(LockMode mode, long waitNanos)
+                    {
+                        notifications.add("acquired " + mode);
+                    }
+
+                    @Override
+                    protected void lockReleased(LockMode mode, long holdNanos)
+                    {
+                        notifications.add("released " + mode);
+                    }
+                };
+        sync.beginWrite();
+        sync.beginRead();
+        sync.endRead();
+        sync.endWrite();
+        assertEquals("Wrong notifications", Arrays.asList("acquired WRITE",
+                "acquired READ", "released READ", "released WRITE"),
+                notifications);
+        assertEquals("Statistics recorded", 0, sync.getWriteHoldTimes()
+                .getCount());
+    }
+
+    /**
+     * Tests whether the statistics can be reset.
+     */
+    @Test
+    public void testReset()
+    {
+        InstrumentedSynchronizer sync =
+                new InstrumentedSynchronizer(new ReadWriteSynchronizer(), 0);
+        sync.beginWrite();
+        sync.endWrite();
+        sync.reset();
+        assertEquals("Wrong write holds", 0, sync.getWriteHoldTimes()
+                .getCount());
+        assertEquals("Wrong longest hold", 0, sync.getLongestWriteHoldNanos());
+        assertNull("Got a thread", sync.getLongestWriteHoldThread());
+        assertEquals("Wrong contended writes", 0,
+                sync.getContendedWriteAcquisitions());
+    }
+
+    /**
+     * Tests whether the statistics can be accessed via JMX.
+     */
+    @Test
+    public void testRegisterMBean() throws Exception
+    {
+        InstrumentedSynchronizer sync =
+                new InstrumentedSynchronizer(new ReadWriteSynchronizer());
+        sync.beginRead();
+        sync.endRead();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name =
+                new ObjectName(
+                        "org.apache.commons.configuration2:type=InstrumentedSynchronizer");
+        server.registerMBean(sync, name);
+        try
+        {
+            CompositeData data =
+                    (CompositeData) server.getAttribute(name, "ReadWaitTimes");
+            assertEquals("Wrong count", 1L, data.get("count"));
+        }
+        finally
+        {
+            server.unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.sync;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@code TimeHistogram}.
+ *
+ * @version $Id$
+ */
+public class TestTimeHistogram
+{
+    /**
+     * Tests the calculation of bucket indices.
+     */
+    @Test
+    public void testBucketIndex()
+    {
+        assertEquals("Wrong index for 0", 0, TimeHistogram.bucketIndex(0));
+        assertEquals("Wrong index for 1", 0, TimeHistogram.bucketIndex(1));
+        assertEquals("Wrong index for 2", 1, TimeHistogram.bucketIndex(2));
+        assertEquals("Wrong index for 3", 2, TimeHistogram.bucketIndex(3));
+        assertEquals("Wrong index for 4", 2, TimeHistogram.bucketIndex(4));
+        assertEquals("Wrong index for 1024", 10,
+                TimeHistogram.bucketIndex(1024));
+        assertEquals("Wrong index for 1025", 11,
+                TimeHistogram.bucketIndex(1025));
+        assertEquals("Wrong index for max", TimeHistogram.BUCKET_COUNT - 1,
+                TimeHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    /**
+     * Tests whether durations are recorded correctly.
+     */
+    @Test
+    public void testRecord()
+    {
+        TimeHistogram histogram = new TimeHistogram();
+        histogram.record(100);
+        histogram.record(1000);
+        histogram.record(120);
+        assertEquals("Wrong count", 3, histogram.getCount());
+        assertEquals("Wrong total", 1220, histogram.getTotalNanos());
+        assertEquals("Wrong max", 1000, histogram.getMaxNanos());
+        long[] buckets = histogram.getBucketCounts();
+        assertEquals("Wrong bucket 7", 2, buckets[7]);
+        assertEquals("Wrong bucket 10", 1, buckets[10]);
+        assertEquals("Wrong upper bound", 128,
+                histogram.getBucketUpperBounds()[7]);
+    }
+
+    /**
+     * Tests the estimation of percentiles.
+     */
+    @Test
+    public void testPercentile()
+    {
+        TimeHistogram histogram = new TimeHistogram();
+        assertEquals("Wrong percentile for empty histogram", 0,
+                histogram.percentile(50));
+        for (int i = 0; i < 99; i++)
+        {
+            histogram.record(100);
+        }
+        histogram.record(5000);
+        assertEquals("Wrong median", 128, histogram.percentile(50));
+        assertEquals("Wrong 99th percentile", 128, histogram.percentile(99));
+        assertEquals("Wrong maximum", 5000, histogram.percentile(100));
+    }
+
+    /**
+     * Tries to query an invalid percentile.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testPercentileInvalid()
+    {
+        new TimeHistogram().percentile(101);
+    }
+
+    /**
+     * Tests whether a histogram can be reset.
+     */
+    @Test
+    public void testReset()
+    {
+        TimeHistogram histogram = new TimeHistogram();
+        histogram.record(100);
+        histogram.reset();
+        assertEquals("Wrong count", 0, histogram.getCount());
+        assertEquals("Wrong max", 0, histogram.getMaxNanos());
+        assertEquals("Wrong bucket", 0, histogram.getBucketCounts()[7]);
+    }
+}
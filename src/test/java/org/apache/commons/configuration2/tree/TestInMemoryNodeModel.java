@@ -35,6 +35,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -627,12 +628,101 @@ public class TestInMemoryNodeModel
         ImmutableNode changedNode = nodeForKey(model, key);
         assertEquals("Wrong number of children", orgNode.getChildren().size()
                 + numberOfOperations, changedNode.getChildren().size());
-        Map<ImmutableNode, ImmutableNode> replacementMapping =
-                model.getTreeData().copyReplacementMapping();
+        PersistentHashMap<ImmutableNode, ImmutableNode> replacementMapping =
+                model.getTreeData().getReplacementMapping();
         assertTrue("Replacement mapping too big: " + replacementMapping.size(),
                 replacementMapping.size() < numberOfOperations);
     }
 
+    /**
+     * Tests whether the parent mapping is still consistent after the
+     * replacement mapping has been merged into it multiple times. Nodes are
+     * both added and removed; it is also checked that the parent mapping does
+     * not contain any obsolete nodes.
+     */
+    @Test
+    public void testParentMappingAfterMergingReplacements()
+    {
+        NodeKeyResolver<ImmutableNode> resolver = createResolver();
+        final InMemoryNodeModel model = new InMemoryNodeModel(ROOT_AUTHORS_TREE);
+        final int numberOfOperations = 500;
+        final String key = "Homer/Ilias";
+        EasyMock.expect(
+                resolver.resolveAddKey(
+                        EasyMock.anyObject(ImmutableNode.class),
+                        EasyMock.eq(KEY),
+                        EasyMock.anyObject(TreeData.class))).andAnswer(
+                new IAnswer<NodeAddData<ImmutableNode>>()
+                {
+                    @Override
+                    public NodeAddData<ImmutableNode> answer() throws Throwable
+                    {
+                        return new NodeAddData<ImmutableNode>(nodeForKey(model,
+                                key), "Warrior", false, null);
+                    }
+                }).anyTimes();
+        EasyMock.expect(
+                resolver.resolveKey(EasyMock.anyObject(ImmutableNode.class),
+                        EasyMock.eq(KEY), EasyMock.anyObject(TreeData.class)))
+                .andAnswer(new IAnswer<List<QueryResult<ImmutableNode>>>()
+                {
+                    @Override
+                    public List<QueryResult<ImmutableNode>> answer()
+                            throws Throwable
+                    {
+                        List<ImmutableNode> children =
+                                nodeForKey(model, key).getChildren();
+                        return Collections.singletonList(QueryResult
+                                .createNodeResult(children.get(children
+                                        .size() - 1)));
+                    }
+                }).anyTimes();
+        EasyMock.replay(resolver);
+
+        int removed = 0;
+        for (int i = 0; i < numberOfOperations; i++)
+        {
+            model.addProperty(KEY, Collections.singleton(i), resolver);
+            if (i % 3 == 0)
+            {
+                model.clearTree(KEY, resolver);
+                removed++;
+            }
+        }
+        assertEquals("Wrong number of children", nodeForKey(ROOT_AUTHORS_TREE,
+                key).getChildren().size()
+                + numberOfOperations - removed, nodeForKey(model, key)
+                .getChildren().size());
+        checkParentMapping(model.getTreeData());
+    }
+
+    /**
+     * Checks whether the parent mapping of the given {@code TreeData} object
+     * is consistent with the node structure. All nodes must have the correct
+     * parent, and the mapping must not contain any other nodes.
+     *
+     * @param data the {@code TreeData}
+     */
+    private static void checkParentMapping(TreeData data)
+    {
+        List<ImmutableNode> pending = new LinkedList<ImmutableNode>();
+        pending.add(data.getRootNode());
+        int count = 0;
+        while (!pending.isEmpty())
+        {
+            ImmutableNode node = pending.remove(0);
+            for (ImmutableNode child : node.getChildren())
+            {
+                assertSame("Wrong parent for " + child.getNodeName(), node,
+                        data.getParent(child));
+                pending.add(child);
+                count++;
+            }
+        }
+        assertEquals("Wrong number of entries in parent mapping", count, data
+                .getParentMapping().size());
+    }
+
     /**
      * Tests whether concurrent updates of the model are handled correctly. This
      * test adds a number of authors in parallel. Then it is checked whether all
@@ -645,6 +645,98 @@ public class TestInMemoryNodeModelTrackedNodes
         assertFalse("Node is defined", model.getNodeHandler().isDefined(node));
     }
 
+    /**
+     * Creates a resolver which supports arbitrary queries and records the keys
+     * passed to its resolveKey() method.
+     *
+     * @param keys the list for storing the keys
+     * @return the resolver
+     */
+    @SuppressWarnings("unchecked")
+    private static NodeKeyResolver<ImmutableNode> createRecordingResolver(
+            final List<String> keys)
+    {
+        NodeKeyResolver<ImmutableNode> resolver =
+                NodeStructureHelper.createResolverMock();
+        EasyMock.expect(
+                resolver.resolveKey(EasyMock.anyObject(ImmutableNode.class),
+                        EasyMock.anyObject(String.class),
+                        (NodeHandler<ImmutableNode>) EasyMock
+                                .anyObject(NodeHandler.class)))
+                .andAnswer(new IAnswer<List<QueryResult<ImmutableNode>>>()
+                {
+                    @Override
+                    public List<QueryResult<ImmutableNode>> answer()
+                            throws Throwable
+                    {
+                        ImmutableNode root =
+                                (ImmutableNode) EasyMock.getCurrentArguments()[0];
+                        String key = (String) EasyMock.getCurrentArguments()[1];
+                        NodeHandler<ImmutableNode> handler =
+                                (NodeHandler<ImmutableNode>) EasyMock
+                                        .getCurrentArguments()[2];
+                        keys.add(key);
+                        return DefaultExpressionEngine.INSTANCE.query(root,
+                                key, handler);
+                    }
+                }).anyTimes();
+        EasyMock.replay(resolver);
+        return resolver;
+    }
+
+    /**
+     * Tests that an update of the model does not evaluate the selectors of
+     * tracked nodes which are not affected by the changes.
+     */
+    @Test
+    public void testUpdateSkipsUnaffectedTrackedNodes()
+    {
+        List<String> keys = new ArrayList<String>();
+        NodeKeyResolver<ImmutableNode> resolver =
+                createRecordingResolver(keys);
+        NodeSelector selector0 = new NodeSelector("tables.table(0)");
+        model.trackNode(selector0, resolver);
+        model.trackNode(selector, resolver);
+        ImmutableNode node0 = model.getTrackedNode(selector0);
+        keys.clear();
+
+        model.clearProperty("fields.field(0).name", selector, resolver);
+        assertFalse("Unaffected selector evaluated",
+                keys.contains("tables.table(0)"));
+        assertTrue("Affected selector not evaluated",
+                keys.contains(SELECTOR_KEY));
+        assertSame("Unaffected node changed", node0,
+                model.getTrackedNode(selector0));
+        assertSame("Wrong node in model", node0,
+                NodeStructureHelper.nodeForKey(model, "tables/table(0)"));
+        checkForRemovedField(fieldsNodeFromTrackedNode(), 0);
+    }
+
+    /**
+     * Tests that selectors are evaluated again if a node on a higher level
+     * with the same name as an ancestor of the tracked node was changed. This
+     * may change the result of the selector.
+     */
+    @Test
+    public void testUpdateEvaluatesTrackedNodesBelowChangedSibling()
+    {
+        List<String> keys = new ArrayList<String>();
+        NodeKeyResolver<ImmutableNode> resolver =
+                createRecordingResolver(keys);
+        NodeSelector fieldsSelector =
+                new NodeSelector("tables.table(1).fields");
+        model.trackNode(fieldsSelector, resolver);
+        keys.clear();
+
+        model.clearTree("tables.table(0).fields", resolver);
+        assertTrue("Selector not evaluated",
+                keys.contains("tables.table(1).fields"));
+        assertFalse("Node detached",
+                model.isTrackedNodeDetached(fieldsSelector));
+        assertSame("Wrong tracked node", fieldsNodeFromModel(),
+                model.getTrackedNode(fieldsSelector));
+    }
+
     /**
      * Tests whether a node handler for a tracked node can be queried which is
      * still active.
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test class for {@code NodeKeyIndex}.
+ *
+ * @version $Id$
+ */
+public class TestNodeKeyIndex
+{
+    /** The maximum number of queries before an index must be available. */
+    private static final int MAX_QUERIES = 100;
+
+    /** The root node of the test structure. */
+    private static ImmutableNode root;
+
+    /** An expression engine which does not use an index. */
+    private static DefaultExpressionEngine engine;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception
+    {
+        root =
+                new ImmutableNode.Builder()
+                        .addChild(NodeStructureHelper.ROOT_TABLES_TREE)
+                        .addChildren(
+                                NodeStructureHelper.ROOT_PERSONAE_TREE
+                                        .getChildren())
+                        .addAttribute("rootAttr", "test").create();
+        engine =
+                new DefaultExpressionEngine(
+                        DefaultExpressionEngineSymbols.DEFAULT_SYMBOLS)
+                {
+                };
+    }
+
+    /**
+     * Creates an index for the given root node and queries it until the index
+     * data is available.
+     *
+     * @param rootNode the root node
+     * @return the index
+     */
+    private static NodeKeyIndex createIndex(ImmutableNode rootNode)
+    {
+        NodeKeyIndex index = new NodeKeyIndex(rootNode, 0);
+        for (int i = 0; i < MAX_QUERIES && index.query("tables") == null; i++)
+        {
+            // repeat queries until the threshold is reached
+        }
+        return index;
+    }
+
+    /**
+     * Collects all keys of the test structure.
+     *
+     * @param handler the node handler
+     * @return a set with all keys
+     */
+    private static Set<String> collectKeys(final NodeHandler<ImmutableNode> handler)
+    {
+        final Set<String> keys = new LinkedHashSet<String>();
+        NodeTreeWalker.INSTANCE.walkDFS(root,
+                new ConfigurationNodeVisitorAdapter<ImmutableNode>()
+                {
+                    @Override
+                    public void visitBeforeChildren(ImmutableNode node,
+                            NodeHandler<ImmutableNode> h)
+                    {
+                        String key = keyFor(node, h);
+                        if (key.length() > 0)
+                        {
+                            keys.add(key);
+                        }
+                        for (String attr : node.getAttributes().keySet())
+                        {
+                            keys.add(engine.attributeKey(key, attr));
+                        }
+                    }
+
+                    private String keyFor(ImmutableNode node,
+                            NodeHandler<ImmutableNode> h)
+                    {
+                        ImmutableNode parent = h.getParent(node);
+                        return engine.nodeKey(node, (parent == null) ? null
+                                : keyFor(parent, h), h);
+                    }
+                }, handler);
+        return keys;
+    }
+
+    /**
+     * Tests which keys can be handled by an index.
+     */
+    @Test
+    public void testIsIndexedKey()
+    {
+        assertTrue("Simple key", NodeKeyIndex.isIndexedKey("a"));
+        assertTrue("Path", NodeKeyIndex.isIndexedKey("a.b.c"));
+        assertTrue("Attribute", NodeKeyIndex.isIndexedKey("a.b[@c]"));
+        assertTrue("Root attribute", NodeKeyIndex.isIndexedKey("[@c]"));
+        assertFalse("Null", NodeKeyIndex.isIndexedKey(null));
+        assertFalse("Empty", NodeKeyIndex.isIndexedKey(""));
+        assertFalse("Index", NodeKeyIndex.isIndexedKey("a(0).b"));
+        assertFalse("Escaped", NodeKeyIndex.isIndexedKey("a..b"));
+        assertFalse("Leading delimiter", NodeKeyIndex.isIndexedKey(".a"));
+        assertFalse("Trailing delimiter", NodeKeyIndex.isIndexedKey("a."));
+        assertFalse("Attribute in path",
+                NodeKeyIndex.isIndexedKey("a[@b].c"));
+        assertFalse("Empty attribute", NodeKeyIndex.isIndexedKey("a[@]"));
+        assertFalse("Invalid attribute", NodeKeyIndex.isIndexedKey("a]"));
+    }
+
+    /**
+     * Tests that the index is not created for the first queries.
+     */
+    @Test
+    public void testQueryBeforeThreshold()
+    {
+        NodeKeyIndex index = new NodeKeyIndex(root, 0);
+        assertNull("Got results", index.query("tables"));
+    }
+
+    /**
+     * Tests that the index yields the same results as the expression engine.
+     */
+    @Test
+    public void testQueryResults()
+    {
+        NodeHandler<ImmutableNode> handler =
+                new InMemoryNodeModel(root).getNodeHandler();
+        NodeKeyIndex index = createIndex(root);
+        Set<String> keys = collectKeys(handler);
+        keys.add("tables.table.unknown");
+        keys.add("tables.table[@unknown]");
+        for (String key : keys)
+        {
+            List<QueryResult<ImmutableNode>> results = index.query(key);
+            assertNotNull("No results for " + key, results);
+            assertEquals("Wrong results for " + key,
+                    engine.query(root, key, handler),
+                    new ArrayList<QueryResult<ImmutableNode>>(results));
+        }
+    }
+
+    /**
+     * Tests that keys not supported by the index are not evaluated.
+     */
+    @Test
+    public void testQueryUnsupportedKey()
+    {
+        NodeKeyIndex index = createIndex(root);
+        assertNull("Got results", index.query("tables.table(0).name"));
+    }
+
+    /**
+     * Tests that no index is created if the structure contains names with
+     * special characters.
+     */
+    @Test
+    public void testQueryUnsupportedNodeNames()
+    {
+        ImmutableNode child =
+                new ImmutableNode.Builder().name("a.b").value("test").create();
+        ImmutableNode testRoot =
+                new ImmutableNode.Builder(1).addChild(child).create();
+        NodeKeyIndex index = new NodeKeyIndex(testRoot, 0);
+        for (int i = 0; i < MAX_QUERIES; i++)
+        {
+            assertNull("Got results", index.query("a"));
+        }
+    }
+
+    /**
+     * Tests that queries on an in-memory model use an index which is
+     * discarded when the model is changed.
+     */
+    @Test
+    public void testQueryModelAfterUpdate()
+    {
+        InMemoryNodeModel model = new InMemoryNodeModel(root);
+        String key = "tables.table.name";
+        for (int i = 0; i < MAX_QUERIES; i++)
+        {
+            assertEquals("Wrong number of results",
+                    NodeStructureHelper.tablesLength(),
+                    DefaultExpressionEngine.INSTANCE.query(
+                            model.getRootNode(), key, model.getNodeHandler())
+                            .size());
+        }
+        assertNotNull("No index used", model.getTreeData().queryKeyIndex(
+                model.getRootNode(), key));
+
+        model.setRootNode(NodeStructureHelper.ROOT_PERSONAE_TREE);
+        assertTrue("Got results", DefaultExpressionEngine.INSTANCE.query(
+                model.getRootNode(), key, model.getNodeHandler()).isEmpty());
+    }
+}
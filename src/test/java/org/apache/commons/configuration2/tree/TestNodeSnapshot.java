@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test class for {@code NodeSnapshot}.
+ *
+ * @version $Id$
+ */
+public class TestNodeSnapshot
+{
+    /** A helper object for creating temporary files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Creates a snapshot for the given node structure in memory.
+     *
+     * @param root the root node
+     * @return the snapshot
+     */
+    private static NodeSnapshot createSnapshot(ImmutableNode root)
+            throws IOException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        NodeSnapshot.write(root, bos);
+        return NodeSnapshot.wrap(ByteBuffer.wrap(bos.toByteArray()));
+    }
+
+    /**
+     * Creates a test node structure containing values of different types.
+     *
+     * @return the root node of the structure
+     */
+    private static ImmutableNode createTypedTree()
+    {
+        return new ImmutableNode.Builder().name("root")
+                .addAttribute("attr", "test").addAttribute("flag", true)
+                .addChild(NodeStructureHelper.createNode("int", 42))
+                .addChild(NodeStructureHelper.createNode("long", 1L << 40))
+                .addChild(NodeStructureHelper.createNode("float", 1.5f))
+                .addChild(NodeStructureHelper.createNode("double", 2.25))
+                .addChild(NodeStructureHelper.createNode("bool", Boolean.FALSE))
+                .addChild(NodeStructureHelper.createNode("str", "äöü"))
+                .addChild(NodeStructureHelper.createNode("other", new StringBuilder("sb")))
+                .addChild(NodeStructureHelper.createNode("empty", null))
+                .create();
+    }
+
+    /**
+     * Checks whether the given snapshot node corresponds to the given
+     * immutable node.
+     *
+     * @param expected the expected node
+     * @param node the snapshot node
+     * @param handler the snapshot node handler
+     */
+    private static void checkNode(ImmutableNode expected, SnapshotNode node,
+            NodeHandler<SnapshotNode> handler)
+    {
+        assertEquals("Wrong name", expected.getNodeName(),
+                handler.nodeName(node));
+        assertEquals("Wrong value for " + expected.getNodeName(),
+                expected.getValue(), handler.getValue(node));
+        assertEquals("Wrong attributes", expected.getAttributes().keySet(),
+                handler.getAttributes(node));
+        for (Map.Entry<String, Object> e : expected.getAttributes().entrySet())
+        {
+            assertEquals("Wrong attribute value", e.getValue(),
+                    handler.getAttributeValue(node, e.getKey()));
+        }
+        List<SnapshotNode> children = handler.getChildren(node);
+        assertEquals("Wrong number of children", expected.getChildren()
+                .size(), children.size());
+        for (int i = 0; i < children.size(); i++)
+        {
+            SnapshotNode child = children.get(i);
+            assertEquals("Wrong parent", node, handler.getParent(child));
+            assertEquals("Wrong child index", i,
+                    handler.indexOfChild(node, child));
+            checkNode(expected.getChildren().get(i), child, handler);
+        }
+    }
+
+    /**
+     * Tests whether a complex structure can be read from a snapshot.
+     */
+    @Test
+    public void testReadStructure() throws IOException
+    {
+        NodeSnapshot snapshot =
+                createSnapshot(NodeStructureHelper.ROOT_PERSONAE_TREE);
+        NodeHandler<SnapshotNode> handler = snapshot.getNodeHandler();
+        assertNull("Got a parent", handler.getParent(snapshot.getRootNode()));
+        checkNode(NodeStructureHelper.ROOT_PERSONAE_TREE,
+                snapshot.getRootNode(), handler);
+    }
+
+    /**
+     * Tests whether the types of values are retained.
+     */
+    @Test
+    public void testTypedValues() throws IOException
+    {
+        ImmutableNode root = createTypedTree();
+        NodeSnapshot snapshot = createSnapshot(root);
+        NodeHandler<SnapshotNode> handler = snapshot.getNodeHandler();
+        List<SnapshotNode> children =
+                handler.getChildren(snapshot.getRootNode());
+        assertEquals("Wrong int", Integer.valueOf(42),
+                handler.getValue(children.get(0)));
+        assertEquals("Wrong long", Long.valueOf(1L << 40),
+                handler.getValue(children.get(1)));
+        assertEquals("Wrong float", Float.valueOf(1.5f),
+                handler.getValue(children.get(2)));
+        assertEquals("Wrong double", Double.valueOf(2.25),
+                handler.getValue(children.get(3)));
+        assertEquals("Wrong boolean", Boolean.FALSE,
+                handler.getValue(children.get(4)));
+        assertEquals("Wrong string", "äöü",
+                handler.getValue(children.get(5)));
+        assertEquals("Wrong other value", "sb",
+                handler.getValue(children.get(6)));
+        assertNull("Got a value", handler.getValue(children.get(7)));
+        assertFalse("Defined", handler.isDefined(children.get(7)));
+        assertEquals("Wrong attribute", Boolean.TRUE,
+                handler.getAttributeValue(snapshot.getRootNode(), "flag"));
+        assertNull("Got unknown attribute",
+                handler.getAttributeValue(snapshot.getRootNode(), "unknown"));
+    }
+
+    /**
+     * Tests the methods for querying children by name.
+     */
+    @Test
+    public void testChildrenByName() throws IOException
+    {
+        ImmutableNode root =
+                new ImmutableNode.Builder().name("root")
+                        .addChild(NodeStructureHelper.createNode("a", 1))
+                        .addChild(NodeStructureHelper.createNode("b", 2))
+                        .addChild(NodeStructureHelper.createNode("a", 3))
+                        .create();
+        NodeSnapshot snapshot = createSnapshot(root);
+        NodeHandler<SnapshotNode> handler = snapshot.getNodeHandler();
+        SnapshotNode rootNode = handler.getRootNode();
+        List<SnapshotNode> children = handler.getChildren(rootNode, "a");
+        assertEquals("Wrong number of children", 2, children.size());
+        assertEquals("Wrong value", 3, handler.getValue(children.get(1)));
+        assertEquals("Wrong count", 2, handler.getChildrenCount(rootNode, "a"));
+        assertEquals("Wrong total count", 3,
+                handler.getChildrenCount(rootNode, null));
+        assertEquals("Wrong child", handler.getChildren(rootNode).get(1),
+                handler.getChild(rootNode, 1));
+        assertEquals("Wrong index of foreign child", -1,
+                handler.indexOfChild(children.get(0), children.get(1)));
+    }
+
+    /**
+     * Tests that node objects are handles which are equal if they refer to
+     * the same node.
+     */
+    @Test
+    public void testNodeEquals() throws IOException
+    {
+        NodeSnapshot snapshot =
+                createSnapshot(NodeStructureHelper.ROOT_AUTHORS_TREE);
+        NodeHandler<SnapshotNode> handler = snapshot.getNodeHandler();
+        SnapshotNode child1 = handler.getChild(snapshot.getRootNode(), 0);
+        SnapshotNode child2 = handler.getChild(snapshot.getRootNode(), 0);
+        assertNotSame("Same instance", child1, child2);
+        assertEquals("Not equal", child1, child2);
+        assertEquals("Different hash codes", child1.hashCode(),
+                child2.hashCode());
+        assertFalse("Equal to other node",
+                child1.equals(handler.getChild(snapshot.getRootNode(), 1)));
+        assertEquals("Wrong number of distinct nodes", 2,
+                new HashSet<SnapshotNode>(Arrays.asList(child1, child2,
+                        handler.getChild(snapshot.getRootNode(), 1))).size());
+    }
+
+    /**
+     * Tests whether a snapshot can be converted back to immutable nodes.
+     */
+    @Test
+    public void testToImmutableNode() throws IOException
+    {
+        ImmutableNode root = createTypedTree();
+        NodeSnapshot snapshot = createSnapshot(root);
+        ImmutableNode copy = snapshot.toImmutableNode(snapshot.getRootNode());
+        NodeSnapshot snapshot2 = createSnapshot(copy);
+        checkNode(copy, snapshot2.getRootNode(), snapshot2.getNodeHandler());
+        assertEquals("Wrong number of children", root.getChildren().size(),
+                copy.getChildren().size());
+        assertEquals("Wrong attributes", root.getAttributes(),
+                copy.getAttributes());
+    }
+
+    /**
+     * Tests whether a snapshot file can be written and mapped.
+     */
+    @Test
+    public void testWriteAndOpenFile() throws IOException
+    {
+        File file = folder.newFile("snapshot.bin");
+        NodeSnapshot.write(NodeStructureHelper.ROOT_TABLES_TREE, file);
+        NodeSnapshot snapshot = NodeSnapshot.open(file);
+        checkNode(NodeStructureHelper.ROOT_TABLES_TREE,
+                snapshot.getRootNode(), snapshot.getNodeHandler());
+    }
+
+    /**
+     * Tests whether the number of nodes is stored.
+     */
+    @Test
+    public void testGetNodeCount() throws IOException
+    {
+        NodeSnapshot snapshot = createSnapshot(createTypedTree());
+        assertEquals("Wrong node count", 9, snapshot.getNodeCount());
+    }
+
+    /**
+     * Tests that invalid data is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrapInvalidData()
+    {
+        NodeSnapshot.wrap(ByteBuffer.wrap(new byte[64]));
+    }
+
+    /**
+     * Tests that truncated data is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrapTruncatedData() throws IOException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        NodeSnapshot.write(NodeStructureHelper.ROOT_AUTHORS_TREE, bos);
+        byte[] data = bos.toByteArray();
+        NodeSnapshot.wrap(ByteBuffer.wrap(data, 0, data.length - 1).slice());
+    }
+
+    /**
+     * Tests that a node from another snapshot is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testToImmutableNodeForeignNode() throws IOException
+    {
+        NodeSnapshot snapshot = createSnapshot(createTypedTree());
+        createSnapshot(createTypedTree()).toImmutableNode(
+                snapshot.getRootNode());
+    }
+
+    /**
+     * Tests that a sub tree model treats its root node as root.
+     */
+    @Test
+    public void testSubTreeModel() throws IOException
+    {
+        NodeSnapshot snapshot =
+                createSnapshot(NodeStructureHelper.ROOT_TABLES_TREE);
+        SnapshotNode tables =
+                snapshot.getNodeHandler().getChild(snapshot.getRootNode(), 0);
+        SnapshotNodeModel model = new SnapshotNodeModel(snapshot, tables);
+        NodeHandler<SnapshotNode> handler = model.getNodeHandler();
+        assertEquals("Wrong root", tables, handler.getRootNode());
+        assertNull("Got a parent", handler.getParent(tables));
+        assertEquals("Wrong in-memory representation",
+                NodeStructureHelper.ROOT_TABLES_TREE.getChildren().get(0)
+                        .getNodeName(), model.getInMemoryRepresentation()
+                        .getNodeName());
+        assertTrue("No children",
+                !model.getInMemoryRepresentation().getChildren().isEmpty());
+    }
+
+    /**
+     * Tests that a snapshot model cannot be changed.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testModelReadOnly() throws IOException
+    {
+        SnapshotNodeModel model =
+                new SnapshotNodeModel(
+                        createSnapshot(NodeStructureHelper.ROOT_TABLES_TREE));
+        model.clear(null);
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@code PersistentHashMap}.
+ *
+ * @version $Id$
+ */
+public class TestPersistentHashMap
+{
+    /** Constant for the number of entries used by tests for larger maps. */
+    private static final int COUNT = 5000;
+
+    /**
+     * Creates a map with the given number of test entries.
+     *
+     * @param count the number of entries
+     * @return the map
+     */
+    private static PersistentHashMap<String, Integer> createMap(int count)
+    {
+        PersistentHashMap.Mutator<String, Integer> mutator =
+                PersistentHashMap.<String, Integer> empty().mutator();
+        for (int i = 0; i < count; i++)
+        {
+            mutator.put(key(i), i);
+        }
+        return mutator.toMap();
+    }
+
+    /**
+     * Generates the key for the test entry with the given index.
+     *
+     * @param i the index
+     * @return the key
+     */
+    private static String key(int i)
+    {
+        return "key" + i;
+    }
+
+    /**
+     * Checks whether the given map contains exactly the expected entries.
+     *
+     * @param expected the map with the expected entries
+     * @param map the map to be checked
+     */
+    private static void checkContent(Map<String, Integer> expected,
+            PersistentHashMap<String, Integer> map)
+    {
+        assertEquals("Wrong size", expected.size(), map.size());
+        Map<String, Integer> content = new HashMap<String, Integer>();
+        for (Map.Entry<String, Integer> e : map)
+        {
+            assertNull("Duplicate key: " + e.getKey(),
+                    content.put(e.getKey(), e.getValue()));
+        }
+        assertEquals("Wrong entries", expected, content);
+        for (Map.Entry<String, Integer> e : expected.entrySet())
+        {
+            assertEquals("Wrong value for " + e.getKey(), e.getValue(),
+                    map.get(e.getKey()));
+        }
+    }
+
+    /**
+     * Tests the properties of an empty map.
+     */
+    @Test
+    public void testEmpty()
+    {
+        PersistentHashMap<String, Integer> map = PersistentHashMap.empty();
+        assertTrue("Not empty", map.isEmpty());
+        assertEquals("Wrong size", 0, map.size());
+        assertNull("Got a value", map.get(key(1)));
+        assertFalse("Got an entry", map.iterator().hasNext());
+    }
+
+    /**
+     * Tests whether entries can be added and queried.
+     */
+    @Test
+    public void testPutAndGet()
+    {
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        PersistentHashMap<String, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < COUNT; i++)
+        {
+            map = map.put(key(i), i);
+            expected.put(key(i), i);
+        }
+        checkContent(expected, map);
+        assertFalse("Unknown key found", map.containsKey("unknown"));
+    }
+
+    /**
+     * Tests that a put operation does not affect the original map.
+     */
+    @Test
+    public void testPutDoesNotChangeOriginal()
+    {
+        PersistentHashMap<String, Integer> map = createMap(100);
+        PersistentHashMap<String, Integer> map2 = map.put(key(1), -1);
+        PersistentHashMap<String, Integer> map3 = map.put("new", 100);
+        assertEquals("Original value changed", Integer.valueOf(1),
+                map.get(key(1)));
+        assertEquals("Value not replaced", Integer.valueOf(-1),
+                map2.get(key(1)));
+        assertEquals("Wrong size after replace", 100, map2.size());
+        assertFalse("Original map changed", map.containsKey("new"));
+        assertEquals("Wrong size after put", 101, map3.size());
+    }
+
+    /**
+     * Tests that the same map is returned if a put operation does not change
+     * anything.
+     */
+    @Test
+    public void testPutSameValue()
+    {
+        PersistentHashMap<String, Integer> map = createMap(10);
+        assertSame("Map was changed", map, map.put(key(1), map.get(key(1))));
+    }
+
+    /**
+     * Tests whether entries can be removed.
+     */
+    @Test
+    public void testRemove()
+    {
+        PersistentHashMap<String, Integer> map = createMap(COUNT);
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        for (int i = 0; i < COUNT; i++)
+        {
+            if (i % 3 == 0)
+            {
+                map = map.remove(key(i));
+            }
+            else
+            {
+                expected.put(key(i), i);
+            }
+        }
+        checkContent(expected, map);
+    }
+
+    /**
+     * Tests that a remove operation does not affect the original map.
+     */
+    @Test
+    public void testRemoveDoesNotChangeOriginal()
+    {
+        PersistentHashMap<String, Integer> map = createMap(100);
+        PersistentHashMap<String, Integer> map2 = map.remove(key(42));
+        assertTrue("Key removed from original", map.containsKey(key(42)));
+        assertFalse("Key not removed", map2.containsKey(key(42)));
+        assertEquals("Wrong size", 99, map2.size());
+    }
+
+    /**
+     * Tests a remove operation for a non-existing key.
+     */
+    @Test
+    public void testRemoveNonExisting()
+    {
+        PersistentHashMap<String, Integer> map = createMap(10);
+        assertSame("Map was changed", map, map.remove("unknown"));
+    }
+
+    /**
+     * Tests that removing all entries yields an empty map.
+     */
+    @Test
+    public void testRemoveAll()
+    {
+        PersistentHashMap<String, Integer> map = createMap(COUNT);
+        for (int i = 0; i < COUNT; i++)
+        {
+            map = map.remove(key(i));
+        }
+        assertTrue("Not empty", map.isEmpty());
+        assertFalse("Got entries", map.iterator().hasNext());
+    }
+
+    /**
+     * Tests whether keys with colliding hash codes are handled correctly.
+     */
+    @Test
+    public void testHashCollisions()
+    {
+        PersistentHashMap<CollidingKey, Integer> map =
+                PersistentHashMap.empty();
+        for (int i = 0; i < 10; i++)
+        {
+            map = map.put(new CollidingKey(i), i);
+        }
+        map = map.put(new CollidingKey(-1, 1), -1);
+        assertEquals("Wrong size", 11, map.size());
+        for (int i = 0; i < 10; i++)
+        {
+            assertEquals("Wrong value", Integer.valueOf(i),
+                    map.get(new CollidingKey(i)));
+        }
+        assertEquals("Wrong value for other hash", Integer.valueOf(-1),
+                map.get(new CollidingKey(-1, 1)));
+
+        map = map.remove(new CollidingKey(5));
+        assertNull("Key not removed", map.get(new CollidingKey(5)));
+        assertEquals("Wrong size after remove", 10, map.size());
+    }
+
+    /**
+     * Tests that a mutator does not change the map it was created from.
+     */
+    @Test
+    public void testMutatorDoesNotChangeOriginal()
+    {
+        PersistentHashMap<String, Integer> map = createMap(COUNT);
+        PersistentHashMap.Mutator<String, Integer> mutator = map.mutator();
+        for (int i = 0; i < COUNT; i += 2)
+        {
+            mutator.remove(key(i));
+            mutator.put(key(i + 1), -i);
+        }
+        PersistentHashMap<String, Integer> map2 = mutator.toMap();
+        assertEquals("Wrong size of result", COUNT / 2, map2.size());
+        assertEquals("Wrong value in result", Integer.valueOf(-2),
+                map2.get(key(3)));
+
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        for (int i = 0; i < COUNT; i++)
+        {
+            expected.put(key(i), i);
+        }
+        checkContent(expected, map);
+    }
+
+    /**
+     * Tests the return values of the mutator's update methods.
+     */
+    @Test
+    public void testMutatorReturnValues()
+    {
+        PersistentHashMap.Mutator<String, Integer> mutator =
+                createMap(10).mutator();
+        assertNull("Got an old value", mutator.put("new", 1));
+        assertEquals("Wrong old value", Integer.valueOf(1),
+                mutator.put(key(1), 11));
+        assertEquals("Wrong removed value", Integer.valueOf(2),
+                mutator.remove(key(2)));
+        assertNull("Got a removed value", mutator.remove("unknown"));
+        assertEquals("Wrong size", 10, mutator.size());
+        assertEquals("Wrong value", Integer.valueOf(11), mutator.get(key(1)));
+    }
+
+    /**
+     * Tests that a mutator cannot be used after the map has been created.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testMutatorCompleted()
+    {
+        PersistentHashMap.Mutator<String, Integer> mutator =
+                createMap(10).mutator();
+        mutator.toMap();
+        mutator.put(key(1), 1);
+    }
+
+    /**
+     * Tests that null values are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testPutNullValue()
+    {
+        PersistentHashMap.<String, Integer> empty().put(key(1), null);
+    }
+
+    /**
+     * Tests whether a map can be created from a standard map.
+     */
+    @Test
+    public void testCopyOf()
+    {
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        for (int i = 0; i < 100; i++)
+        {
+            expected.put(key(i), i);
+        }
+        checkContent(expected, PersistentHashMap.copyOf(expected));
+    }
+
+    /**
+     * A test key class which allows controlling the hash code.
+     */
+    private static class CollidingKey
+    {
+        /** The ID of this key. */
+        private final int id;
+
+        /** The hash code. */
+        private final int hash;
+
+        /**
+         * Creates a new key with the given ID and a constant hash code.
+         *
+         * @param id the ID
+         */
+        public CollidingKey(int id)
+        {
+            this(id, 0);
+        }
+
+        /**
+         * Creates a new key with the given ID and hash code.
+         *
+         * @param id the ID
+         * @param hash the hash code
+         */
+        public CollidingKey(int id, int hash)
+        {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof CollidingKey
+                    && ((CollidingKey) obj).id == id
+                    && ((CollidingKey) obj).hash == hash;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.configuration2.tree.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.commons.configuration2.tree.ImmutableNode;
+import org.apache.commons.configuration2.tree.InMemoryNodeModel;
+import org.apache.commons.configuration2.tree.NodeHandler;
+import org.apache.commons.configuration2.tree.NodeStructureHelper;
+import org.apache.commons.configuration2.tree.QueryResult;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test class for {@code SimpleXPath}.
+ *
+ * @version $Id$
+ */
+public class TestSimpleXPath
+{
+    /** The root node of the test hierarchy. */
+    private static ImmutableNode root;
+
+    /** The node handler. */
+    private static NodeHandler<ImmutableNode> handler;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception
+    {
+        root =
+                new ImmutableNode.Builder(1).addChild(
+                        NodeStructureHelper.ROOT_TABLES_TREE).create();
+        handler = new InMemoryNodeModel(root).getNodeHandler();
+    }
+
+    /**
+     * Evaluates the given key, which must be a simple path.
+     *
+     * @param key the key
+     * @return the results
+     */
+    private static List<QueryResult<ImmutableNode>> evaluate(String key)
+    {
+        SimpleXPath path = SimpleXPath.parse(key);
+        assertNotNull("Not a simple path: " + key, path);
+        return path.evaluate(root, handler);
+    }
+
+    /**
+     * Checks that the given key is not accepted as simple path.
+     *
+     * @param key the key
+     */
+    private static void checkNoSimplePath(String key)
+    {
+        assertNull("Simple path: " + key, SimpleXPath.parse(key));
+    }
+
+    /**
+     * Tests that keys which require JXPath are not accepted.
+     */
+    @Test
+    public void testParseNoSimplePath()
+    {
+        checkNoSimplePath(null);
+        checkNoSimplePath("");
+        checkNoSimplePath("/");
+        checkNoSimplePath("a/");
+        checkNoSimplePath("a//b");
+        checkNoSimplePath("//a");
+        checkNoSimplePath("a/*");
+        checkNoSimplePath("a/@*");
+        checkNoSimplePath("a/..");
+        checkNoSimplePath("a/.");
+        checkNoSimplePath("ns:a");
+        checkNoSimplePath("a[0]");
+        checkNoSimplePath("a[last()]");
+        checkNoSimplePath("a[@name='x']");
+        checkNoSimplePath("a[1");
+        checkNoSimplePath("a/@b/c");
+        checkNoSimplePath("a@b");
+        checkNoSimplePath("1a");
+        checkNoSimplePath("a | b");
+        checkNoSimplePath("text()");
+    }
+
+    /**
+     * Tests whether a path selecting child nodes can be evaluated.
+     */
+    @Test
+    public void testEvaluateChildren()
+    {
+        List<QueryResult<ImmutableNode>> results =
+                evaluate("tables/table/fields/field/name");
+        assertEquals("Wrong number of results",
+                NodeStructureHelper.fieldsLength(0)
+                        + NodeStructureHelper.fieldsLength(1), results.size());
+        int idx = 0;
+        for (int t = 0; t < NodeStructureHelper.tablesLength(); t++)
+        {
+            for (int f = 0; f < NodeStructureHelper.fieldsLength(t); f++)
+            {
+                assertEquals("Wrong field at " + idx,
+                        NodeStructureHelper.field(t, f), results.get(idx++)
+                                .getNode().getValue());
+            }
+        }
+    }
+
+    /**
+     * Tests whether a path starting with a slash can be evaluated.
+     */
+    @Test
+    public void testEvaluateAbsolutePath()
+    {
+        List<QueryResult<ImmutableNode>> results =
+                evaluate("/tables/table[2]/name");
+        assertEquals("Wrong number of results", 1, results.size());
+        assertEquals("Wrong node", NodeStructureHelper.table(1), results
+                .get(0).getNode().getValue());
+    }
+
+    /**
+     * Tests whether indices are applied to the children of each parent node.
+     */
+    @Test
+    public void testEvaluateIndexPerParent()
+    {
+        List<QueryResult<ImmutableNode>> results =
+                evaluate("tables/table/fields/field[2]/name");
+        assertEquals("Wrong number of results",
+                NodeStructureHelper.tablesLength(), results.size());
+        for (int t = 0; t < NodeStructureHelper.tablesLength(); t++)
+        {
+            assertEquals("Wrong field", NodeStructureHelper.field(t, 1),
+                    results.get(t).getNode().getValue());
+        }
+    }
+
+    /**
+     * Tests an index which is out of range.
+     */
+    @Test
+    public void testEvaluateIndexOutOfRange()
+    {
+        assertTrue("Got results", evaluate("tables/table[3]").isEmpty());
+    }
+
+    /**
+     * Tests a path for a non-existing node.
+     */
+    @Test
+    public void testEvaluateNonExisting()
+    {
+        assertTrue("Got results", evaluate("tables/unknown/node").isEmpty());
+    }
+
+    /**
+     * Tests whether attributes can be selected.
+     */
+    @Test
+    public void testEvaluateAttribute()
+    {
+        ImmutableNode child =
+                new ImmutableNode.Builder().name("child")
+                        .addAttribute("attr", "value").create();
+        ImmutableNode noAttr = new ImmutableNode.Builder().name("child").create();
+        ImmutableNode testRoot =
+                new ImmutableNode.Builder(2).addChild(noAttr).addChild(child)
+                        .addAttribute("rootAttr", "test").create();
+        NodeHandler<ImmutableNode> testHandler =
+                new InMemoryNodeModel(testRoot).getNodeHandler();
+
+        List<QueryResult<ImmutableNode>> results =
+                SimpleXPath.parse("child/@attr").evaluate(testRoot,
+                        testHandler);
+        assertEquals("Wrong number of results", 1, results.size());
+        assertEquals("Wrong result",
+                QueryResult.createAttributeResult(child, "attr"),
+                results.get(0));
+        results = SimpleXPath.parse("@rootAttr").evaluate(testRoot, testHandler);
+        assertEquals("Wrong number of root results", 1, results.size());
+        assertSame("Wrong root node", testRoot, results.get(0).getNode());
+        assertTrue("Got results for unknown attribute",
+                SimpleXPath.parse("child/@unknown")
+                        .evaluate(testRoot, testHandler).isEmpty());
+    }
+}
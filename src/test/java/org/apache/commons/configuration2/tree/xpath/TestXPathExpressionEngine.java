@@ -45,8 +45,11 @@ import org.junit.Test;
  */
 public class TestXPathExpressionEngine
 {
-    /** Constant for the valid test key. */
-    private static final String TEST_KEY = "TESTKEY";
+    /**
+     * Constant for the valid test key. This key is not a simple path, so it is
+     * evaluated by JXPath.
+     */
+    private static final String TEST_KEY = "TESTKEY[last()]";
 
     /** Constant for the name of the root node. */
     private static final String ROOT_NAME = "testRoot";
@@ -185,6 +188,68 @@ public class TestXPathExpressionEngine
         assertSame("Wrong result node", root, results.get(0).getNode());
     }
 
+    /**
+     * Tests that a new context is created for each query. A context is not
+     * thread-safe and therefore must not be shared.
+     */
+    @Test
+    public void testQueryCreatesContextPerCall()
+    {
+        JXPathContext ctx = EasyMock.createMock(JXPathContext.class);
+        EasyMock.expect(ctx.selectNodes(TEST_KEY)).andReturn(
+                Arrays.asList(root)).times(2);
+        XPathContextFactory factory =
+                EasyMock.createMock(XPathContextFactory.class);
+        EasyMock.expect(factory.createContext(root, handler)).andReturn(ctx)
+                .times(2);
+        EasyMock.replay(ctx, factory);
+        XPathExpressionEngine engine = new XPathExpressionEngine(factory);
+        engine.query(root, TEST_KEY, handler);
+        List<QueryResult<ImmutableNode>> result =
+                engine.query(root, TEST_KEY, handler);
+        assertEquals("Incorrect number of results", 1, result.size());
+        EasyMock.verify(ctx, factory);
+    }
+
+    /**
+     * Tests that simple paths are evaluated without a JXPath context.
+     */
+    @Test
+    public void testQuerySimplePath()
+    {
+        ImmutableNode attrNode =
+                new ImmutableNode.Builder().name("child")
+                        .addAttribute("attr", "value").create();
+        ImmutableNode child1 = new ImmutableNode.Builder().name("child").create();
+        ImmutableNode other = new ImmutableNode.Builder().name("other").create();
+        ImmutableNode testRoot =
+                new ImmutableNode.Builder(3).name(ROOT_NAME)
+                        .addChildren(Arrays.asList(child1, other, attrNode))
+                        .create();
+        NodeHandler<ImmutableNode> testHandler =
+                new InMemoryNodeModel(testRoot).getNodeHandler();
+        XPathContextFactory factory =
+                EasyMock.createMock(XPathContextFactory.class);
+        EasyMock.replay(factory);
+        XPathExpressionEngine engine = new XPathExpressionEngine(factory);
+
+        List<QueryResult<ImmutableNode>> result =
+                engine.query(testRoot, "/child", testHandler);
+        assertEquals("Wrong number of children", 2, result.size());
+        assertSame("Wrong child 1", child1, result.get(0).getNode());
+        assertSame("Wrong child 2", attrNode, result.get(1).getNode());
+        result = engine.query(testRoot, "child[2]", testHandler);
+        assertEquals("Wrong number of indexed children", 1, result.size());
+        assertSame("Wrong indexed child", attrNode, result.get(0).getNode());
+        result = engine.query(testRoot, "child/@attr", testHandler);
+        assertEquals("Wrong number of attributes", 1, result.size());
+        assertEquals("Wrong attribute result",
+                QueryResult.createAttributeResult(attrNode, "attr"),
+                result.get(0));
+        assertTrue("Got results",
+                engine.query(testRoot, "child[3]", testHandler).isEmpty());
+    }
+
     /**
      * Tests if the JXPathContext is correctly initialized with the node pointer
      * factory.
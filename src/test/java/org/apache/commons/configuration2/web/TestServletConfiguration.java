@@ -17,6 +17,12 @@
 
 package org.apache.commons.configuration2.web;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
 import javax.servlet.Servlet;
 import javax.servlet.ServletConfig;
 import javax.servlet.http.HttpServlet;
@@ -24,6 +30,7 @@ import javax.servlet.http.HttpServlet;
 import org.apache.commons.configuration2.AbstractConfiguration;
 import org.apache.commons.configuration2.TestAbstractConfiguration;
 import org.apache.commons.configuration2.convert.DefaultListDelimiterHandler;
+import org.apache.commons.configuration2.convert.DisabledListDelimiterHandler;
 import org.junit.Test;
 
 import com.mockobjects.servlet.MockServletConfig;
@@ -82,4 +89,40 @@ public class TestServletConfiguration extends TestAbstractConfiguration
     {
        super.testClearProperty();
     }
+
+    /**
+     * Tests that the result of splitting a parameter is reused.
+     */
+    @Test
+    public void testGetPropertySplitCached()
+    {
+        AbstractConfiguration config = getConfiguration();
+        Object value = config.getProperty("list");
+        assertEquals("Wrong value", Arrays.asList("value1", "value2"), value);
+        assertSame("Not cached", value, config.getProperty("list"));
+    }
+
+    /**
+     * Tests that a list obtained by splitting a parameter cannot be modified.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetPropertyListUnmodifiable()
+    {
+        AbstractConfiguration config = getConfiguration();
+        ((List<?>) config.getProperty("list")).clear();
+    }
+
+    /**
+     * Tests that cached split results are not used after the list delimiter
+     * handler has been changed.
+     */
+    @Test
+    public void testGetPropertyListDelimiterHandlerChanged()
+    {
+        AbstractConfiguration config = getConfiguration();
+        config.getProperty("list");
+        config.setListDelimiterHandler(DisabledListDelimiterHandler.INSTANCE);
+        assertEquals("Wrong value", "value1, value2",
+                config.getProperty("list"));
+    }
 }